@@ -27,6 +27,11 @@ public class App {
      */
     private static int backlog;
 
+    /**
+     * La façon dont le serveur gère les connexions de ses clients
+     */
+    private static Server.Mode mode;
+
     /**
      * Chemin du ficher de configuration
      */
@@ -42,6 +47,11 @@ public class App {
      */
     private static final String BACKLOG_KEY = "backlog";
 
+    /**
+     * Nom du champ pour la valeur de {@code MODE}
+     */
+    private static final String MODE_KEY = "mode";
+
     /**
      * Commentaire d'erreur en static pour la gestion de fichier
      */
@@ -63,6 +73,10 @@ public class App {
             "Le champ \"port\" ne peut pas être une valeur negative";
     private static final String BACKLOG_NEGATIVE_VALUE =
             "Le champ \"backlog\" ne peut pas être une valeur negative";
+    private static final String WRONG_TYPE_MODE_KEY =
+            "le champ \"mode\" n'est pas une chaîne de caractères";
+    private static final String UNKNOWN_MODE =
+            "Le champ \"mode\" doit valoir \"SELECTOR\" ou \"VIRTUAL_THREADS\"";
     private static final String CONFIG_FILE_NOT_FOUND = "Le ficher ne configuration n'existe pas";
 
     public static void main(String[] args) {
@@ -79,7 +93,7 @@ public class App {
 
         try {
             config();
-            final Server server = new Server(mapFile.getPath(), port, true, backlog);
+            final Server server = new Server(mapFile.getPath(), port, true, backlog, mode);
             if (hasCsvTimeFile(args)) {
                 final File timeFile = new File(args[1]);
                 if (!isFile(timeFile)) {
@@ -101,14 +115,16 @@ public class App {
     }
 
     /**
-     * Initialise les champs {@code PORT} et {@code BACKLOG} selon le ficher de configuration
+     * Initialise les champs {@code PORT}, {@code BACKLOG} et {@code MODE} selon le ficher de
+     * configuration
      *
      * @throws IllegalArgumentException le ficher est mal configuré, ne contient pas le champ
      *         {@code port} ou que les champs {@code port} et {@code backlog} ne sont pas des
-     *         entiers, ou qu'ils sont négatifs
+     *         entiers, ou qu'ils sont négatifs, ou que le champ {@code mode} est inconnu
      *
      * @see App#affectPortValue
      * @see App#affectBacklogValue
+     * @see App#affectModeValue
      */
     static void config() throws IllegalArgumentException {
         try (InputStream stream = App.class.getResourceAsStream(CONFIG_FILE)) {
@@ -126,6 +142,8 @@ public class App {
 
             affectBacklogValue(jsonObject);
 
+            affectModeValue(jsonObject);
+
         } catch (IOException e) {
             throw new IllegalAccessError(e.getMessage());
         } catch (javax.json.stream.JsonParsingException e) {
@@ -175,6 +193,36 @@ public class App {
         }
     }
 
+    /**
+     * Affecte la façon de gérer les connexions déclarée dans le ficher de configuration si
+     * présente
+     *
+     * @param jsonObject json représentant le ficher de configuration
+     * @throws IllegalArgumentException si le champ {@code mode} n'est pas une chaîne de caractères
+     *         ou n'est pas un mode connu
+     */
+    static void affectModeValue(JsonObject jsonObject) throws IllegalArgumentException {
+        try {
+            String value = jsonObject.getString(MODE_KEY);
+            mode = Server.Mode.ofString(value);
+
+            if (mode == null)
+                throw new IllegalArgumentException(UNKNOWN_MODE);
+
+        } catch (NullPointerException e) {
+            mode = Server.DEFAULT_MODE;
+        } catch (ClassCastException e) {
+            throw new IllegalArgumentException(WRONG_TYPE_MODE_KEY);
+        }
+    }
+
+    /**
+     * @return la façon dont le serveur gère les connexions de ses clients
+     */
+    static Server.Mode getMode() {
+        return mode;
+    }
+
     /**
      * Cette fonction renvoie un vrai si les arguments sont correctes s'ils respectent le formatage
      * ou faux si les arguments ne respectent pas le formatage
@@ -0,0 +1,483 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import server.Dijkstra.PathNotFoundException;
+import server.map.FootpathTable;
+import server.map.Graph;
+import server.map.GraphOverlay;
+import server.map.Line;
+import server.map.Plan;
+import server.map.Section;
+import server.map.Time;
+
+/**
+ * Recherche bidirectionnelle d'un trajet optimisé en distance, sans prétraitement.
+ *
+ * <p>
+ * Une recherche de Dijkstra part des quais de départ en suivant les arêtes sortantes et une autre
+ * part des quais d'arrivée en suivant les arêtes entrantes du {@link Graph}. Les deux recherches
+ * avancent tour à tour et s'arrêtent lorsque la somme de leurs plus petites clés dépasse le
+ * meilleur chemin trouvé par un quai atteint des deux côtés. Les arcs sont les mêmes que ceux de
+ * la {@link server.map.ContractionHierarchy} : sections, correspondances entre les quais d'une
+ * station et, si demandé, sections à pied.
+ */
+public final class BidirectionalDijkstra implements PathFinder {
+    /**
+     * Valeur d'un arc ou d'un quai absent
+     */
+    private static final int NONE = -1;
+    /**
+     * Arc d'une correspondance entre deux quais d'une station
+     */
+    private static final int TRANSFER = -2;
+    /**
+     * Arc d'une section à pied
+     */
+    private static final int FOOT = -3;
+    /**
+     * Les tableaux de travail du thread courant
+     */
+    private static final ThreadLocal<Workspace> WORKSPACES =
+            ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Le graphe du plan et les sommets virtuels de la requête
+     */
+    private final GraphOverlay graph;
+    /**
+     * Les sections à pied ou {@code null} si elles ne sont pas possibles
+     */
+    private final FootpathTable footpaths;
+    /**
+     * L'identifiant du sommet de départ
+     */
+    private final int startId;
+    /**
+     * L'identifiant du sommet d'arrivé
+     */
+    private final int arrivalId;
+    /**
+     * L'horaire de départ en secondes depuis minuit ou {@link Time#NO_TIME}
+     */
+    private final int departTime;
+    /**
+     * Si la recherche arrière est utilisée, sinon seule la recherche avant avance
+     */
+    private final boolean bidirectional;
+    /**
+     * Les étiquettes des quais
+     */
+    private Workspace labels;
+    /**
+     * Le chemin trouvé
+     */
+    private List<Section> result;
+    /**
+     * Le poids du chemin trouvé
+     */
+    private int weight;
+    /**
+     * Le nombre de quais retirés des files de priorité
+     */
+    private int settledCount;
+    /**
+     * Le poids du meilleur chemin trouvé pendant la recherche
+     */
+    private int best;
+    /**
+     * Le quai par lequel passe le meilleur chemin trouvé
+     */
+    private int meet;
+
+    /**
+     * Étiquettes des deux recherches réutilisées d'une requête à l'autre par un même thread. Un
+     * quai dont le tampon ne correspond pas à l'époque courante n'a pas encore été atteint.
+     */
+    private static final class Workspace {
+        /**
+         * Distance de chaque quai depuis le départ
+         */
+        private int[] forward = new int[0];
+        /**
+         * Distance de chaque quai jusqu'à l'arrivée
+         */
+        private int[] backward = new int[0];
+        /**
+         * L'arc pris pour atteindre chaque quai depuis le départ
+         */
+        private int[] forwardArc = new int[0];
+        /**
+         * L'arc pris depuis chaque quai vers l'arrivée
+         */
+        private int[] backwardArc = new int[0];
+        /**
+         * Le quai précédent de chaque quai sur le chemin depuis le départ
+         */
+        private int[] forwardFrom = new int[0];
+        /**
+         * Le quai suivant de chaque quai sur le chemin vers l'arrivée
+         */
+        private int[] backwardTo = new int[0];
+        /**
+         * L'époque à laquelle chaque quai a été atteint depuis le départ
+         */
+        private int[] forwardStamp = new int[0];
+        /**
+         * L'époque à laquelle chaque quai a été atteint depuis l'arrivée
+         */
+        private int[] backwardStamp = new int[0];
+        /**
+         * File de la recherche avant
+         */
+        private final IndexedMinHeap forwardQueue = new IndexedMinHeap(0);
+        /**
+         * File de la recherche arrière
+         */
+        private final IndexedMinHeap backwardQueue = new IndexedMinHeap(0);
+        /**
+         * L'époque courante
+         */
+        private int epoch;
+
+        /**
+         * Prépare les tableaux pour une nouvelle recherche
+         *
+         * @param size le nombre de quais
+         */
+        private void reset(int size) {
+            if (forwardStamp.length < size) {
+                forward = new int[size];
+                backward = new int[size];
+                forwardArc = new int[size];
+                backwardArc = new int[size];
+                forwardFrom = new int[size];
+                backwardTo = new int[size];
+                forwardStamp = new int[size];
+                backwardStamp = new int[size];
+                epoch = 0;
+            }
+            forwardQueue.reset(size);
+            backwardQueue.reset(size);
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(forwardStamp, 0);
+                Arrays.fill(backwardStamp, 0);
+                epoch = 1;
+            }
+        }
+
+        private int forward(int p) {
+            return forwardStamp[p] == epoch ? forward[p] : Integer.MAX_VALUE;
+        }
+
+        private int backward(int p) {
+            return backwardStamp[p] == epoch ? backward[p] : Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @param plan le plan à utiliser
+     * @param start le sommet de départ
+     * @param arrival le sommet d'arrivé
+     * @param departTime l'horaire de départ
+     * @param foot si des sections à pied sont possibles
+     */
+    BidirectionalDijkstra(Plan plan, String start, String arrival, Time departTime,
+            boolean foot) {
+        this(plan, start, arrival, departTime, foot, true);
+    }
+
+    /**
+     * @param plan le plan à utiliser
+     * @param start le sommet de départ
+     * @param arrival le sommet d'arrivé
+     * @param departTime l'horaire de départ
+     * @param foot si des sections à pied sont possibles
+     * @param bidirectional si la recherche arrière est utilisée
+     */
+    BidirectionalDijkstra(Plan plan, String start, String arrival, Time departTime, boolean foot,
+            boolean bidirectional) {
+        if (plan == null || start == null || arrival == null)
+            throw new IllegalArgumentException();
+        this.graph = new GraphOverlay(plan.getGraph(), start, arrival, Graph.MAX_FOOT_DISTANCE);
+        this.footpaths = foot ? graph.getGraph().getFootpaths() : null;
+        this.startId = graph.getStartId();
+        this.arrivalId = graph.getArrivalId();
+        this.departTime = departTime == null ? Time.NO_TIME : departTime.toSeconds();
+        this.bidirectional = bidirectional;
+    }
+
+    /**
+     * Recherche le plus court chemin en distance entre 2 sommets et renvoie la liste des
+     * sections dans l'ordre du chemin
+     *
+     * @return la liste des sections dans l'ordre du départ à l'arrivé
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    @Override
+    public List<Section> getPath() throws PathNotFoundException {
+        if (result == null)
+            result = compute();
+        return new LinkedList<>(result);
+    }
+
+    /**
+     * @return le poids du chemin trouvé par {@link #getPath()}
+     */
+    int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return le nombre de quais retirés des files de priorité pendant la recherche
+     */
+    int getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Exécute les deux recherches puis reconstruit le chemin
+     *
+     * @return la liste des sections dans l'ordre du chemin
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    private List<Section> compute() throws PathNotFoundException {
+        if (startId == NONE || arrivalId == NONE)
+            throw new PathNotFoundException();
+        if (startId == arrivalId)
+            return new LinkedList<>();
+        Graph g = graph.getGraph();
+        int platforms = g.platformCount();
+        labels = WORKSPACES.get();
+        labels.reset(platforms);
+        best = Integer.MAX_VALUE;
+        meet = NONE;
+
+        if (startId < g.nodeCount()) {
+            for (int p = g.platformStart(startId); p < g.platformEnd(startId); p++)
+                reachForward(p, 0, NONE, NONE);
+        }
+        if (arrivalId < g.nodeCount()) {
+            for (int p = g.platformStart(arrivalId); p < g.platformEnd(arrivalId); p++)
+                reachBackward(p, 0, NONE, NONE);
+        }
+        int direct = NONE;
+        int directWeight = Integer.MAX_VALUE;
+        for (int e = g.edgeCount(); e < graph.edgeCount(); e++) {
+            int from = graph.getFromPlatform(e);
+            int to = graph.getToPlatform(e);
+            int w = (int) Math.round(graph.getDistance(e) * Graph.WEIGHT_FOOT);
+            if (from >= platforms && to >= platforms) {
+                if (w < directWeight) {
+                    direct = e;
+                    directWeight = w;
+                }
+            } else if (from >= platforms) {
+                reachForward(to, w, e, NONE);
+            } else {
+                reachBackward(from, w, e, NONE);
+            }
+        }
+
+        IndexedMinHeap forwardQueue = labels.forwardQueue;
+        IndexedMinHeap backwardQueue = labels.backwardQueue;
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+            int forwardMin = forwardQueue.peekKey();
+            int backwardMin = backwardQueue.peekKey();
+            if ((long) forwardMin + backwardMin >= best)
+                break;
+            settledCount++;
+            if (forwardMin <= backwardMin || !bidirectional)
+                scanForward(forwardQueue.poll());
+            else
+                scanBackward(backwardQueue.poll());
+        }
+
+        if (direct != NONE && directWeight <= best) {
+            weight = directWeight;
+            List<Section> path = new LinkedList<>();
+            addSection(path, graph.newSection(direct), null);
+            return path;
+        }
+        if (meet == NONE)
+            throw new PathNotFoundException();
+        weight = best;
+        return toResult();
+    }
+
+    /**
+     * Relâche les arcs sortant d'un quai
+     *
+     * @param u le quai
+     */
+    private void scanForward(int u) {
+        Graph g = graph.getGraph();
+        int d = labels.forward[u];
+        int node = g.getPlatformNode(u);
+        for (int e = g.edgeStart(node); e < g.edgeEnd(node); e++) {
+            if (g.getFromPlatform(e) == u)
+                reachForward(g.getToPlatform(e), d + g.getDistance(e), e, u);
+        }
+        for (int q = g.platformStart(node); q < g.platformEnd(node); q++) {
+            if (q != u)
+                reachForward(q, d + g.transferDistance(u, q), TRANSFER, u);
+        }
+        if (footpaths == null)
+            return;
+        for (int i = footpaths.footStart(u); i < footpaths.footEnd(u); i++) {
+            int q = footpaths.getTarget(i);
+            if (g.getPlatformNode(q) != node)
+                reachForward(q,
+                        d + (int) Math.round(footpaths.getDistance(i) * Graph.WEIGHT_FOOT),
+                        FOOT, u);
+        }
+    }
+
+    /**
+     * Relâche les arcs arrivant à un quai
+     *
+     * @param u le quai
+     */
+    private void scanBackward(int u) {
+        Graph g = graph.getGraph();
+        int d = labels.backward[u];
+        int node = g.getPlatformNode(u);
+        for (int i = g.inEdgeStart(u); i < g.inEdgeEnd(u); i++) {
+            int e = g.getInEdge(i);
+            reachBackward(g.getFromPlatform(e), d + g.getDistance(e), e, u);
+        }
+        for (int q = g.platformStart(node); q < g.platformEnd(node); q++) {
+            if (q != u)
+                reachBackward(q, d + g.transferDistance(q, u), TRANSFER, u);
+        }
+        if (footpaths == null)
+            return;
+        for (int i = footpaths.footStart(u); i < footpaths.footEnd(u); i++) {
+            int q = footpaths.getTarget(i);
+            if (g.getPlatformNode(q) != node)
+                reachBackward(q,
+                        d + (int) Math.round(footpaths.getDistance(i) * Graph.WEIGHT_FOOT),
+                        FOOT, u);
+        }
+    }
+
+    /**
+     * Met à jour la distance d'un quai depuis le départ si elle diminue
+     *
+     * @param p le quai
+     * @param w la nouvelle distance
+     * @param arc l'arc pris, une arête du graphe, {@link #TRANSFER}, {@link #FOOT} ou
+     *        {@link #NONE}
+     * @param from le quai précédent ou {@link #NONE}
+     */
+    private void reachForward(int p, int w, int arc, int from) {
+        if (w < labels.forward(p)) {
+            labels.forwardStamp[p] = labels.epoch;
+            labels.forward[p] = w;
+            labels.forwardArc[p] = arc;
+            labels.forwardFrom[p] = from;
+            labels.forwardQueue.insertOrDecrease(p, w);
+            meet(p);
+        }
+    }
+
+    /**
+     * Met à jour la distance d'un quai jusqu'à l'arrivée si elle diminue
+     *
+     * @param p le quai
+     * @param w la nouvelle distance
+     * @param arc l'arc pris, une arête du graphe, {@link #TRANSFER}, {@link #FOOT} ou
+     *        {@link #NONE}
+     * @param to le quai suivant ou {@link #NONE}
+     */
+    private void reachBackward(int p, int w, int arc, int to) {
+        if (w < labels.backward(p)) {
+            labels.backwardStamp[p] = labels.epoch;
+            labels.backward[p] = w;
+            labels.backwardArc[p] = arc;
+            labels.backwardTo[p] = to;
+            labels.backwardQueue.insertOrDecrease(p, w);
+            meet(p);
+        }
+    }
+
+    /**
+     * Retient {@code p} si le chemin passant par ce quai est le meilleur trouvé
+     *
+     * @param p un quai dont une étiquette vient de diminuer
+     */
+    private void meet(int p) {
+        int forward = labels.forward(p);
+        int backward = labels.backward(p);
+        if (forward != Integer.MAX_VALUE && backward != Integer.MAX_VALUE
+                && forward + backward < best) {
+            best = forward + backward;
+            meet = p;
+        }
+    }
+
+    /**
+     * Reconstruit le chemin passant par le quai où les deux recherches se rejoignent
+     *
+     * @return la liste des sections dans l'ordre du chemin
+     */
+    private List<Section> toResult() {
+        List<int[]> arcs = new ArrayList<>();
+        int p = meet;
+        while (labels.forwardFrom[p] != NONE) {
+            arcs.add(new int[] {labels.forwardArc[p], labels.forwardFrom[p], p});
+            p = labels.forwardFrom[p];
+        }
+        int first = labels.forwardArc[p];
+        List<Section> path = new LinkedList<>();
+        if (first != NONE)
+            addSection(path, graph.newSection(first), null);
+        for (int i = arcs.size() - 1; i >= 0; i--)
+            addArc(path, arcs.get(i));
+        p = meet;
+        while (labels.backwardTo[p] != NONE) {
+            addArc(path, new int[] {labels.backwardArc[p], p, labels.backwardTo[p]});
+            p = labels.backwardTo[p];
+        }
+        int last = labels.backwardArc[p];
+        if (last != NONE)
+            addSection(path, graph.newSection(last), null);
+        return path;
+    }
+
+    /**
+     * Ajoute au chemin la section correspondant à un arc, rien pour une correspondance
+     *
+     * @param path le chemin
+     * @param arc l'arc, son quai de départ et son quai d'arrivée
+     */
+    private void addArc(List<Section> path, int[] arc) {
+        if (arc[0] >= 0) {
+            addSection(path, graph.newSection(arc[0]), arc[0]);
+        } else if (arc[0] == FOOT) {
+            addSection(path, graph.newFootSection(arc[1], arc[2]), null);
+        }
+    }
+
+    /**
+     * Ajoute une section à la fin du chemin en calculant son horaire de départ à partir de
+     * l'arrivée de la section précédente
+     *
+     * @param path le chemin
+     * @param section la section à ajouter
+     * @param edge l'arête du graphe de la section ou {@code null} pour une section à pied
+     */
+    private void addSection(List<Section> path, Section section, Integer edge) {
+        int time = departTime;
+        if (!path.isEmpty())
+            time = path.get(path.size() - 1).getArrivalTimeInSeconds();
+        Line line = edge == null ? null : graph.getLine(edge);
+        int sectionTime = line == null ? time
+                : line.getNextTime(graph.getGraph().getSection(edge), time);
+        section.setTime(sectionTime);
+        path.add(section);
+    }
+}
@@ -0,0 +1,125 @@
+package server;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import server.data.ServerResponse;
+import server.map.Plan;
+import util.Logger;
+
+/**
+ * Gestion bloquante des requêtes d'un client, pour le mode {@link Server.Mode#VIRTUAL_THREADS}.
+ * Chaque client a son propre thread, qui attend ses requêtes ligne par ligne et confie leur calcul
+ * au pool de threads de calcul du server. Les requêtes {@code PROTOCOL} changent le format des
+ * réponses comme pour {@link ClientHandler}. Les réponses sont écrites directement dans le flux
+ * tamponné du socket par le thread du client, qui ne le vide que lorsqu'aucune autre requête n'a
+ * déjà été reçue : les réponses à des requêtes envoyées sans attendre partent ensemble.
+ *
+ * <p>
+ * Comme pour {@link ClientHandler}, une requête dont le traitement échoue reçoit une erreur à la
+ * place de sa réponse et la connexion continue.
+ */
+class BlockingClientHandler implements Runnable {
+
+    /**
+     * Socket bloquant du client
+     */
+    private final SocketChannel clientChannel;
+
+    /**
+     * Donne le plan courant du server
+     */
+    private final Supplier<Plan> plans;
+
+    /**
+     * Les threads de calcul du server
+     */
+    private final ExecutorService executor;
+
+    /**
+     * @param plans         Donne le plan courant du server
+     * @param executor      Les threads de calcul du server
+     * @param clientChannel Socket bloquant sur lequel la réponse sera envoyée
+     */
+    BlockingClientHandler(Supplier<Plan> plans, ExecutorService executor,
+            SocketChannel clientChannel) {
+        this.clientChannel = clientChannel;
+        this.plans = plans;
+        this.executor = executor;
+    }
+
+    // Implement Runnable
+    @Override
+    public void run() {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                clientChannel.socket().getInputStream(), Charset.defaultCharset()));
+                OutputStream out =
+                        new BufferedOutputStream(clientChannel.socket().getOutputStream())) {
+            ResponseFormat format = ResponseFormat.JAVA;
+            String message;
+            while ((message = in.readLine()) != null) {
+                format = ClientHandler.respondAll(List.of(message), format, out, this::respond);
+                if (!in.ready())
+                    out.flush();
+            }
+        } catch (IOException e) {
+            Logger.info(e.getMessage());
+        } finally {
+            try {
+                clientChannel.close();
+            } catch (IOException ignore) {
+                Logger.info(ignore.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Traite une requête et écrit sa réponse. Les demandes de changement de format sont traitées
+     * par le thread du client, les autres requêtes par les threads de calcul.
+     *
+     * @param request la requête
+     * @param format le format courant de la connexion
+     * @param out le flux où écrire la réponse
+     * @return le format de la connexion après la requête
+     * @throws IOException si le calcul a échoué ou si la réponse ne peut pas être écrite
+     */
+    private ResponseFormat respond(String request, ResponseFormat format, OutputStream out)
+            throws IOException {
+        Plan plan = plans.get();
+        if (ResponseFormat.isNegotiation(request))
+            return ClientHandler.respond(plan, request, format, out);
+        format.write(compute(() -> ClientHandler.handleLine(plan, request)), out);
+        return format;
+    }
+
+    /**
+     * Confie un calcul aux threads de calcul et attend son résultat
+     *
+     * @param task le calcul
+     * @return le résultat du calcul
+     * @throws IOException si le calcul a échoué ou si le server est arrêté
+     */
+    private ServerResponse compute(Callable<ServerResponse> task) throws IOException {
+        try {
+            return executor.submit(task).get();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (RejectedExecutionException e) {
+            throw new IOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
@@ -1,51 +1,128 @@
 package server;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
-import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 
 import server.data.ErrorServer;
+import server.data.ProtocolAccepted;
+import server.data.ServerResponse;
+import server.map.Plan;
 import util.Logger;
 
 /**
  * Classe représentant la gestion des requêtes avec le client. Actuellement le server réagit à un
  * mot clef lu dans la chaîne de caractère envoyée par le client et agit en conséquence.
+ *
+ * <p>
+ * Le socket du client est non bloquant : la boucle de sélection du {@link Server} appelle
+ * {@link #read()} et {@link #write()} quand il est prêt. Les octets lus sont découpés en lignes,
+ * une ligne par requête, et seules les requêtes complètes sont confiées aux threads de calcul du
+ * server dans l'ordre. Un client peut envoyer plusieurs requêtes sans attendre les réponses :
+ * celles déjà lues sont traitées ensemble par une seule tâche, et leurs réponses sont envoyées dans
+ * l'ordre des requêtes en une seule écriture. Toutes les méthodes sont appelées par le thread de la
+ * boucle de sélection.
+ *
+ * <p>
+ * Les réponses sont encodées dans le format de la connexion, {@link ResponseFormat#JAVA} au
+ * départ. Une requête {@code PROTOCOL} change ce format à son tour, après l'envoi des réponses
+ * aux requêtes qui la précèdent.
  */
-class ClientHandler implements Runnable {
+class ClientHandler {
+
+    private static final String MESSAGE_TOO_LONG = "Requête trop longue";
+
+    private static final String MESSAGE_INTERNAL = "Erreur interne";
+
+    private static final String MESSAGE_UNSUPPORTED_FORMAT = "Format de réponse non pris en charge";
 
-    private static final String MESSAGE_NULL_ARGS = "Message est null";
     /**
-     * Socket du client permettant de lui envoyé la réponse
+     * Taille du tampon de lecture
      */
-    private final Socket clientSocket;
+    private static final int BUFFER_SIZE = 8192;
 
     /**
-     * Un liseur de stream associé au {@code InputStream} du {@code clientSocket}
+     * Taille maximale d'une requête en octets
      */
-    private InputStreamReader clientInputStreamReader;
+    private static final int MAX_REQUEST_LENGTH = 1 << 18;
 
     /**
-     * Indique si le client est connecté
+     * Nombre de requêtes lues en attente au-delà duquel on arrête de lire le socket
      */
-    private boolean isConnected;
+    private static final int MAX_PENDING_REQUESTS = 64;
+
+    /**
+     * Socket du client permettant de lui envoyé la réponse
+     */
+    private final SocketChannel clientChannel;
+
+    /**
+     * La clef du socket dans le sélecteur du server
+     */
+    private final SelectionKey key;
 
     /**
      * Instance du server qui a créé le {@code ClientHandler}
     */
-    private Server server;
+    private final Server server;
+
+    /**
+     * Tampon de lecture du socket
+     */
+    private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Les octets de la ligne en cours de lecture
+     */
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    /**
+     * Les requêtes lues qui n'ont pas encore été traitées
+     */
+    private final Deque<String> requests = new ArrayDeque<>();
+
+    /**
+     * Les réponses qui n'ont pas encore été entièrement écrites
+     */
+    private final Deque<ByteBuffer> responses = new ArrayDeque<>();
+
+    /**
+     * Le format des réponses de la connexion
+     */
+    private ResponseFormat format = ResponseFormat.JAVA;
 
     /**
-     * 
+     * Indique si des requêtes sont en cours de traitement
+     */
+    private boolean busy;
+
+    /**
+     * Indique si le client a fermé sa moitié de la connexion
+     */
+    private boolean closing;
+
+    /**
+     * Indique si la dernière requête lue dépasse {@link #MAX_REQUEST_LENGTH}
+     */
+    private boolean tooLong;
+
+    /**
+     *
      * @param server       Instance du server qui a créé le {@code ClientHandler}
-     * @param clientSocket Socket sur lequel la réponse sera envoyée
+     * @param clientChannel Socket non bloquant sur lequel la réponse sera envoyée
+     * @param key          La clef de {@code clientChannel} dans le sélecteur du server
      */
-    ClientHandler(Server server, Socket clientSocket) throws IOException {
-        this.clientSocket = clientSocket;
-        this.clientInputStreamReader = new InputStreamReader(clientSocket.getInputStream());
-        this.isConnected = true;
+    ClientHandler(Server server, SocketChannel clientChannel, SelectionKey key) {
+        this.clientChannel = clientChannel;
+        this.key = key;
         this.server = server;
     }
 
@@ -70,54 +147,255 @@ class ClientHandler implements Runnable {
         return new ErrorServer(errorMessageFormat(reason));
     }
 
-    /**
-     * Lit le contenu du socket
-     *
-     * @throws IOException si une erreur arrive lors de la manipulation des entrées/sorties du
-     *         socket
-     */
-    private Serializable handleClient() throws IOException {
-        BufferedReader in = new BufferedReader(clientInputStreamReader);
-        String message = in.readLine();
-        if (message == null)
-            return serverErrorFormatted(MESSAGE_NULL_ARGS);
-        return handleLine(message);
-    }
-
     /**
      * Execute l'action en fonction de la requête lue dans la chaîne de caractère
      *
+     * @param plan le plan sur lequel effectuer les calculs
      * @param clientLine Ligne (chaîne de caractère) lue dans le socket
-     * @throws IOException si une erreur arrive lors de la manipulation des entrées/sorties du
-     *         socket
+     * @return la réponse à envoyer au client
      */
-    private Serializable handleLine(String clientLine) {
+    static ServerResponse handleLine(Plan plan, String clientLine) {
         try {
-            ServerActionCallback callback = RequestParser.getServerActionCallback(server.getPlan(), clientLine);
+            ServerActionCallback callback = RequestParser.getServerActionCallback(plan, clientLine);
             return callback.execute();
         } catch (RequestParser.ParsingException e) {
             return serverErrorFormatted(e.getMessage());
+        } catch (RuntimeException e) {
+            Logger.error(String.format("%s : %s", clientLine, e));
+            return serverErrorFormatted(MESSAGE_INTERNAL);
         }
     }
 
-    // Implement Runnable
-    @Override
-    public void run() {
-        while (isConnected) {
+    /**
+     * Forme la réponse à une demande de changement de format, envoyée dans le format
+     * {@code requested} s'il est pris en charge
+     *
+     * @param requested le format demandé, {@code null} s'il n'est pas pris en charge
+     * @return la réponse à la demande
+     */
+    static ServerResponse negotiationResponse(ResponseFormat requested) {
+        if (requested == null)
+            return serverErrorFormatted(MESSAGE_UNSUPPORTED_FORMAT);
+        return new ProtocolAccepted(requested.name(), requested.getVersion());
+    }
+
+    /**
+     * Traite une requête et écrit sa réponse, une demande de changement de format comprise
+     *
+     * @param plan le plan sur lequel effectuer les calculs
+     * @param request la requête
+     * @param format le format courant de la connexion
+     * @param out le flux où écrire la réponse
+     * @return le format de la connexion après la requête
+     * @throws IOException si la réponse ne peut pas être écrite
+     */
+    static ResponseFormat respond(Plan plan, String request, ResponseFormat format,
+            OutputStream out) throws IOException {
+        if (!ResponseFormat.isNegotiation(request)) {
+            format.write(handleLine(plan, request), out);
+            return format;
+        }
+        ResponseFormat requested = ResponseFormat.ofRequest(request);
+        ResponseFormat next = requested == null ? format : requested;
+        next.write(negotiationResponse(requested), out);
+        return next;
+    }
+
+    /**
+     * Traite des requêtes reçues ensemble et écrit leurs réponses dans l'ordre. Une requête dont
+     * le traitement échoue reçoit une erreur à la place de sa réponse : le client reçoit
+     * toujours exactement une réponse par requête.
+     *
+     * @param batch les requêtes, dans l'ordre de réception
+     * @param format le format de la connexion avant les requêtes
+     * @param out le flux où écrire les réponses
+     * @param responder le traitement d'une requête
+     * @return le format de la connexion après les requêtes
+     */
+    static ResponseFormat respondAll(List<String> batch, ResponseFormat format, OutputStream out,
+            Responder responder) {
+        ByteArrayOutputStream one = new ByteArrayOutputStream();
+        ResponseFormat encoding = format;
+        for (String request : batch) {
             try {
-                Serializable s = handleClient();
-                ObjectOutputStream outStream =
-                        new ObjectOutputStream(clientSocket.getOutputStream());
-                outStream.writeObject(s);
-                outStream.flush();
-            } catch (IOException e) {
-                isConnected = false;
+                one.reset();
+                encoding = responder.respond(request, encoding, one);
+                one.writeTo(out);
+            } catch (IOException | RuntimeException e) {
+                Logger.error(String.format("%s : %s", request, e));
                 try {
-                    clientSocket.close();
-                } catch (IOException ignore) {
-                    Logger.info(ignore.getMessage());
+                    one.reset();
+                    encoding.write(serverErrorFormatted(MESSAGE_INTERNAL), one);
+                    one.writeTo(out);
+                } catch (IOException | RuntimeException error) {
+                    Logger.error(String.format("%s : %s", request, error));
+                }
+            }
+        }
+        return encoding;
+    }
+
+    /**
+     * Le traitement d'une requête, {@link #respond} en dehors des tests
+     */
+    @FunctionalInterface
+    interface Responder {
+        /**
+         * @param request la requête
+         * @param format le format courant de la connexion
+         * @param out le flux où écrire la réponse
+         * @return le format de la connexion après la requête
+         * @throws IOException si la réponse ne peut pas être écrite
+         */
+        ResponseFormat respond(String request, ResponseFormat format, OutputStream out)
+                throws IOException;
+    }
+
+    /**
+     * Lit ce qui est disponible sur le socket et découpe les requêtes complètes
+     */
+    void read() {
+        try {
+            int n = clientChannel.read(input);
+            if (n == -1) {
+                closing = true;
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+            input.flip();
+            while (input.hasRemaining()) {
+                byte b = input.get();
+                if (b == '\n') {
+                    requests.add(decodeLine());
+                } else if (line.size() >= MAX_REQUEST_LENGTH) {
+                    line.reset();
+                    tooLong = true;
+                    closing = true;
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                    break;
+                } else {
+                    line.write(b);
                 }
             }
+            input.clear();
+            if (n == -1 && line.size() > 0 && !tooLong)
+                requests.add(decodeLine());
+            next();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * @return la ligne lue sans son retour chariot final
+     */
+    private String decodeLine() {
+        byte[] bytes = line.toByteArray();
+        line.reset();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r')
+            length--;
+        return new String(bytes, 0, length, Charset.defaultCharset());
+    }
+
+    /**
+     * Confie les requêtes lues aux threads de calcul si aucune n'est en cours, ou ferme le socket
+     * si le client est parti et que tout a été envoyé
+     */
+    private void next() {
+        if (!key.isValid())
+            return;
+        if (!busy && !requests.isEmpty()) {
+            busy = true;
+            List<String> batch = new ArrayList<>(requests);
+            requests.clear();
+            Plan plan = server.getPlan();
+            ResponseFormat current = format;
+            server.compute(() -> {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ResponseFormat last = respondAll(batch, current, bytes,
+                        (request, encoding, out) -> respond(plan, request, encoding, out));
+                byte[] response = bytes.toByteArray();
+                server.runInLoop(() -> completed(response, last));
+            });
+        }
+        if (!busy && requests.isEmpty() && tooLong) {
+            tooLong = false;
+            send(serverErrorFormatted(MESSAGE_TOO_LONG));
+        }
+        if (!closing) {
+            int ops = key.interestOps();
+            key.interestOps(requests.size() >= MAX_PENDING_REQUESTS
+                    ? ops & ~SelectionKey.OP_READ
+                    : ops | SelectionKey.OP_READ);
+        } else if (!busy && requests.isEmpty() && responses.isEmpty()) {
+            close();
+        }
+    }
+
+    /**
+     * Appelée par la boucle de sélection quand le traitement des requêtes est terminé
+     *
+     * @param response les réponses encodées, dans l'ordre des requêtes
+     * @param last le format de la connexion après les requêtes
+     */
+    private void completed(byte[] response, ResponseFormat last) {
+        busy = false;
+        format = last;
+        if (!key.isValid())
+            return;
+        if (response.length > 0)
+            responses.add(ByteBuffer.wrap(response));
+        write();
+        next();
+    }
+
+    /**
+     * Ajoute une réponse à envoyer
+     *
+     * @param response la réponse
+     */
+    private void send(ServerResponse response) {
+        try {
+            responses.add(ByteBuffer.wrap(format.encode(response)));
+            write();
+        } catch (IOException e) {
+            Logger.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Écrit autant de réponses que le socket en accepte, et attend qu'il soit de nouveau prêt
+     * s'il en reste
+     */
+    void write() {
+        try {
+            while (!responses.isEmpty()) {
+                ByteBuffer response = responses.peek();
+                clientChannel.write(response);
+                if (response.hasRemaining())
+                    break;
+                responses.poll();
+            }
+            int ops = key.interestOps();
+            key.interestOps(responses.isEmpty()
+                    ? ops & ~SelectionKey.OP_WRITE
+                    : ops | SelectionKey.OP_WRITE);
+            if (responses.isEmpty() && closing && !busy && requests.isEmpty())
+                close();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Ferme le socket du client
+     */
+    void close() {
+        key.cancel();
+        try {
+            clientChannel.close();
+        } catch (IOException ignore) {
+            Logger.info(ignore.getMessage());
         }
     }
 }
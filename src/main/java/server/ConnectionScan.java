@@ -0,0 +1,114 @@
+package server;
+
+import java.util.LinkedList;
+import java.util.List;
+import server.Dijkstra.PathNotFoundException;
+import server.map.ConnectionTable;
+import server.map.GraphOverlay;
+import server.map.Plan;
+import server.map.Section;
+import server.map.Time;
+
+/**
+ * Implémentation de l'algorithme Connection Scan pour les trajets optimisés en temps.
+ *
+ * <p>
+ * Les connexions du plan sont parcourues une seule fois dans l'ordre de leur horaire de départ à
+ * partir de l'horaire demandé, jusqu'à ce que l'horaire d'arrivée à la destination soit connu.
+ * Pour tenir compte des trains du lendemain, trois flux triés sont fusionnés : les connexions
+ * d'après minuit ramenées à la veille, les connexions à partir de l'horaire demandé, puis celles
+ * d'avant l'horaire demandé décalées d'une journée. La recherche s'arrête au plus tard une journée
+ * après l'horaire de départ.
+ *
+ * <p>
+ * Les correspondances entre les quais d'une même station prennent le temps de marcher de l'un à
+ * l'autre et les sections à pied peuvent s'enchaîner, comme avec {@link Dijkstra} : le parcours
+ * est fait par {@link ConnectionScanner}.
+ */
+public final class ConnectionScan implements PathFinder {
+    /**
+     * Valeur d'un identifiant de sommet qui n'existe pas
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Le graphe du plan et les sommets virtuels de la requête
+     */
+    private final GraphOverlay graph;
+    /**
+     * L'identifiant du sommet de départ
+     */
+    private final int startId;
+    /**
+     * L'identifiant du sommet d'arrivé
+     */
+    private final int arrivalId;
+    /**
+     * L'horaire de départ
+     */
+    private final Time departTime;
+    /**
+     * Si des sections à pied sont possibles
+     */
+    private final boolean foot;
+    /**
+     * Le chemin trouvé
+     */
+    private List<Section> result;
+
+    /**
+     * @param plan le plan à utiliser
+     * @param start le sommet de départ
+     * @param arrival le sommet d'arrivé
+     * @param departTime l'horaire de départ
+     * @param foot si des sections à pied sont possibles
+     */
+    ConnectionScan(Plan plan, String start, String arrival, Time departTime, boolean foot) {
+        if (plan == null || start == null || arrival == null)
+            throw new IllegalArgumentException();
+        this.graph = new GraphOverlay(plan.getGraph(), start, arrival,
+                Dijkstra.MAX_FOOT_DISTANCE);
+        this.startId = graph.getStartId();
+        this.arrivalId = graph.getArrivalId();
+        this.departTime = departTime;
+        this.foot = foot;
+    }
+
+    /**
+     * Recherche le trajet arrivant au plus tôt entre 2 sommets et renvoie la liste des sections
+     * dans l'ordre du chemin
+     *
+     * @return la liste des sections dans l'ordre du départ à l'arrivé
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    @Override
+    public List<Section> getPath() throws PathNotFoundException {
+        if (result == null)
+            result = compute();
+        return new LinkedList<>(result);
+    }
+
+    /**
+     * Parcourt les connexions à partir de l'horaire de départ puis reconstruit le trajet
+     *
+     * @return la liste des sections dans l'ordre du chemin
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    private List<Section> compute() throws PathNotFoundException {
+        if (startId == NONE || arrivalId == NONE || departTime == null)
+            throw new PathNotFoundException();
+        int t0 = departTime.toSeconds();
+        ConnectionScanner scanner =
+                new ConnectionScanner(graph, foot, Integer.MAX_VALUE, arrivalId);
+        scanner.start(t0);
+        while (true) {
+            int time = scanner.nextDeparture();
+            if (time >= scanner.arrival(arrivalId) || time >= t0 + ConnectionTable.DAY)
+                break;
+            scanner.scanNext();
+        }
+        if (scanner.arrival(arrivalId) == Integer.MAX_VALUE)
+            throw new PathNotFoundException();
+        return scanner.toPath(arrivalId);
+    }
+}
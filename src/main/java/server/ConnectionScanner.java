@@ -0,0 +1,470 @@
+package server;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import server.map.ConnectionTable;
+import server.map.FootpathTable;
+import server.map.Graph;
+import server.map.GraphOverlay;
+import server.map.Section;
+
+/**
+ * Parcours des connexions du plan dans l'ordre de leur horaire de départ, commun à
+ * {@link ConnectionScan} et à {@link Isochrone}.
+ *
+ * <p>
+ * Les horaires d'arrivée sont portés par les quais : on ne monte dans un train que depuis son quai
+ * de départ. Chaque quai amélioré propage son horaire, dans l'ordre croissant des horaires, aux
+ * autres quais du même sommet en ajoutant la durée de la correspondance, aux arêtes virtuelles
+ * qui en partent et, si les sections à pied sont possibles, aux quais à moins de
+ * {@link Graph#MAX_FOOT_DISTANCE} mètres. Les sections à pied s'enchaînent donc comme dans
+ * {@link Dijkstra}, y compris au départ et avant l'arrivée.
+ *
+ * <p>
+ * Pour tenir compte des trains du lendemain, trois flux triés sont fusionnés : les connexions
+ * d'après minuit ramenées à la veille, les connexions à partir de l'horaire de départ, puis celles
+ * d'avant l'horaire de départ décalées d'une journée.
+ */
+final class ConnectionScanner {
+    /**
+     * Nombre de flux de connexions fusionnés
+     */
+    private static final int STREAMS = 3;
+    /**
+     * Valeur de {@code via} pour un quai qui n'a pas encore été atteint
+     */
+    private static final int NONE = -1;
+    /**
+     * Valeur de {@code via} pour un quai du sommet de départ
+     */
+    private static final int START = 0;
+    /**
+     * Valeur de {@code via} pour un quai atteint par une connexion
+     */
+    private static final int CONNECTION = 1;
+    /**
+     * Valeur de {@code via} pour un quai atteint par une arête virtuelle
+     */
+    private static final int EDGE = 2;
+    /**
+     * Valeur de {@code via} pour un quai atteint par une section à pied
+     */
+    private static final int FOOT = 3;
+    /**
+     * Valeur de {@code via} pour un quai atteint par une correspondance dans le même sommet
+     */
+    private static final int TRANSFER = 4;
+    /**
+     * Les tableaux de travail du thread courant
+     */
+    private static final ThreadLocal<Workspace> WORKSPACES =
+            ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Le graphe du plan et les sommets virtuels de la requête
+     */
+    private final GraphOverlay graph;
+    /**
+     * Les connexions du plan
+     */
+    private final ConnectionTable connections;
+    /**
+     * Si des sections à pied sont possibles
+     */
+    private final boolean foot;
+    /**
+     * L'horaire d'arrivée au plus tard en secondes
+     */
+    private final int limit;
+    /**
+     * Le sommet au-delà de l'horaire d'arrivée duquel les quais ne sont plus mis à jour ou
+     * {@link #NONE}
+     */
+    private final int target;
+    /**
+     * La prochaine connexion de chaque flux
+     */
+    private final int[] cursors = new int[STREAMS];
+    /**
+     * La fin de chaque flux
+     */
+    private final int[] ends = new int[STREAMS];
+    /**
+     * Le décalage en secondes de chaque flux
+     */
+    private final int[] shifts = new int[STREAMS];
+    /**
+     * Le flux de la prochaine connexion ou {@link #NONE}
+     */
+    private int stream;
+    /**
+     * Les étiquettes des quais et des sommets
+     */
+    private Workspace labels;
+
+    /**
+     * Étiquettes de l'algorithme réutilisées d'une requête à l'autre par un même thread. Un quai,
+     * un sommet ou un train dont le tampon ne correspond pas à l'époque courante n'a pas encore
+     * été atteint, ce qui évite de réinitialiser les tableaux à chaque requête.
+     */
+    private static final class Workspace {
+        /**
+         * Associe chaque quai à son horaire d'arrivée au plus tôt
+         */
+        private int[] arrival = new int[0];
+        /**
+         * Associe chaque quai au type d'étape prise pour y arriver
+         */
+        private int[] via = new int[0];
+        /**
+         * Associe chaque quai à la connexion (avec son flux) ou à l'arête prise pour y arriver
+         */
+        private int[] previous = new int[0];
+        /**
+         * Associe chaque quai atteint par une connexion à la connexion où on est monté dans le
+         * train
+         */
+        private int[] boardedAt = new int[0];
+        /**
+         * Associe chaque quai au quai de départ de l'étape prise pour y arriver
+         */
+        private int[] from = new int[0];
+        /**
+         * Associe chaque quai à l'horaire de départ de l'étape prise pour y arriver
+         */
+        private int[] departure = new int[0];
+        /**
+         * L'époque à laquelle chaque quai a été atteint
+         */
+        private int[] stamp = new int[0];
+        /**
+         * Associe chaque sommet à son horaire d'arrivée au plus tôt
+         */
+        private int[] nodeArrival = new int[0];
+        /**
+         * Associe chaque sommet au quai par lequel on y arrive au plus tôt
+         */
+        private int[] nodePlatform = new int[0];
+        /**
+         * L'époque à laquelle chaque sommet a été atteint
+         */
+        private int[] nodeStamp = new int[0];
+        /**
+         * Les sommets atteints
+         */
+        private int[] reached = new int[0];
+        /**
+         * Le nombre de sommets atteints
+         */
+        private int reachedCount;
+        /**
+         * Associe chaque train de chaque flux à la connexion où on y est monté
+         */
+        private int[] boarding = new int[0];
+        /**
+         * L'époque à laquelle on est monté dans chaque train de chaque flux
+         */
+        private int[] tripStamp = new int[0];
+        /**
+         * Les quais améliorés dont l'horaire reste à propager, par horaire d'arrivée
+         */
+        private final IndexedMinHeap queue = new IndexedMinHeap(0);
+        /**
+         * L'époque courante
+         */
+        private int epoch;
+
+        /**
+         * Prépare les tableaux pour une nouvelle recherche
+         *
+         * @param platforms le nombre de quais
+         * @param size le nombre de sommets
+         * @param trips le nombre de trains de tous les flux
+         */
+        private void reset(int platforms, int size, int trips) {
+            if (stamp.length < platforms || nodeStamp.length < size
+                    || tripStamp.length < trips) {
+                arrival = new int[platforms];
+                via = new int[platforms];
+                previous = new int[platforms];
+                boardedAt = new int[platforms];
+                from = new int[platforms];
+                departure = new int[platforms];
+                stamp = new int[platforms];
+                nodeArrival = new int[size];
+                nodePlatform = new int[size];
+                nodeStamp = new int[size];
+                reached = new int[size];
+                boarding = new int[trips];
+                tripStamp = new int[trips];
+                epoch = 0;
+            }
+            queue.reset(platforms);
+            reachedCount = 0;
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                Arrays.fill(nodeStamp, 0);
+                Arrays.fill(tripStamp, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * @param p un quai
+         * @return l'horaire d'arrivée au plus tôt à {@code p}
+         */
+        private int arrival(int p) {
+            return stamp[p] == epoch ? arrival[p] : Integer.MAX_VALUE;
+        }
+
+        /**
+         * @param v un sommet
+         * @return l'horaire d'arrivée au plus tôt à {@code v}
+         */
+        private int nodeArrival(int v) {
+            return nodeStamp[v] == epoch ? nodeArrival[v] : Integer.MAX_VALUE;
+        }
+
+        /**
+         * @param slot un train d'un flux
+         * @return {@code true} si on est déjà monté dans ce train
+         */
+        private boolean boarded(int slot) {
+            return tripStamp[slot] == epoch;
+        }
+
+        /**
+         * Monte dans un train ou y remonte plus loin, afin de parcourir le moins de sections
+         * possible dans le train pour un même horaire d'arrivée
+         *
+         * @param slot un train d'un flux
+         * @param connection la connexion où on monte dans le train
+         */
+        private void board(int slot, int connection) {
+            tripStamp[slot] = epoch;
+            boarding[slot] = connection;
+        }
+    }
+
+    /**
+     * @param graph le graphe du plan et les sommets virtuels de la requête
+     * @param foot si des sections à pied sont possibles
+     * @param limit l'horaire d'arrivée au plus tard en secondes
+     * @param target le sommet au-delà de l'horaire d'arrivée duquel il est inutile de chercher ou
+     *        {@code -1}
+     */
+    ConnectionScanner(GraphOverlay graph, boolean foot, int limit, int target) {
+        this.graph = graph;
+        this.connections = graph.getGraph().getConnections();
+        this.foot = foot;
+        this.limit = limit;
+        this.target = target;
+    }
+
+    /**
+     * Prépare le parcours à partir du sommet de départ de {@code graph}, qui doit exister, et
+     * propage l'horaire de départ depuis chacun de ses quais
+     *
+     * @param t0 l'horaire de départ en secondes depuis minuit
+     */
+    void start(int t0) {
+        labels = WORKSPACES.get();
+        labels.reset(graph.platformCount(), graph.nodeCount(), connections.tripCount() * STREAMS);
+        int day = ConnectionTable.DAY;
+        cursors[0] = connections.firstAfter(t0 + day);
+        cursors[1] = connections.firstAfter(t0);
+        cursors[2] = 0;
+        ends[0] = connections.size();
+        ends[1] = connections.size();
+        ends[2] = connections.firstAfter(t0);
+        shifts[0] = -day;
+        shifts[1] = 0;
+        shifts[2] = day;
+        stream = NONE;
+        int startId = graph.getStartId();
+        for (int p = graph.platformStart(startId); p < graph.platformEnd(startId); p++)
+            relax(p, t0, START, NONE, NONE, t0);
+        propagate();
+    }
+
+    /**
+     * @return l'horaire de départ de la prochaine connexion, {@link Integer#MAX_VALUE} s'il n'y
+     *         en a plus
+     */
+    int nextDeparture() {
+        stream = NONE;
+        int time = Integer.MAX_VALUE;
+        for (int s = 0; s < STREAMS; s++) {
+            if (cursors[s] < ends[s]) {
+                int dep = connections.getDeparture(cursors[s]) + shifts[s];
+                if (dep < time) {
+                    time = dep;
+                    stream = s;
+                }
+            }
+        }
+        return time;
+    }
+
+    /**
+     * Traite la connexion dont l'horaire a été donné par {@link #nextDeparture()}
+     */
+    void scanNext() {
+        int c = cursors[stream]++;
+        int slot = connections.getTrip(c) * STREAMS + stream;
+        int edge = connections.getEdge(c);
+        int shift = shifts[stream];
+        int dep = connections.getDeparture(c) + shift;
+        if (labels.arrival(graph.getFromPlatform(edge)) <= dep)
+            labels.board(slot, c);
+        else if (!labels.boarded(slot))
+            return;
+        int to = graph.getToPlatform(edge);
+        if (relax(to, connections.getArrival(c) + shift, CONNECTION, c * STREAMS + stream,
+                graph.getFromPlatform(edge), dep)) {
+            labels.boardedAt[to] = labels.boarding[slot];
+            propagate();
+        }
+    }
+
+    /**
+     * @param v un sommet
+     * @return l'horaire d'arrivée au plus tôt à {@code v}, {@link Integer#MAX_VALUE} s'il n'a
+     *         pas été atteint
+     */
+    int arrival(int v) {
+        return labels.nodeArrival(v);
+    }
+
+    /**
+     * @return le nombre de sommets atteints
+     */
+    int reachedCount() {
+        return labels.reachedCount;
+    }
+
+    /**
+     * @param i un indice inférieur à {@link #reachedCount()}
+     * @return le {@code i}-ème sommet atteint
+     */
+    int reached(int i) {
+        return labels.reached[i];
+    }
+
+    /**
+     * Met à jour l'étiquette d'un quai si l'horaire proposé l'améliore, sans la propager
+     *
+     * @param p le quai
+     * @param time l'horaire d'arrivée à {@code p}
+     * @param via le type d'étape prise
+     * @param previous la connexion ou l'arête prise
+     * @param from le quai de départ de l'étape
+     * @param departure l'horaire de départ de l'étape
+     * @return {@code true} si l'étiquette a été mise à jour
+     */
+    private boolean relax(int p, int time, int via, int previous, int from, int departure) {
+        if (time > limit || time >= labels.arrival(p)
+                || (target != NONE && time >= labels.nodeArrival(target)))
+            return false;
+        labels.stamp[p] = labels.epoch;
+        labels.arrival[p] = time;
+        labels.via[p] = via;
+        labels.previous[p] = previous;
+        labels.from[p] = from;
+        labels.departure[p] = departure;
+        int v = graph.getPlatformNode(p);
+        if (labels.nodeStamp[v] != labels.epoch) {
+            labels.nodeStamp[v] = labels.epoch;
+            labels.nodeArrival[v] = Integer.MAX_VALUE;
+            labels.reached[labels.reachedCount++] = v;
+        }
+        if (time < labels.nodeArrival[v]) {
+            labels.nodeArrival[v] = time;
+            labels.nodePlatform[v] = p;
+        }
+        labels.queue.insertOrDecrease(p, time);
+        return true;
+    }
+
+    /**
+     * Propage dans l'ordre de leur horaire les quais améliorés : correspondances dans le même
+     * sommet, arêtes virtuelles puis, si elles sont possibles, sections à pied
+     */
+    private void propagate() {
+        Graph g = graph.getGraph();
+        FootpathTable footpaths = g.getFootpaths();
+        while (!labels.queue.isEmpty()) {
+            int p = labels.queue.poll();
+            int time = labels.arrival[p];
+            int v = graph.getPlatformNode(p);
+            for (int q = graph.platformStart(v); q < graph.platformEnd(v); q++) {
+                if (q != p)
+                    relax(q, time + graph.transferDuration(p, q), TRANSFER, NONE, p, time);
+            }
+            for (int e = graph.extraEdgeStart(v); e < graph.extraEdgeEnd(v); e++) {
+                if (graph.getFromPlatform(e) == p)
+                    relax(graph.getToPlatform(e), time + graph.getDuration(e), EDGE, e, p, time);
+            }
+            if (!foot || p >= g.platformCount())
+                continue;
+            for (int i = footpaths.footStart(p); i < footpaths.footEnd(p); i++) {
+                int q = footpaths.getTarget(i);
+                if (g.getPlatformNode(q) != v)
+                    relax(q, time + footpaths.getDuration(i), FOOT, NONE, p, time);
+            }
+        }
+    }
+
+    /**
+     * Reconstruit le trajet arrivant au plus tôt à un sommet atteint
+     *
+     * @param v le sommet
+     * @return la liste des sections dans l'ordre du chemin
+     */
+    List<Section> toPath(int v) {
+        List<Section> orderedPath = new LinkedList<>();
+        int p = labels.nodePlatform[v];
+        while (labels.via[p] != START) {
+            int via = labels.via[p];
+            if (via == CONNECTION) {
+                p = addTrip(orderedPath, labels.previous[p], labels.boardedAt[p]);
+                continue;
+            }
+            if (via != TRANSFER) {
+                Section section = via == EDGE ? graph.newSection(labels.previous[p])
+                        : graph.newFootSection(labels.from[p], p);
+                section.setTime(labels.departure[p]);
+                orderedPath.add(section);
+            }
+            p = labels.from[p];
+        }
+        Collections.reverse(orderedPath);
+        return orderedPath;
+    }
+
+    /**
+     * Ajoute en ordre inverse les sections parcourues dans un train, de la connexion où on en
+     * descend jusqu'à celle où on y est monté
+     *
+     * @param path le chemin en ordre inverse
+     * @param exit la connexion où on descend du train, avec son flux
+     * @param board la connexion où on est monté dans le train
+     * @return le quai où on est monté dans le train
+     */
+    private int addTrip(List<Section> path, int exit, int board) {
+        int c = exit / STREAMS;
+        int shift = (exit % STREAMS - 1) * ConnectionTable.DAY;
+        while (true) {
+            int edge = connections.getEdge(c);
+            Section section = graph.newSection(edge);
+            section.setTime(connections.getDeparture(c) + shift);
+            path.add(section);
+            if (c == board)
+                return graph.getFromPlatform(edge);
+            c = connections.getPreviousInTrip(c);
+        }
+    }
+}
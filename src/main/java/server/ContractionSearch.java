@@ -0,0 +1,397 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import server.Dijkstra.PathNotFoundException;
+import server.map.ContractionHierarchy;
+import server.map.Graph;
+import server.map.GraphOverlay;
+import server.map.Line;
+import server.map.Plan;
+import server.map.Section;
+import server.map.Time;
+
+/**
+ * Recherche bidirectionnelle d'un trajet optimisé en distance dans la hiérarchie de contraction
+ * du plan.
+ *
+ * <p>
+ * La recherche avant ne suit que les arcs montants depuis les quais de départ et la recherche
+ * arrière que les arcs descendants vers les quais d'arrivée. Les départs et arrivées donnés par
+ * des coordonnées sont reliés aux quais proches par les sections à pied de la
+ * {@link GraphOverlay}. Le chemin est ensuite déplié en sections d'origine et ses horaires sont
+ * calculés comme dans {@link Dijkstra}.
+ */
+public final class ContractionSearch implements PathFinder {
+    /**
+     * Valeur d'un arc ou d'une arête absent
+     */
+    private static final int NONE = -1;
+    /**
+     * Les tableaux de travail du thread courant
+     */
+    private static final ThreadLocal<Workspace> WORKSPACES =
+            ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Le graphe du plan et les sommets virtuels de la requête
+     */
+    private final GraphOverlay graph;
+    /**
+     * La hiérarchie de contraction utilisée
+     */
+    private final ContractionHierarchy hierarchy;
+    /**
+     * L'identifiant du sommet de départ
+     */
+    private final int startId;
+    /**
+     * L'identifiant du sommet d'arrivé
+     */
+    private final int arrivalId;
+    /**
+     * L'horaire de départ en secondes depuis minuit ou {@link Time#NO_TIME}
+     */
+    private final int departTime;
+    /**
+     * Les étiquettes des quais
+     */
+    private Workspace labels;
+    /**
+     * Le chemin trouvé
+     */
+    private List<Section> result;
+    /**
+     * Le poids du chemin trouvé
+     */
+    private int weight;
+
+    /**
+     * Étiquettes des deux recherches réutilisées d'une requête à l'autre par un même thread. Un
+     * quai dont le tampon ne correspond pas à l'époque courante n'a pas encore été atteint.
+     */
+    private static final class Workspace {
+        /**
+         * Distance de chaque quai depuis le départ
+         */
+        private int[] forward = new int[0];
+        /**
+         * Distance de chaque quai jusqu'à l'arrivée
+         */
+        private int[] backward = new int[0];
+        /**
+         * L'arc pris pour atteindre chaque quai depuis le départ
+         */
+        private int[] forwardArc = new int[0];
+        /**
+         * L'arc pris depuis chaque quai vers l'arrivée
+         */
+        private int[] backwardArc = new int[0];
+        /**
+         * L'arête virtuelle venant du départ de chaque quai de départ
+         */
+        private int[] forwardEdge = new int[0];
+        /**
+         * L'arête virtuelle vers l'arrivée de chaque quai d'arrivée
+         */
+        private int[] backwardEdge = new int[0];
+        /**
+         * L'époque à laquelle chaque quai a été atteint depuis le départ
+         */
+        private int[] forwardStamp = new int[0];
+        /**
+         * L'époque à laquelle chaque quai a été atteint depuis l'arrivée
+         */
+        private int[] backwardStamp = new int[0];
+        /**
+         * File de la recherche avant
+         */
+        private final IndexedMinHeap forwardQueue = new IndexedMinHeap(0);
+        /**
+         * File de la recherche arrière
+         */
+        private final IndexedMinHeap backwardQueue = new IndexedMinHeap(0);
+        /**
+         * Tableau où déplier les arcs du chemin
+         */
+        private int[] path = new int[0];
+        /**
+         * L'époque courante
+         */
+        private int epoch;
+
+        /**
+         * Prépare les tableaux pour une nouvelle recherche
+         *
+         * @param size le nombre de quais
+         */
+        private void reset(int size) {
+            if (forwardStamp.length < size) {
+                forward = new int[size];
+                backward = new int[size];
+                forwardArc = new int[size];
+                backwardArc = new int[size];
+                forwardEdge = new int[size];
+                backwardEdge = new int[size];
+                forwardStamp = new int[size];
+                backwardStamp = new int[size];
+                path = new int[size];
+                epoch = 0;
+            }
+            forwardQueue.reset(size);
+            backwardQueue.reset(size);
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(forwardStamp, 0);
+                Arrays.fill(backwardStamp, 0);
+                epoch = 1;
+            }
+        }
+
+        private int forward(int p) {
+            return forwardStamp[p] == epoch ? forward[p] : Integer.MAX_VALUE;
+        }
+
+        private int backward(int p) {
+            return backwardStamp[p] == epoch ? backward[p] : Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @param plan le plan à utiliser
+     * @param start le sommet de départ
+     * @param arrival le sommet d'arrivé
+     * @param departTime l'horaire de départ
+     * @param foot si des sections à pied sont possibles
+     */
+    ContractionSearch(Plan plan, String start, String arrival, Time departTime, boolean foot) {
+        if (plan == null || start == null || arrival == null)
+            throw new IllegalArgumentException();
+        this.graph = new GraphOverlay(plan.getGraph(), start, arrival, Graph.MAX_FOOT_DISTANCE);
+        this.hierarchy = graph.getGraph().getHierarchy(foot);
+        this.startId = graph.getStartId();
+        this.arrivalId = graph.getArrivalId();
+        this.departTime = departTime == null ? Time.NO_TIME : departTime.toSeconds();
+    }
+
+    /**
+     * Recherche le plus court chemin en distance entre 2 sommets et renvoie la liste des
+     * sections dans l'ordre du chemin
+     *
+     * @return la liste des sections dans l'ordre du départ à l'arrivé
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    @Override
+    public List<Section> getPath() throws PathNotFoundException {
+        if (result == null)
+            result = compute();
+        return new LinkedList<>(result);
+    }
+
+    /**
+     * @return le poids du chemin trouvé par {@link #getPath()}
+     */
+    int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Exécute les deux recherches puis reconstruit le chemin
+     *
+     * @return la liste des sections dans l'ordre du chemin
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    private List<Section> compute() throws PathNotFoundException {
+        if (startId == NONE || arrivalId == NONE)
+            throw new PathNotFoundException();
+        if (startId == arrivalId)
+            return new LinkedList<>();
+        int platforms = graph.getGraph().platformCount();
+        labels = WORKSPACES.get();
+        labels.reset(platforms);
+
+        Graph g = graph.getGraph();
+        if (startId < g.nodeCount()) {
+            for (int p = g.platformStart(startId); p < g.platformEnd(startId); p++)
+                initForward(p, 0, NONE);
+        }
+        if (arrivalId < g.nodeCount()) {
+            for (int p = g.platformStart(arrivalId); p < g.platformEnd(arrivalId); p++)
+                initBackward(p, 0, NONE);
+        }
+        int direct = NONE;
+        int directWeight = Integer.MAX_VALUE;
+        for (int e = g.edgeCount(); e < graph.edgeCount(); e++) {
+            int from = graph.getFromPlatform(e);
+            int to = graph.getToPlatform(e);
+            int w = (int) Math.round(graph.getDistance(e) * Graph.WEIGHT_FOOT);
+            if (from >= platforms && to >= platforms) {
+                if (w < directWeight) {
+                    direct = e;
+                    directWeight = w;
+                }
+            } else if (from >= platforms) {
+                initForward(to, w, e);
+            } else {
+                initBackward(from, w, e);
+            }
+        }
+
+        int best = Integer.MAX_VALUE;
+        int meet = NONE;
+        IndexedMinHeap forwardQueue = labels.forwardQueue;
+        IndexedMinHeap backwardQueue = labels.backwardQueue;
+        while (true) {
+            int forwardMin = forwardQueue.isEmpty() ? Integer.MAX_VALUE : forwardQueue.peekKey();
+            int backwardMin =
+                    backwardQueue.isEmpty() ? Integer.MAX_VALUE : backwardQueue.peekKey();
+            if (Math.min(forwardMin, backwardMin) >= best)
+                break;
+            if (forwardMin <= backwardMin) {
+                int u = forwardQueue.poll();
+                int d = labels.forward[u];
+                if (labels.backward(u) != Integer.MAX_VALUE && d + labels.backward[u] < best) {
+                    best = d + labels.backward[u];
+                    meet = u;
+                }
+                for (int i = hierarchy.upStart(u); i < hierarchy.upEnd(u); i++) {
+                    int a = hierarchy.getUpArc(i);
+                    int v = hierarchy.getTo(a);
+                    int w = d + hierarchy.getWeight(a);
+                    if (w < labels.forward(v)) {
+                        labels.forwardStamp[v] = labels.epoch;
+                        labels.forward[v] = w;
+                        labels.forwardArc[v] = a;
+                        labels.forwardEdge[v] = NONE;
+                        forwardQueue.insertOrDecrease(v, w);
+                    }
+                }
+            } else {
+                int u = backwardQueue.poll();
+                int d = labels.backward[u];
+                if (labels.forward(u) != Integer.MAX_VALUE && d + labels.forward[u] < best) {
+                    best = d + labels.forward[u];
+                    meet = u;
+                }
+                for (int i = hierarchy.downStart(u); i < hierarchy.downEnd(u); i++) {
+                    int a = hierarchy.getDownArc(i);
+                    int v = hierarchy.getFrom(a);
+                    int w = d + hierarchy.getWeight(a);
+                    if (w < labels.backward(v)) {
+                        labels.backwardStamp[v] = labels.epoch;
+                        labels.backward[v] = w;
+                        labels.backwardArc[v] = a;
+                        labels.backwardEdge[v] = NONE;
+                        backwardQueue.insertOrDecrease(v, w);
+                    }
+                }
+            }
+        }
+
+        if (direct != NONE && directWeight <= best) {
+            weight = directWeight;
+            List<Section> path = new LinkedList<>();
+            addSection(path, graph.newSection(direct), null);
+            return path;
+        }
+        if (meet == NONE)
+            throw new PathNotFoundException();
+        weight = best;
+        return toResult(meet);
+    }
+
+    /**
+     * @param p un quai de départ
+     * @param w la distance depuis le départ
+     * @param edge l'arête virtuelle venant du départ ou {@link #NONE}
+     */
+    private void initForward(int p, int w, int edge) {
+        if (w < labels.forward(p)) {
+            labels.forwardStamp[p] = labels.epoch;
+            labels.forward[p] = w;
+            labels.forwardArc[p] = NONE;
+            labels.forwardEdge[p] = edge;
+            labels.forwardQueue.insertOrDecrease(p, w);
+        }
+    }
+
+    /**
+     * @param p un quai d'arrivée
+     * @param w la distance jusqu'à l'arrivée
+     * @param edge l'arête virtuelle vers l'arrivée ou {@link #NONE}
+     */
+    private void initBackward(int p, int w, int edge) {
+        if (w < labels.backward(p)) {
+            labels.backwardStamp[p] = labels.epoch;
+            labels.backward[p] = w;
+            labels.backwardArc[p] = NONE;
+            labels.backwardEdge[p] = edge;
+            labels.backwardQueue.insertOrDecrease(p, w);
+        }
+    }
+
+    /**
+     * Reconstruit le chemin passant par le quai où les deux recherches se rejoignent
+     *
+     * @param meet le quai de rencontre
+     * @return la liste des sections dans l'ordre du chemin
+     */
+    private List<Section> toResult(int meet) {
+        List<Integer> arcs = new ArrayList<>();
+        int p = meet;
+        while (labels.forwardArc[p] != NONE) {
+            arcs.add(labels.forwardArc[p]);
+            p = hierarchy.getFrom(labels.forwardArc[p]);
+        }
+        int first = labels.forwardEdge[p];
+        Collections.reverse(arcs);
+        p = meet;
+        while (labels.backwardArc[p] != NONE) {
+            arcs.add(labels.backwardArc[p]);
+            p = hierarchy.getTo(labels.backwardArc[p]);
+        }
+        int last = labels.backwardEdge[p];
+
+        List<Section> path = new LinkedList<>();
+        if (first != NONE)
+            addSection(path, graph.newSection(first), null);
+        for (int arc : arcs) {
+            int size = hierarchy.unpack(arc, labels.path, 0);
+            for (int i = 0; i < size; i++) {
+                int a = labels.path[i];
+                int edge = hierarchy.getSection(a);
+                if (edge >= 0) {
+                    addSection(path, graph.newSection(edge), edge);
+                } else if (edge == ContractionHierarchy.FOOT) {
+                    addSection(path,
+                            graph.newFootSection(hierarchy.getFrom(a), hierarchy.getTo(a)), null);
+                }
+            }
+        }
+        if (last != NONE)
+            addSection(path, graph.newSection(last), null);
+        return path;
+    }
+
+    /**
+     * Ajoute une section à la fin du chemin en calculant son horaire de départ à partir de
+     * l'arrivée de la section précédente
+     *
+     * @param path le chemin
+     * @param section la section à ajouter
+     * @param edge l'arête du graphe de la section ou {@code null} pour une section à pied
+     */
+    private void addSection(List<Section> path, Section section, Integer edge) {
+        int time = departTime;
+        if (!path.isEmpty())
+            time = path.get(path.size() - 1).getArrivalTimeInSeconds();
+        Line line = edge == null ? null : graph.getLine(edge);
+        int sectionTime = line == null ? time
+                : line.getNextTime(graph.getGraph().getSection(edge), time);
+        section.setTime(sectionTime);
+        path.add(section);
+    }
+}
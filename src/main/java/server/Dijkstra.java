@@ -1,46 +1,49 @@
 package server;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Set;
-import java.util.function.ToIntBiFunction;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import server.map.FootpathTable;
+import server.map.Graph;
+import server.map.GraphOverlay;
+import server.map.Line;
 import server.map.Plan;
 import server.map.Section;
 import server.map.Station;
 import server.map.Time;
-import util.Logger;
-import util.Parser;
 
 /**
- * Implémentation de l'algorithme de Dijkstra sur un plan
+ * Implémentation de l'algorithme de Dijkstra sur un plan.
+ *
+ * <p>
+ * Les étiquettes portent sur les quais, comme dans la {@link server.map.ContractionHierarchy} :
+ * une section part du quai où on se trouve, et changer de quai dans une station est une
+ * correspondance dont le coût dépend des deux quais. Tous les quais du départ sont atteints sans
+ * coût, et le chemin s'arrête au premier quai de l'arrivée retiré de la file.
+ *
+ * <p>
+ * En optimisation en distance, la recherche est guidée vers l'arrivée (algorithme A*) : la clé
+ * d'un quai est sa distance au départ augmentée d'un minorant de la distance restante, calculé
+ * à partir de la distance à vol d'oiseau jusqu'à l'arrivée.
  */
-public final class Dijkstra {
+public final class Dijkstra implements PathFinder {
     /**
-     * Le plan du réseau
+     * Le graphe du plan et les sommets virtuels de la requête
      */
-    private final Plan plan;
+    private final GraphOverlay graph;
     /**
-     * Le sommet de départ
+     * L'identifiant du sommet de départ
      */
-    private final String start;
+    private final int startId;
     /**
-     * Le sommet d'arrivé
+     * L'identifiant du sommet d'arrivé
      */
-    private final String arrival;
+    private final int arrivalId;
     /**
-     * L'horaire de départ
+     * L'horaire de départ en secondes depuis minuit ou {@link Time#NO_TIME}
      */
-    private final Time departTime;
+    private final int departTime;
     /**
      * Optimisation en distance ou en temps
      */
@@ -49,105 +52,223 @@ public final class Dijkstra {
      * Si des sections à pied sont possibles
      */
     private boolean foot;
+    /**
+     * Si la recherche est guidée par la distance à vol d'oiseau vers l'arrivée
+     */
+    private final boolean guided;
+    /**
+     * Marge appliquée au minorant pour absorber les arrondis au mètre des distances
+     */
+    private static final double ESTIMATE_MARGIN = 0.99;
     /**
      * La distance maximale à parcourir à pied entre 2 sections
      */
-    private static final int MAX_FOOT_DISTANCE = 1000;
+    static final int MAX_FOOT_DISTANCE = Graph.MAX_FOOT_DISTANCE;
     /**
-     * Le poids pour les trajets à pied
+     * Valeur de {@code previous} pour un quai du départ ou qui n'a pas encore été atteint
      */
-    private static final double WEIGHT_FOOT = 1.5;
+    private static final int NONE = -1;
     /**
-     * La fonction qui calcule le poids d'une arrête à partir de la dernière arête traitée
+     * Valeur de {@code previous} pour un quai atteint par une section à pied
      */
-    private final ToIntBiFunction<Section, Section> getWeight;
+    private static final int FOOT = -2;
     /**
-     * Associe chaque sommet à sa distance par rapport au sommet de départ
+     * Valeur de {@code previous} pour un quai atteint par une correspondance dans la même station
      */
-    private final Map<String, Integer> distance;
+    private static final int TRANSFER = -3;
     /**
-     * Associe chaque sommet à l'arête pris pour arriver à ce sommet
+     * Les tableaux de travail du thread courant
      */
-    private final Map<String, Section> previous;
+    private static final ThreadLocal<Workspace> WORKSPACES =
+            ThreadLocal.withInitial(Workspace::new);
     /**
-     * File de priorité sur les sommets par rapport à leur distance avec le sommet de départ
+     * Les étiquettes des quais
      */
-    private final PriorityQueue<String> queue;
+    private Workspace labels;
     /**
-     * Le sommet en cours de traitement
+     * Le chemin trouvé
      */
-    private String u;
-    private static final String DEPART = "Départ";
-    private static final String ARRIVEE = "Arrivée";
+    private List<Section> result;
+    /**
+     * Le quai en cours de traitement
+     */
+    private int u;
+    /**
+     * Le nombre de quais retirés de la file de priorité
+     */
+    private int settledCount;
+    /**
+     * Le poids du chemin trouvé
+     */
+    private int weight;
+
+    /**
+     * Étiquettes de l'algorithme réutilisées d'une requête à l'autre par un même thread. Un
+     * quai dont le tampon ne correspond pas à l'époque courante n'a pas encore été atteint, ce
+     * qui évite de réinitialiser les tableaux à chaque requête.
+     */
+    private static final class Workspace {
+        /**
+         * Associe chaque quai à sa distance par rapport au départ
+         */
+        private int[] distance = new int[0];
+        /**
+         * Associe chaque quai à l'arête prise pour y arriver, {@link #FOOT}, {@link #TRANSFER}
+         * ou {@link #NONE} pour un quai du départ
+         */
+        private int[] previous = new int[0];
+        /**
+         * Associe chaque quai au quai de départ de l'étape prise pour y arriver
+         */
+        private int[] from = new int[0];
+        /**
+         * Associe chaque quai à l'horaire de départ de la section prise pour y arriver
+         */
+        private int[] departure = new int[0];
+        /**
+         * Associe chaque quai à l'horaire d'arrivée à ce quai
+         */
+        private int[] arrivalTime = new int[0];
+        /**
+         * File de priorité sur les quais par rapport à leur distance avec le départ
+         */
+        private final IndexedMinHeap queue = new IndexedMinHeap(0);
+        /**
+         * Associe chaque quai au minorant de sa distance à l'arrivée
+         */
+        private int[] estimate = new int[0];
+        /**
+         * L'époque à laquelle le minorant de chaque quai a été calculé
+         */
+        private int[] estimateStamp = new int[0];
+        /**
+         * L'époque à laquelle chaque quai a été atteint
+         */
+        private int[] stamp = new int[0];
+        /**
+         * L'époque courante
+         */
+        private int epoch;
+
+        /**
+         * Prépare les tableaux pour une nouvelle recherche
+         *
+         * @param size le nombre de quais
+         */
+        private void reset(int size) {
+            if (stamp.length < size) {
+                distance = new int[size];
+                previous = new int[size];
+                from = new int[size];
+                departure = new int[size];
+                arrivalTime = new int[size];
+                stamp = new int[size];
+                estimate = new int[size];
+                estimateStamp = new int[size];
+                epoch = 0;
+            }
+            queue.reset(size);
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                Arrays.fill(estimateStamp, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * @param p un quai
+         * @return la distance de {@code p} au départ
+         */
+        private int distance(int p) {
+            return stamp[p] == epoch ? distance[p] : Integer.MAX_VALUE;
+        }
+
+        /**
+         * @param p un quai
+         * @return l'étape prise pour arriver à {@code p} ou {@link #NONE}
+         */
+        private int previous(int p) {
+            return stamp[p] == epoch ? previous[p] : NONE;
+        }
+
+        /**
+         * Initialise l'étiquette d'un quai
+         *
+         * @param v un quai
+         * @param dist la distance du quai au départ
+         * @param time l'horaire d'arrivée au quai en secondes ou {@link Time#NO_TIME}
+         */
+        private void init(int v, int dist, int time) {
+            stamp[v] = epoch;
+            distance[v] = dist;
+            previous[v] = NONE;
+            arrivalTime[v] = time;
+        }
+    }
 
     /**
      * @param plan le plan à utiliser
      * @param start le sommet de départ
      * @param arrival le sommet d'arrivé
      * @param departTime l'horaire de départ
-     * @param getWeight la fonction qui associe à une section (arête) son poids
+     * @param distOpt si optimisation en distance
+     * @param foot si des sections à pied sont possibles
      */
     Dijkstra(Plan plan, String start, String arrival, Time departTime, boolean distOpt,
             boolean foot) {
-        if (plan == null || start == null || arrival == null)
-            throw new IllegalArgumentException();
-        this.plan = plan;
-        this.start = initStart(start);
-        this.arrival = initArrival(arrival);
-        this.departTime = departTime;
-        this.distOpt = distOpt;
-        this.foot = foot;
-        this.getWeight = distOpt ? Section::distanceTo : Section::durationTo;
-        distance = new HashMap<>();
-        previous = new HashMap<>();
-        queue = new PriorityQueue<>(plan.getMap().size(), Comparator.comparingInt(distance::get));
-        this.u = null;
+        this(plan, start, arrival, departTime, distOpt, foot, distOpt);
     }
 
     /**
-     * Ajoute si nécessaire des arêtes dans {@code map} permettant de relié une coordonnée aux
-     * stations du réseau.
-     *
-     * @param start un nom de station ou une coordonnée
-     * @return {@code DEPART} s'il s'agit d'une coordonnée ou le nom de la station sinon
-     */
-    private String initStart(String start) {
-        Pattern p = Pattern.compile("^\\((.*)\\)$");
-        Matcher m = p.matcher(start);
-        if (m.matches()) {
-            try {
-                double[] coord = Parser.parse2DoubleSep(m.group(1), ",");
-                plan.addStationWithSectionToNearStation(DEPART, coord[0], coord[1],
-                        MAX_FOOT_DISTANCE);
-                return DEPART;
-            } catch (Exception ignored) {
-                Logger.info(ignored.getMessage());
-            }
-        }
-        return start;
+     * @param plan le plan à utiliser
+     * @param start le sommet de départ
+     * @param arrival le sommet d'arrivé
+     * @param departTime l'horaire de départ
+     * @param distOpt si optimisation en distance
+     * @param foot si des sections à pied sont possibles
+     * @param guided si la recherche en distance est guidée vers l'arrivée
+     */
+    Dijkstra(Plan plan, String start, String arrival, Time departTime, boolean distOpt,
+            boolean foot, boolean guided) {
+        this(plan, start, arrival, departTime, distOpt, foot, guided, false);
     }
 
     /**
-     * Ajoute si nécessaire des arêtes dans {@code map} permettant de relié une coordonnée aux
-     * stations du réseau.
+     * Recherche sans arrivée, pour {@link #getWeights()}
      *
-     * @param arrival un nom de station ou une coordonnée
-     * @return {@code ARRIVEE} s'il s'agit d'une coordonnée ou le nom de la station sinon
-     */
-    private String initArrival(String arrival) {
-        Pattern p = Pattern.compile("^\\((.*)\\)$");
-        Matcher m = p.matcher(arrival);
-        if (m.matches()) {
-            try {
-                double[] coord = Parser.parse2DoubleSep(m.group(1), ",");
-                plan.addStationWithSectionFromNearStation(ARRIVEE, coord[0], coord[1],
-                        MAX_FOOT_DISTANCE);
-                return ARRIVEE;
-            } catch (Exception ignored) {
-                Logger.info(ignored.getMessage());
-            }
-        }
-        return arrival;
+     * @param plan le plan à utiliser
+     * @param start le sommet de départ
+     * @param departTime l'horaire de départ
+     * @param distOpt si optimisation en distance
+     * @param foot si des sections à pied sont possibles
+     */
+    Dijkstra(Plan plan, String start, Time departTime, boolean distOpt, boolean foot) {
+        this(plan, start, null, departTime, distOpt, foot, false, true);
+    }
+
+    /**
+     * @param plan le plan à utiliser
+     * @param start le sommet de départ
+     * @param arrival le sommet d'arrivé, {@code null} si {@code toAll}
+     * @param departTime l'horaire de départ
+     * @param distOpt si optimisation en distance
+     * @param foot si des sections à pied sont possibles
+     * @param guided si la recherche en distance est guidée vers l'arrivée
+     * @param toAll si la recherche n'a pas d'arrivée
+     */
+    private Dijkstra(Plan plan, String start, String arrival, Time departTime, boolean distOpt,
+            boolean foot, boolean guided, boolean toAll) {
+        if (plan == null || start == null || (arrival == null && !toAll))
+            throw new IllegalArgumentException();
+        this.graph = new GraphOverlay(plan.getGraph(), start, arrival, MAX_FOOT_DISTANCE);
+        this.startId = graph.getStartId();
+        this.arrivalId = graph.getArrivalId();
+        this.departTime = departTime == null ? Time.NO_TIME : departTime.toSeconds();
+        this.distOpt = distOpt;
+        this.foot = foot;
+        this.guided = guided && distOpt && !toAll;
+        this.u = NONE;
     }
 
     /**
@@ -170,10 +291,50 @@ public final class Dijkstra {
      * @return la liste des arêtes dans l'ordre du départ à l'arrivé
      * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
      */
-    List<Section> getPath() throws PathNotFoundException {
-        if (previous.isEmpty())
+    @Override
+    public List<Section> getPath() throws PathNotFoundException {
+        if (result == null) {
             compute();
-        return toResult();
+            result = toResult();
+        }
+        return new LinkedList<>(result);
+    }
+
+    /**
+     * Parcourt tout le graphe depuis le départ, sans s'arrêter à l'arrivée
+     *
+     * @return le poids du plus court chemin vers chaque sommet du graphe du plan,
+     *         {@link Integer#MAX_VALUE} si le sommet n'est pas atteignable ou si le départ
+     *         n'existe pas
+     */
+    int[] getWeights() {
+        int[] weights = new int[graph.getGraph().nodeCount()];
+        Arrays.fill(weights, Integer.MAX_VALUE);
+        if (startId == NONE)
+            return weights;
+        init();
+        while (!finished()) {
+            loop();
+        }
+        for (int v = 0; v < weights.length; v++) {
+            for (int p = graph.platformStart(v); p < graph.platformEnd(v); p++)
+                weights[v] = Math.min(weights[v], labels.distance(p));
+        }
+        return weights;
+    }
+
+    /**
+     * @return le nombre de sommets retirés de la file de priorité pendant la recherche
+     */
+    int getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     * @return le poids du chemin trouvé par {@link #getPath()}
+     */
+    int getWeight() {
+        return weight;
     }
 
     /**
@@ -182,90 +343,150 @@ public final class Dijkstra {
      * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
      */
     private void compute() throws PathNotFoundException {
+        if (startId == NONE || arrivalId == NONE)
+            throw new PathNotFoundException();
         init();
         while (!finished()) {
             loop();
         }
-        if (!arrival.equals(u))
+        if (u == NONE || graph.getPlatformNode(u) != arrivalId)
             throw new PathNotFoundException();
+        weight = labels.distance(u);
     }
 
     /**
-     * Initialise les valeurs pour l'algorithme
+     * Initialise les valeurs pour l'algorithme : tous les quais du départ sont atteints sans coût
      */
     private void init() {
-        Set<String> stationsName = plan.getStationsName();
-        for (String station : stationsName) {
-            distance.put(station, Integer.MAX_VALUE);
+        labels = WORKSPACES.get();
+        labels.reset(graph.platformCount());
+        for (int p = graph.platformStart(startId); p < graph.platformEnd(startId); p++) {
+            labels.init(p, 0, departTime);
+            labels.queue.insertOrDecrease(p, 0);
         }
-        distance.put(start, 0);
-        distance.put(arrival, Integer.MAX_VALUE);
-        queue.addAll(stationsName);
     }
 
     /**
      * @return {@code true} si l'algo à terminer {@code false} sinon
      */
     private boolean finished() {
-        if (queue.isEmpty())
+        if (labels.queue.isEmpty()) {
+            u = NONE;
             return true;
-        u = queue.poll();
-        return arrival.equals(u) || distance.get(u) == Integer.MAX_VALUE;
+        }
+        u = labels.queue.poll();
+        settledCount++;
+        return graph.getPlatformNode(u) == arrivalId;
     }
 
     /**
-     * @return la liste des arêtes partant de {@code u} en prenant en compte les sections à pied
+     * Corps de l'algorithme : les sections partant du quai {@code u}, les correspondances vers
+     * les autres quais de sa station puis les sections à pied vers les quais des autres stations
      */
-    private List<Section> getNeighbors() {
-        Section prev = previous.get(u);
-        List<Section> neighbors = plan.getSectionsFromStationName(u);
-        if (neighbors == null)
-            neighbors = new ArrayList<>();
+    private void loop() {
+        int v = graph.getPlatformNode(u);
+        int time = labels.arrivalTime[u];
+        for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+            if (graph.getFromPlatform(e) == u)
+                relaxEdge(e, time);
+        }
+        for (int e = graph.extraEdgeStart(v); e < graph.extraEdgeEnd(v); e++) {
+            if (graph.getFromPlatform(e) == u)
+                relaxEdge(e, time);
+        }
+        if (!distOpt && time == Time.NO_TIME)
+            return;
+        for (int q = graph.platformStart(v); q < graph.platformEnd(v); q++) {
+            if (q != u)
+                relax(q, TRANSFER, time, graph.transferDuration(u, q), false,
+                        distOpt ? graph.transferDistance(u, q) : graph.transferDuration(u, q));
+        }
+        if (foot && u < graph.getGraph().platformCount())
+            relaxFoot(v, time);
+    }
 
-        if (prev == null && !start.equals(DEPART) && foot) {
-            Set<Station> startStations = new HashSet<>(neighbors.stream().map(Section::getStart)
-                    .collect(Collectors.toCollection(ArrayList::new)));
-            for (Station s : startStations) {
-                neighbors.addAll(plan.getCloseStations(s, MAX_FOOT_DISTANCE, false).stream()
-                        .map(closeStation -> new Section(s, closeStation, null,
-                                s.distanceBetween(closeStation), s.durationBetween(closeStation)))
-                        .collect(Collectors.toCollection(ArrayList::new)));
-            }
-        } else if (prev != null && foot) {
-            Station s = prev.getArrival();
-            neighbors.addAll(plan.getCloseStations(s, MAX_FOOT_DISTANCE, false).stream()
-                    .map(closeStation -> new Section(s, closeStation, null,
-                            s.distanceBetween(closeStation), s.durationBetween(closeStation)))
-                    .collect(Collectors.toCollection(ArrayList::new)));
+    /**
+     * Relâche une arête partant du quai {@code u}. En optimisation en temps, on prend le premier
+     * train partant après l'arrivée au quai.
+     *
+     * @param e l'arête
+     * @param time l'horaire d'arrivée à {@code u} en secondes ou {@link Time#NO_TIME}
+     */
+    private void relaxEdge(int e, int time) {
+        Line line = graph.getLine(e);
+        int sectionTime =
+                line == null ? time : line.getNextTime(graph.getGraph().getSection(e), time);
+        if (distOpt || sectionTime != Time.NO_TIME) {
+            int weight = distOpt ? graph.getDistance(e)
+                    : Time.durationBetween(time,
+                            Time.addDuration(sectionTime, graph.getDuration(e)));
+            relax(graph.getToPlatform(e), e, sectionTime, graph.getDuration(e), line == null,
+                    weight);
         }
-        return neighbors;
     }
 
     /**
-     * Corps de l'algorithme
+     * Relâche les sections à pied partant du quai {@code u} vers les quais des autres stations à
+     * moins de {@code MAX_FOOT_DISTANCE} mètres
+     *
+     * @param v la station de {@code u}
+     * @param time l'horaire de départ en secondes ou {@link Time#NO_TIME}
      */
-    private void loop() {
-        for (Section section : getNeighbors()) {
-            Section prev = previous.get(u);
-            if (prev == null) {
-                prev = new Section(section.getStart(), section.getStart(), "", 0, 0);
-                prev.setTime(departTime);
-            }
-            plan.updateSectionTime(section, prev.getArrivalTime());
-            if (distOpt || section.getTime() != null) {
-                String v = section.getArrival().getName();
-                int weight = getWeight.applyAsInt(prev, section);
-                int w = distance.get(u)
-                        + (section.getLine() == null ? (int) Math.round(weight * WEIGHT_FOOT)
-                                : weight);
-                if (distance.get(v) > w) {
-                    distance.put(v, w);
-                    previous.put(v, section);
-                    queue.remove(v);
-                    queue.add(v);
-                }
-            }
+    private void relaxFoot(int v, int time) {
+        FootpathTable footpaths = graph.getGraph().getFootpaths();
+        for (int i = footpaths.footStart(u); i < footpaths.footEnd(u); i++) {
+            int p = footpaths.getTarget(i);
+            if (graph.getPlatformNode(p) == v)
+                continue;
+            int duration = footpaths.getDuration(i);
+            int weight = distOpt ? footpaths.getDistance(i) : duration;
+            relax(p, FOOT, time, duration, true, weight);
+        }
+    }
+
+    /**
+     * Met à jour un quai si le chemin passant par {@code u} est plus court
+     *
+     * @param p le quai d'arrivée
+     * @param step l'arête prise, {@link #FOOT} ou {@link #TRANSFER}
+     * @param time l'horaire de départ de l'étape en secondes ou {@link Time#NO_TIME}
+     * @param duration la durée de l'étape
+     * @param onFoot si l'étape est une section à pied
+     * @param weight le poids de l'étape
+     */
+    private void relax(int p, int step, int time, int duration, boolean onFoot, int weight) {
+        int w = labels.distance(u)
+                + (onFoot ? (int) Math.round(weight * Graph.WEIGHT_FOOT) : weight);
+        if (labels.distance(p) > w) {
+            labels.init(p, w,
+                    time == Time.NO_TIME ? Time.NO_TIME : Time.addDuration(time, duration));
+            labels.previous[p] = step;
+            labels.from[p] = u;
+            labels.departure[p] = time;
+            labels.queue.insertOrDecrease(p, guided ? w + estimate(p) : w);
+        }
+    }
+
+    /**
+     * Calcule si nécessaire un minorant de la distance entre un quai et l'arrivée : la plus
+     * petite distance à vol d'oiseau entre {@code p} et un quai de l'arrivée, réduite par
+     * {@link server.map.Graph#getDistanceFactor()}. Un quai déjà traité peut être remis dans la
+     * file si sa distance diminue, ce qui garantit un chemin optimal.
+     *
+     * @param p un quai
+     * @return le minorant de la distance entre {@code p} et l'arrivée
+     */
+    private int estimate(int p) {
+        if (labels.estimateStamp[p] != labels.epoch) {
+            int min = Integer.MAX_VALUE;
+            Station station = graph.getPlatform(p);
+            for (int q = graph.platformStart(arrivalId); q < graph.platformEnd(arrivalId); q++)
+                min = Math.min(min, station.distanceBetween(graph.getPlatform(q)));
+            double factor = graph.getGraph().getDistanceFactor() * ESTIMATE_MARGIN;
+            labels.estimateStamp[p] = labels.epoch;
+            labels.estimate[p] = min == Integer.MAX_VALUE ? 0 : (int) (min * factor);
         }
+        return labels.estimate[p];
     }
 
     /**
@@ -275,13 +496,14 @@ public final class Dijkstra {
      */
     private List<Section> toResult() throws PathNotFoundException {
         List<Section> orderedPath = new LinkedList<>();
-        String last = arrival;
-        while (!last.equals(start)) {
-            Section section = previous.get(last);
-            if (section == null)
-                throw new PathNotFoundException();
+        for (int p = u; labels.previous(p) != NONE; p = labels.from[p]) {
+            int step = labels.previous(p);
+            if (step == TRANSFER)
+                continue;
+            Section section = step == FOOT ? graph.newFootSection(labels.from[p], p)
+                    : graph.newSection(step);
+            section.setTime(labels.departure[p]);
             orderedPath.add(section);
-            last = section.getStart().getName();
         }
         Collections.reverse(orderedPath);
         return orderedPath;
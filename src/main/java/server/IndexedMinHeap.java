@@ -0,0 +1,236 @@
+package server;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Tas binaire minimum sur des identifiants entiers compris entre {@code 0} et {@code capacity}
+ * (exclus), chacun associé à une clé entière.
+ *
+ * <p>
+ * La position de chaque identifiant dans le tas est conservée, ce qui permet de diminuer la clé
+ * d'un identifiant déjà présent en O(log n) au lieu de le retirer puis de le réinsérer. Les
+ * identifiants ne sont insérés qu'au moment où ils reçoivent une clé. Le tas peut être vidé en
+ * temps proportionnel à sa taille et réutilisé d'une recherche à l'autre.
+ */
+public final class IndexedMinHeap {
+    /**
+     * Position d'un identifiant absent du tas
+     */
+    private static final int ABSENT = -1;
+
+    /**
+     * Les identifiants rangés dans l'ordre du tas
+     */
+    private int[] heap;
+    /**
+     * La clé de chaque case de {@code heap}
+     */
+    private int[] keys;
+    /**
+     * La position de chaque identifiant dans {@code heap} ou {@link #ABSENT}
+     */
+    private int[] positions;
+    /**
+     * Le nombre d'éléments dans le tas
+     */
+    private int size;
+
+    /**
+     * @param capacity le nombre d'identifiants possibles
+     * @throws IllegalArgumentException si {@code capacity} est négatif
+     */
+    public IndexedMinHeap(int capacity) throws IllegalArgumentException {
+        if (capacity < 0)
+            throw new IllegalArgumentException();
+        heap = new int[capacity];
+        keys = new int[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, ABSENT);
+        size = 0;
+    }
+
+    /**
+     * @return le nombre d'identifiants possibles
+     */
+    public int capacity() {
+        return positions.length;
+    }
+
+    /**
+     * Vide le tas et s'assure qu'il puisse contenir {@code capacity} identifiants
+     *
+     * @param capacity le nombre d'identifiants possibles
+     */
+    public void reset(int capacity) {
+        if (capacity > positions.length) {
+            heap = new int[capacity];
+            keys = new int[capacity];
+            positions = new int[capacity];
+            Arrays.fill(positions, ABSENT);
+            size = 0;
+        } else {
+            clear();
+        }
+    }
+
+    /**
+     * Vide le tas
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            positions[heap[i]] = ABSENT;
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param id un identifiant
+     * @return {@code true} si {@code id} est dans le tas
+     */
+    public boolean contains(int id) {
+        return positions[id] != ABSENT;
+    }
+
+    /**
+     * @param id un identifiant présent dans le tas
+     * @return la clé de {@code id}
+     * @throws NoSuchElementException si {@code id} n'est pas dans le tas
+     */
+    public int getKey(int id) throws NoSuchElementException {
+        int i = positions[id];
+        if (i == ABSENT)
+            throw new NoSuchElementException();
+        return keys[i];
+    }
+
+    /**
+     * Insère un identifiant ou diminue sa clé s'il est déjà présent. Ne fait rien si la clé
+     * actuelle est déjà inférieure ou égale à {@code key}.
+     *
+     * @param id un identifiant
+     * @param key la nouvelle clé
+     * @return {@code true} si le tas a été modifié
+     */
+    public boolean insertOrDecrease(int id, int key) {
+        int i = positions[id];
+        if (i == ABSENT) {
+            i = size++;
+            heap[i] = id;
+            keys[i] = key;
+            positions[id] = i;
+        } else if (keys[i] <= key) {
+            return false;
+        } else {
+            keys[i] = key;
+        }
+        siftUp(i);
+        return true;
+    }
+
+    /**
+     * @return l'identifiant de clé minimale, sans le retirer
+     * @throws NoSuchElementException si le tas est vide
+     */
+    public int peek() throws NoSuchElementException {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return heap[0];
+    }
+
+    /**
+     * @return la clé minimale
+     * @throws NoSuchElementException si le tas est vide
+     */
+    public int peekKey() throws NoSuchElementException {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return keys[0];
+    }
+
+    /**
+     * Retire l'identifiant de clé minimale
+     *
+     * @return l'identifiant retiré
+     * @throws NoSuchElementException si le tas est vide
+     */
+    public int poll() throws NoSuchElementException {
+        if (size == 0)
+            throw new NoSuchElementException();
+        int min = heap[0];
+        positions[min] = ABSENT;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            keys[0] = keys[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Fait remonter l'élément à la position {@code i}
+     *
+     * @param i une position du tas
+     */
+    private void siftUp(int i) {
+        int id = heap[i];
+        int key = keys[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key)
+                break;
+            move(parent, i);
+            i = parent;
+        }
+        place(id, key, i);
+    }
+
+    /**
+     * Fait descendre l'élément à la position {@code i}
+     *
+     * @param i une position du tas
+     */
+    private void siftDown(int i) {
+        int id = heap[i];
+        int key = keys[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && keys[right] < keys[child])
+                child = right;
+            if (key <= keys[child])
+                break;
+            move(child, i);
+            i = child;
+        }
+        place(id, key, i);
+    }
+
+    /**
+     * Déplace l'élément de la position {@code from} à la position {@code to}
+     */
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        keys[to] = keys[from];
+        positions[heap[to]] = to;
+    }
+
+    /**
+     * Place un élément à la position {@code i}
+     */
+    private void place(int id, int key, int i) {
+        heap[i] = id;
+        keys[i] = key;
+        positions[id] = i;
+    }
+}
@@ -0,0 +1,165 @@
+package server;
+
+import java.util.Arrays;
+import server.map.ConnectionTable;
+import server.map.GraphOverlay;
+import server.map.Plan;
+import server.map.Time;
+
+/**
+ * Calcule l'horaire d'arrivée au plus tôt à toutes les stations atteignables depuis un départ
+ * dans un temps donné.
+ *
+ * <p>
+ * C'est l'algorithme de {@link ConnectionScan} sans destination : le même
+ * {@link ConnectionScanner} parcourt les connexions une seule fois dans l'ordre de leur horaire de
+ * départ, jusqu'à la fin du temps donné. Seuls les horaires d'arrivée sont gardés, aucun trajet
+ * n'est reconstruit.
+ */
+public final class Isochrone {
+    /**
+     * Le graphe du plan et le sommet virtuel de départ
+     */
+    private final GraphOverlay graph;
+    /**
+     * L'identifiant du sommet de départ
+     */
+    private final int startId;
+    /**
+     * L'horaire de départ en secondes depuis minuit
+     */
+    private final int departTime;
+    /**
+     * L'horaire d'arrivée au plus tard en secondes
+     */
+    private final int limit;
+    /**
+     * Si des sections à pied sont possibles
+     */
+    private final boolean foot;
+    /**
+     * Les sommets dont l'horaire d'arrivée est demandé, {@code null} pour tous les sommets
+     */
+    private final int[] targets;
+    /**
+     * Le parcours des connexions
+     */
+    private ConnectionScanner scanner;
+    /**
+     * Les stations atteintes, triées par horaire d'arrivée
+     */
+    private int[] nodes;
+    /**
+     * L'horaire d'arrivée au plus tôt à chaque station de {@code nodes}
+     */
+    private int[] arrivals;
+
+    /**
+     * @param plan le plan à utiliser
+     * @param start le sommet de départ, nom de station ou coordonnée
+     * @param departTime l'horaire de départ
+     * @param budget le temps de trajet maximal en secondes, au plus une journée
+     * @param foot si des sections à pied sont possibles
+     */
+    Isochrone(Plan plan, String start, Time departTime, int budget, boolean foot) {
+        this(plan, start, departTime, budget, foot, null);
+    }
+
+    /**
+     * La recherche s'arrête dès que l'horaire d'arrivée des sommets de {@code targets} ne peut
+     * plus être amélioré. Les horaires des autres sommets sont alors des majorants.
+     *
+     * @param plan le plan à utiliser
+     * @param start le sommet de départ, nom de station ou coordonnée
+     * @param departTime l'horaire de départ
+     * @param budget le temps de trajet maximal en secondes, au plus une journée
+     * @param foot si des sections à pied sont possibles
+     * @param targets les sommets dont l'horaire d'arrivée est demandé, {@code null} pour tous
+     */
+    Isochrone(Plan plan, String start, Time departTime, int budget, boolean foot,
+            int[] targets) {
+        if (plan == null || start == null || departTime == null || budget < 0
+                || budget > ConnectionTable.DAY)
+            throw new IllegalArgumentException();
+        this.targets = targets == null ? null : targets.clone();
+        this.graph = new GraphOverlay(plan.getGraph(), start, null, Dijkstra.MAX_FOOT_DISTANCE);
+        this.startId = graph.getStartId();
+        this.departTime = departTime.toSeconds();
+        this.limit = this.departTime + budget;
+        this.foot = foot;
+    }
+
+    /**
+     * @return les stations atteignables, triées par horaire d'arrivée, vide si le départ
+     *         n'existe pas
+     */
+    public int[] getNodes() {
+        if (nodes == null)
+            compute();
+        return nodes.clone();
+    }
+
+    /**
+     * @return l'horaire d'arrivée au plus tôt à chaque station de {@link #getNodes()}, en
+     *         secondes depuis minuit du jour du départ
+     */
+    public int[] getArrivals() {
+        if (nodes == null)
+            compute();
+        return arrivals.clone();
+    }
+
+    /**
+     * Parcourt les connexions de l'horaire de départ jusqu'à la fin du temps donné, puis trie les
+     * stations atteintes
+     */
+    private void compute() {
+        nodes = new int[0];
+        arrivals = new int[0];
+        if (startId == -1)
+            return;
+        scanner = new ConnectionScanner(graph, foot, limit, -1);
+        scanner.start(departTime);
+        int bound = targets == null ? limit : departTime;
+        while (true) {
+            int time = scanner.nextDeparture();
+            if (time >= bound)
+                bound = targetsBound();
+            if (time >= bound)
+                break;
+            scanner.scanNext();
+        }
+
+        int n = graph.getGraph().nodeCount();
+        long[] keys = new long[scanner.reachedCount()];
+        int size = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int v = scanner.reached(i);
+            if (v < n)
+                keys[size++] = ((long) scanner.arrival(v) << 32) | v;
+        }
+        Arrays.sort(keys, 0, size);
+        nodes = new int[size];
+        arrivals = new int[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = (int) keys[i];
+            arrivals[i] = (int) (keys[i] >>> 32);
+        }
+    }
+
+    /**
+     * @return l'horaire à partir duquel les connexions ne peuvent plus améliorer l'arrivée aux
+     *         sommets demandés : le plus tardif de leurs horaires d'arrivée, borné par la fin du
+     *         temps donné
+     */
+    private int targetsBound() {
+        if (targets == null)
+            return limit;
+        int bound = departTime;
+        for (int v : targets) {
+            if (v >= 0)
+                bound = Math.max(bound, Math.min(scanner.arrival(v), limit));
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,809 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import server.Dijkstra.PathNotFoundException;
+import server.map.FootpathTable;
+import server.map.Graph;
+import server.map.GraphOverlay;
+import server.map.PatternTable;
+import server.map.Plan;
+import server.map.Section;
+import server.map.Time;
+
+/**
+ * Implémentation de l'algorithme McRAPTOR (RAPTOR multicritère) : calcule le front de Pareto des
+ * trajets selon l'horaire d'arrivée, le nombre de correspondances et la distance parcourue à pied.
+ *
+ * <p>
+ * Comme dans {@link Raptor}, le tour {@code k} prend un train de plus que le tour précédent et les
+ * étiquettes portent sur les quais, mais chaque quai garde pour chaque tour un sac d'étiquettes
+ * (horaire d'arrivée, mètres à pied) dont aucune n'est dominée par une autre étiquette du quai ou
+ * de l'arrivée d'un tour inférieur ou égal. Les distances à pied sont comparées par tranches de
+ * {@link #WALK_STEP} mètres et les étiquettes arrivant plus de {@link #ARRIVAL_SLACK} secondes
+ * après le trajet le plus rapide sont abandonnées, ce qui borne la taille des sacs. Les horaires
+ * restent comparés exactement, le trajet arrivant au plus tôt n'est donc jamais perdu.
+ * Après le parcours des motifs, les nouvelles étiquettes sont propagées sans prendre de train
+ * jusqu'à ce qu'aucun sac ne change : correspondances dans le même sommet, arêtes virtuelles et
+ * sections à pied enchaînées.
+ */
+public final class McRaptor implements PathFinder {
+    /**
+     * Valeur d'une étiquette ou d'un arrêt absent
+     */
+    private static final int NONE = -1;
+    /**
+     * Valeur de {@code via} pour l'étiquette du départ
+     */
+    private static final int START = 0;
+    /**
+     * Valeur de {@code via} pour une étiquette atteinte par un train
+     */
+    private static final int TRIP = 1;
+    /**
+     * Valeur de {@code via} pour une étiquette atteinte par une arête virtuelle
+     */
+    private static final int EDGE = 2;
+    /**
+     * Valeur de {@code via} pour une étiquette atteinte par une section à pied
+     */
+    private static final int FOOT = 3;
+    /**
+     * Valeur de {@code via} pour une étiquette atteinte par une correspondance dans le même sommet
+     */
+    private static final int TRANSFER = 4;
+    /**
+     * La largeur en mètres des tranches de distance à pied : deux étiquettes de la même tranche
+     * ne se distinguent que par leur horaire d'arrivée. Un trajet sans marche a sa propre tranche.
+     */
+    static final int WALK_STEP = 100;
+    /**
+     * Le retard maximal en secondes d'un trajet du front sur le trajet arrivant au plus tôt
+     */
+    static final int ARRIVAL_SLACK = 20 * 60;
+    /**
+     * L'écart en secondes en dessous duquel un trajet arrivant plus tôt qu'un autre n'est gardé
+     * que s'il n'a ni plus de correspondances ni plus de marche
+     */
+    static final int ARRIVAL_STEP = 60;
+    /**
+     * Les tableaux de travail du thread courant
+     */
+    private static final ThreadLocal<Workspace> WORKSPACES =
+            ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Le graphe du plan et les sommets virtuels de la requête
+     */
+    private final GraphOverlay graph;
+    /**
+     * Les motifs de trajet du plan
+     */
+    private final PatternTable patterns;
+    /**
+     * L'identifiant du sommet de départ
+     */
+    private final int startId;
+    /**
+     * L'identifiant du sommet d'arrivé
+     */
+    private final int arrivalId;
+    /**
+     * L'horaire de départ en secondes depuis minuit ou {@link Time#NO_TIME}
+     */
+    private final int departTime;
+    /**
+     * Si des sections à pied sont possibles
+     */
+    private final boolean foot;
+    /**
+     * Les étiquettes des quais
+     */
+    private Workspace labels;
+    /**
+     * Les trajets du front de Pareto, triés par horaire d'arrivée
+     */
+    private List<List<Section>> results;
+    /**
+     * Le nombre de correspondances de chaque trajet de {@code results}
+     */
+    private int[] resultTransfers;
+    /**
+     * La distance parcourue à pied de chaque trajet de {@code results}
+     */
+    private int[] resultWalks;
+
+    /**
+     * Étiquettes de l'algorithme réutilisées d'une requête à l'autre par un même thread. Les
+     * étiquettes sont rangées à la suite dans des tableaux qui grandissent si besoin. Le sac d'un
+     * quai à un tour est une liste chaînée d'étiquettes commençant à {@code bagHead[cell(round,
+     * p)]}. Un sac dont le tampon ne correspond pas à l'époque courante est vide, ce qui évite de
+     * réinitialiser les tableaux à chaque requête.
+     */
+    private static final class Workspace {
+        /**
+         * Le nombre de quais
+         */
+        private int size;
+        /**
+         * La première étiquette de chaque sac ou {@link #NONE}
+         */
+        private int[] bagHead = new int[0];
+        /**
+         * L'époque à laquelle chaque sac a été modifié
+         */
+        private int[] bagStamp = new int[0];
+        /**
+         * Le nombre d'étiquettes créées
+         */
+        private int count;
+        /**
+         * L'étiquette suivante dans le sac de chaque étiquette ou {@link #NONE}
+         */
+        private int[] next = new int[0];
+        /**
+         * Si chaque étiquette a été retirée de son sac par une étiquette qui la domine
+         */
+        private boolean[] removed = new boolean[0];
+        /**
+         * Le quai de chaque étiquette
+         */
+        private int[] platform = new int[0];
+        /**
+         * L'horaire d'arrivée de chaque étiquette
+         */
+        private int[] arrival = new int[0];
+        /**
+         * La distance parcourue à pied de chaque étiquette
+         */
+        private int[] walk = new int[0];
+        /**
+         * L'étiquette précédente de chaque étiquette ou {@link #NONE}
+         */
+        private int[] parent = new int[0];
+        /**
+         * Le type d'étape prise pour chaque étiquette
+         */
+        private int[] via = new int[0];
+        /**
+         * L'arrêt où on est monté dans le train ou l'arête virtuelle prise
+         */
+        private int[] board = new int[0];
+        /**
+         * L'arrêt où on descend du train
+         */
+        private int[] exit = new int[0];
+        /**
+         * Le train pris
+         */
+        private int[] trip = new int[0];
+        /**
+         * Les étiquettes créées au tour courant qui restent à propager, dans l'ordre de création
+         */
+        private int[] pending = new int[0];
+        /**
+         * Les quais améliorés au tour précédent
+         */
+        private int[] marked = new int[0];
+        /**
+         * Les quais améliorés au tour courant
+         */
+        private int[] newMarked = new int[0];
+        /**
+         * L'époque à laquelle chaque quai a été ajouté à {@code newMarked}
+         */
+        private int[] markStamp = new int[0];
+        /**
+         * Les motifs à parcourir au tour courant
+         */
+        private int[] queued = new int[0];
+        /**
+         * Associe chaque motif à parcourir à son premier arrêt amélioré
+         */
+        private int[] queuedFrom = new int[0];
+        /**
+         * L'époque à laquelle chaque motif a été ajouté à {@code queued}
+         */
+        private int[] patternStamp = new int[0];
+        /**
+         * Le train de chaque étiquette du sac du motif parcouru
+         */
+        private int[] routeTrip = new int[0];
+        /**
+         * L'arrêt de montée de chaque étiquette du sac du motif parcouru
+         */
+        private int[] routeBoard = new int[0];
+        /**
+         * L'étiquette de montée de chaque étiquette du sac du motif parcouru
+         */
+        private int[] routeParent = new int[0];
+        /**
+         * L'horaire d'arrivée au plus tôt au sommet d'arrivée
+         */
+        private int earliest;
+        /**
+         * L'époque courante
+         */
+        private int epoch;
+        /**
+         * L'époque courante pour les quais et motifs marqués, incrémentée à chaque tour
+         */
+        private int markEpoch;
+
+        /**
+         * Prépare les tableaux pour une nouvelle recherche
+         *
+         * @param size le nombre de quais
+         * @param patternCount le nombre de motifs
+         */
+        private void reset(int size, int patternCount) {
+            if (markStamp.length < size || patternStamp.length < patternCount) {
+                int cells = (Raptor.MAX_ROUNDS + 1) * size;
+                bagHead = new int[cells];
+                bagStamp = new int[cells];
+                marked = new int[size];
+                newMarked = new int[size];
+                markStamp = new int[size];
+                queued = new int[patternCount];
+                queuedFrom = new int[patternCount];
+                patternStamp = new int[patternCount];
+                epoch = 0;
+                markEpoch = 0;
+            }
+            this.size = markStamp.length;
+            count = 0;
+            earliest = Integer.MAX_VALUE;
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(bagStamp, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * Passe au tour suivant pour les quais et motifs marqués
+         */
+        private void nextMarkEpoch() {
+            markEpoch++;
+            if (markEpoch == Integer.MAX_VALUE) {
+                Arrays.fill(markStamp, 0);
+                Arrays.fill(patternStamp, 0);
+                markEpoch = 1;
+            }
+        }
+
+        /**
+         * @param round un tour
+         * @param p un quai
+         * @return l'indice du sac de {@code p} au tour {@code round}
+         */
+        private int cell(int round, int p) {
+            return round * size + p;
+        }
+
+        /**
+         * @param cell un sac
+         * @return la première étiquette du sac ou {@link #NONE} s'il est vide
+         */
+        private int bagHead(int cell) {
+            return bagStamp[cell] == epoch ? bagHead[cell] : NONE;
+        }
+
+        /**
+         * Crée une nouvelle étiquette
+         *
+         * @return l'indice de l'étiquette
+         */
+        private int newLabel(int p, int time, int distance, int previous, int type) {
+            if (count == arrival.length) {
+                int capacity = Math.max(64, count * 2);
+                next = Arrays.copyOf(next, capacity);
+                removed = Arrays.copyOf(removed, capacity);
+                platform = Arrays.copyOf(platform, capacity);
+                arrival = Arrays.copyOf(arrival, capacity);
+                walk = Arrays.copyOf(walk, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                via = Arrays.copyOf(via, capacity);
+                board = Arrays.copyOf(board, capacity);
+                exit = Arrays.copyOf(exit, capacity);
+                trip = Arrays.copyOf(trip, capacity);
+                pending = Arrays.copyOf(pending, capacity);
+            }
+            next[count] = NONE;
+            removed[count] = false;
+            platform[count] = p;
+            arrival[count] = time;
+            walk[count] = distance;
+            parent[count] = previous;
+            via[count] = type;
+            return count++;
+        }
+
+        /**
+         * Agrandit le sac du motif parcouru si besoin
+         *
+         * @param size le nombre de trains du sac après l'ajout
+         */
+        private void ensureRoute(int size) {
+            if (size > routeTrip.length) {
+                int capacity = Math.max(16, size * 2);
+                routeTrip = Arrays.copyOf(routeTrip, capacity);
+                routeBoard = Arrays.copyOf(routeBoard, capacity);
+                routeParent = Arrays.copyOf(routeParent, capacity);
+            }
+        }
+    }
+
+    /**
+     * @param plan le plan à utiliser
+     * @param start le sommet de départ
+     * @param arrival le sommet d'arrivé
+     * @param departTime l'horaire de départ
+     * @param foot si des sections à pied sont possibles
+     */
+    McRaptor(Plan plan, String start, String arrival, Time departTime, boolean foot) {
+        if (plan == null || start == null || arrival == null)
+            throw new IllegalArgumentException();
+        this.graph = new GraphOverlay(plan.getGraph(), start, arrival,
+                Dijkstra.MAX_FOOT_DISTANCE);
+        this.patterns = graph.getGraph().getPatterns();
+        this.startId = graph.getStartId();
+        this.arrivalId = graph.getArrivalId();
+        this.departTime = departTime == null ? Time.NO_TIME : departTime.toSeconds();
+        this.foot = foot;
+    }
+
+    /**
+     * Renvoie le trajet arrivant au plus tôt du front de Pareto, avec le moins de correspondances
+     * puis le moins de marche pour cet horaire d'arrivée
+     *
+     * @return la liste des sections dans l'ordre du départ à l'arrivé
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    @Override
+    public List<Section> getPath() throws PathNotFoundException {
+        return getParetoPaths().get(0);
+    }
+
+    /**
+     * Renvoie les trajets du front de Pareto entre l'horaire d'arrivée, le nombre de
+     * correspondances et la distance parcourue à pied : aucun trajet n'est au moins aussi bon
+     * qu'un autre pour les trois critères, les distances étant comparées par tranches de
+     * {@link #WALK_STEP} mètres. Les trajets arrivent au plus {@link #ARRIVAL_SLACK} secondes
+     * après le plus rapide.
+     *
+     * @return les trajets, triés par horaire d'arrivée puis par nombre de correspondances
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    public List<List<Section>> getParetoPaths() throws PathNotFoundException {
+        if (results == null)
+            compute();
+        List<List<Section>> copy = new ArrayList<>(results.size());
+        for (List<Section> path : results)
+            copy.add(new LinkedList<>(path));
+        return copy;
+    }
+
+    /**
+     * @return le nombre de correspondances de chaque trajet de {@link #getParetoPaths()}
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    public int[] getTransfers() throws PathNotFoundException {
+        getParetoPaths();
+        return resultTransfers.clone();
+    }
+
+    /**
+     * @return la distance parcourue à pied de chaque trajet de {@link #getParetoPaths()}
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    public int[] getWalks() throws PathNotFoundException {
+        getParetoPaths();
+        return resultWalks.clone();
+    }
+
+    /**
+     * Exécute les tours de l'algorithme puis reconstruit les trajets
+     *
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    private void compute() throws PathNotFoundException {
+        if (startId == NONE || arrivalId == NONE || departTime == Time.NO_TIME)
+            throw new PathNotFoundException();
+        labels = WORKSPACES.get();
+        labels.reset(graph.platformCount(), patterns.patternCount());
+        int count = init();
+        for (int round = 1; round <= Raptor.MAX_ROUNDS && count > 0; round++)
+            count = round(round, count);
+
+        List<int[]> found = new ArrayList<>();
+        for (int round = 0; round <= Raptor.MAX_ROUNDS; round++) {
+            for (int p = graph.platformStart(arrivalId); p < graph.platformEnd(arrivalId); p++) {
+                for (int l = labels.bagHead(labels.cell(round, p)); l != NONE;
+                        l = labels.next[l])
+                    found.add(new int[] {labels.arrival[l], Math.max(0, round - 1),
+                            labels.walk[l], l});
+            }
+        }
+        if (found.isEmpty())
+            throw new PathNotFoundException();
+        found.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0])
+                : a[1] != b[1] ? Integer.compare(a[1], b[1]) : Integer.compare(a[2], b[2]));
+        List<int[]> kept = front(found);
+        List<List<Section>> paths = new ArrayList<>(kept.size());
+        for (int[] journey : kept)
+            paths.add(toResult(journey[3]));
+        results = paths;
+        resultTransfers = kept.stream().mapToInt(journey -> journey[1]).toArray();
+        resultWalks = kept.stream().mapToInt(journey -> journey[2]).toArray();
+    }
+
+    /**
+     * Garde les trajets du front parmi ceux arrivant au plus {@link #ARRIVAL_SLACK} secondes
+     * après le plus rapide. Un trajet est écarté si un autre arrive au plus tard à son horaire
+     * sans plus de correspondances ni de marche, ou si un trajet gardé arrive au plus
+     * {@link #ARRIVAL_STEP} secondes plus tard avec moins de correspondances ou de marche. Le plus
+     * rapide est toujours gardé.
+     *
+     * @param found les trajets {horaire d'arrivée, correspondances, marche, étiquette}, triés par
+     *        horaire d'arrivée puis par correspondances puis par marche
+     * @return les trajets gardés, triés comme {@code found}
+     */
+    private static List<int[]> front(List<int[]> found) {
+        List<int[]> front = new ArrayList<>();
+        for (int[] journey : found) {
+            if (journey[0] - ARRIVAL_SLACK > found.get(0)[0])
+                break;
+            if (!dominated(front, journey, 0))
+                front.add(journey);
+        }
+        LinkedList<int[]> kept = new LinkedList<>();
+        for (int i = front.size() - 1; i > 0; i--) {
+            if (!dominated(kept, front.get(i), ARRIVAL_STEP))
+                kept.addFirst(front.get(i));
+        }
+        kept.addFirst(front.get(0));
+        return kept;
+    }
+
+    /**
+     * @param journeys des trajets {horaire d'arrivée, correspondances, marche}
+     * @param journey un trajet
+     * @param margin le retard toléré en secondes
+     * @return {@code true} si un trajet de {@code journeys} arrive au plus {@code margin}
+     *         secondes après {@code journey} sans plus de correspondances ni de marche, à la
+     *         tranche près
+     */
+    private static boolean dominated(List<int[]> journeys, int[] journey, int margin) {
+        for (int[] other : journeys) {
+            if (other[0] <= journey[0] + margin && other[1] <= journey[1]
+                    && walkStep(other[2]) <= walkStep(journey[2]))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Applique le tour 0 : les quais du sommet de départ puis ce qu'on atteint depuis eux sans
+     * prendre de train
+     *
+     * @return le nombre de quais améliorés
+     */
+    private int init() {
+        labels.nextMarkEpoch();
+        int count = 0;
+        for (int p = graph.platformStart(startId); p < graph.platformEnd(startId); p++)
+            count = insert(0, labels.newLabel(p, departTime, 0, NONE, START), count);
+        count = propagate(0, 0, count);
+        return endRound(count);
+    }
+
+    /**
+     * Exécute un tour de l'algorithme
+     *
+     * @param round le numéro du tour
+     * @param markedCount le nombre de quais améliorés au tour précédent
+     * @return le nombre de quais améliorés pendant ce tour
+     */
+    private int round(int round, int markedCount) {
+        labels.nextMarkEpoch();
+        int patternCount = 0;
+        for (int i = 0; i < markedCount; i++) {
+            int platform = labels.marked[i];
+            int v = graph.getPlatformNode(platform);
+            if (v >= graph.getGraph().nodeCount())
+                continue;
+            for (int j = patterns.nodeStopStart(v); j < patterns.nodeStopEnd(v); j++) {
+                int stop = patterns.getNodeStop(j);
+                int edge = patterns.getEdge(stop);
+                if (edge == PatternTable.NO_EDGE || graph.getFromPlatform(edge) != platform)
+                    continue;
+                int p = patterns.getPattern(stop);
+                if (labels.patternStamp[p] != labels.markEpoch) {
+                    labels.patternStamp[p] = labels.markEpoch;
+                    labels.queuedFrom[p] = stop;
+                    labels.queued[patternCount++] = p;
+                } else if (stop < labels.queuedFrom[p]) {
+                    labels.queuedFrom[p] = stop;
+                }
+            }
+        }
+
+        int first = labels.count;
+        int count = 0;
+        for (int i = 0; i < patternCount; i++) {
+            int p = labels.queued[i];
+            count = scanPattern(round, p, labels.queuedFrom[p], count);
+        }
+        count = propagate(round, first, count);
+        return endRound(count);
+    }
+
+    /**
+     * Parcourt un motif à partir d'un arrêt avec le sac des trains dans lesquels on peut être
+     * monté : un train est gardé s'il n'existe pas de train plus tôt pris en marchant moins
+     *
+     * @param round le numéro du tour
+     * @param p le motif
+     * @param from le premier arrêt amélioré au tour précédent
+     * @param count le nombre de quais améliorés pendant ce tour
+     * @return le nouveau nombre de quais améliorés
+     */
+    private int scanPattern(int round, int p, int from, int count) {
+        int routeSize = 0;
+        for (int s = from; s < patterns.stopEnd(p); s++) {
+            int q = routeSize == 0 ? NONE : graph.getToPlatform(patterns.getEdge(s - 1));
+            for (int i = 0; i < routeSize; i++) {
+                int board = labels.routeBoard[i];
+                int parent = labels.routeParent[i];
+                int arr = patterns.tripDeparture(p, labels.routeTrip[i])
+                        + patterns.getArrivalOffset(s);
+                int walk = labels.walk[parent];
+                if (dominated(round, q, arr, walk))
+                    continue;
+                int l = labels.newLabel(q, arr, walk, parent, TRIP);
+                labels.board[l] = board;
+                labels.exit[l] = s;
+                labels.trip[l] = labels.routeTrip[i];
+                count = insert(round, l, count);
+            }
+            int edge = patterns.getEdge(s);
+            if (edge == PatternTable.NO_EDGE)
+                break;
+            int c = labels.cell(round - 1, graph.getFromPlatform(edge));
+            for (int parent = labels.bagHead(c); parent != NONE; parent = labels.next[parent]) {
+                int trip = patterns.earliestTrip(s, labels.arrival[parent]);
+                if (trip != Integer.MAX_VALUE)
+                    routeSize = addToRoute(routeSize, trip, s, parent);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Ajoute un train au sac du motif parcouru s'il n'est pas dominé, les distances à pied étant
+     * comparées par tranches
+     *
+     * @param size le nombre de trains du sac
+     * @param trip le train
+     * @param board l'arrêt de montée
+     * @param parent l'étiquette de montée
+     * @return le nouveau nombre de trains du sac
+     */
+    private int addToRoute(int size, int trip, int board, int parent) {
+        int walk = walkStep(labels.walk[parent]);
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int otherTrip = labels.routeTrip[i];
+            int otherWalk = walkStep(labels.walk[labels.routeParent[i]]);
+            if (otherTrip <= trip && otherWalk <= walk)
+                return size;
+            if (trip <= otherTrip && walk <= otherWalk)
+                continue;
+            labels.routeTrip[kept] = otherTrip;
+            labels.routeBoard[kept] = labels.routeBoard[i];
+            labels.routeParent[kept] = labels.routeParent[i];
+            kept++;
+        }
+        labels.ensureRoute(kept + 1);
+        labels.routeTrip[kept] = trip;
+        labels.routeBoard[kept] = board;
+        labels.routeParent[kept] = parent;
+        return kept + 1;
+    }
+
+    /**
+     * Propage les étiquettes créées pendant le tour, dans l'ordre de leur création et tant
+     * qu'elles ne sont pas dominées : correspondances dans le même sommet, arêtes virtuelles
+     * parcourues à pied puis, si elles sont possibles, sections à pied. Les étiquettes créées
+     * restent dans le même tour puisqu'aucun train n'est pris.
+     *
+     * @param round le numéro du tour
+     * @param first la première étiquette créée pendant le tour
+     * @param count le nombre de quais améliorés pendant ce tour
+     * @return le nouveau nombre de quais améliorés
+     */
+    private int propagate(int round, int first, int count) {
+        Graph g = graph.getGraph();
+        FootpathTable footpaths = g.getFootpaths();
+        for (int parent = first; parent < labels.count; parent++) {
+            if (labels.removed[parent])
+                continue;
+            int p = labels.platform[parent];
+            int time = labels.arrival[parent];
+            int walk = labels.walk[parent];
+            int v = graph.getPlatformNode(p);
+            for (int q = graph.platformStart(v); q < graph.platformEnd(v); q++) {
+                int arr = time + graph.transferDuration(p, q);
+                if (q != p && !dominated(round, q, arr, walk))
+                    count = insert(round, labels.newLabel(q, arr, walk, parent, TRANSFER), count);
+            }
+            for (int e = graph.extraEdgeStart(v); e < graph.extraEdgeEnd(v); e++) {
+                int q = graph.getToPlatform(e);
+                int arr = time + graph.getDuration(e);
+                int distance = walk + graph.getDistance(e);
+                if (graph.getFromPlatform(e) != p || dominated(round, q, arr, distance))
+                    continue;
+                int l = labels.newLabel(q, arr, distance, parent, EDGE);
+                labels.board[l] = e;
+                count = insert(round, l, count);
+            }
+            if (!foot || p >= g.platformCount())
+                continue;
+            for (int i = footpaths.footStart(p); i < footpaths.footEnd(p); i++) {
+                int q = footpaths.getTarget(i);
+                int arr = time + footpaths.getDuration(i);
+                int distance = walk + footpaths.getDistance(i);
+                if (g.getPlatformNode(q) != v && !dominated(round, q, arr, distance))
+                    count = insert(round, labels.newLabel(q, arr, distance, parent, FOOT), count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param round le tour courant
+     * @param p un quai
+     * @param time un horaire d'arrivée à {@code p}
+     * @param walk une distance parcourue à pied
+     * @return {@code true} si l'étiquette arrive trop tard par rapport au trajet le plus rapide ou
+     *         si une étiquette de {@code p} ou de l'arrivée d'un tour inférieur ou égal arrive au
+     *         plus tard à {@code time} en marchant au plus autant, à la tranche près
+     */
+    private boolean dominated(int round, int p, int time, int walk) {
+        if (time - ARRIVAL_SLACK > labels.earliest)
+            return true;
+        for (int r = 0; r <= round; r++) {
+            if (bagDominates(labels.cell(r, p), time, walk))
+                return true;
+            for (int q = graph.platformStart(arrivalId); q < graph.platformEnd(arrivalId); q++) {
+                if (bagDominates(labels.cell(r, q), time, walk))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param c un sac
+     * @param time un horaire d'arrivée
+     * @param walk une distance parcourue à pied
+     * @return {@code true} si une étiquette du sac arrive au plus tard à {@code time} en marchant
+     *         au plus autant que {@code walk} mètres, à la tranche près
+     */
+    private boolean bagDominates(int c, int time, int walk) {
+        int step = walkStep(walk);
+        for (int l = labels.bagHead(c); l != NONE; l = labels.next[l]) {
+            if (labels.arrival[l] <= time && walkStep(labels.walk[l]) <= step)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param walk une distance parcourue à pied en mètres
+     * @return la tranche de {@link #WALK_STEP} mètres de {@code walk}, 0 seulement sans marche
+     */
+    private static int walkStep(int walk) {
+        return (walk + WALK_STEP - 1) / WALK_STEP;
+    }
+
+    /**
+     * Ajoute une étiquette non dominée au sac de son quai pour un tour, retire celles qu'elle
+     * domine et marque le quai. Met à jour l'horaire d'arrivée au plus tôt si le quai est à
+     * l'arrivée.
+     *
+     * @param round le numéro du tour
+     * @param l l'étiquette
+     * @param count le nombre de quais améliorés pendant ce tour
+     * @return le nouveau nombre de quais améliorés
+     */
+    private int insert(int round, int l, int count) {
+        int p = labels.platform[l];
+        int c = labels.cell(round, p);
+        int step = walkStep(labels.walk[l]);
+        int head = NONE;
+        int tail = NONE;
+        for (int other = labels.bagHead(c); other != NONE; other = labels.next[other]) {
+            if (labels.arrival[l] <= labels.arrival[other]
+                    && step <= walkStep(labels.walk[other])) {
+                labels.removed[other] = true;
+                continue;
+            }
+            if (tail == NONE)
+                head = other;
+            else
+                labels.next[tail] = other;
+            tail = other;
+        }
+        if (tail != NONE)
+            labels.next[tail] = NONE;
+        labels.next[l] = head;
+        labels.bagHead[c] = l;
+        labels.bagStamp[c] = labels.epoch;
+        if (graph.getPlatformNode(p) == arrivalId)
+            labels.earliest = Math.min(labels.earliest, labels.arrival[l]);
+        if (labels.markStamp[p] != labels.markEpoch) {
+            labels.markStamp[p] = labels.markEpoch;
+            labels.newMarked[count++] = p;
+        }
+        return count;
+    }
+
+    /**
+     * Termine un tour : les quais améliorés deviennent utilisables pour monter dans un train au
+     * tour suivant
+     *
+     * @param count le nombre de quais améliorés pendant ce tour
+     * @return {@code count}
+     */
+    private int endRound(int count) {
+        int[] marked = labels.marked;
+        labels.marked = labels.newMarked;
+        labels.newMarked = marked;
+        return count;
+    }
+
+    /**
+     * Reconstruit le trajet d'une étiquette de l'arrivée en remontant les étiquettes précédentes
+     *
+     * @param label l'étiquette
+     * @return la liste des sections dans l'ordre du chemin
+     */
+    private List<Section> toResult(int label) {
+        List<Section> orderedPath = new LinkedList<>();
+        for (int l = label; labels.via[l] != START; l = labels.parent[l]) {
+            int via = labels.via[l];
+            if (via == TRIP) {
+                addTrip(orderedPath, l);
+            } else if (via != TRANSFER) {
+                int previous = labels.parent[l];
+                Section section = via == EDGE ? graph.newSection(labels.board[l])
+                        : graph.newFootSection(labels.platform[previous], labels.platform[l]);
+                section.setTime(labels.arrival[previous]);
+                orderedPath.add(section);
+            }
+        }
+        Collections.reverse(orderedPath);
+        return orderedPath;
+    }
+
+    /**
+     * Ajoute en ordre inverse les sections parcourues dans un train
+     *
+     * @param path le chemin en ordre inverse
+     * @param l l'étiquette du quai où on descend du train
+     */
+    private void addTrip(List<Section> path, int l) {
+        int p = patterns.getPattern(labels.board[l]);
+        int tripStart = patterns.tripDeparture(p, labels.trip[l]);
+        for (int s = labels.exit[l] - 1; s >= labels.board[l]; s--) {
+            Section section = graph.newSection(patterns.getEdge(s));
+            section.setTime(tripStart + patterns.getDepartureOffset(s));
+            path.add(section);
+        }
+    }
+}
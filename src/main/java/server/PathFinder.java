@@ -0,0 +1,21 @@
+package server;
+
+import java.util.List;
+import server.Dijkstra.PathNotFoundException;
+import server.map.Section;
+
+/**
+ * Algorithme de recherche d'un trajet entre deux sommets d'un plan
+ */
+@FunctionalInterface
+interface PathFinder {
+
+    /**
+     * Recherche un chemin entre les deux sommets et renvoie la liste des sections dans l'ordre
+     * du chemin
+     *
+     * @return la liste des sections dans l'ordre du départ à l'arrivée
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    List<Section> getPath() throws PathNotFoundException;
+}
@@ -0,0 +1,823 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import server.Dijkstra.PathNotFoundException;
+import server.map.ConnectionTable;
+import server.map.FootpathTable;
+import server.map.Graph;
+import server.map.GraphOverlay;
+import server.map.PatternTable;
+import server.map.Plan;
+import server.map.Section;
+import server.map.Time;
+
+/**
+ * Implémentation de l'algorithme rRAPTOR (RAPTOR sur une plage horaire) : calcule tous les trajets
+ * du front de Pareto entre l'horaire de départ et l'horaire d'arrivée pour les départs compris
+ * dans une plage horaire.
+ *
+ * <p>
+ * Les horaires de départ candidats sont ceux des trains qu'on peut prendre en premier, diminués
+ * du temps pour rejoindre leur arrêt, dans la plage et pour le premier train après elle. Un tour
+ * de {@link Raptor} est exécuté pour chacun, du plus tard au plus tôt, sans effacer les
+ * étiquettes : un trajet partant plus tard reste possible en partant plus tôt, donc chaque
+ * recherche ne parcourt que les sommets qu'elle améliore. Un départ donne un trajet du front si et
+ * seulement s'il améliore l'horaire d'arrivée à la destination. Au premier tour, seuls les motifs
+ * des trains ayant donné l'horaire candidat sont parcourus, sauf pour le départ le plus tardif :
+ * les autres trains étaient déjà utilisables en partant au candidat suivant. Le tour 0, qui ne
+ * dépend que de l'horaire de départ, est calculé une fois et décalé pour chaque candidat. Le
+ * trajet sans train, dont la durée ne dépend pas non plus de l'horaire de départ, n'est renvoyé
+ * qu'une fois : seuls les trajets en train plus rapides que lui sont gardés, et il est omis si les
+ * trains arrivent avant lui quel que soit l'horaire de départ dans la plage.
+ *
+ * <p>
+ * Les étiquettes portent sur les quais et ce qu'on atteint sans prendre de train se propage comme
+ * dans {@link Raptor}. Contrairement à {@link Raptor}, l'étiquette d'un quai au tour {@code k} est
+ * la meilleure des tours {@code 0} à {@code k}, car celles des départs précédents peuvent avoir
+ * été obtenues à un tour différent.
+ */
+public final class RangeRaptor {
+    /**
+     * Valeur d'un quai, d'un arrêt ou d'un tour qui n'existe pas
+     */
+    private static final int NONE = -1;
+    /**
+     * Valeur de {@code via} pour un quai du sommet de départ
+     */
+    private static final int START = 0;
+    /**
+     * Valeur de {@code via} pour un quai atteint par un train
+     */
+    private static final int TRIP = 1;
+    /**
+     * Valeur de {@code via} pour un quai atteint par une arête virtuelle
+     */
+    private static final int EDGE = 2;
+    /**
+     * Valeur de {@code via} pour un quai atteint par une section à pied
+     */
+    private static final int FOOT = 3;
+    /**
+     * Valeur de {@code via} pour un quai atteint par une correspondance dans le même sommet
+     */
+    private static final int TRANSFER = 4;
+    /**
+     * Les tableaux de travail du thread courant
+     */
+    private static final ThreadLocal<Workspace> WORKSPACES =
+            ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Le graphe du plan et les sommets virtuels de la requête
+     */
+    private final GraphOverlay graph;
+    /**
+     * Les motifs de trajet du plan
+     */
+    private final PatternTable patterns;
+    /**
+     * L'identifiant du sommet de départ
+     */
+    private final int startId;
+    /**
+     * L'identifiant du sommet d'arrivé
+     */
+    private final int arrivalId;
+    /**
+     * Le début de la plage horaire de départ en secondes depuis minuit
+     */
+    private final int from;
+    /**
+     * La fin de la plage horaire de départ en secondes, après {@code from}
+     */
+    private final int to;
+    /**
+     * Si des sections à pied sont possibles
+     */
+    private final boolean foot;
+    /**
+     * Les étiquettes des quais
+     */
+    private Workspace labels;
+    /**
+     * L'horaire d'arrivée au plus tôt à l'arrivée, tous départs et tours confondus
+     */
+    private int target;
+    /**
+     * Le quai de l'arrivée donnant {@code target}
+     */
+    private int targetPlatform;
+    /**
+     * Le tour de l'étiquette donnant {@code target}
+     */
+    private int targetRound;
+    /**
+     * Les trajets du front de Pareto, triés par horaire de départ
+     */
+    private List<List<Section>> results;
+
+    /**
+     * Étiquettes de l'algorithme réutilisées d'une requête à l'autre par un même thread, rangées
+     * comme dans {@link Raptor}. Les tampons changent à chaque requête mais pas d'un horaire de
+     * départ candidat à l'autre, ce qui garde les étiquettes des départs plus tardifs.
+     */
+    private static final class Workspace {
+        /**
+         * Le nombre de quais
+         */
+        private int size;
+        /**
+         * Associe chaque quai de chaque tour à son horaire d'arrivée au plus tôt en au plus ce
+         * nombre de trains
+         */
+        private int[] best = new int[0];
+        /**
+         * Associe chaque quai de chaque tour au tour de l'étiquette donnant {@code best}
+         */
+        private int[] bestRound = new int[0];
+        /**
+         * L'époque à laquelle chaque case de {@code best} a été modifiée
+         */
+        private int[] bestStamp = new int[0];
+        /**
+         * Associe chaque quai de chaque tour à son horaire d'arrivée
+         */
+        private int[] arrival = new int[0];
+        /**
+         * Associe chaque quai de chaque tour au type d'étape prise pour y arriver
+         */
+        private int[] via = new int[0];
+        /**
+         * Associe chaque quai de chaque tour à l'arrêt où on est monté dans le train ou à
+         * l'arête virtuelle prise
+         */
+        private int[] board = new int[0];
+        /**
+         * Associe chaque quai de chaque tour à l'arrêt où on descend du train
+         */
+        private int[] exit = new int[0];
+        /**
+         * Associe chaque quai de chaque tour au train pris
+         */
+        private int[] trip = new int[0];
+        /**
+         * Associe chaque quai de chaque tour au quai de départ de l'étape prise
+         */
+        private int[] from = new int[0];
+        /**
+         * Associe chaque quai de chaque tour à l'horaire de départ de l'étape prise
+         */
+        private int[] departure = new int[0];
+        /**
+         * Les quais améliorés au tour précédent
+         */
+        private int[] marked = new int[0];
+        /**
+         * Les quais améliorés au tour courant
+         */
+        private int[] newMarked = new int[0];
+        /**
+         * L'époque à laquelle chaque quai a été ajouté à {@code newMarked}
+         */
+        private int[] markStamp = new int[0];
+        /**
+         * Les motifs à parcourir au tour courant
+         */
+        private int[] queued = new int[0];
+        /**
+         * Associe chaque motif à parcourir à son premier arrêt amélioré
+         */
+        private int[] queuedFrom = new int[0];
+        /**
+         * L'époque à laquelle chaque motif a été ajouté à {@code queued}
+         */
+        private int[] patternStamp = new int[0];
+        /**
+         * Les quais atteints sans prendre de train par la recherche partant au début de la plage,
+         * avec la durée pour les atteindre dans les 32 bits de poids fort, triés par durée
+         */
+        private long[] access = new long[0];
+        /**
+         * Le nombre de quais de {@code access}
+         */
+        private int accessCount;
+        /**
+         * Associe chaque quai de {@code access} au type d'étape prise pour y arriver
+         */
+        private int[] accessVia = new int[0];
+        /**
+         * Associe chaque quai de {@code access} au quai de départ de l'étape prise
+         */
+        private int[] accessFrom = new int[0];
+        /**
+         * Associe chaque quai de {@code access} à l'arête virtuelle prise
+         */
+        private int[] accessBoard = new int[0];
+        /**
+         * Associe chaque quai de {@code access} à la durée entre le départ et l'étape prise
+         */
+        private int[] accessDeparture = new int[0];
+        /**
+         * Les quais améliorés au tour courant dont l'horaire reste à propager, par horaire
+         * d'arrivée
+         */
+        private final IndexedMinHeap queue = new IndexedMinHeap(0);
+        /**
+         * L'époque courante
+         */
+        private int epoch;
+        /**
+         * L'époque courante pour les quais et motifs marqués, incrémentée à chaque tour
+         */
+        private int markEpoch;
+
+        /**
+         * Prépare les tableaux pour une nouvelle recherche
+         *
+         * @param size le nombre de quais
+         * @param patternCount le nombre de motifs
+         */
+        private void reset(int size, int patternCount) {
+            if (markStamp.length < size || patternStamp.length < patternCount) {
+                int cells = (Raptor.MAX_ROUNDS + 1) * size;
+                best = new int[cells];
+                bestRound = new int[cells];
+                bestStamp = new int[cells];
+                arrival = new int[cells];
+                via = new int[cells];
+                board = new int[cells];
+                exit = new int[cells];
+                trip = new int[cells];
+                from = new int[cells];
+                departure = new int[cells];
+                marked = new int[size];
+                newMarked = new int[size];
+                markStamp = new int[size];
+                queued = new int[patternCount];
+                queuedFrom = new int[patternCount];
+                patternStamp = new int[patternCount];
+                access = new long[size];
+                accessVia = new int[size];
+                accessFrom = new int[size];
+                accessBoard = new int[size];
+                accessDeparture = new int[size];
+                epoch = 0;
+                markEpoch = 0;
+            }
+            this.size = markStamp.length;
+            queue.reset(size);
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(bestStamp, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * Passe au tour suivant pour les quais et motifs marqués
+         */
+        private void nextMarkEpoch() {
+            markEpoch++;
+            if (markEpoch == Integer.MAX_VALUE) {
+                Arrays.fill(markStamp, 0);
+                Arrays.fill(patternStamp, 0);
+                markEpoch = 1;
+            }
+        }
+
+        /**
+         * @param round un tour
+         * @param p un quai
+         * @return l'indice de l'étiquette de {@code p} au tour {@code round}
+         */
+        private int cell(int round, int p) {
+            return round * size + p;
+        }
+
+        /**
+         * @param round un tour
+         * @param p un quai
+         * @return l'horaire d'arrivée au plus tôt à {@code p} en au plus {@code round} trains
+         */
+        private int best(int round, int p) {
+            int c = cell(round, p);
+            return bestStamp[c] == epoch ? best[c] : Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @param plan le plan à utiliser
+     * @param start le sommet de départ
+     * @param arrival le sommet d'arrivé
+     * @param from le début de la plage horaire de départ
+     * @param to la fin de la plage horaire de départ, le lendemain si elle précède {@code from}
+     * @param foot si des sections à pied sont possibles
+     */
+    RangeRaptor(Plan plan, String start, String arrival, Time from, Time to, boolean foot) {
+        if (plan == null || start == null || arrival == null || from == null || to == null)
+            throw new IllegalArgumentException();
+        this.graph = new GraphOverlay(plan.getGraph(), start, arrival,
+                Dijkstra.MAX_FOOT_DISTANCE);
+        this.patterns = graph.getGraph().getPatterns();
+        this.startId = graph.getStartId();
+        this.arrivalId = graph.getArrivalId();
+        this.from = from.toSeconds();
+        int end = to.toSeconds();
+        this.to = end < this.from ? end + ConnectionTable.DAY : end;
+        this.foot = foot;
+    }
+
+    /**
+     * Renvoie les trajets du front de Pareto entre l'horaire de départ et l'horaire d'arrivée :
+     * chaque trajet en train part dans la plage horaire, plus tard que le précédent, et arrive
+     * strictement plus tard que le précédent. Le dernier trajet, arrivant au plus tôt en partant à
+     * la fin de la plage, peut partir après la fin de la plage. Le trajet sans train, s'il existe,
+     * vient en premier : il part au début de la plage mais peut être pris à tout horaire, et il est
+     * omis si les trajets en train arrivent avant lui quel que soit l'horaire de départ dans la
+     * plage.
+     *
+     * @return les trajets, triés par horaire de départ
+     * @throws PathNotFoundException s'il n'existe pas de chemin partant dans la plage horaire
+     */
+    public List<List<Section>> getProfile() throws PathNotFoundException {
+        if (results == null)
+            compute();
+        List<List<Section>> copy = new ArrayList<>(results.size());
+        for (List<Section> path : results)
+            copy.add(new LinkedList<>(path));
+        return copy;
+    }
+
+    /**
+     * Exécute une recherche par horaire de départ candidat, du plus tard au plus tôt, puis
+     * reconstruit les trajets en train qui améliorent l'arrivée. Le trajet sans train est celui
+     * de la recherche partant au début de la plage : il est gardé si, pour un horaire de la
+     * plage, le premier trajet en train partant après arrive plus tard qu'en marchant.
+     *
+     * @throws PathNotFoundException s'il n'existe pas de chemin partant dans la plage horaire
+     */
+    private void compute() throws PathNotFoundException {
+        if (startId == NONE || arrivalId == NONE)
+            throw new PathNotFoundException();
+        List<List<Section>> paths = new ArrayList<>();
+        if (startId == arrivalId) {
+            paths.add(new LinkedList<>());
+            results = paths;
+            return;
+        }
+        labels = WORKSPACES.get();
+        long[] departures = departures();
+        List<Section> walk = target == Integer.MAX_VALUE ? null : toResult(0, targetPlatform);
+        int walkDuration = walk == null ? 0 : target - from;
+        labels.reset(graph.platformCount(), patterns.patternCount());
+        target = Integer.MAX_VALUE;
+        int earliest = Integer.MAX_VALUE;
+        boolean faster = false;
+        for (int i = departures.length - 1; i >= 0;) {
+            int t0 = (int) (departures[i] >> 32);
+            int previous = target;
+            int count = reach(t0);
+            if (i == departures.length - 1) {
+                count = round(1, count);
+                for (; i >= 0 && (int) (departures[i] >> 32) == t0; i--);
+            } else {
+                labels.nextMarkEpoch();
+                int patternCount = 0;
+                for (; i >= 0 && (int) (departures[i] >> 32) == t0; i--)
+                    patternCount = queue((int) departures[i], patternCount);
+                count = scan(1, patternCount);
+            }
+            for (int round = 2; round <= Raptor.MAX_ROUNDS && count > 0; round++)
+                count = round(round, count);
+            if (target < previous && targetRound > 0) {
+                faster = paths.isEmpty() ? t0 >= to : faster && earliest <= t0 + walkDuration;
+                paths.add(toResult(targetRound, targetPlatform));
+                earliest = target;
+            }
+        }
+        if (walk != null && !(faster && earliest <= from + walkDuration))
+            paths.add(walk);
+        if (paths.isEmpty())
+            throw new PathNotFoundException();
+        Collections.reverse(paths);
+        results = paths;
+    }
+
+    /**
+     * Calcule les horaires de départ candidats : les horaires des trains de la plage diminués du
+     * temps pour rejoindre leur quai depuis le départ sans prendre de train, donné par le tour 0
+     * d'une recherche partant au début de la plage, et le premier horaire après la plage. Chaque
+     * horaire de la plage est associé à l'arrêt du train, seul arrêt où un départ à cet horaire
+     * permet de prendre un train plus tôt qu'avec le départ candidat suivant.
+     *
+     * @return les horaires dans les 32 bits de poids fort et les arrêts, {@link #NONE} pour le
+     *         premier horaire après la plage, dans les 32 bits de poids faible, triés par horaire
+     */
+    private long[] departures() {
+        labels.reset(graph.platformCount(), patterns.patternCount());
+        target = Integer.MAX_VALUE;
+        long[] candidates = new long[16];
+        int size = 0;
+        int next = Integer.MAX_VALUE;
+        int count = init(from);
+        saveAccess(count);
+        for (int i = 0; i < count; i++) {
+            int platform = labels.marked[i];
+            int v = graph.getPlatformNode(platform);
+            if (v >= graph.getGraph().nodeCount())
+                continue;
+            int access = labels.arrival[labels.cell(0, platform)] - from;
+            for (int j = patterns.nodeStopStart(v); j < patterns.nodeStopEnd(v); j++) {
+                int s = patterns.getNodeStop(j);
+                int edge = patterns.getEdge(s);
+                if (edge == PatternTable.NO_EDGE || graph.getFromPlatform(edge) != platform)
+                    continue;
+                int p = patterns.getPattern(s);
+                int trip = patterns.earliestTrip(s, from + access);
+                for (; trip < 2 * patterns.tripCount(p); trip++) {
+                    int dep = patterns.tripDeparture(p, trip) + patterns.getDepartureOffset(s);
+                    if (dep > to + access) {
+                        next = Math.min(next, dep - access);
+                        break;
+                    }
+                    if (size == candidates.length)
+                        candidates = Arrays.copyOf(candidates, size * 2);
+                    candidates[size++] = candidate(dep - access, s);
+                }
+            }
+        }
+        if (next != Integer.MAX_VALUE) {
+            if (size == candidates.length)
+                candidates = Arrays.copyOf(candidates, size + 1);
+            candidates[size++] = candidate(next, NONE);
+        }
+        Arrays.sort(candidates, 0, size);
+        return Arrays.copyOf(candidates, size);
+    }
+
+    /**
+     * @param time un horaire de départ
+     * @param stop un arrêt ou {@link #NONE}
+     * @return le départ candidat
+     */
+    private static long candidate(int time, int stop) {
+        return ((long) time << 32) | (stop & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Applique le tour 0 pour un horaire de départ : les quais du sommet de départ puis ce qu'on
+     * atteint depuis eux sans prendre de train
+     *
+     * @param t0 l'horaire de départ
+     * @return le nombre de quais améliorés
+     */
+    private int init(int t0) {
+        labels.nextMarkEpoch();
+        int count = 0;
+        for (int p = graph.platformStart(startId); p < graph.platformEnd(startId); p++) {
+            if (improves(0, p, t0))
+                count = update(0, p, t0, START, NONE, t0, count);
+        }
+        count = propagate(0, count);
+        return endRound(count);
+    }
+
+    /**
+     * Enregistre les étiquettes du tour 0 de la recherche partant au début de la plage : les
+     * durées pour atteindre les quais sans prendre de train ne dépendent pas de l'horaire de
+     * départ
+     *
+     * @param count le nombre de quais améliorés au tour 0
+     */
+    private void saveAccess(int count) {
+        for (int i = 0; i < count; i++) {
+            int p = labels.marked[i];
+            int c = labels.cell(0, p);
+            labels.access[i] = ((long) (labels.arrival[c] - from) << 32) | p;
+            labels.accessVia[p] = labels.via[c];
+            labels.accessFrom[p] = labels.from[c];
+            labels.accessBoard[p] = labels.board[c];
+            labels.accessDeparture[p] = labels.departure[c] - from;
+        }
+        Arrays.sort(labels.access, 0, count);
+        labels.accessCount = count;
+    }
+
+    /**
+     * Applique le tour 0 pour un horaire de départ candidat en décalant les étiquettes
+     * enregistrées par {@link #saveAccess}, sans refaire la propagation. Les quais sont parcourus
+     * par durée croissante, dans l'ordre où la propagation les aurait atteints.
+     *
+     * @param t0 l'horaire de départ
+     * @return le nombre de quais améliorés
+     */
+    private int reach(int t0) {
+        labels.nextMarkEpoch();
+        int count = 0;
+        for (int i = 0; i < labels.accessCount; i++) {
+            int p = (int) labels.access[i];
+            int time = t0 + (int) (labels.access[i] >> 32);
+            if (time >= target)
+                break;
+            if (time < labels.best(0, p)) {
+                set(0, p, time, labels.accessVia[p], labels.accessFrom[p],
+                        t0 + labels.accessDeparture[p]);
+                labels.board[labels.cell(0, p)] = labels.accessBoard[p];
+                count = mark(p, count);
+            }
+        }
+        return endRound(count);
+    }
+
+    /**
+     * Exécute un tour de l'algorithme
+     *
+     * @param round le numéro du tour
+     * @param markedCount le nombre de quais améliorés au tour précédent
+     * @return le nombre de quais améliorés pendant ce tour
+     */
+    private int round(int round, int markedCount) {
+        labels.nextMarkEpoch();
+        int patternCount = 0;
+        for (int i = 0; i < markedCount; i++) {
+            int platform = labels.marked[i];
+            int v = graph.getPlatformNode(platform);
+            if (v >= graph.getGraph().nodeCount())
+                continue;
+            for (int j = patterns.nodeStopStart(v); j < patterns.nodeStopEnd(v); j++) {
+                int stop = patterns.getNodeStop(j);
+                int edge = patterns.getEdge(stop);
+                if (edge != PatternTable.NO_EDGE && graph.getFromPlatform(edge) == platform)
+                    patternCount = queue(stop, patternCount);
+            }
+        }
+        return scan(round, patternCount);
+    }
+
+    /**
+     * Ajoute le motif d'un arrêt à ceux à parcourir au tour courant
+     *
+     * @param stop l'arrêt ou {@link #NONE}
+     * @param patternCount le nombre de motifs à parcourir
+     * @return le nouveau nombre de motifs à parcourir
+     */
+    private int queue(int stop, int patternCount) {
+        if (stop == NONE || patterns.getEdge(stop) == PatternTable.NO_EDGE)
+            return patternCount;
+        int p = patterns.getPattern(stop);
+        if (labels.patternStamp[p] != labels.markEpoch) {
+            labels.patternStamp[p] = labels.markEpoch;
+            labels.queuedFrom[p] = stop;
+            labels.queued[patternCount++] = p;
+        } else if (stop < labels.queuedFrom[p]) {
+            labels.queuedFrom[p] = stop;
+        }
+        return patternCount;
+    }
+
+    /**
+     * Parcourt les motifs à parcourir au tour courant puis propage les quais améliorés
+     *
+     * @param round le numéro du tour
+     * @param patternCount le nombre de motifs à parcourir
+     * @return le nombre de quais améliorés pendant ce tour
+     */
+    private int scan(int round, int patternCount) {
+        int count = 0;
+        for (int i = 0; i < patternCount; i++) {
+            int p = labels.queued[i];
+            count = scanPattern(round, p, labels.queuedFrom[p], count);
+        }
+        count = propagate(round, count);
+        return endRound(count);
+    }
+
+    /**
+     * Parcourt un motif à partir d'un arrêt en restant dans le premier train utilisable
+     *
+     * @param round le numéro du tour
+     * @param p le motif
+     * @param from le premier arrêt amélioré au tour précédent
+     * @param count le nombre de quais améliorés pendant ce tour
+     * @return le nouveau nombre de quais améliorés
+     */
+    private int scanPattern(int round, int p, int from, int count) {
+        int trip = Integer.MAX_VALUE;
+        int boardStop = NONE;
+        int tripStart = 0;
+        for (int s = from; s < patterns.stopEnd(p); s++) {
+            if (trip != Integer.MAX_VALUE) {
+                int q = graph.getToPlatform(patterns.getEdge(s - 1));
+                int arr = tripStart + patterns.getArrivalOffset(s);
+                if (improves(round, q, arr)) {
+                    int c = labels.cell(round, q);
+                    count = update(round, q, arr, TRIP,
+                            graph.getFromPlatform(patterns.getEdge(boardStop)),
+                            tripStart + patterns.getDepartureOffset(boardStop), count);
+                    labels.board[c] = boardStop;
+                    labels.exit[c] = s;
+                    labels.trip[c] = trip;
+                }
+            }
+            int edge = patterns.getEdge(s);
+            if (edge == PatternTable.NO_EDGE)
+                break;
+            int previous = labels.best(round - 1, graph.getFromPlatform(edge));
+            if (previous == Integer.MAX_VALUE)
+                continue;
+            if (trip == Integer.MAX_VALUE
+                    || previous <= tripStart + patterns.getDepartureOffset(s)) {
+                int earliest = patterns.earliestTrip(s, previous);
+                if (earliest <= trip) {
+                    trip = earliest;
+                    boardStop = s;
+                    tripStart = patterns.tripDeparture(p, trip);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Propage dans l'ordre de leur horaire les quais améliorés pendant le tour, comme
+     * {@link Raptor} : correspondances dans le même sommet, arêtes virtuelles puis, si elles sont
+     * possibles, sections à pied
+     *
+     * @param round le numéro du tour
+     * @param count le nombre de quais améliorés pendant ce tour
+     * @return le nouveau nombre de quais améliorés
+     */
+    private int propagate(int round, int count) {
+        Graph g = graph.getGraph();
+        FootpathTable footpaths = g.getFootpaths();
+        while (!labels.queue.isEmpty()) {
+            int p = labels.queue.poll();
+            int time = labels.arrival[labels.cell(round, p)];
+            int v = graph.getPlatformNode(p);
+            for (int q = graph.platformStart(v); q < graph.platformEnd(v); q++) {
+                int arr = time + graph.transferDuration(p, q);
+                if (q != p && improves(round, q, arr))
+                    count = update(round, q, arr, TRANSFER, p, time, count);
+            }
+            for (int e = graph.extraEdgeStart(v); e < graph.extraEdgeEnd(v); e++) {
+                int q = graph.getToPlatform(e);
+                int arr = time + graph.getDuration(e);
+                if (graph.getFromPlatform(e) == p && improves(round, q, arr)) {
+                    count = update(round, q, arr, EDGE, p, time, count);
+                    labels.board[labels.cell(round, q)] = e;
+                }
+            }
+            if (!foot || p >= g.platformCount())
+                continue;
+            for (int i = footpaths.footStart(p); i < footpaths.footEnd(p); i++) {
+                int q = footpaths.getTarget(i);
+                int arr = time + footpaths.getDuration(i);
+                if (g.getPlatformNode(q) != v && improves(round, q, arr))
+                    count = update(round, q, arr, FOOT, p, time, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param round le tour courant
+     * @param p un quai
+     * @param time un horaire d'arrivée à {@code p}
+     * @return {@code true} si {@code time} améliore {@code p} à ce tour sans arriver après la
+     *         meilleure arrivée connue à la destination
+     */
+    private boolean improves(int round, int p, int time) {
+        return time < labels.best(round, p) && time < target;
+    }
+
+    /**
+     * Met à jour l'horaire d'arrivée d'un quai pour un tour et les tours suivants, le marque et
+     * le met dans la file des quais à propager
+     *
+     * @param round le numéro du tour
+     * @param p le quai
+     * @param time l'horaire d'arrivée
+     * @param via le type d'étape prise
+     * @param from le quai de départ de l'étape
+     * @param departure l'horaire de départ de l'étape
+     * @param count le nombre de quais améliorés pendant ce tour
+     * @return le nouveau nombre de quais améliorés
+     */
+    private int update(int round, int p, int time, int via, int from, int departure,
+            int count) {
+        set(round, p, time, via, from, departure);
+        labels.queue.insertOrDecrease(p, time);
+        return mark(p, count);
+    }
+
+    /**
+     * Met à jour l'horaire d'arrivée d'un quai pour un tour et les tours suivants, et
+     * l'arrivée au plus tôt si le quai est à la destination
+     *
+     * @param round le numéro du tour
+     * @param p le quai
+     * @param time l'horaire d'arrivée
+     * @param via le type d'étape prise
+     * @param from le quai de départ de l'étape
+     * @param departure l'horaire de départ de l'étape
+     */
+    private void set(int round, int p, int time, int via, int from, int departure) {
+        int c = labels.cell(round, p);
+        labels.arrival[c] = time;
+        labels.via[c] = via;
+        labels.from[c] = from;
+        labels.departure[c] = departure;
+        for (int r = round; r <= Raptor.MAX_ROUNDS && time < labels.best(r, p); r++) {
+            c = labels.cell(r, p);
+            labels.bestStamp[c] = labels.epoch;
+            labels.best[c] = time;
+            labels.bestRound[c] = round;
+        }
+        if (graph.getPlatformNode(p) == arrivalId) {
+            target = time;
+            targetPlatform = p;
+            targetRound = round;
+        }
+    }
+
+    /**
+     * Marque un quai amélioré pendant le tour courant
+     *
+     * @param p le quai
+     * @param count le nombre de quais améliorés pendant ce tour
+     * @return le nouveau nombre de quais améliorés
+     */
+    private int mark(int p, int count) {
+        if (labels.markStamp[p] != labels.markEpoch) {
+            labels.markStamp[p] = labels.markEpoch;
+            labels.newMarked[count++] = p;
+        }
+        return count;
+    }
+
+    /**
+     * Termine un tour : les quais améliorés deviennent utilisables pour monter dans un train au
+     * tour suivant
+     *
+     * @param count le nombre de quais améliorés pendant ce tour
+     * @return {@code count}
+     */
+    private int endRound(int count) {
+        int[] marked = labels.marked;
+        labels.marked = labels.newMarked;
+        labels.newMarked = marked;
+        return count;
+    }
+
+    /**
+     * Reconstruit le trajet arrivant à un quai de la destination. L'étape précédant un train est
+     * la meilleure étiquette du tour d'avant, celle précédant une correspondance, une section à
+     * pied ou une arête virtuelle est la meilleure du même tour.
+     *
+     * @param round le tour de l'étiquette du quai
+     * @param p le quai
+     * @return la liste des sections dans l'ordre du chemin
+     */
+    private List<Section> toResult(int round, int p) {
+        List<Section> orderedPath = new LinkedList<>();
+        while (true) {
+            int c = labels.cell(round, p);
+            int via = labels.via[c];
+            if (via == START)
+                break;
+            if (via == TRIP) {
+                addTrip(orderedPath, c);
+                round--;
+            } else if (via != TRANSFER) {
+                Section section = via == EDGE ? graph.newSection(labels.board[c])
+                        : graph.newFootSection(labels.from[c], p);
+                section.setTime(labels.departure[c]);
+                orderedPath.add(section);
+            }
+            p = labels.from[c];
+            round = labels.bestRound[labels.cell(round, p)];
+        }
+        Collections.reverse(orderedPath);
+        return orderedPath;
+    }
+
+    /**
+     * Ajoute en ordre inverse les sections parcourues dans un train
+     *
+     * @param path le chemin en ordre inverse
+     * @param c l'étiquette du quai où on descend du train
+     */
+    private void addTrip(List<Section> path, int c) {
+        int p = patterns.getPattern(labels.board[c]);
+        int tripStart = patterns.tripDeparture(p, labels.trip[c]);
+        for (int s = labels.exit[c] - 1; s >= labels.board[c]; s--) {
+            Section section = graph.newSection(patterns.getEdge(s));
+            section.setTime(tripStart + patterns.getDepartureOffset(s));
+            path.add(section);
+        }
+    }
+}
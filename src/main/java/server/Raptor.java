@@ -0,0 +1,633 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import server.Dijkstra.PathNotFoundException;
+import server.map.FootpathTable;
+import server.map.Graph;
+import server.map.GraphOverlay;
+import server.map.PatternTable;
+import server.map.Plan;
+import server.map.Section;
+import server.map.Time;
+
+/**
+ * Implémentation de l'algorithme RAPTOR (Round-bAsed Public Transit Optimized Router) pour les
+ * trajets optimisés en temps.
+ *
+ * <p>
+ * Le tour {@code k} calcule l'horaire d'arrivée au plus tôt à chaque quai en prenant au plus
+ * {@code k} trains : chaque motif de ligne partant d'un quai amélioré au tour précédent est
+ * parcouru une seule fois dans l'ordre de ses arrêts, puis les quais améliorés propagent leur
+ * horaire sans prendre de train, comme dans {@link ConnectionScanner} : correspondances vers les
+ * autres quais du sommet, arêtes virtuelles et sections à pied enchaînées. Chaque tour qui
+ * améliore l'arrivée donne un trajet du front de Pareto (horaire d'arrivée, nombre de
+ * correspondances).
+ */
+public final class Raptor implements PathFinder {
+    /**
+     * Le nombre maximal de trains pris dans un trajet
+     */
+    static final int MAX_ROUNDS = 8;
+    /**
+     * Valeur d'un quai ou d'un sommet qui n'existe pas
+     */
+    private static final int NONE = -1;
+    /**
+     * Valeur de {@code via} pour un quai du sommet de départ
+     */
+    private static final int START = 0;
+    /**
+     * Valeur de {@code via} pour un quai atteint par un train
+     */
+    private static final int TRIP = 1;
+    /**
+     * Valeur de {@code via} pour un quai atteint par une arête virtuelle
+     */
+    private static final int EDGE = 2;
+    /**
+     * Valeur de {@code via} pour un quai atteint par une section à pied
+     */
+    private static final int FOOT = 3;
+    /**
+     * Valeur de {@code via} pour un quai atteint par une correspondance dans le même sommet
+     */
+    private static final int TRANSFER = 4;
+    /**
+     * Les tableaux de travail du thread courant
+     */
+    private static final ThreadLocal<Workspace> WORKSPACES =
+            ThreadLocal.withInitial(Workspace::new);
+
+    /**
+     * Le graphe du plan et les sommets virtuels de la requête
+     */
+    private final GraphOverlay graph;
+    /**
+     * Les motifs de trajet du plan
+     */
+    private final PatternTable patterns;
+    /**
+     * L'identifiant du sommet de départ
+     */
+    private final int startId;
+    /**
+     * L'identifiant du sommet d'arrivé
+     */
+    private final int arrivalId;
+    /**
+     * L'horaire de départ
+     */
+    private final Time departTime;
+    /**
+     * Si des sections à pied sont possibles
+     */
+    private final boolean foot;
+    /**
+     * Les étiquettes des quais
+     */
+    private Workspace labels;
+    /**
+     * L'horaire d'arrivée au plus tôt à l'arrivée, tous tours confondus
+     */
+    private int target;
+    /**
+     * Associe chaque tour au quai de l'arrivée amélioré pendant ce tour ou {@link #NONE}
+     */
+    private final int[] targetPlatforms = new int[MAX_ROUNDS + 1];
+    /**
+     * Les trajets du front de Pareto, du moins de trains au plus rapide
+     */
+    private List<List<Section>> results;
+    /**
+     * Le nombre de trains de chaque trajet de {@code results}
+     */
+    private int[] resultRounds;
+
+    /**
+     * Étiquettes de l'algorithme réutilisées d'une requête à l'autre par un même thread. Les
+     * étiquettes portent sur les quais et celles d'un tour sont rangées à la suite dans des
+     * tableaux de taille {@code (MAX_ROUNDS + 1) * n}. Une case dont le tampon ne correspond pas
+     * à l'époque courante n'a pas été atteinte, ce qui évite de réinitialiser les tableaux à
+     * chaque requête.
+     */
+    private static final class Workspace {
+        /**
+         * Le nombre de quais
+         */
+        private int size;
+        /**
+         * Associe chaque quai à son horaire d'arrivée au plus tôt, tous tours confondus
+         */
+        private int[] best = new int[0];
+        /**
+         * Associe chaque quai à son horaire d'arrivée au plus tôt à la fin du tour précédent
+         */
+        private int[] settled = new int[0];
+        /**
+         * L'époque à laquelle {@code best} et {@code settled} ont été modifiés
+         */
+        private int[] bestStamp = new int[0];
+        /**
+         * Associe chaque quai de chaque tour à son horaire d'arrivée
+         */
+        private int[] arrival = new int[0];
+        /**
+         * Associe chaque quai de chaque tour au type d'étape prise pour y arriver
+         */
+        private int[] via = new int[0];
+        /**
+         * Associe chaque quai de chaque tour à l'arrêt où on est monté dans le train ou à
+         * l'arête virtuelle prise
+         */
+        private int[] board = new int[0];
+        /**
+         * Associe chaque quai de chaque tour à l'arrêt où on descend du train
+         */
+        private int[] exit = new int[0];
+        /**
+         * Associe chaque quai de chaque tour au train pris
+         */
+        private int[] trip = new int[0];
+        /**
+         * Associe chaque quai de chaque tour au quai de départ de l'étape prise
+         */
+        private int[] from = new int[0];
+        /**
+         * Associe chaque quai de chaque tour à l'horaire de départ de l'étape prise
+         */
+        private int[] departure = new int[0];
+        /**
+         * L'époque à laquelle chaque quai de chaque tour a été atteint
+         */
+        private int[] stamp = new int[0];
+        /**
+         * Les quais améliorés au tour précédent
+         */
+        private int[] marked = new int[0];
+        /**
+         * Les quais améliorés au tour courant
+         */
+        private int[] newMarked = new int[0];
+        /**
+         * L'époque à laquelle chaque quai a été ajouté à {@code newMarked}
+         */
+        private int[] markStamp = new int[0];
+        /**
+         * Les motifs à parcourir au tour courant
+         */
+        private int[] queued = new int[0];
+        /**
+         * Associe chaque motif à parcourir à son premier arrêt amélioré
+         */
+        private int[] queuedFrom = new int[0];
+        /**
+         * L'époque à laquelle chaque motif a été ajouté à {@code queued}
+         */
+        private int[] patternStamp = new int[0];
+        /**
+         * Les quais améliorés au tour courant dont l'horaire reste à propager, par horaire
+         * d'arrivée
+         */
+        private final IndexedMinHeap queue = new IndexedMinHeap(0);
+        /**
+         * L'époque courante
+         */
+        private int epoch;
+        /**
+         * L'époque courante pour les quais et motifs marqués, incrémentée à chaque tour
+         */
+        private int markEpoch;
+
+        /**
+         * Prépare les tableaux pour une nouvelle recherche
+         *
+         * @param size le nombre de quais
+         * @param patternCount le nombre de motifs
+         */
+        private void reset(int size, int patternCount) {
+            if (bestStamp.length < size || patternStamp.length < patternCount) {
+                int cells = (MAX_ROUNDS + 1) * size;
+                best = new int[size];
+                settled = new int[size];
+                bestStamp = new int[size];
+                arrival = new int[cells];
+                via = new int[cells];
+                board = new int[cells];
+                exit = new int[cells];
+                trip = new int[cells];
+                from = new int[cells];
+                departure = new int[cells];
+                stamp = new int[cells];
+                marked = new int[size];
+                newMarked = new int[size];
+                markStamp = new int[size];
+                queued = new int[patternCount];
+                queuedFrom = new int[patternCount];
+                patternStamp = new int[patternCount];
+                epoch = 0;
+                markEpoch = 0;
+            }
+            this.size = bestStamp.length;
+            queue.reset(size);
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(bestStamp, 0);
+                Arrays.fill(stamp, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * Passe au tour suivant pour les quais et motifs marqués
+         */
+        private void nextMarkEpoch() {
+            markEpoch++;
+            if (markEpoch == Integer.MAX_VALUE) {
+                Arrays.fill(markStamp, 0);
+                Arrays.fill(patternStamp, 0);
+                markEpoch = 1;
+            }
+        }
+
+        /**
+         * @param p un quai
+         * @return l'horaire d'arrivée au plus tôt à {@code p}
+         */
+        private int best(int p) {
+            return bestStamp[p] == epoch ? best[p] : Integer.MAX_VALUE;
+        }
+
+        /**
+         * @param p un quai
+         * @return l'horaire d'arrivée au plus tôt à {@code p} avec les trains des tours
+         *         précédents
+         */
+        private int settled(int p) {
+            return bestStamp[p] == epoch ? settled[p] : Integer.MAX_VALUE;
+        }
+
+        /**
+         * @param round un tour
+         * @param p un quai
+         * @return l'indice de l'étiquette de {@code p} au tour {@code round}
+         */
+        private int cell(int round, int p) {
+            return round * size + p;
+        }
+
+        /**
+         * @param round un tour
+         * @param p un quai
+         * @return {@code true} si {@code p} a été amélioré au tour {@code round}
+         */
+        private boolean reached(int round, int p) {
+            return stamp[cell(round, p)] == epoch;
+        }
+    }
+
+    /**
+     * @param plan le plan à utiliser
+     * @param start le sommet de départ
+     * @param arrival le sommet d'arrivé
+     * @param departTime l'horaire de départ
+     * @param foot si des sections à pied sont possibles
+     */
+    Raptor(Plan plan, String start, String arrival, Time departTime, boolean foot) {
+        if (plan == null || start == null || arrival == null)
+            throw new IllegalArgumentException();
+        this.graph = new GraphOverlay(plan.getGraph(), start, arrival,
+                Dijkstra.MAX_FOOT_DISTANCE);
+        this.patterns = graph.getGraph().getPatterns();
+        this.startId = graph.getStartId();
+        this.arrivalId = graph.getArrivalId();
+        this.departTime = departTime;
+        this.foot = foot;
+    }
+
+    /**
+     * Recherche le trajet arrivant au plus tôt entre 2 sommets, avec le moins de correspondances
+     * possible pour cet horaire d'arrivée, et renvoie la liste des sections dans l'ordre du chemin
+     *
+     * @return la liste des sections dans l'ordre du départ à l'arrivé
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    @Override
+    public List<Section> getPath() throws PathNotFoundException {
+        List<List<Section>> paths = getParetoPaths();
+        return new LinkedList<>(paths.get(paths.size() - 1));
+    }
+
+    /**
+     * @return le nombre de correspondances du trajet renvoyé par {@link #getPath()}
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    public int getTransfers() throws PathNotFoundException {
+        getParetoPaths();
+        return Math.max(0, resultRounds[resultRounds.length - 1] - 1);
+    }
+
+    /**
+     * Renvoie les trajets du front de Pareto entre l'horaire d'arrivée et le nombre de trains :
+     * chaque trajet prend plus de trains que le précédent et arrive strictement plus tôt.
+     *
+     * @return les trajets, du moins de correspondances au plus rapide
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    public List<List<Section>> getParetoPaths() throws PathNotFoundException {
+        if (results == null)
+            compute();
+        List<List<Section>> copy = new ArrayList<>(results.size());
+        for (List<Section> path : results)
+            copy.add(new LinkedList<>(path));
+        return copy;
+    }
+
+    /**
+     * Exécute les tours de l'algorithme puis reconstruit les trajets
+     *
+     * @throws PathNotFoundException s'il n'existe pas de chemin entre les deux sommets
+     */
+    private void compute() throws PathNotFoundException {
+        if (startId == NONE || arrivalId == NONE || departTime == null)
+            throw new PathNotFoundException();
+        labels = WORKSPACES.get();
+        labels.reset(graph.platformCount(), patterns.patternCount());
+        target = Integer.MAX_VALUE;
+        Arrays.fill(targetPlatforms, NONE);
+        int count = init(departTime.toSeconds());
+        for (int round = 1; round <= MAX_ROUNDS && count > 0; round++)
+            count = round(round, count);
+
+        List<List<Section>> paths = new ArrayList<>();
+        List<Integer> rounds = new ArrayList<>();
+        for (int round = 0; round <= MAX_ROUNDS; round++) {
+            if (targetPlatforms[round] != NONE) {
+                paths.add(toResult(round));
+                rounds.add(round);
+            }
+        }
+        if (paths.isEmpty())
+            throw new PathNotFoundException();
+        results = paths;
+        resultRounds = rounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Applique le tour 0 : les quais du sommet de départ puis ce qu'on atteint depuis eux sans
+     * prendre de train
+     *
+     * @param t0 l'horaire de départ
+     * @return le nombre de quais améliorés
+     */
+    private int init(int t0) {
+        labels.nextMarkEpoch();
+        int count = 0;
+        for (int p = graph.platformStart(startId); p < graph.platformEnd(startId); p++)
+            count = update(0, p, t0, START, NONE, t0, count);
+        count = propagate(0, count);
+        return endRound(count);
+    }
+
+    /**
+     * Exécute un tour de l'algorithme
+     *
+     * @param round le numéro du tour
+     * @param markedCount le nombre de quais améliorés au tour précédent
+     * @return le nombre de quais améliorés pendant ce tour
+     */
+    private int round(int round, int markedCount) {
+        labels.nextMarkEpoch();
+        int patternCount = 0;
+        for (int i = 0; i < markedCount; i++) {
+            int platform = labels.marked[i];
+            int v = graph.getPlatformNode(platform);
+            if (v >= graph.getGraph().nodeCount())
+                continue;
+            for (int j = patterns.nodeStopStart(v); j < patterns.nodeStopEnd(v); j++) {
+                int stop = patterns.getNodeStop(j);
+                int edge = patterns.getEdge(stop);
+                if (edge == PatternTable.NO_EDGE || graph.getFromPlatform(edge) != platform)
+                    continue;
+                int p = patterns.getPattern(stop);
+                if (labels.patternStamp[p] != labels.markEpoch) {
+                    labels.patternStamp[p] = labels.markEpoch;
+                    labels.queuedFrom[p] = stop;
+                    labels.queued[patternCount++] = p;
+                } else if (stop < labels.queuedFrom[p]) {
+                    labels.queuedFrom[p] = stop;
+                }
+            }
+        }
+
+        int count = 0;
+        for (int i = 0; i < patternCount; i++) {
+            int p = labels.queued[i];
+            count = scanPattern(round, p, labels.queuedFrom[p], count);
+        }
+        count = propagate(round, count);
+        return endRound(count);
+    }
+
+    /**
+     * Parcourt un motif à partir d'un arrêt en restant dans le premier train utilisable
+     *
+     * @param round le numéro du tour
+     * @param p le motif
+     * @param from le premier arrêt amélioré au tour précédent
+     * @param count le nombre de quais améliorés pendant ce tour
+     * @return le nouveau nombre de quais améliorés
+     */
+    private int scanPattern(int round, int p, int from, int count) {
+        int trip = Integer.MAX_VALUE;
+        int boardStop = NONE;
+        int tripStart = 0;
+        for (int s = from; s < patterns.stopEnd(p); s++) {
+            if (trip != Integer.MAX_VALUE) {
+                int q = graph.getToPlatform(patterns.getEdge(s - 1));
+                int arr = tripStart + patterns.getArrivalOffset(s);
+                if (improves(q, arr)) {
+                    int c = labels.cell(round, q);
+                    count = update(round, q, arr, TRIP,
+                            graph.getFromPlatform(patterns.getEdge(boardStop)),
+                            tripStart + patterns.getDepartureOffset(boardStop), count);
+                    labels.board[c] = boardStop;
+                    labels.exit[c] = s;
+                    labels.trip[c] = trip;
+                }
+            }
+            int edge = patterns.getEdge(s);
+            if (edge == PatternTable.NO_EDGE)
+                break;
+            int previous = labels.settled(graph.getFromPlatform(edge));
+            if (previous == Integer.MAX_VALUE)
+                continue;
+            if (trip == Integer.MAX_VALUE
+                    || previous <= tripStart + patterns.getDepartureOffset(s)) {
+                int earliest = patterns.earliestTrip(s, previous);
+                if (earliest <= trip) {
+                    trip = earliest;
+                    boardStop = s;
+                    tripStart = patterns.tripDeparture(p, trip);
+                }
+            }
+        }
+        return count;
+    }
+    /**
+     * Propage dans l'ordre de leur horaire les quais améliorés pendant le tour : correspondances
+     * dans le même sommet, arêtes virtuelles puis, si elles sont possibles, sections à pied. Les
+     * quais atteints restent dans le même tour puisqu'aucun train n'est pris.
+     *
+     * @param round le numéro du tour
+     * @param count le nombre de quais améliorés pendant ce tour
+     * @return le nouveau nombre de quais améliorés
+     */
+    private int propagate(int round, int count) {
+        Graph g = graph.getGraph();
+        FootpathTable footpaths = g.getFootpaths();
+        while (!labels.queue.isEmpty()) {
+            int p = labels.queue.poll();
+            int time = labels.arrival[labels.cell(round, p)];
+            int v = graph.getPlatformNode(p);
+            for (int q = graph.platformStart(v); q < graph.platformEnd(v); q++) {
+                int arr = time + graph.transferDuration(p, q);
+                if (q != p && improves(q, arr))
+                    count = update(round, q, arr, TRANSFER, p, time, count);
+            }
+            for (int e = graph.extraEdgeStart(v); e < graph.extraEdgeEnd(v); e++) {
+                int q = graph.getToPlatform(e);
+                int arr = time + graph.getDuration(e);
+                if (graph.getFromPlatform(e) == p && improves(q, arr)) {
+                    count = update(round, q, arr, EDGE, p, time, count);
+                    labels.board[labels.cell(round, q)] = e;
+                }
+            }
+            if (!foot || p >= g.platformCount())
+                continue;
+            for (int i = footpaths.footStart(p); i < footpaths.footEnd(p); i++) {
+                int q = footpaths.getTarget(i);
+                int arr = time + footpaths.getDuration(i);
+                if (g.getPlatformNode(q) != v && improves(q, arr))
+                    count = update(round, q, arr, FOOT, p, time, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param p un quai
+     * @param time un horaire d'arrivée à {@code p}
+     * @return {@code true} si {@code time} améliore l'arrivée à {@code p} et peut encore
+     *         améliorer l'arrivée à destination
+     */
+    private boolean improves(int p, int time) {
+        return time < labels.best(p) && time < target;
+    }
+
+    /**
+     * Met à jour l'horaire d'arrivée d'un quai pour un tour, le marque et le met dans la file
+     * des quais à propager
+     *
+     * @param round le numéro du tour
+     * @param p le quai
+     * @param time l'horaire d'arrivée
+     * @param via le type d'étape prise
+     * @param from le quai de départ de l'étape
+     * @param departure l'horaire de départ de l'étape
+     * @param count le nombre de quais améliorés pendant ce tour
+     * @return le nouveau nombre de quais améliorés
+     */
+    private int update(int round, int p, int time, int via, int from, int departure,
+            int count) {
+        if (labels.bestStamp[p] != labels.epoch) {
+            labels.bestStamp[p] = labels.epoch;
+            labels.settled[p] = Integer.MAX_VALUE;
+        }
+        labels.best[p] = time;
+        int c = labels.cell(round, p);
+        labels.stamp[c] = labels.epoch;
+        labels.arrival[c] = time;
+        labels.via[c] = via;
+        labels.from[c] = from;
+        labels.departure[c] = departure;
+        labels.queue.insertOrDecrease(p, time);
+        if (graph.getPlatformNode(p) == arrivalId) {
+            target = time;
+            targetPlatforms[round] = p;
+        }
+        if (labels.markStamp[p] != labels.markEpoch) {
+            labels.markStamp[p] = labels.markEpoch;
+            labels.newMarked[count++] = p;
+        }
+        return count;
+    }
+
+    /**
+     * Termine un tour : les quais améliorés deviennent utilisables pour monter dans un train au
+     * tour suivant
+     *
+     * @param count le nombre de quais améliorés pendant ce tour
+     * @return {@code count}
+     */
+    private int endRound(int count) {
+        for (int i = 0; i < count; i++) {
+            int p = labels.newMarked[i];
+            labels.settled[p] = labels.best[p];
+        }
+        int[] marked = labels.marked;
+        labels.marked = labels.newMarked;
+        labels.newMarked = marked;
+        return count;
+    }
+
+    /**
+     * Reconstruit le trajet arrivant à la destination au tour {@code round}
+     *
+     * @param round le tour
+     * @return la liste des sections dans l'ordre du chemin
+     */
+    private List<Section> toResult(int round) {
+        List<Section> orderedPath = new LinkedList<>();
+        int p = targetPlatforms[round];
+        while (true) {
+            while (!labels.reached(round, p))
+                round--;
+            int c = labels.cell(round, p);
+            int via = labels.via[c];
+            if (via == START)
+                break;
+            if (via == TRIP) {
+                addTrip(orderedPath, c);
+                round--;
+            } else if (via != TRANSFER) {
+                Section section = via == EDGE ? graph.newSection(labels.board[c])
+                        : graph.newFootSection(labels.from[c], p);
+                section.setTime(labels.departure[c]);
+                orderedPath.add(section);
+            }
+            p = labels.from[c];
+        }
+        Collections.reverse(orderedPath);
+        return orderedPath;
+    }
+
+    /**
+     * Ajoute en ordre inverse les sections parcourues dans un train
+     *
+     * @param path le chemin en ordre inverse
+     * @param c l'étiquette du quai où on descend du train
+     */
+    private void addTrip(List<Section> path, int c) {
+        int p = patterns.getPattern(labels.board[c]);
+        int tripStart = patterns.tripDeparture(p, labels.trip[c]);
+        for (int s = labels.exit[c] - 1; s >= labels.board[c]; s--) {
+            Section section = graph.newSection(patterns.getEdge(s));
+            section.setTime(tripStart + patterns.getDepartureOffset(s));
+            path.add(section);
+        }
+    }
+}
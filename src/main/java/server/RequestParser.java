@@ -1,6 +1,10 @@
 package server;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import server.data.SuggestionStations.SuggestionKind;
 import server.map.Plan;
@@ -17,6 +21,15 @@ public class RequestParser {
      * Caractère utilisé pour séparer les arguments de la requête
      */
     private static final String CHAR_SPLITTER = ";";
+    /**
+     * Caractère utilisé pour séparer les trajets d'une requête BATCH et les stations d'une
+     * requête MATRIX
+     */
+    private static final String QUERY_SPLITTER = "|";
+    /**
+     * Nombre maximal de trajets dans une requête BATCH
+     */
+    private static final int MAX_BATCH_SIZE = 64;
     /**
      * Nom de la commande correspondant la requête pour un chemin
      */
@@ -35,12 +48,44 @@ public class RequestParser {
      */
     private static final String TIME_KEY = "TIME";
 
+    /**
+     * Argument demandant une optimisation en distance
+     */
+    private static final String DISTANCE_KEY = "DISTANCE";
+
+    /**
+     * Nom de la commande correspondant la requête des trajets partant dans une plage horaire
+     */
+    private static final String PROFILE_KEY = "PROFILE";
+
+    /**
+     * Nom de la commande correspondant la requête des stations atteignables dans un temps donné
+     */
+    private static final String ISOCHRONE_KEY = "ISOCHRONE";
+
+    /**
+     * Nom de la commande correspondant plusieurs requêtes de chemin traitées en parallèle
+     */
+    private static final String BATCH_KEY = "BATCH";
+
+    /**
+     * Nom de la commande correspondant la requête de la matrice des temps de trajet ou des
+     * distances entre des départs et des arrivées
+     */
+    private static final String MATRIX_KEY = "MATRIX";
+
     /**
      * Argument determinant si la recherche d'un trajet doit prendre en compte les 
      * sections à pied
      */
     private static final String FOOT_KEY = "FOOT";
 
+    /**
+     * Argument demandant tous les trajets du front de Pareto entre l'horaire d'arrivée, le nombre
+     * de correspondances et la distance parcourue à pied
+     */
+    private static final String PARETO_KEY = "PARETO";
+
     /**
      * La requête n'a pas le bon format
      */
@@ -62,7 +107,11 @@ public class RequestParser {
      */
     private static final Map<String, Handler> handler =
             Map.of(ROUTE_KEY, RequestParser::handleRouteRequest, SEARCH_KEY,
-                    RequestParser::handleSearchRequest, TIME_KEY, RequestParser::handleTimeRequest);
+                    RequestParser::handleSearchRequest, TIME_KEY, RequestParser::handleTimeRequest,
+                    PROFILE_KEY, RequestParser::handleProfileRequest, ISOCHRONE_KEY,
+                    RequestParser::handleIsochroneRequest, BATCH_KEY,
+                    RequestParser::handleBatchRequest, MATRIX_KEY,
+                    RequestParser::handleMatrixRequest);
 
     /**
      * Parse le nom de la requête
@@ -94,6 +143,14 @@ public class RequestParser {
     /**
      * Parse une requête ROUTE
      *
+     * <p>
+     * Command structure:
+     * ROUTE;départ;arrivée;horaire;TIME|DISTANCE|PARETO[;FOOT[;CSA|DIJKSTRA|RAPTOR|BIDIRECTIONAL]]
+     *
+     * <p>
+     * Avec {@code PARETO}, l'algorithme est ignoré et la réponse contient plusieurs trajets.
+     * {@code BIDIRECTIONAL} n'est accepté qu'avec {@code DISTANCE}.
+     *
      * @param plan instance du plan sur laquelle effectuer les calculs
      * @param inputArgs liste des arguments de la requête
      * @return le traitement de la requête
@@ -101,7 +158,7 @@ public class RequestParser {
      */
     private static ServerActionCallback handleRouteRequest(Plan plan, String[] inputArgs)
             throws ParsingException {
-        if ((inputArgs.length != 5 && inputArgs.length != 6) || inputArgs[1].isBlank()
+        if (inputArgs.length < 5 || inputArgs.length > 7 || inputArgs[1].isBlank()
                 || inputArgs[2].isBlank() || inputArgs[3].isBlank()) {
             String message = "Départ ou arrivée ou temps manquant.";
             Logger.error(message);
@@ -110,18 +167,175 @@ public class RequestParser {
             Logger.info("TRAJET");
             String start = inputArgs[1].trim();
             String arrival = inputArgs[2].trim();
+            SearchPath.Algorithm algorithm = inputArgs.length == 7
+                    ? SearchPath.Algorithm.ofString(inputArgs[6].trim())
+                    : SearchPath.Algorithm.CSA;
+            if (algorithm == null)
+                throw new ParsingException("Algorithme inconnu");
+            if (inputArgs[4].trim().equals(TIME_KEY)
+                    && algorithm == SearchPath.Algorithm.BIDIRECTIONAL)
+                throw new ParsingException("Algorithme indisponible en temps");
             try {
                 int[] time = Parser.parse2IntSep(inputArgs[3], ":");
                 boolean distOpt = !inputArgs[4].trim().equals(TIME_KEY);
-                boolean foot = inputArgs.length == 6 && inputArgs[5].trim().equals(FOOT_KEY);
-                return new SearchPath(new Plan(plan), start, arrival,
-                new Time(time[0], time[1]), distOpt, foot);
+                boolean foot = inputArgs.length >= 6 && inputArgs[5].trim().equals(FOOT_KEY);
+                if (inputArgs[4].trim().equals(PARETO_KEY))
+                    return new SearchParetoPaths(plan, start, arrival,
+                            new Time(time[0], time[1]), foot);
+                return new SearchPath(plan, start, arrival, new Time(time[0], time[1]), distOpt,
+                        foot, algorithm);
             } catch (Exception e) {
                 throw new ParsingException("Time mal formé");
             }
         }
     }
 
+    /**
+     * Parse une requête BATCH, chaque trajet ayant les arguments d'une requête ROUTE
+     *
+     * <p>
+     * Command structure: BATCH;départ;arrivée;horaire;critère[;FOOT[;algorithme]]|départ;...
+     *
+     * @param plan instance du plan sur laquelle effectuer les calculs
+     * @param inputArgs liste des arguments de la requête
+     * @return le traitement de la requête
+     * @throws ParsingException si la requête n'a pas le bon format ou si un des trajets n'a pas
+     *         le bon format
+     */
+    private static ServerActionCallback handleBatchRequest(Plan plan, String[] inputArgs)
+            throws ParsingException {
+        String line = String.join(CHAR_SPLITTER,
+                Arrays.asList(inputArgs).subList(1, inputArgs.length));
+        String[] queries = line.split(Pattern.quote(QUERY_SPLITTER));
+        if (line.isBlank() || queries.length > MAX_BATCH_SIZE) {
+            String message = "Aucun trajet ou trop de trajets.";
+            Logger.error(message);
+            throw new ParsingException(message);
+        }
+        Logger.info("LOT DE TRAJETS");
+        List<ServerActionCallback> requests = new ArrayList<>(queries.length);
+        for (String query : queries) {
+            String route = ROUTE_KEY + CHAR_SPLITTER + query;
+            requests.add(handleRouteRequest(plan, route.split(CHAR_SPLITTER)));
+        }
+        return new SearchBatch(requests);
+    }
+
+    /**
+     * Parse une requête MATRIX
+     *
+     * <p>
+     * Command structure: MATRIX;départ|départ...;arrivée|arrivée...;horaire;TIME|DISTANCE[;FOOT]
+     *
+     * @param plan instance du plan sur laquelle effectuer les calculs
+     * @param inputArgs liste des arguments de la requête
+     * @return le traitement de la requête
+     * @throws ParsingException si la requête n'a pas le bon format
+     */
+    private static ServerActionCallback handleMatrixRequest(Plan plan, String[] inputArgs)
+            throws ParsingException {
+        if (inputArgs.length < 5 || inputArgs.length > 6 || inputArgs[1].isBlank()
+                || inputArgs[2].isBlank() || inputArgs[3].isBlank()) {
+            String message = "Départs ou arrivées ou horaire manquant.";
+            Logger.error(message);
+            throw new ParsingException(message);
+        }
+        Logger.info("MATRICE");
+        String[] origins = splitStations(inputArgs[1]);
+        String[] destinations = splitStations(inputArgs[2]);
+        String criterion = inputArgs[4].trim();
+        if (!criterion.equals(TIME_KEY) && !criterion.equals(DISTANCE_KEY))
+            throw new ParsingException("Critère inconnu");
+        boolean foot = inputArgs.length == 6 && inputArgs[5].trim().equals(FOOT_KEY);
+        try {
+            int[] time = Parser.parse2IntSep(inputArgs[3], ":");
+            return new SearchMatrix(plan, origins, destinations, new Time(time[0], time[1]),
+                    criterion.equals(DISTANCE_KEY), foot);
+        } catch (Exception e) {
+            throw new ParsingException("Time mal formé");
+        }
+    }
+
+    /**
+     * @param stations des noms de stations séparés par {@link #QUERY_SPLITTER}
+     * @return les noms des stations
+     * @throws ParsingException si un des noms est vide
+     */
+    private static String[] splitStations(String stations) throws ParsingException {
+        String[] names = stations.split(Pattern.quote(QUERY_SPLITTER), -1);
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim();
+            if (names[i].isEmpty())
+                throw new ParsingException("Station vide");
+        }
+        return names;
+    }
+
+    /**
+     * Parse une requête PROFILE
+     *
+     * <p>
+     * Command structure: PROFILE;départ;arrivée;début;fin[;FOOT]
+     *
+     * @param plan instance du plan sur laquelle effectuer les calculs
+     * @param inputArgs liste des arguments de la requête
+     * @return le traitement de la requête
+     * @throws ParsingException si la requête n'a pas le bon format
+     */
+    private static ServerActionCallback handleProfileRequest(Plan plan, String[] inputArgs)
+            throws ParsingException {
+        if (inputArgs.length < 5 || inputArgs.length > 6 || inputArgs[1].isBlank()
+                || inputArgs[2].isBlank() || inputArgs[3].isBlank() || inputArgs[4].isBlank()) {
+            String message = "Départ ou arrivée ou plage horaire manquant.";
+            Logger.error(message);
+            throw new ParsingException(message);
+        }
+        Logger.info("PLAGE HORAIRE");
+        String start = inputArgs[1].trim();
+        String arrival = inputArgs[2].trim();
+        boolean foot = inputArgs.length == 6 && inputArgs[5].trim().equals(FOOT_KEY);
+        try {
+            int[] from = Parser.parse2IntSep(inputArgs[3], ":");
+            int[] to = Parser.parse2IntSep(inputArgs[4], ":");
+            return new SearchProfile(plan, start, arrival, new Time(from[0], from[1]),
+                    new Time(to[0], to[1]), foot);
+        } catch (Exception e) {
+            throw new ParsingException("Time mal formé");
+        }
+    }
+
+    /**
+     * Parse une requête ISOCHRONE, la durée étant en minutes
+     *
+     * <p>
+     * Command structure: ISOCHRONE;départ;horaire;durée[;FOOT]
+     *
+     * @param plan instance du plan sur laquelle effectuer les calculs
+     * @param inputArgs liste des arguments de la requête
+     * @return le traitement de la requête
+     * @throws ParsingException si la requête n'a pas le bon format
+     */
+    private static ServerActionCallback handleIsochroneRequest(Plan plan, String[] inputArgs)
+            throws ParsingException {
+        if (inputArgs.length < 4 || inputArgs.length > 5 || inputArgs[1].isBlank()
+                || inputArgs[2].isBlank() || inputArgs[3].isBlank()) {
+            String message = "Départ ou horaire ou durée manquant.";
+            Logger.error(message);
+            throw new ParsingException(message);
+        }
+        Logger.info("ISOCHRONE");
+        String start = inputArgs[1].trim();
+        boolean foot = inputArgs.length == 5 && inputArgs[4].trim().equals(FOOT_KEY);
+        try {
+            int[] time = Parser.parse2IntSep(inputArgs[2], ":");
+            int minutes = Integer.parseInt(inputArgs[3].trim());
+            return new SearchIsochrone(plan, start, new Time(time[0], time[1]),
+                    Math.multiplyExact(minutes, 60), foot);
+        } catch (Exception e) {
+            throw new ParsingException("Time ou durée mal formé");
+        }
+    }
+
     /**
      * Parse une requête SEARCH
      * 
@@ -0,0 +1,130 @@
+package server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+import server.data.BinaryCodec;
+import server.data.JsonCodec;
+import server.data.ServerResponse;
+
+/**
+ * Les formats dans lesquels le server peut envoyer ses réponses. Une connexion commence avec
+ * {@link #JAVA} ; le client peut en changer à tout moment avec la requête
+ * {@code PROTOCOL;format[;version]}, qui s'applique à toutes les réponses suivantes.
+ */
+enum ResponseFormat {
+    /**
+     * Sérialisation Java, un {@link ObjectOutputStream} par réponse
+     */
+    JAVA(1) {
+        @Override
+        void write(ServerResponse response, OutputStream out) throws IOException {
+            ObjectOutputStream outStream = new ObjectOutputStream(out);
+            outStream.writeObject(response);
+            outStream.flush();
+        }
+    },
+    /**
+     * Format binaire compact de {@link BinaryCodec}
+     */
+    BINARY(BinaryCodec.VERSION) {
+        @Override
+        void write(ServerResponse response, OutputStream out) throws IOException {
+            out.write(BinaryCodec.encode(response));
+        }
+
+        @Override
+        byte[] encode(ServerResponse response) {
+            return BinaryCodec.encode(response);
+        }
+    },
+    /**
+     * Objets JSON de {@link JsonCodec}, un par ligne
+     */
+    JSON(JsonCodec.VERSION) {
+        @Override
+        void write(ServerResponse response, OutputStream out) throws IOException {
+            JsonCodec.write(response, out);
+        }
+    };
+
+    /**
+     * Nom de la commande demandant un changement de format
+     */
+    static final String PROTOCOL_KEY = "PROTOCOL";
+
+    /**
+     * La version du format
+     */
+    private final int version;
+
+    ResponseFormat(int version) {
+        this.version = version;
+    }
+
+    /**
+     * @return la version du format
+     */
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * Écrit une réponse dans un flux, sans le fermer. Le flux n'est pas forcément vidé.
+     *
+     * @param response la réponse
+     * @param out le flux vers le client
+     * @throws IOException si la réponse ne peut pas être écrite
+     */
+    abstract void write(ServerResponse response, OutputStream out) throws IOException;
+
+    /**
+     * Encode une réponse
+     *
+     * @param response la réponse
+     * @return les octets à envoyer au client
+     * @throws IOException si la réponse ne peut pas être encodée
+     */
+    byte[] encode(ServerResponse response) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(response, bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param line une requête
+     * @return si {@code line} est une demande de changement de format
+     */
+    static boolean isNegotiation(String line) {
+        return line.startsWith(PROTOCOL_KEY + ";") || line.equals(PROTOCOL_KEY);
+    }
+
+    /**
+     * Retourne le format demandé par une requête {@code PROTOCOL;format[;version]}, {@code null}
+     * si le format ou sa version n'est pas pris en charge. Sans version, la version courante du
+     * format est acceptée.
+     *
+     * @param line la requête
+     * @return le format demandé, {@code null} s'il n'est pas pris en charge
+     */
+    static ResponseFormat ofRequest(String line) {
+        String[] args = line.split(";");
+        if (args.length < 2 || args.length > 3)
+            return null;
+        ResponseFormat format = switch (args[1].trim()) {
+            case "JAVA" -> JAVA;
+            case "BINARY" -> BINARY;
+            case "JSON" -> JSON;
+            default -> null;
+        };
+        if (format == null || args.length == 2)
+            return format;
+        try {
+            return Integer.parseInt(args[2].trim()) == format.version ? format : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package server;
+
+import java.util.List;
+import java.util.Objects;
+import server.data.BatchResponses;
+import server.data.ServerResponse;
+
+/**
+ * Traite plusieurs requêtes en parallèle et renvoie leurs réponses dans une seule réponse, dans
+ * l'ordre des requêtes
+ *
+ * <p>
+ * Les requêtes sont réparties sur les threads du {@link java.util.concurrent.ForkJoinPool} commun
+ * et le thread appelant. Elles partagent le même plan, lu une seule fois pour tout le lot, et
+ * chaque thread réutilise ses propres tableaux de recherche d'une requête à l'autre.
+ */
+public class SearchBatch implements ServerActionCallback {
+    /**
+     * Les requêtes du lot
+     */
+    private final List<ServerActionCallback> requests;
+
+    /**
+     * @param requests les requêtes du lot
+     * @throws IllegalArgumentException si {@code requests} est {@code null} ou contient
+     *         {@code null}
+     */
+    public SearchBatch(List<ServerActionCallback> requests) throws IllegalArgumentException {
+        if (requests == null || requests.stream().anyMatch(Objects::isNull))
+            throw new IllegalArgumentException();
+        this.requests = List.copyOf(requests);
+    }
+
+    @Override
+    public ServerResponse execute() {
+        List<ServerResponse> responses =
+                requests.parallelStream().map(ServerActionCallback::execute).toList();
+        return new BatchResponses(responses);
+    }
+}
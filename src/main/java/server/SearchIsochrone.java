@@ -0,0 +1,70 @@
+package server;
+
+import server.data.ReachableStations;
+import server.data.ServerResponse;
+import server.map.ConnectionTable;
+import server.map.Graph;
+import server.map.Plan;
+import server.map.Time;
+
+/**
+ * Calcule les stations atteignables depuis un départ dans un temps donné, avec leur horaire
+ * d'arrivée au plus tôt
+ */
+public class SearchIsochrone implements ServerActionCallback {
+    /**
+     * Le plan où chercher les stations
+     */
+    private final Plan map;
+    /**
+     * Le nom de la station de départ ou une coordonnée
+     */
+    private final String start;
+    /**
+     * L'horaire de départ
+     */
+    private final Time depart;
+    /**
+     * Le temps de trajet maximal en secondes
+     */
+    private final int budget;
+    /**
+     * S'il peut y avoir des sections à pied
+     */
+    private final boolean foot;
+
+    /**
+     * @param map le plan où chercher les stations
+     * @param start le nom de la station de départ ou une coordonnée
+     * @param depart l'horaire de départ
+     * @param budget le temps de trajet maximal en secondes, au plus une journée
+     * @param foot s'il peut y avoir des sections à pied
+     * @throws IllegalArgumentException si {@code map}, {@code start} ou {@code depart} est
+     *         {@code null} ou si {@code budget} n'est pas entre 0 et une journée
+     */
+    public SearchIsochrone(Plan map, String start, Time depart, int budget, boolean foot)
+            throws IllegalArgumentException {
+        if (map == null || start == null || depart == null || budget < 0
+                || budget > ConnectionTable.DAY)
+            throw new IllegalArgumentException();
+        this.map = map;
+        this.start = start;
+        this.depart = depart;
+        this.budget = budget;
+        this.foot = foot;
+    }
+
+    @Override
+    public ServerResponse execute() {
+        Isochrone isochrone = new Isochrone(map, start, depart, budget, foot);
+        int[] nodes = isochrone.getNodes();
+        int[] arrivals = isochrone.getArrivals();
+        Graph graph = map.getGraph();
+        String[] stations = new String[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            stations[i] = graph.getName(nodes[i]);
+            arrivals[i] = Time.addDuration(arrivals[i], 0);
+        }
+        return new ReachableStations(stations, arrivals);
+    }
+}
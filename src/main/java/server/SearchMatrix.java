@@ -0,0 +1,118 @@
+package server;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import server.data.ServerResponse;
+import server.data.TravelMatrix;
+import server.map.ConnectionTable;
+import server.map.Graph;
+import server.map.Plan;
+import server.map.Time;
+
+/**
+ * Calcule la matrice des temps de trajet ou des distances entre des départs et des arrivées
+ *
+ * <p>
+ * Chaque départ donne lieu à une seule recherche sans destination : {@link Isochrone} en temps,
+ * arrêtée dès que les arrivées ne peuvent plus être améliorées, et {@link Dijkstra} en distance.
+ * Les départs sont répartis sur les threads du {@link java.util.concurrent.ForkJoinPool} commun ;
+ * tous lisent le même plan et chacun écrit sa propre ligne de la matrice.
+ */
+public class SearchMatrix implements ServerActionCallback {
+    /**
+     * Le plan où chercher les trajets
+     */
+    private final Plan map;
+    /**
+     * Les noms des stations de départ ou des coordonnées
+     */
+    private final String[] origins;
+    /**
+     * Les noms des stations d'arrivée
+     */
+    private final String[] destinations;
+    /**
+     * L'horaire de départ
+     */
+    private final Time depart;
+    /**
+     * Si la matrice contient des distances plutôt que des temps de trajet
+     */
+    private final boolean distOpt;
+    /**
+     * S'il peut y avoir des sections à pied
+     */
+    private final boolean foot;
+
+    /**
+     * @param map le plan où chercher les trajets
+     * @param origins les noms des stations de départ ou des coordonnées
+     * @param destinations les noms des stations d'arrivée
+     * @param depart l'horaire de départ
+     * @param distOpt si la matrice contient des distances en mètres, au sens des trajets
+     *        optimisés en distance, plutôt que des temps de trajet en secondes
+     * @param foot s'il peut y avoir des sections à pied
+     * @throws IllegalArgumentException si un des arguments est {@code null} ou si un départ ou
+     *         une arrivée est {@code null}
+     */
+    public SearchMatrix(Plan map, String[] origins, String[] destinations, Time depart,
+            boolean distOpt, boolean foot) throws IllegalArgumentException {
+        if (map == null || origins == null || destinations == null || depart == null
+                || Arrays.asList(origins).contains(null)
+                || Arrays.asList(destinations).contains(null))
+            throw new IllegalArgumentException();
+        this.map = map;
+        this.origins = origins.clone();
+        this.destinations = destinations.clone();
+        this.depart = depart;
+        this.distOpt = distOpt;
+        this.foot = foot;
+    }
+
+    @Override
+    public ServerResponse execute() {
+        Graph graph = map.getGraph();
+        int[] targets = new int[destinations.length];
+        for (int j = 0; j < targets.length; j++)
+            targets[j] = graph.getId(destinations[j]);
+        int[] values = new int[origins.length * destinations.length];
+        IntStream.range(0, origins.length).parallel().forEach(i -> {
+            int[] row =
+                    distOpt ? distances(origins[i]) : durations(graph, origins[i], targets);
+            int offset = i * destinations.length;
+            for (int j = 0; j < targets.length; j++) {
+                int value = targets[j] == -1 ? Integer.MAX_VALUE : row[targets[j]];
+                values[offset + j] = value == Integer.MAX_VALUE ? TravelMatrix.UNREACHABLE : value;
+            }
+        });
+        return new TravelMatrix(origins.clone(), destinations.clone(), values);
+    }
+
+    /**
+     * @param origin le départ
+     * @return la distance depuis {@code origin} de chaque sommet du graphe,
+     *         {@link Integer#MAX_VALUE} s'il n'est pas atteignable
+     */
+    private int[] distances(String origin) {
+        return new Dijkstra(map, origin, null, true, foot).getWeights();
+    }
+
+    /**
+     * @param graph le graphe du plan
+     * @param origin le départ
+     * @param targets les sommets des arrivées
+     * @return le temps de trajet depuis {@code origin} vers chaque sommet de {@code targets},
+     *         {@link Integer#MAX_VALUE} s'il n'est pas atteignable en moins d'une journée
+     */
+    private int[] durations(Graph graph, String origin, int[] targets) {
+        Isochrone isochrone =
+                new Isochrone(map, origin, depart, ConnectionTable.DAY, foot, targets);
+        int[] nodes = isochrone.getNodes();
+        int[] arrivals = isochrone.getArrivals();
+        int[] row = new int[graph.nodeCount()];
+        Arrays.fill(row, Integer.MAX_VALUE);
+        for (int k = 0; k < nodes.length; k++)
+            row[nodes[k]] = arrivals[k] - depart.toSeconds();
+        return row;
+    }
+}
@@ -0,0 +1,75 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import server.Dijkstra.PathNotFoundException;
+import server.data.ErrorServer;
+import server.data.Route;
+import server.data.Routes;
+import server.data.ServerResponse;
+import server.map.Plan;
+import server.map.Section;
+import server.map.Time;
+
+/**
+ * Calcule les trajets du front de Pareto entre 2 stations selon l'horaire d'arrivée, le nombre de
+ * correspondances et la distance parcourue à pied, et les renvoie dans une seule réponse
+ */
+public class SearchParetoPaths implements ServerActionCallback {
+    /**
+     * Le plan où chercher les trajets
+     */
+    private final Plan map;
+    /**
+     * Le nom de la station de départ
+     */
+    private final String start;
+    /**
+     * Le nom de la station d'arrivé
+     */
+    private final String arrival;
+    /**
+     * L'horaire de départ
+     */
+    private final Time depart;
+    /**
+     * S'il peut y avoir des sections à pied
+     */
+    private final boolean foot;
+
+    /**
+     * @param map le plan où chercher les trajets
+     * @param start le nom de la station de départ
+     * @param arrival le nom de la station d'arrivé
+     * @param depart l'horaire de départ
+     * @param foot s'il peut y avoir des sections à pied
+     * @throws IllegalArgumentException si {@code map}, {@code start} ou {@code arrival} est
+     *         {@code null}
+     */
+    public SearchParetoPaths(Plan map, String start, String arrival, Time depart, boolean foot)
+            throws IllegalArgumentException {
+        if (map == null || start == null || arrival == null)
+            throw new IllegalArgumentException();
+        this.map = map;
+        this.start = start;
+        this.arrival = arrival;
+        this.depart = depart;
+        this.foot = foot;
+    }
+
+    @Override
+    public ServerResponse execute() {
+        try {
+            List<List<Section>> paths =
+                    new McRaptor(map, start, arrival, depart, foot).getParetoPaths();
+            List<Route> routes = new ArrayList<>(paths.size());
+            for (List<Section> sections : paths) {
+                sections.forEach(map::setLineName);
+                routes.add(new Route(sections));
+            }
+            return new Routes(routes);
+        } catch (PathNotFoundException e) {
+            return new ErrorServer("Trajet inexistant");
+        }
+    }
+}
@@ -14,6 +14,31 @@ import server.map.Time;
  * sections du trajet
  */
 public class SearchPath implements ServerActionCallback {
+    /**
+     * L'algorithme utilisé pour la recherche. Les trajets optimisés en distance utilisent la
+     * hiérarchie de contraction du plan, sauf avec {@link #DIJKSTRA} et {@link #BIDIRECTIONAL}.
+     * {@link #BIDIRECTIONAL} ne s'applique qu'aux trajets optimisés en distance.
+     */
+    public enum Algorithm {
+        CSA, DIJKSTRA, RAPTOR, BIDIRECTIONAL;
+
+        /**
+         * Retourne l'énumération correspondant à {@code s}, {@code null} sinon
+         *
+         * @param s Nom de l'énumération
+         * @return cas correspondant au nom de l'énumération
+         */
+        public static Algorithm ofString(String s) {
+            return switch (s) {
+                case "CSA" -> CSA;
+                case "DIJKSTRA" -> DIJKSTRA;
+                case "RAPTOR" -> RAPTOR;
+                case "BIDIRECTIONAL" -> BIDIRECTIONAL;
+                default -> null;
+            };
+        }
+    }
+
     /**
      * Le plan où chercher le trajet
      */
@@ -38,6 +63,10 @@ public class SearchPath implements ServerActionCallback {
      * S'il peut y avoir des sections à pied
      */
     private final boolean foot;
+    /**
+     * L'algorithme utilisé si optimisation en temps
+     */
+    private final Algorithm algorithm;
 
     /**
      * @param map le plan où chercher le trajet
@@ -51,7 +80,25 @@ public class SearchPath implements ServerActionCallback {
      */
     public SearchPath(Plan map, String start, String arrival, Time depart, boolean distOpt,
             boolean foot) throws IllegalArgumentException {
-        if (map == null || start == null || arrival == null)
+        this(map, start, arrival, depart, distOpt, foot, Algorithm.CSA);
+    }
+
+    /**
+     * @param map le plan où chercher le trajet
+     * @param start le nom de la station de départ
+     * @param arrival le nom de la station d'arrivé
+     * @param depart l'horaire de départ
+     * @param distOpt si optimisation en distance
+     * @param foot s'il peut y avoir des sections à pied
+     * @param algorithm l'algorithme utilisé
+     * @throws IllegalArgumentException si {@code map}, {@code start}, {@code arrival} ou
+     *         {@code algorithm} est {@code null}, ou si {@link Algorithm#BIDIRECTIONAL} est
+     *         demandé en optimisation en temps
+     */
+    public SearchPath(Plan map, String start, String arrival, Time depart, boolean distOpt,
+            boolean foot, Algorithm algorithm) throws IllegalArgumentException {
+        if (map == null || start == null || arrival == null || algorithm == null
+                || (!distOpt && algorithm == Algorithm.BIDIRECTIONAL))
             throw new IllegalArgumentException();
         this.map = map;
         this.start = start;
@@ -59,19 +106,37 @@ public class SearchPath implements ServerActionCallback {
         this.depart = depart;
         this.distOpt = distOpt;
         this.foot = foot;
+        this.algorithm = algorithm;
     }
 
     @Override
     public ServerResponse execute() {
         try {
-            List<Section> sections =
-                    new Dijkstra(map, start, arrival, depart, distOpt, foot).getPath();
+            List<Section> sections = newPathFinder().getPath();
             return sectionsToRoute(sections);
         } catch (PathNotFoundException e) {
             return new ErrorServer("Trajet inexistant");
         }
     }
 
+    /**
+     * @return l'algorithme de recherche adapté à la requête
+     */
+    private PathFinder newPathFinder() {
+        if (distOpt) {
+            return switch (algorithm) {
+                case DIJKSTRA -> new Dijkstra(map, start, arrival, depart, true, foot);
+                case BIDIRECTIONAL -> new BidirectionalDijkstra(map, start, arrival, depart, foot);
+                default -> new ContractionSearch(map, start, arrival, depart, foot);
+            };
+        }
+        return switch (algorithm) {
+            case DIJKSTRA -> new Dijkstra(map, start, arrival, depart, false, foot);
+            case RAPTOR -> new Raptor(map, start, arrival, depart, foot);
+            default -> new ConnectionScan(map, start, arrival, depart, foot);
+        };
+    }
+
     /**
      * Retire le variant de la ligne de chaque section dans {@code sections}
      *
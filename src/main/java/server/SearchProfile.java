@@ -0,0 +1,81 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import server.Dijkstra.PathNotFoundException;
+import server.data.ErrorServer;
+import server.data.Route;
+import server.data.Routes;
+import server.data.ServerResponse;
+import server.map.Plan;
+import server.map.Section;
+import server.map.Time;
+
+/**
+ * Calcule les trajets entre 2 stations pour les départs compris dans une plage horaire : chaque
+ * trajet renvoyé part plus tard que le précédent et arrive plus tard. Le dernier est le premier
+ * trajet possible en partant à la fin de la plage.
+ */
+public class SearchProfile implements ServerActionCallback {
+    /**
+     * Le plan où chercher les trajets
+     */
+    private final Plan map;
+    /**
+     * Le nom de la station de départ
+     */
+    private final String start;
+    /**
+     * Le nom de la station d'arrivé
+     */
+    private final String arrival;
+    /**
+     * Le début de la plage horaire de départ
+     */
+    private final Time from;
+    /**
+     * La fin de la plage horaire de départ
+     */
+    private final Time to;
+    /**
+     * S'il peut y avoir des sections à pied
+     */
+    private final boolean foot;
+
+    /**
+     * @param map le plan où chercher les trajets
+     * @param start le nom de la station de départ
+     * @param arrival le nom de la station d'arrivé
+     * @param from le début de la plage horaire de départ
+     * @param to la fin de la plage horaire de départ
+     * @param foot s'il peut y avoir des sections à pied
+     * @throws IllegalArgumentException si un argument autre que {@code foot} est {@code null}
+     */
+    public SearchProfile(Plan map, String start, String arrival, Time from, Time to,
+            boolean foot) throws IllegalArgumentException {
+        if (map == null || start == null || arrival == null || from == null || to == null)
+            throw new IllegalArgumentException();
+        this.map = map;
+        this.start = start;
+        this.arrival = arrival;
+        this.from = from;
+        this.to = to;
+        this.foot = foot;
+    }
+
+    @Override
+    public ServerResponse execute() {
+        try {
+            List<List<Section>> paths =
+                    new RangeRaptor(map, start, arrival, from, to, foot).getProfile();
+            List<Route> routes = new ArrayList<>(paths.size());
+            for (List<Section> sections : paths) {
+                sections.forEach(map::setLineName);
+                routes.add(new Route(sections));
+            }
+            return new Routes(routes);
+        } catch (PathNotFoundException e) {
+            return new ErrorServer("Trajet inexistant");
+        }
+    }
+}
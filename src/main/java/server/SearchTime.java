@@ -1,15 +1,14 @@
 package server;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 import server.data.DepartureTimes;
 import server.data.ServerResponse;
 import server.data.StationTime;
+import server.map.DepartureBoard;
+import server.map.Graph;
 import server.map.Line;
 import server.map.Plan;
-import server.map.Section;
 import server.map.Time;
 
 /**
@@ -50,32 +49,32 @@ public class SearchTime implements ServerActionCallback {
 
     @Override
     public ServerResponse execute() {
-        List<StationTime> allTime = departuresFromStation();
-        allTime.sort(Comparator.comparing(StationTime::getTime, Time::compareTo));
-        List<StationTime> afterTime =
-                new ArrayList<>(allTime.stream().filter(s -> time.compareTo(s.getTime()) < 0)
-                        .limit(LIMIT).collect(Collectors.toCollection(ArrayList::new)));
-        int nextDay = LIMIT - afterTime.size();
-        afterTime.addAll(
-                allTime.stream().limit(nextDay).collect(Collectors.toCollection(ArrayList::new)));
-        return new DepartureTimes(afterTime);
+        List<StationTime> times = new ArrayList<>(LIMIT);
+        Graph graph = map.getGraph();
+        int node = graph.getId(station);
+        if (node == -1)
+            return new DepartureTimes(times);
+        DepartureBoard board = graph.getDepartureBoard();
+        int start = board.boardStart(node);
+        int end = board.boardEnd(node);
+        for (int i = board.firstAfter(node, time.toSeconds()); i < end && times.size() < LIMIT;
+                i++)
+            times.add(toStationTime(graph, board, i));
+        int nextDay = Math.min(LIMIT - times.size(), end - start);
+        for (int i = start; i < start + nextDay; i++)
+            times.add(toStationTime(graph, board, i));
+        return new DepartureTimes(times);
     }
 
     /**
-     * @return la liste des horaires de départ {@code station}
+     * @param graph le graphe du plan
+     * @param board les tableaux des départs du graphe
+     * @param departure un départ de {@code board}
+     * @return l'horaire de passage correspondant au départ
      */
-    private List<StationTime> departuresFromStation() {
-        List<StationTime> times = new ArrayList<>();
-        List<Section> sectionsFromStation = map.getMap().get(station);
-        if (sectionsFromStation != null) {
-            for (Section s : sectionsFromStation) {
-                Line l = map.getLine(s);
-                if (l != null) {
-                    l.getDepartureTime(s).forEach(t -> times.add(
-                            new StationTime(l.getName(), l.getLast().getArrival().getName(), t)));
-                }
-            }
-        }
-        return times;
+    private static StationTime toStationTime(Graph graph, DepartureBoard board, int departure) {
+        Line l = graph.getLine(board.getLineId(departure));
+        return new StationTime(l.getName(), l.getLast().getArrival().getName(),
+                new Time(board.getTime(departure)));
     }
 }
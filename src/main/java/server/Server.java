@@ -2,14 +2,22 @@ package server;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketTimeoutException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import server.map.Plan;
@@ -22,19 +30,61 @@ import util.Logger;
 /**
  * Classe représetant le server avec lequel le client communique pour recupérer les Informations
  * dont il a besoin
+ *
+ * <p>
+ * En mode {@link Mode#SELECTOR}, un seul thread, celui de {@link #start()}, accepte les connexions
+ * et lit et écrit tous les sockets, qui sont non bloquants. Seules les requêtes complètes sont
+ * confiées au pool de threads de calcul : un client connecté sans rien demander ne coûte pas de
+ * thread. En mode {@link Mode#VIRTUAL_THREADS}, chaque client est servi par un
+ * {@link BlockingClientHandler} sur son propre thread virtuel, et les calculs passent par le même
+ * pool de threads de calcul.
  */
 public class Server {
 
     /**
-     * Nombres de threads par default utilsés par le server
+     * La façon dont le server gère les connexions de ses clients
      */
-    private static final int DEFAULT_POOL_SIZE = 10; // Totalement abitraire pour l'instant
+    public enum Mode {
+        /**
+         * Une boucle de sélection sur des sockets non bloquants
+         */
+        SELECTOR,
+        /**
+         * Un thread virtuel bloquant par client. Les threads virtuels demandent Java 21 : sur une
+         * JVM plus ancienne, le server passe en mode {@link #SELECTOR}
+         */
+        VIRTUAL_THREADS;
+
+        /**
+         * Retourne l'énumération correspondant à {@code s}, {@code null} sinon
+         *
+         * @param s Nom de l'énumération
+         * @return cas correspondant au nom de l'énumération
+         */
+        public static Mode ofString(String s) {
+            return switch (s) {
+                case "SELECTOR" -> SELECTOR;
+                case "VIRTUAL_THREADS" -> VIRTUAL_THREADS;
+                default -> null;
+            };
+        }
+    }
+
+    /**
+     * Nombres de threads de calcul par default utilsés par le server
+     */
+    private static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors();
 
     /**
      * Nombres de connexions simultanées que le server gère.
      */
     public static final int DEFAULT_BACKLOG = 50;
 
+    /**
+     * Mode par défaut de gestion des connexions
+     */
+    public static final Mode DEFAULT_MODE = Mode.SELECTOR;
+
     /**
      * Nombres de secondes laissées aux threads lancés pour se terminer avant la fermeture de tous
      * les threads
@@ -44,18 +94,39 @@ public class Server {
     /**
      * Le socket du server
      */
-    private ServerSocket serverSocket;
+    private final ServerSocketChannel serverChannel;
+
+    /**
+     * Le sélecteur sur le socket du server et ceux des clients en mode {@link Mode#SELECTOR},
+     * {@code null} sinon
+     */
+    private final Selector selector;
+
+    /**
+     * Les actions à exécuter par le thread de la boucle de sélection
+     */
+    private final Queue<Runnable> loopTasks;
 
     /**
      * Determine si le server est toujours en train de tourner, et donc à accepter de connexions
      */
-    private boolean isRunning;
+    private volatile boolean isRunning;
 
     /**
-     * Ensemble des threads que le server dispose pour gérer les réponses à envoyer
+     * Ensemble des threads que le server dispose pour calculer les réponses à envoyer
      */
     private final ExecutorService threadPool;
 
+    /**
+     * La façon dont le server gère les connexions de ses clients
+     */
+    private final Mode mode;
+
+    /**
+     * Les threads des clients en mode {@link Mode#VIRTUAL_THREADS}, {@code null} sinon
+     */
+    private final ExecutorService clientThreads;
+
     /**
      * La console du server
      */
@@ -74,7 +145,7 @@ public class Server {
     /**
      * liste des clients
      */
-    private List<Socket> clients;
+    private final Set<SocketChannel> clients;
 
 
     /**
@@ -83,17 +154,26 @@ public class Server {
      * @param port                   Numero du port sur lequel le server doit etre lié
      * @param withConsole            Determine si l'entrée standart doit etre ecoutée
      * @param maxIncommingConnection Nombre de connexions simultanées que le server peut gérer 
-     * @param poolSize               Nombre de threads que le server peut utiliser
+     * @param poolSize               Nombre de threads de calcul que le server peut utiliser
+     * @param mode                   La façon dont le server gère les connexions de ses clients
      * @throws IOException           si une erreur arrive lors de la manipulation des entrées/sorties du socket
      */
-    private Server(Plan plan, int port, boolean withConsole, int maxIncommingConnection, int poolSize) throws IOException {
+    private Server(Plan plan, int port, boolean withConsole, int maxIncommingConnection, int poolSize, Mode mode) throws IOException {
+        if (mode == null)
+            throw new IllegalArgumentException();
         this.isRunning = false;
         this.threadPool = Executors.newFixedThreadPool(poolSize);
-        this.serverSocket = new ServerSocket(port, maxIncommingConnection);
+        this.clientThreads = mode == Mode.VIRTUAL_THREADS ? newClientThreads() : null;
+        this.mode = clientThreads == null ? Mode.SELECTOR : mode;
+        this.selector = this.mode == Mode.SELECTOR ? Selector.open() : null;
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(port), maxIncommingConnection);
+        this.serverChannel.configureBlocking(this.mode == Mode.VIRTUAL_THREADS);
+        this.loopTasks = new ConcurrentLinkedQueue<>();
         this.serverConsole = withConsole ? new ServerConsole(this): null;
         this.consoleThread = withConsole ? new Thread(serverConsole): null;
         this.plan = plan;
-        this.clients = new ArrayList<>();
+        this.clients = ConcurrentHashMap.newKeySet();
     }
 
     /**
@@ -102,12 +182,26 @@ public class Server {
      * @param port                   Numero du port sur lequel le server doit etre lié
      * @param withConsole            Determine si l'entrée standart doit etre ecoutée
      * @param maxIncommingConnection Nombre de connexions simultanées que le server peut gérer 
-     * @param poolSize               Nombre de threads que le server peut utiliser
+     * @param poolSize               Nombre de threads de calcul que le server peut utiliser
      * @throws IOException           si une erreur arrive lors de la manipulation des entrées/sorties du socket
      */
     public Server(String csvMapPath, int port, boolean withConsole, int maxIncommingConnection, int poolSize) throws IOException, 
         IncorrectFileFormatException, IllegalArgumentException {
-            this( PlanParser.planFromSectionCSV(csvMapPath), port, withConsole, maxIncommingConnection, poolSize);
+            this( PlanParser.planFromSectionCSV(csvMapPath), port, withConsole, maxIncommingConnection, poolSize, DEFAULT_MODE);
+    }
+
+    /**
+     * 
+     * @param csvMapPath             chemin vers le ficher csv contenant les stations
+     * @param port                   Numero du port sur lequel le server doit etre lié
+     * @param withConsole            Determine si l'entrée standart doit etre ecoutée
+     * @param maxIncommingConnection Nombre de connexions simultanées que le server peut gérer 
+     * @param mode                   La façon dont le server gère les connexions de ses clients
+     * @throws IOException           si une erreur arrive lors de la manipulation des entrées/sorties du socket
+     */
+    public Server(String csvMapPath, int port, boolean withConsole, int maxIncommingConnection, Mode mode) throws IOException, 
+        IncorrectFileFormatException, IllegalArgumentException {
+            this( PlanParser.planFromSectionCSV(csvMapPath), port, withConsole, maxIncommingConnection, DEFAULT_POOL_SIZE, mode);
     }
 
     /**
@@ -149,29 +243,146 @@ public class Server {
     }
 
     /**
-     * Demarre le server
+     * Crée l'exécuteur des threads des clients. S'il n'existe pas, le server passe en mode
+     * {@link Mode#SELECTOR} et le signale dans le journal avec la raison.
+     *
+     * @return un exécuteur lançant un thread virtuel par tâche, ou {@code null} si la JVM n'a pas
+     *         de threads virtuels (avant Java 21, ou en aperçu non activé)
+     */
+    private static ExecutorService newClientThreads() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            Throwable reason = e instanceof InvocationTargetException ? e.getCause() : e;
+            Logger.error(String.format(
+                    "Threads virtuels indisponibles sur Java %d (%s) : le mode VIRTUAL_THREADS "
+                            + "est remplacé par le mode SELECTOR",
+                    Runtime.version().feature(), reason));
+            return null;
+        }
+    }
+
+    /**
+     * Demarre le server jusqu'à son arrêt
      */
     public void start() {
         isRunning = true;
         startConsole();
+        if (mode == Mode.VIRTUAL_THREADS)
+            acceptLoop();
+        else
+            selectLoop();
+
+        try {
+            stop();
+        } catch (IOException e) {
+            Logger.error("Impossible de fermer le socket");
+        }
+    }
+
+    /**
+     * Accepte les connexions et lance un {@link BlockingClientHandler} par client
+     */
+    private void acceptLoop() {
         while ( isRunning ) {
             try {
-                Socket clientSocket = serverSocket.accept();
-                clients.add(clientSocket);
-                ClientHandler requestHandler = new ClientHandler(this, clientSocket);
-                threadPool.execute(requestHandler);
-            } catch (SocketTimeoutException e) {
-                Logger.info("timeout");
+                SocketChannel clientChannel = serverChannel.accept();
+                clients.add(clientChannel);
+                clientThreads.execute(new BlockingClientHandler(this::getPlan, threadPool,
+                        clientChannel));
+            } catch (RejectedExecutionException e) {
+                Logger.info("server arrêté");
             } catch (IOException e) {
                 Logger.info("ioexception");
             }
             removeCloseClientSocket();
         }
+    }
 
+    /**
+     * Boucle de sélection sur le socket du server et ceux des clients
+     */
+    private void selectLoop() {
         try {
-            stop();
-        } catch (IOException e) {
-            Logger.error("Impossible de fermer le socket");
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException | ClosedSelectorException e) {
+            Logger.error("Impossible d'écouter le socket");
+            isRunning = false;
+        }
+        while ( isRunning ) {
+            try {
+                selector.select();
+                runLoopTasks();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    ClientHandler requestHandler = (ClientHandler) key.attachment();
+                    if (key.isReadable())
+                        requestHandler.read();
+                    if (key.isValid() && key.isWritable())
+                        requestHandler.write();
+                }
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (IOException e) {
+                Logger.info("ioexception");
+            }
+            removeCloseClientSocket();
+        }
+    }
+
+    /**
+     * Accepte les connexions en attente et les enregistre dans le sélecteur
+     *
+     * @throws IOException si une erreur arrive lors de la manipulation du socket du server
+     */
+    private void accept() throws IOException {
+        SocketChannel clientChannel;
+        while ((clientChannel = serverChannel.accept()) != null) {
+            clientChannel.configureBlocking(false);
+            clients.add(clientChannel);
+            SelectionKey key = clientChannel.register(selector, SelectionKey.OP_READ);
+            key.attach(new ClientHandler(this, clientChannel, key));
+        }
+    }
+
+    /**
+     * Exécute les actions demandées par les threads de calcul
+     */
+    private void runLoopTasks() {
+        Runnable task;
+        while ((task = loopTasks.poll()) != null)
+            task.run();
+    }
+
+    /**
+     * Demande l'exécution d'une action par le thread de la boucle de sélection
+     *
+     * @param task l'action
+     */
+    void runInLoop(Runnable task) {
+        loopTasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Confie un calcul au pool de threads du server
+     *
+     * @param task le calcul
+     */
+    void compute(Runnable task) {
+        try {
+            threadPool.execute(task);
+        } catch (RejectedExecutionException e) {
+            Logger.info("server arrêté");
         }
     }
 
@@ -193,11 +404,22 @@ public class Server {
      */
     public void stop() throws IOException {
 
-        tearDown();
         isRunning = false;
-        if (!serverSocket.isClosed()) {
-            serverSocket.close();
+        tearDown();
+        if (serverChannel.isOpen()) {
+            serverChannel.close();
         }
+        if (selector != null && selector.isOpen()) {
+            selector.close();
+        }
+    }
+
+    /**
+     * @return la façon dont le server gère les connexions de ses clients, {@link Mode#SELECTOR}
+     *         si les threads virtuels demandés ne sont pas disponibles
+     */
+    public Mode getMode() {
+        return mode;
     }
 
     /**
@@ -219,6 +441,9 @@ public class Server {
         try {
             closeSockets();
             stopConsole();
+            if (clientThreads != null)
+                clientThreads.shutdownNow();
+            threadPool.shutdown();
             if (!threadPool.awaitTermination(AWAIT_TIME_BEFORE_DYING, TimeUnit.SECONDS) ) {
                 threadPool.shutdownNow();
             }
@@ -229,16 +454,16 @@ public class Server {
     }
 
     private void removeCloseClientSocket() {
-        clients.removeIf(Socket::isClosed);
+        clients.removeIf(channel -> !channel.isOpen());
     }
 
     /**
      * Ferme tous les sockets des clients
      */
     private void closeSockets() {
-        for (Socket socket : clients) {
+        for (SocketChannel socket : clients) {
             try {
-                if (!socket.isClosed())
+                if (socket.isOpen())
                     socket.close();
             } catch (IOException e) {
                 Logger.error("Arrive lors de la fermeture d'un socket");
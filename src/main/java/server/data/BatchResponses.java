@@ -0,0 +1,25 @@
+package server.data;
+
+import java.io.Serial;
+import java.util.List;
+
+
+/**
+ * Classe représentant les réponses à plusieurs requêtes envoyées dans un seul message, dans
+ * l'ordre des requêtes
+ */
+public class BatchResponses implements ServerResponse {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final List<ServerResponse> responses;
+
+    public BatchResponses(List<ServerResponse> responses) {
+        this.responses = responses;
+    }
+
+    public List<ServerResponse> getResponses() {
+        return responses;
+    }
+}
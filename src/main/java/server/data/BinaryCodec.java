@@ -0,0 +1,450 @@
+package server.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import server.data.SuggestionStations.SuggestionKind;
+import server.map.Section;
+import server.map.Station;
+import server.map.StationInfo;
+import server.map.Time;
+
+/**
+ * Encodage binaire compact des réponses du server, plus léger que la sérialisation Java.
+ *
+ * <p>
+ * Une réponse forme une trame : sa longueur en octets sur 4 octets, puis la version du format, le
+ * dictionnaire des chaînes de caractères (noms de stations, de lignes, messages), la table des
+ * stations (un nom du dictionnaire et une coordonnée), et enfin le type de la réponse suivi de son
+ * contenu. Le contenu ne désigne les chaînes et les stations que par leur indice dans ces tables,
+ * ce qui évite de répéter un même nom ou une même station. Les entiers sont écrits en longueur
+ * variable (7 bits par octet), les entiers signés en zigzag.
+ */
+public final class BinaryCodec {
+
+    /**
+     * Version du format produit par {@link #encode(ServerResponse)}
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Taille maximale d'une trame acceptée par {@link #decode(InputStream)}
+     */
+    private static final int MAX_FRAME_LENGTH = 1 << 26;
+
+    private static final int ERROR = 0;
+    private static final int ROUTE = 1;
+    private static final int ROUTES = 2;
+    private static final int DEPARTURE_TIMES = 3;
+    private static final int SUGGESTIONS = 4;
+    private static final int REACHABLE_STATIONS = 5;
+    private static final int BATCH = 6;
+    private static final int MATRIX = 7;
+    private static final int PROTOCOL = 8;
+
+    private BinaryCodec() {}
+
+    /**
+     * Encode une réponse en une trame
+     *
+     * @param response la réponse
+     * @return la trame, longueur comprise
+     * @throws IllegalArgumentException si le type de la réponse n'est pas connu
+     */
+    public static byte[] encode(ServerResponse response) throws IllegalArgumentException {
+        try {
+            Encoder encoder = new Encoder();
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            encoder.writeResponse(new DataOutputStream(payload), response);
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream(payload.size() + 64);
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeByte(VERSION);
+            writeVarint(out, encoder.strings.size());
+            for (String s : encoder.strings) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                writeVarint(out, bytes.length);
+                out.write(bytes);
+            }
+            writeVarint(out, encoder.stations.size());
+            for (Station station : encoder.stations) {
+                writeVarint(out, encoder.string(station.getName()));
+                out.writeDouble(station.getCoordinate().getLatitude());
+                out.writeDouble(station.getCoordinate().getLongitude());
+            }
+            payload.writeTo(out);
+
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(body.size() + 4);
+            new DataOutputStream(frame).writeInt(body.size());
+            body.writeTo(frame);
+            return frame.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Lit une trame et décode la réponse qu'elle contient
+     *
+     * @param in le flux où lire la trame
+     * @return la réponse
+     * @throws EOFException si le flux se termine avant la fin de la trame
+     * @throws IOException si la trame est mal formée ou d'une version inconnue
+     */
+    public static ServerResponse decode(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int length = data.readInt();
+        if (length <= 0 || length > MAX_FRAME_LENGTH)
+            throw new IOException("Longueur de trame incorrecte : " + length);
+        byte[] body = new byte[length];
+        data.readFully(body);
+        return decodeBody(new DataInputStream(new ByteArrayInputStream(body)));
+    }
+
+    /**
+     * @param in le contenu d'une trame, sans sa longueur
+     * @return la réponse
+     * @throws IOException si la trame est mal formée ou d'une version inconnue
+     */
+    private static ServerResponse decodeBody(DataInputStream in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION)
+            throw new IOException("Version de format inconnue : " + version);
+        String[] strings = new String[readCount(in)];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[readCount(in)];
+            in.readFully(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        Station[] stations = new Station[readCount(in)];
+        for (int i = 0; i < stations.length; i++)
+            stations[i] = new Station(strings[readIndex(in, strings.length)], in.readDouble(),
+                    in.readDouble());
+        return new Decoder(in, strings, stations).readResponse();
+    }
+
+    /**
+     * Construit les tables de la trame en même temps que son contenu
+     */
+    private static final class Encoder {
+        /**
+         * Les chaînes du dictionnaire, dans l'ordre de leur indice
+         */
+        private final List<String> strings = new ArrayList<>();
+        /**
+         * L'indice de chaque chaîne du dictionnaire
+         */
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        /**
+         * Les stations, dans l'ordre de leur indice
+         */
+        private final List<Station> stations = new ArrayList<>();
+        /**
+         * L'indice de chaque station
+         */
+        private final Map<Station, Integer> stationIds = new HashMap<>();
+
+        /**
+         * @param s une chaîne
+         * @return l'indice de {@code s} dans le dictionnaire, ajoutée si besoin
+         */
+        private int string(String s) {
+            Integer id = stringIds.get(s);
+            if (id == null) {
+                id = strings.size();
+                strings.add(s);
+                stringIds.put(s, id);
+            }
+            return id;
+        }
+
+        /**
+         * @param station une station
+         * @return l'indice de {@code station} dans la table des stations, ajoutée si besoin
+         */
+        private int station(Station station) {
+            Integer id = stationIds.get(station);
+            if (id == null) {
+                id = stations.size();
+                stations.add(station);
+                stationIds.put(station, id);
+                string(station.getName());
+            }
+            return id;
+        }
+
+        /**
+         * Écrit une chaîne qui peut être {@code null} : 0 pour {@code null}, son indice plus 1
+         * sinon
+         */
+        private void writeNullableString(DataOutputStream out, String s) throws IOException {
+            writeVarint(out, s == null ? 0 : string(s) + 1);
+        }
+
+        private void writeResponse(DataOutputStream out, ServerResponse response)
+                throws IOException {
+            if (response instanceof ErrorServer error) {
+                out.writeByte(ERROR);
+                writeNullableString(out, error.getError());
+            } else if (response instanceof Route route) {
+                out.writeByte(ROUTE);
+                writeRoute(out, route);
+            } else if (response instanceof Routes routes) {
+                out.writeByte(ROUTES);
+                writeVarint(out, routes.getRoutes().size());
+                for (Route route : routes.getRoutes())
+                    writeRoute(out, route);
+            } else if (response instanceof DepartureTimes times) {
+                out.writeByte(DEPARTURE_TIMES);
+                writeVarint(out, times.getTimes().size());
+                for (StationTime time : times.getTimes()) {
+                    writeNullableString(out, time.getLine());
+                    writeNullableString(out, time.getStation());
+                    writeVarint(out, time.getTime() == null ? 0 : time.getTime().toSeconds() + 1);
+                }
+            } else if (response instanceof SuggestionStations suggestions) {
+                out.writeByte(SUGGESTIONS);
+                SuggestionKind kind = suggestions.getKind();
+                writeVarint(out, kind == null ? 0 : kind.ordinal() + 1);
+                writeVarint(out, suggestions.getStations().size());
+                for (StationInfo info : suggestions.getStations()) {
+                    writeNullableString(out, info.getStationName());
+                    Set<String> lines = info.getLines();
+                    writeVarint(out, lines.size());
+                    for (String line : lines)
+                        writeNullableString(out, line);
+                }
+            } else if (response instanceof ReachableStations reachable) {
+                out.writeByte(REACHABLE_STATIONS);
+                String[] names = reachable.getStations();
+                int[] arrivals = reachable.getArrivals();
+                writeVarint(out, names.length);
+                for (int i = 0; i < names.length; i++) {
+                    writeNullableString(out, names[i]);
+                    writeZigZag(out, arrivals[i]);
+                }
+            } else if (response instanceof BatchResponses batch) {
+                out.writeByte(BATCH);
+                writeVarint(out, batch.getResponses().size());
+                for (ServerResponse r : batch.getResponses())
+                    writeResponse(out, r);
+            } else if (response instanceof TravelMatrix matrix) {
+                out.writeByte(MATRIX);
+                writeNames(out, matrix.getOrigins());
+                writeNames(out, matrix.getDestinations());
+                for (int value : matrix.getValues())
+                    writeZigZag(out, value);
+            } else if (response instanceof ProtocolAccepted accepted) {
+                out.writeByte(PROTOCOL);
+                writeNullableString(out, accepted.getProtocol());
+                writeVarint(out, accepted.getVersion());
+            } else {
+                throw new IllegalArgumentException(
+                        "Réponse non encodable : " + response.getClass().getName());
+            }
+        }
+
+        private void writeNames(DataOutputStream out, String[] names) throws IOException {
+            writeVarint(out, names.length);
+            for (String name : names)
+                writeNullableString(out, name);
+        }
+
+        /**
+         * Écrit un trajet : le nombre de sections plus 1, 0 pour un trajet {@code null}, puis
+         * chaque section
+         */
+        private void writeRoute(DataOutputStream out, Route route) throws IOException {
+            List<Section> sections = route.getPathDistOpt();
+            writeVarint(out, sections == null ? 0 : sections.size() + 1);
+            if (sections == null)
+                return;
+            for (Section section : sections) {
+                writeVarint(out, station(section.getStart()));
+                writeVarint(out, station(section.getArrival()));
+                writeNullableString(out, section.getLine());
+                writeVarint(out, section.getTimeInSeconds() + 1);
+                writeZigZag(out, section.getDistance());
+                writeZigZag(out, section.getDuration());
+            }
+        }
+    }
+
+    /**
+     * Relit le contenu d'une trame à partir de ses tables
+     */
+    private static final class Decoder {
+        private final DataInputStream in;
+        private final String[] strings;
+        private final Station[] stations;
+
+        private Decoder(DataInputStream in, String[] strings, Station[] stations) {
+            this.in = in;
+            this.strings = strings;
+            this.stations = stations;
+        }
+
+        private String readNullableString() throws IOException {
+            int id = readIndex(in, strings.length + 1);
+            return id == 0 ? null : strings[id - 1];
+        }
+
+        private ServerResponse readResponse() throws IOException {
+            int type = in.readUnsignedByte();
+            switch (type) {
+                case ERROR:
+                    return new ErrorServer(readNullableString());
+                case ROUTE:
+                    return readRoute();
+                case ROUTES: {
+                    int n = readCount(in);
+                    List<Route> routes = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++)
+                        routes.add(readRoute());
+                    return new Routes(routes);
+                }
+                case DEPARTURE_TIMES: {
+                    int n = readCount(in);
+                    List<StationTime> times = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        String line = readNullableString();
+                        String station = readNullableString();
+                        int time = readVarint(in);
+                        times.add(new StationTime(line, station,
+                                time == 0 ? null : new Time(time - 1)));
+                    }
+                    return new DepartureTimes(times);
+                }
+                case SUGGESTIONS: {
+                    int kind = readIndex(in, SuggestionKind.values().length + 1);
+                    int n = readCount(in);
+                    Set<StationInfo> infos = new HashSet<>();
+                    for (int i = 0; i < n; i++) {
+                        StationInfo info = new StationInfo(readNullableString());
+                        int lines = readCount(in);
+                        for (int j = 0; j < lines; j++)
+                            info.addLine(readNullableString());
+                        infos.add(info);
+                    }
+                    return new SuggestionStations(infos,
+                            kind == 0 ? null : SuggestionKind.values()[kind - 1]);
+                }
+                case REACHABLE_STATIONS: {
+                    int n = readCount(in);
+                    String[] names = new String[n];
+                    int[] arrivals = new int[n];
+                    for (int i = 0; i < n; i++) {
+                        names[i] = readNullableString();
+                        arrivals[i] = readZigZag(in);
+                    }
+                    return new ReachableStations(names, arrivals);
+                }
+                case BATCH: {
+                    int n = readCount(in);
+                    List<ServerResponse> responses = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++)
+                        responses.add(readResponse());
+                    return new BatchResponses(responses);
+                }
+                case MATRIX: {
+                    String[] origins = readNames();
+                    String[] destinations = readNames();
+                    int[] values = new int[Math.multiplyExact(origins.length, destinations.length)];
+                    for (int i = 0; i < values.length; i++)
+                        values[i] = readZigZag(in);
+                    return new TravelMatrix(origins, destinations, values);
+                }
+                case PROTOCOL:
+                    return new ProtocolAccepted(readNullableString(), readVarint(in));
+                default:
+                    throw new IOException("Type de réponse inconnu : " + type);
+            }
+        }
+
+        private String[] readNames() throws IOException {
+            String[] names = new String[readCount(in)];
+            for (int i = 0; i < names.length; i++)
+                names[i] = readNullableString();
+            return names;
+        }
+
+        private Route readRoute() throws IOException {
+            int n = readVarint(in);
+            if (n == 0)
+                return new Route(null);
+            List<Section> sections = new ArrayList<>(n - 1);
+            for (int i = 1; i < n; i++) {
+                Station start = stations[readIndex(in, stations.length)];
+                Station arrival = stations[readIndex(in, stations.length)];
+                String line = readNullableString();
+                int time = readVarint(in) - 1;
+                int distance = readZigZag(in);
+                int duration = readZigZag(in);
+                Section section = new Section(start, arrival, line, distance, duration);
+                section.setTime(time);
+                sections.add(section);
+            }
+            return new Route(sections);
+        }
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static void writeZigZag(DataOutputStream out, int value) throws IOException {
+        writeVarint(out, (value << 1) ^ (value >> 31));
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Entier mal formé");
+    }
+
+    private static int readZigZag(DataInputStream in) throws IOException {
+        int value = readVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return un nombre d'éléments, borné par ce qui reste à lire pour refuser une trame
+     *         corrompue avant d'allouer
+     */
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = readVarint(in);
+        if (count < 0 || count > in.available())
+            throw new IOException("Nombre d'éléments incorrect : " + count);
+        return count;
+    }
+
+    /**
+     * @return un indice inférieur à {@code bound}
+     */
+    private static int readIndex(DataInputStream in, int bound) throws IOException {
+        int index = readVarint(in);
+        if (index < 0 || index >= bound)
+            throw new IOException("Indice incorrect : " + index);
+        return index;
+    }
+}
@@ -0,0 +1,210 @@
+package server.data;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonGeneratorFactory;
+import server.map.Section;
+import server.map.Station;
+import server.map.StationInfo;
+import server.map.Time;
+
+/**
+ * Encodage JSON des réponses du server, pour les clients qui ne sont pas écrits en Java.
+ *
+ * <p>
+ * Chaque réponse est un objet JSON écrit sur une seule ligne terminée par {@code '\n'}, ce qui
+ * suffit à séparer les réponses d'une même connexion. Le champ {@code type} donne la nature de la
+ * réponse : {@code ERROR}, {@code ROUTE}, {@code ROUTES}, {@code DEPARTURE_TIMES},
+ * {@code SUGGESTIONS}, {@code REACHABLE_STATIONS}, {@code BATCH}, {@code MATRIX} ou
+ * {@code PROTOCOL}. Les horaires et les durées sont en secondes, les distances en mètres.
+ *
+ * <p>
+ * L'objet est écrit au fil de l'eau par un {@link JsonGenerator}, sans construire de
+ * représentation intermédiaire de la réponse.
+ */
+public final class JsonCodec {
+
+    /**
+     * Version du format produit par {@link #write(ServerResponse, OutputStream)}
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Fabrique des générateurs, sans mise en forme pour que chaque réponse tienne sur une ligne
+     */
+    private static final JsonGeneratorFactory GENERATORS = Json.createGeneratorFactory(Map.of());
+
+    private JsonCodec() {}
+
+    /**
+     * Écrit une réponse suivie d'un retour à la ligne. Le flux n'est ni vidé ni fermé.
+     *
+     * @param response la réponse
+     * @param out le flux où écrire
+     * @throws IllegalArgumentException si le type de la réponse n'est pas connu
+     * @throws IOException si l'écriture échoue
+     */
+    public static void write(ServerResponse response, OutputStream out)
+            throws IllegalArgumentException, IOException {
+        OutputStream unclosable = new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() {}
+        };
+        try (JsonGenerator generator =
+                GENERATORS.createGenerator(unclosable, StandardCharsets.UTF_8)) {
+            writeResponse(generator, response);
+        } catch (JsonException e) {
+            if (e.getCause() instanceof IOException cause)
+                throw cause;
+            throw e;
+        }
+        out.write('\n');
+    }
+
+    private static void writeResponse(JsonGenerator generator, ServerResponse response) {
+        generator.writeStartObject();
+        if (response instanceof ErrorServer error) {
+            generator.write("type", "ERROR");
+            writeNullable(generator, "error", error.getError());
+        } else if (response instanceof Route route) {
+            generator.write("type", "ROUTE");
+            writeSections(generator, route.getPathDistOpt());
+        } else if (response instanceof Routes routes) {
+            generator.write("type", "ROUTES");
+            generator.writeStartArray("routes");
+            for (Route route : routes.getRoutes()) {
+                generator.writeStartObject();
+                writeSections(generator, route.getPathDistOpt());
+                generator.writeEnd();
+            }
+            generator.writeEnd();
+        } else if (response instanceof DepartureTimes times) {
+            generator.write("type", "DEPARTURE_TIMES");
+            generator.writeStartArray("times");
+            for (StationTime time : times.getTimes()) {
+                generator.writeStartObject();
+                writeNullable(generator, "line", time.getLine());
+                writeNullable(generator, "station", time.getStation());
+                if (time.getTime() == null)
+                    generator.writeNull("time");
+                else
+                    generator.write("time", time.getTime().toSeconds());
+                generator.writeEnd();
+            }
+            generator.writeEnd();
+        } else if (response instanceof SuggestionStations suggestions) {
+            generator.write("type", "SUGGESTIONS");
+            writeNullable(generator, "kind",
+                    suggestions.getKind() == null ? null : suggestions.getKind().name());
+            generator.writeStartArray("stations");
+            for (StationInfo info : suggestions.getStations()) {
+                generator.writeStartObject();
+                writeNullable(generator, "name", info.getStationName());
+                writeNames(generator, "lines", info.getLines().toArray(String[]::new));
+                generator.writeEnd();
+            }
+            generator.writeEnd();
+        } else if (response instanceof ReachableStations reachable) {
+            generator.write("type", "REACHABLE_STATIONS");
+            String[] names = reachable.getStations();
+            int[] arrivals = reachable.getArrivals();
+            generator.writeStartArray("stations");
+            for (int i = 0; i < names.length; i++) {
+                generator.writeStartObject();
+                writeNullable(generator, "name", names[i]);
+                generator.write("arrival", arrivals[i]);
+                generator.writeEnd();
+            }
+            generator.writeEnd();
+        } else if (response instanceof BatchResponses batch) {
+            generator.write("type", "BATCH");
+            generator.writeStartArray("responses");
+            for (ServerResponse r : batch.getResponses())
+                writeResponse(generator, r);
+            generator.writeEnd();
+        } else if (response instanceof TravelMatrix matrix) {
+            generator.write("type", "MATRIX");
+            writeNames(generator, "origins", matrix.getOrigins());
+            writeNames(generator, "destinations", matrix.getDestinations());
+            generator.writeStartArray("values");
+            for (int i = 0; i < matrix.getOrigins().length; i++) {
+                generator.writeStartArray();
+                for (int j = 0; j < matrix.getDestinations().length; j++)
+                    generator.write(matrix.get(i, j));
+                generator.writeEnd();
+            }
+            generator.writeEnd();
+        } else if (response instanceof ProtocolAccepted accepted) {
+            generator.write("type", "PROTOCOL");
+            writeNullable(generator, "protocol", accepted.getProtocol());
+            generator.write("version", accepted.getVersion());
+        } else {
+            throw new IllegalArgumentException(
+                    "Réponse non encodable : " + response.getClass().getName());
+        }
+        generator.writeEnd();
+    }
+
+    private static void writeNullable(JsonGenerator generator, String name, String value) {
+        if (value == null)
+            generator.writeNull(name);
+        else
+            generator.write(name, value);
+    }
+
+    private static void writeNames(JsonGenerator generator, String name, String[] names) {
+        generator.writeStartArray(name);
+        for (String s : names) {
+            if (s == null)
+                generator.writeNull();
+            else
+                generator.write(s);
+        }
+        generator.writeEnd();
+    }
+
+    /**
+     * Écrit le champ {@code sections} d'un trajet, {@code null} si le trajet n'existe pas
+     */
+    private static void writeSections(JsonGenerator generator, List<Section> sections) {
+        if (sections == null) {
+            generator.writeNull("sections");
+            return;
+        }
+        generator.writeStartArray("sections");
+        for (Section section : sections) {
+            generator.writeStartObject();
+            writeStation(generator, "start", section.getStart());
+            writeStation(generator, "arrival", section.getArrival());
+            writeNullable(generator, "line", section.getLine());
+            if (section.getTimeInSeconds() == Time.NO_TIME)
+                generator.writeNull("time");
+            else
+                generator.write("time", section.getTimeInSeconds());
+            generator.write("distance", section.getDistance());
+            generator.write("duration", section.getDuration());
+            generator.writeEnd();
+        }
+        generator.writeEnd();
+    }
+
+    private static void writeStation(JsonGenerator generator, String name, Station station) {
+        generator.writeStartObject(name);
+        writeNullable(generator, "name", station.getName());
+        generator.write("latitude", station.getCoordinate().getLatitude());
+        generator.write("longitude", station.getCoordinate().getLongitude());
+        generator.writeEnd();
+    }
+}
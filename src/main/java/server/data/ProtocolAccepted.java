@@ -0,0 +1,31 @@
+package server.data;
+
+import java.io.Serial;
+
+
+/**
+ * Classe représentant l'acceptation d'un format de réponse demandé par le client. Elle est
+ * envoyée dans le nouveau format : toutes les réponses suivantes de la connexion l'utilisent.
+ */
+public class ProtocolAccepted implements ServerResponse {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String protocol;
+
+    private final int version;
+
+    public ProtocolAccepted(String protocol, int version) {
+        this.protocol = protocol;
+        this.version = version;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,33 @@
+package server.data;
+
+import java.io.Serial;
+
+
+/**
+ * Classe représentant les stations atteignables depuis un départ dans un temps donné. Les deux
+ * tableaux sont parallèles : {@code arrivals[i]} est l'horaire d'arrivée au plus tôt à
+ * {@code stations[i]}, en secondes depuis minuit, et les stations sont triées par horaire
+ * d'arrivée.
+ */
+public class ReachableStations implements ServerResponse {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final String[] stations;
+
+    private final int[] arrivals;
+
+    public ReachableStations(String[] stations, int[] arrivals) {
+        this.stations = stations;
+        this.arrivals = arrivals;
+    }
+
+    public String[] getStations() {
+        return stations;
+    }
+
+    public int[] getArrivals() {
+        return arrivals;
+    }
+}
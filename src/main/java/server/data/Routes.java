@@ -0,0 +1,25 @@
+package server.data;
+
+import java.io.Serial;
+import java.util.List;
+
+
+/**
+ * Classe représentant plusieurs trajets possibles entre deux stations, aucun n'étant meilleur
+ * qu'un autre à la fois en horaire d'arrivée, en nombre de correspondances et en distance à pied
+ */
+public class Routes implements ServerResponse {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final List<Route> routes;
+
+    public Routes(List<Route> routes) {
+        this.routes = routes;
+    }
+
+    public List<Route> getRoutes() {
+        return routes;
+    }
+}
@@ -0,0 +1,58 @@
+package server.data;
+
+import java.io.Serial;
+
+
+/**
+ * Classe représentant la matrice des temps de trajet ou des distances entre des départs et des
+ * arrivées. Les valeurs sont rangées ligne par ligne dans un seul tableau : la valeur du départ
+ * {@code i} vers l'arrivée {@code j} est à l'indice {@code i * arrivées + j}.
+ */
+public class TravelMatrix implements ServerResponse {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Valeur d'une arrivée qui n'est pas atteignable depuis un départ
+     */
+    public static final int UNREACHABLE = -1;
+
+    private final String[] origins;
+
+    private final String[] destinations;
+
+    private final int[] values;
+
+    /**
+     * @param origins les départs
+     * @param destinations les arrivées
+     * @param values les valeurs rangées ligne par ligne, en secondes ou en mètres
+     */
+    public TravelMatrix(String[] origins, String[] destinations, int[] values) {
+        this.origins = origins;
+        this.destinations = destinations;
+        this.values = values;
+    }
+
+    public String[] getOrigins() {
+        return origins;
+    }
+
+    public String[] getDestinations() {
+        return destinations;
+    }
+
+    public int[] getValues() {
+        return values;
+    }
+
+    /**
+     * @param origin l'indice du départ
+     * @param destination l'indice de l'arrivée
+     * @return la valeur du départ vers l'arrivée ou {@link #UNREACHABLE}
+     */
+    public int get(int origin, int destination) {
+        return values[origin * destinations.length + destination];
+    }
+}
@@ -0,0 +1,178 @@
+package server.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ensemble des connexions élémentaires du réseau triées par horaire de départ, utilisé par
+ * l'algorithme Connection Scan.
+ *
+ * <p>
+ * Une connexion est le passage d'un train (un départ d'une ligne) sur une section : elle part à
+ * l'horaire de départ de la ligne augmenté de la durée cumulée depuis la section de départ de la
+ * ligne. Les horaires sont en secondes depuis minuit et peuvent dépasser une journée pour les
+ * trains qui roulent après minuit.
+ */
+public final class ConnectionTable {
+    /**
+     * Nombre de secondes dans une journée
+     */
+    public static final int DAY = 24 * 3600;
+    /**
+     * Valeur de {@link #getPreviousInTrip(int)} pour la première connexion d'un train
+     */
+    public static final int NO_CONNECTION = -1;
+
+    /**
+     * L'horaire de départ de chaque connexion, trié
+     */
+    private final int[] departures;
+    /**
+     * L'horaire d'arrivée de chaque connexion
+     */
+    private final int[] arrivals;
+    /**
+     * L'arête du graphe de chaque connexion
+     */
+    private final int[] edges;
+    /**
+     * Le train de chaque connexion
+     */
+    private final int[] trips;
+    /**
+     * La connexion précédente du même train ou {@link #NO_CONNECTION}
+     */
+    private final int[] previousInTrip;
+    /**
+     * Le nombre de trains
+     */
+    private final int tripCount;
+
+    /**
+     * Construit les connexions à partir des horaires de départ et des durées cumulées des lignes
+     *
+     * @param graph le graphe du réseau
+     */
+    ConnectionTable(Graph graph) {
+        int lineCount = graph.lineCount();
+        int[][] lineDepartures = new int[lineCount][];
+        int[] tripBase = new int[lineCount];
+        int trips = 0;
+        for (int l = 0; l < lineCount; l++) {
+            List<Time> times = graph.getLine(l).getDepartures();
+            lineDepartures[l] = new int[times.size()];
+            for (int i = 0; i < times.size(); i++)
+                lineDepartures[l][i] = times.get(i).toSeconds();
+            tripBase[l] = trips;
+            trips += times.size();
+        }
+        tripCount = trips;
+
+        List<Map<Section, Integer>> cumulated = new ArrayList<>(lineCount);
+        for (int l = 0; l < lineCount; l++)
+            cumulated.add(graph.getLine(l).getSectionsMap());
+        int[] offsets = new int[graph.edgeCount()];
+        int count = 0;
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            int l = graph.getLineId(e);
+            offsets[e] = -1;
+            if (l == Graph.NO_LINE)
+                continue;
+            Integer duration = cumulated.get(l).get(graph.getSection(e));
+            if (duration != null) {
+                offsets[e] = duration - graph.getDuration(e);
+                count += lineDepartures[l].length;
+            }
+        }
+
+        int[] unsortedDepartures = new int[count];
+        int[] unsortedEdges = new int[count];
+        int[] unsortedTrips = new int[count];
+        long[] keys = new long[count];
+        int c = 0;
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            if (offsets[e] < 0)
+                continue;
+            int l = graph.getLineId(e);
+            for (int i = 0; i < lineDepartures[l].length; i++) {
+                unsortedDepartures[c] = lineDepartures[l][i] + offsets[e];
+                unsortedEdges[c] = e;
+                unsortedTrips[c] = tripBase[l] + i;
+                keys[c] = ((long) unsortedDepartures[c] << 32) | c;
+                c++;
+            }
+        }
+        Arrays.sort(keys);
+
+        departures = new int[count];
+        arrivals = new int[count];
+        edges = new int[count];
+        this.trips = new int[count];
+        previousInTrip = new int[count];
+        int[] lastOfTrip = new int[tripCount];
+        Arrays.fill(lastOfTrip, NO_CONNECTION);
+        for (int i = 0; i < count; i++) {
+            int j = (int) keys[i];
+            departures[i] = unsortedDepartures[j];
+            edges[i] = unsortedEdges[j];
+            arrivals[i] = departures[i] + graph.getDuration(edges[i]);
+            this.trips[i] = unsortedTrips[j];
+            previousInTrip[i] = lastOfTrip[this.trips[i]];
+            lastOfTrip[this.trips[i]] = i;
+        }
+    }
+
+    /**
+     * @return le nombre de connexions
+     */
+    public int size() {
+        return departures.length;
+    }
+
+    /**
+     * @return le nombre de trains
+     */
+    public int tripCount() {
+        return tripCount;
+    }
+
+    public int getDeparture(int connection) {
+        return departures[connection];
+    }
+
+    public int getArrival(int connection) {
+        return arrivals[connection];
+    }
+
+    public int getEdge(int connection) {
+        return edges[connection];
+    }
+
+    public int getTrip(int connection) {
+        return trips[connection];
+    }
+
+    public int getPreviousInTrip(int connection) {
+        return previousInTrip[connection];
+    }
+
+    /**
+     * @param time un horaire en secondes
+     * @return l'indice de la première connexion partant à {@code time} ou après, {@link #size()}
+     *         s'il n'y en a pas
+     */
+    public int firstAfter(int time) {
+        int low = 0;
+        int high = departures.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departures[mid] < time)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,510 @@
+package server.map;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PriorityQueue;
+
+/**
+ * Hiérarchie de contraction (Contraction Hierarchies) du réseau pour les trajets optimisés en
+ * distance.
+ *
+ * <p>
+ * Les sommets de la hiérarchie sont les quais du {@link Graph}. Les arcs d'origine sont les
+ * sections, les correspondances entre les quais d'une même station et, si demandé, les sections
+ * à pied de moins de {@link Graph#MAX_FOOT_DISTANCE} mètres, pondérées comme dans
+ * {@code Dijkstra}. Les quais sont contractés un par un : des raccourcis sont ajoutés entre leurs
+ * voisins lorsque le plus court chemin passait par le quai contracté. Une recherche
+ * bidirectionnelle n'a alors besoin que des arcs montants depuis le départ et des arcs
+ * descendants vers l'arrivée. Chaque raccourci connaît les deux arcs qu'il remplace, ce qui
+ * permet de retrouver les arcs d'origine du chemin.
+ */
+public final class ContractionHierarchy {
+    /**
+     * Valeur de {@link #getSection(int)} pour une correspondance entre deux quais d'une station
+     */
+    public static final int TRANSFER = -1;
+    /**
+     * Valeur de {@link #getSection(int)} pour une section à pied
+     */
+    public static final int FOOT = -2;
+    /**
+     * Valeur de {@link #getSection(int)} pour un raccourci
+     */
+    public static final int SHORTCUT = -3;
+    /**
+     * Le nombre maximal de quais visités par une recherche de témoin
+     */
+    private static final int WITNESS_LIMIT = 200;
+
+    /**
+     * Le quai de départ de chaque arc
+     */
+    private int[] arcFrom;
+    /**
+     * Le quai d'arrivée de chaque arc
+     */
+    private int[] arcTo;
+    /**
+     * Le poids de chaque arc
+     */
+    private int[] arcWeight;
+    /**
+     * L'arête du graphe de chaque arc, {@link #TRANSFER}, {@link #FOOT} ou {@link #SHORTCUT}
+     */
+    private int[] arcSection;
+    /**
+     * Le premier arc remplacé par chaque raccourci
+     */
+    private int[] arcFirst;
+    /**
+     * Le second arc remplacé par chaque raccourci
+     */
+    private int[] arcSecond;
+    /**
+     * Le nombre d'arcs
+     */
+    private int arcCount;
+    /**
+     * Le rang de contraction de chaque quai
+     */
+    private final int[] rank;
+    /**
+     * Le premier arc montant de chaque quai, {@code upOffsets[p + 1]} est la fin de l'intervalle
+     */
+    private final int[] upOffsets;
+    /**
+     * Les arcs vers un quai de rang supérieur, rangés par quai de départ
+     */
+    private final int[] upArcs;
+    /**
+     * Le premier arc descendant de chaque quai, {@code downOffsets[p + 1]} est la fin de
+     * l'intervalle
+     */
+    private final int[] downOffsets;
+    /**
+     * Les arcs depuis un quai de rang supérieur, rangés par quai d'arrivée
+     */
+    private final int[] downArcs;
+
+    /**
+     * Les arcs sortants de chaque quai pendant la construction
+     */
+    private int[][] out;
+    /**
+     * Le nombre d'arcs sortants de chaque quai pendant la construction
+     */
+    private int[] outSize;
+    /**
+     * Les arcs entrants de chaque quai pendant la construction
+     */
+    private int[][] in;
+    /**
+     * Le nombre d'arcs entrants de chaque quai pendant la construction
+     */
+    private int[] inSize;
+    /**
+     * Les arcs remplacés par un arc plus court entre les mêmes quais
+     */
+    private BitSet replaced;
+    /**
+     * Si chaque quai a déjà été contracté
+     */
+    private boolean[] contracted;
+    /**
+     * Distances des recherches de témoin
+     */
+    private int[] witness;
+    /**
+     * Le numéro de la recherche de témoin qui a atteint chaque quai
+     */
+    private int[] witnessStamp;
+    /**
+     * Le numéro de la recherche de témoin courante
+     */
+    private int witnessEpoch;
+
+    /**
+     * Construit la hiérarchie
+     *
+     * @param graph le graphe du réseau
+     * @param foot si les sections à pied font partie des arcs
+     */
+    ContractionHierarchy(Graph graph, boolean foot) {
+        int n = graph.platformCount();
+        arcFrom = new int[n * 4];
+        arcTo = new int[n * 4];
+        arcWeight = new int[n * 4];
+        arcSection = new int[n * 4];
+        arcFirst = new int[n * 4];
+        arcSecond = new int[n * 4];
+        out = new int[n][2];
+        outSize = new int[n];
+        in = new int[n][2];
+        inSize = new int[n];
+        replaced = new BitSet();
+        contracted = new boolean[n];
+        witness = new int[n];
+        witnessStamp = new int[n];
+
+        for (int e = 0; e < graph.edgeCount(); e++)
+            addArc(graph.getFromPlatform(e), graph.getToPlatform(e), graph.getDistance(e), e,
+                    -1, -1);
+        for (int u = 0; u < graph.nodeCount(); u++) {
+            for (int p = graph.platformStart(u); p < graph.platformEnd(u); p++) {
+                for (int q = graph.platformStart(u); q < graph.platformEnd(u); q++) {
+                    if (p != q)
+                        addArc(p, q, graph.transferDistance(p, q), TRANSFER, -1, -1);
+                }
+            }
+        }
+        if (foot) {
+            FootpathTable footpaths = graph.getFootpaths();
+            for (int p = 0; p < n; p++) {
+                for (int i = footpaths.footStart(p); i < footpaths.footEnd(p); i++) {
+                    int q = footpaths.getTarget(i);
+                    if (graph.getPlatformNode(p) != graph.getPlatformNode(q))
+                        addArc(p, q,
+                                (int) Math.round(footpaths.getDistance(i) * Graph.WEIGHT_FOOT),
+                                FOOT, -1, -1);
+                }
+            }
+        }
+
+        rank = new int[n];
+        contractAll(n);
+
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int a = 0; a < arcCount; a++) {
+            if (replaced.get(a))
+                continue;
+            if (rank[arcFrom[a]] < rank[arcTo[a]])
+                upOffsets[arcFrom[a] + 1]++;
+            else
+                downOffsets[arcTo[a] + 1]++;
+        }
+        for (int p = 0; p < n; p++) {
+            upOffsets[p + 1] += upOffsets[p];
+            downOffsets[p + 1] += downOffsets[p];
+        }
+        upArcs = new int[upOffsets[n]];
+        downArcs = new int[downOffsets[n]];
+        int[] upNext = Arrays.copyOf(upOffsets, n);
+        int[] downNext = Arrays.copyOf(downOffsets, n);
+        for (int a = 0; a < arcCount; a++) {
+            if (replaced.get(a))
+                continue;
+            if (rank[arcFrom[a]] < rank[arcTo[a]])
+                upArcs[upNext[arcFrom[a]]++] = a;
+            else
+                downArcs[downNext[arcTo[a]]++] = a;
+        }
+
+        arcFrom = Arrays.copyOf(arcFrom, arcCount);
+        arcTo = Arrays.copyOf(arcTo, arcCount);
+        arcWeight = Arrays.copyOf(arcWeight, arcCount);
+        arcSection = Arrays.copyOf(arcSection, arcCount);
+        arcFirst = Arrays.copyOf(arcFirst, arcCount);
+        arcSecond = Arrays.copyOf(arcSecond, arcCount);
+        out = null;
+        outSize = null;
+        in = null;
+        inSize = null;
+        replaced = null;
+        contracted = null;
+        witness = null;
+        witnessStamp = null;
+    }
+
+    /**
+     * Contracte les quais dans l'ordre de leur priorité, recalculée au moment où ils sortent de
+     * la file
+     *
+     * @param n le nombre de quais
+     */
+    private void contractAll(int n) {
+        int[] deleted = new int[n];
+        PriorityQueue<long[]> queue =
+                new PriorityQueue<>(n, (a, b) -> Long.compare(a[0], b[0]));
+        for (int p = 0; p < n; p++)
+            queue.add(new long[] {priority(p, deleted), p});
+        int order = 0;
+        while (!queue.isEmpty()) {
+            int p = (int) queue.poll()[1];
+            if (contracted[p])
+                continue;
+            long current = priority(p, deleted);
+            if (!queue.isEmpty() && current > queue.peek()[0]) {
+                queue.add(new long[] {current, p});
+                continue;
+            }
+            contract(p, true);
+            contracted[p] = true;
+            rank[p] = order++;
+            for (int i = 0; i < outSize[p]; i++)
+                deleted[arcTo[out[p][i]]]++;
+            for (int i = 0; i < inSize[p]; i++)
+                deleted[arcFrom[in[p][i]]]++;
+        }
+    }
+
+    /**
+     * @param p un quai non contracté
+     * @param deleted le nombre de voisins contractés de chaque quai
+     * @return la priorité de contraction de {@code p}, les plus petites d'abord
+     */
+    private long priority(int p, int[] deleted) {
+        int shortcuts = contract(p, false);
+        int degree = 0;
+        for (int i = 0; i < outSize[p]; i++)
+            degree += contracted[arcTo[out[p][i]]] ? 0 : 1;
+        for (int i = 0; i < inSize[p]; i++)
+            degree += contracted[arcFrom[in[p][i]]] ? 0 : 1;
+        return 2L * (shortcuts - degree) + deleted[p];
+    }
+
+    /**
+     * Calcule les raccourcis nécessaires à la contraction d'un quai
+     *
+     * @param p le quai
+     * @param add si les raccourcis sont ajoutés ou seulement comptés
+     * @return le nombre de raccourcis nécessaires
+     */
+    private int contract(int p, boolean add) {
+        int shortcuts = 0;
+        for (int i = 0; i < inSize[p]; i++) {
+            int first = in[p][i];
+            int v = arcFrom[first];
+            if (contracted[v])
+                continue;
+            int max = 0;
+            for (int j = 0; j < outSize[p]; j++) {
+                int w = arcTo[out[p][j]];
+                if (!contracted[w] && w != v)
+                    max = Math.max(max, arcWeight[first] + arcWeight[out[p][j]]);
+            }
+            if (max == 0)
+                continue;
+            witnessSearch(v, p, max);
+            for (int j = 0; j < outSize[p]; j++) {
+                int second = out[p][j];
+                int w = arcTo[second];
+                if (contracted[w] || w == v)
+                    continue;
+                int weight = arcWeight[first] + arcWeight[second];
+                if (witnessStamp[w] == witnessEpoch && witness[w] <= weight)
+                    continue;
+                shortcuts++;
+                if (add)
+                    addArc(v, w, weight, SHORTCUT, first, second);
+            }
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Recherche les plus courts chemins depuis {@code source} sans passer par {@code excluded}
+     * ni par un quai contracté
+     *
+     * @param source le quai de départ
+     * @param excluded le quai en cours de contraction
+     * @param max la distance au-delà de laquelle la recherche s'arrête
+     */
+    private void witnessSearch(int source, int excluded, int max) {
+        witnessEpoch++;
+        witnessStamp[source] = witnessEpoch;
+        witness[source] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        queue.add(new long[] {0, source});
+        int settled = 0;
+        while (!queue.isEmpty() && settled < WITNESS_LIMIT) {
+            long[] top = queue.poll();
+            int u = (int) top[1];
+            if (top[0] > witness[u])
+                continue;
+            if (top[0] > max)
+                break;
+            settled++;
+            for (int i = 0; i < outSize[u]; i++) {
+                int a = out[u][i];
+                int v = arcTo[a];
+                if (v == excluded || contracted[v])
+                    continue;
+                int d = witness[u] + arcWeight[a];
+                if (witnessStamp[v] != witnessEpoch || d < witness[v]) {
+                    witnessStamp[v] = witnessEpoch;
+                    witness[v] = d;
+                    queue.add(new long[] {d, v});
+                }
+            }
+        }
+    }
+
+    /**
+     * Ajoute un arc, ou remplace l'arc existant entre les mêmes quais s'il est plus long
+     *
+     * @param from le quai de départ
+     * @param to le quai d'arrivée
+     * @param weight le poids
+     * @param section l'arête du graphe, {@link #TRANSFER}, {@link #FOOT} ou {@link #SHORTCUT}
+     * @param first le premier arc remplacé par un raccourci
+     * @param second le second arc remplacé par un raccourci
+     */
+    private void addArc(int from, int to, int weight, int section, int first, int second) {
+        for (int i = 0; i < outSize[from]; i++) {
+            int a = out[from][i];
+            if (arcTo[a] != to)
+                continue;
+            if (arcWeight[a] <= weight)
+                return;
+            out[from][i] = out[from][--outSize[from]];
+            for (int j = 0; j < inSize[to]; j++) {
+                if (in[to][j] == a) {
+                    in[to][j] = in[to][--inSize[to]];
+                    break;
+                }
+            }
+            replaced.set(a);
+            break;
+        }
+        if (arcCount == arcFrom.length) {
+            int size = arcCount * 2;
+            arcFrom = Arrays.copyOf(arcFrom, size);
+            arcTo = Arrays.copyOf(arcTo, size);
+            arcWeight = Arrays.copyOf(arcWeight, size);
+            arcSection = Arrays.copyOf(arcSection, size);
+            arcFirst = Arrays.copyOf(arcFirst, size);
+            arcSecond = Arrays.copyOf(arcSecond, size);
+        }
+        int a = arcCount++;
+        arcFrom[a] = from;
+        arcTo[a] = to;
+        arcWeight[a] = weight;
+        arcSection[a] = section;
+        arcFirst[a] = first;
+        arcSecond[a] = second;
+        if (outSize[from] == out[from].length)
+            out[from] = Arrays.copyOf(out[from], outSize[from] * 2);
+        out[from][outSize[from]++] = a;
+        if (inSize[to] == in[to].length)
+            in[to] = Arrays.copyOf(in[to], inSize[to] * 2);
+        in[to][inSize[to]++] = a;
+    }
+
+    /**
+     * @return le nombre de quais
+     */
+    public int platformCount() {
+        return rank.length;
+    }
+
+    /**
+     * @return le nombre d'arcs, raccourcis et arcs remplacés compris
+     */
+    public int arcCount() {
+        return arcCount;
+    }
+
+    /**
+     * @return le nombre de raccourcis utilisés par la recherche
+     */
+    public int shortcutCount() {
+        int count = 0;
+        for (int a : upArcs)
+            count += arcSection[a] == SHORTCUT ? 1 : 0;
+        for (int a : downArcs)
+            count += arcSection[a] == SHORTCUT ? 1 : 0;
+        return count;
+    }
+
+    public int getRank(int platform) {
+        return rank[platform];
+    }
+
+    public int upStart(int platform) {
+        return upOffsets[platform];
+    }
+
+    public int upEnd(int platform) {
+        return upOffsets[platform + 1];
+    }
+
+    /**
+     * @param i un indice entre {@link #upStart(int)} et {@link #upEnd(int)}
+     * @return l'arc correspondant
+     */
+    public int getUpArc(int i) {
+        return upArcs[i];
+    }
+
+    public int downStart(int platform) {
+        return downOffsets[platform];
+    }
+
+    public int downEnd(int platform) {
+        return downOffsets[platform + 1];
+    }
+
+    /**
+     * @param i un indice entre {@link #downStart(int)} et {@link #downEnd(int)}
+     * @return l'arc correspondant
+     */
+    public int getDownArc(int i) {
+        return downArcs[i];
+    }
+
+    public int getFrom(int arc) {
+        return arcFrom[arc];
+    }
+
+    public int getTo(int arc) {
+        return arcTo[arc];
+    }
+
+    public int getWeight(int arc) {
+        return arcWeight[arc];
+    }
+
+    /**
+     * @param arc un arc
+     * @return l'arête du graphe de l'arc, {@link #TRANSFER}, {@link #FOOT} ou {@link #SHORTCUT}
+     */
+    public int getSection(int arc) {
+        return arcSection[arc];
+    }
+
+    /**
+     * @param arc un raccourci
+     * @return le premier arc remplacé par le raccourci
+     */
+    public int getFirst(int arc) {
+        return arcFirst[arc];
+    }
+
+    /**
+     * @param arc un raccourci
+     * @return le second arc remplacé par le raccourci
+     */
+    public int getSecond(int arc) {
+        return arcSecond[arc];
+    }
+
+    /**
+     * Ajoute à {@code path} les arcs d'origine d'un arc, dans l'ordre du chemin. Un plus court
+     * chemin passe au plus une fois par chaque quai, {@code path} de taille
+     * {@link #platformCount()} suffit donc pour un chemin complet.
+     *
+     * @param arc un arc
+     * @param path le tableau où écrire les arcs
+     * @param size le nombre d'arcs déjà dans {@code path}
+     * @return le nouveau nombre d'arcs dans {@code path}
+     */
+    public int unpack(int arc, int[] path, int size) {
+        if (arcSection[arc] != SHORTCUT) {
+            path[size] = arc;
+            return size + 1;
+        }
+        size = unpack(arcFirst[arc], path, size);
+        return unpack(arcSecond[arc], path, size);
+    }
+}
@@ -1,5 +1,7 @@
 package server.map;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.Objects;
@@ -28,10 +30,19 @@ public class Coordinate implements Serializable {
      * La longitude de la coordonnée en radian
      */
     private final double longitudeR;
+    /**
+     * Le cosinus de la latitude, hors du format sérialisé et recalculé à la lecture
+     */
+    private transient double cosLatitude;
     /**
      * Le rayon de la terre
      */
     private static final int EARTH_RADIUS = 6_371_000;
+    /**
+     * L'écart en radians de latitude ou de longitude au-delà duquel la distance n'est plus
+     * approchée (environ 30 km)
+     */
+    private static final double APPROXIMATION_LIMIT = 0.005;
 
     /**
      * @param latitude la latitude de la coordonnée en degrés décimaux
@@ -42,6 +53,7 @@ public class Coordinate implements Serializable {
         this.longitude = longitude;
         this.latitudeR = Math.toRadians(latitude);
         this.longitudeR = Math.toRadians(longitude);
+        this.cosLatitude = Math.cos(latitudeR);
     }
 
     public double getLatitude() {
@@ -58,14 +70,30 @@ public class Coordinate implements Serializable {
     }
 
     /**
+     * Calcule la distance à vol d'oiseau. Jusqu'à environ 30 km, la distance est approchée par
+     * une projection équirectangulaire, sans fonction trigonométrique : l'erreur reste inférieure
+     * à 10 cm. Au-delà, elle est calculée exactement avec la formule de haversine.
+     *
      * @param c une coordonnée
      * @return la distance en mètre avec la coordonnée {@code c}
      */
     public int getDistance(Coordinate c) {
-        double x = Math.sin(latitudeR) * Math.sin(c.latitudeR);
-        double y = Math.cos(latitudeR) * Math.cos(c.latitudeR);
-        double z = Math.cos(longitudeR - c.longitudeR);
-        return (int) Math.round(Math.acos(x + (y * z)) * EARTH_RADIUS);
+        double dLat = c.latitudeR - latitudeR;
+        double dLon = c.longitudeR - longitudeR;
+        if (Math.abs(dLat) > APPROXIMATION_LIMIT || Math.abs(dLon) > APPROXIMATION_LIMIT) {
+            double sinLat = Math.sin(dLat / 2);
+            double sinLon = Math.sin(dLon / 2);
+            double h = sinLat * sinLat + cosLatitude * c.cosLatitude * sinLon * sinLon;
+            return (int) Math.round(2 * Math.asin(Math.min(1, Math.sqrt(h))) * EARTH_RADIUS);
+        }
+        double x = dLon * (cosLatitude + c.cosLatitude) / 2;
+        return (int) Math.round(Math.sqrt(x * x + dLat * dLat) * EARTH_RADIUS);
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        cosLatitude = Math.cos(latitudeR);
     }
 
     @Override
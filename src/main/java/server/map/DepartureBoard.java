@@ -0,0 +1,112 @@
+package server.map;
+
+import java.util.Arrays;
+
+/**
+ * Tableaux des départs de chaque sommet du réseau, utilisés pour répondre aux demandes
+ * d'horaires.
+ *
+ * <p>
+ * Un départ est le passage d'un train d'une ligne sur une section partant du sommet, à l'horaire
+ * de départ de la ligne augmenté de la durée cumulée depuis la section de départ, ramené entre
+ * minuit et 24h. Les départs sont rangés au format CSR : ceux du sommet {@code v} sont les indices
+ * {@code [boardStart(v), boardEnd(v))}, triés par horaire puis dans l'ordre des arêtes du sommet
+ * et des départs de la ligne.
+ */
+public final class DepartureBoard {
+    /**
+     * Le premier départ de chaque sommet, {@code offsets[v + 1]} est la fin de l'intervalle
+     */
+    private final int[] offsets;
+    /**
+     * L'horaire de chaque départ en secondes depuis minuit
+     */
+    private final int[] times;
+    /**
+     * La ligne de chaque départ
+     */
+    private final int[] lineIds;
+
+    /**
+     * Construit les tableaux des départs à partir des horaires des lignes
+     *
+     * @param graph le graphe du réseau
+     */
+    DepartureBoard(Graph graph) {
+        int n = graph.nodeCount();
+        int[][] sectionTimes = new int[graph.edgeCount()][];
+        offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int count = 0;
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                Line line = graph.getLine(graph.getLineId(e));
+                sectionTimes[e] = line == null ? new int[0]
+                        : line.getDepartureSeconds(graph.getSection(e));
+                count += sectionTimes[e].length;
+            }
+            offsets[v + 1] = offsets[v] + count;
+        }
+        times = new int[offsets[n]];
+        lineIds = new int[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            int size = offsets[v + 1] - offsets[v];
+            long[] keys = new long[size];
+            int[] lineOf = new int[size];
+            int i = 0;
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                for (int t : sectionTimes[e]) {
+                    keys[i] = ((long) t << 32) | i;
+                    lineOf[i++] = graph.getLineId(e);
+                }
+            }
+            Arrays.sort(keys);
+            for (int k = 0; k < size; k++) {
+                times[offsets[v] + k] = (int) (keys[k] >>> 32);
+                lineIds[offsets[v] + k] = lineOf[(int) keys[k]];
+            }
+        }
+    }
+
+    /**
+     * @param node un sommet du graphe
+     * @return le premier départ du sommet
+     */
+    public int boardStart(int node) {
+        return offsets[node];
+    }
+
+    /**
+     * @param node un sommet du graphe
+     * @return la fin de l'intervalle des départs du sommet
+     */
+    public int boardEnd(int node) {
+        return offsets[node + 1];
+    }
+
+    /**
+     * @param node un sommet du graphe
+     * @param time un horaire en secondes depuis minuit
+     * @return le premier départ du sommet strictement après {@code time}, {@link #boardEnd(int)}
+     *         s'il n'y en a pas
+     */
+    public int firstAfter(int node, int time) {
+        int low = offsets[node];
+        int high = offsets[node + 1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] <= time)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    public int getTime(int departure) {
+        return times[departure];
+    }
+
+    public int getLineId(int departure) {
+        return lineIds[departure];
+    }
+}
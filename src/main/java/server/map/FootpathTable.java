@@ -0,0 +1,110 @@
+package server.map;
+
+import java.util.Arrays;
+
+/**
+ * Sections à pied précalculées entre les quais du réseau, utilisées par les recherches avec
+ * sections à pied.
+ *
+ * <p>
+ * Chaque quai est relié à tous les autres quais situés à moins de
+ * {@link Graph#MAX_FOOT_DISTANCE} mètres, y compris ceux du même sommet. Les sections sont
+ * rangées au format CSR : celles partant du quai {@code p} sont les indices
+ * {@code [footStart(p), footEnd(p))}, triées par quai d'arrivée.
+ */
+public final class FootpathTable {
+    /**
+     * La première section à pied de chaque quai, {@code offsets[p + 1]} est la fin de
+     * l'intervalle
+     */
+    private final int[] offsets;
+    /**
+     * Le quai d'arrivée de chaque section à pied
+     */
+    private final int[] targets;
+    /**
+     * La longueur en mètres de chaque section à pied
+     */
+    private final int[] distances;
+    /**
+     * La durée en secondes de chaque section à pied
+     */
+    private final int[] durations;
+
+    /**
+     * Calcule les sections à pied entre les quais du graphe
+     *
+     * @param graph le graphe du réseau
+     */
+    FootpathTable(Graph graph) {
+        int n = graph.platformCount();
+        SpatialIndex index = graph.getSpatialIndex();
+        int[][] close = new int[n][];
+        offsets = new int[n + 1];
+        for (int p = 0; p < n; p++) {
+            close[p] = index.withinRadius(graph.getPlatform(p), Graph.MAX_FOOT_DISTANCE);
+            int self = Arrays.binarySearch(close[p], p) >= 0 ? 1 : 0;
+            offsets[p + 1] = offsets[p] + close[p].length - self;
+        }
+        targets = new int[offsets[n]];
+        distances = new int[offsets[n]];
+        durations = new int[offsets[n]];
+        for (int p = 0; p < n; p++) {
+            Station station = graph.getPlatform(p);
+            int i = offsets[p];
+            for (int q : close[p]) {
+                if (q == p)
+                    continue;
+                targets[i] = q;
+                distances[i] = station.distanceBetween(graph.getPlatform(q));
+                durations[i] = Station.walkingDuration(distances[i]);
+                i++;
+            }
+        }
+    }
+
+    /**
+     * @return le nombre de sections à pied
+     */
+    public int size() {
+        return targets.length;
+    }
+
+    /**
+     * @param platform un quai du graphe
+     * @return la première section à pied partant de {@code platform}
+     */
+    public int footStart(int platform) {
+        return offsets[platform];
+    }
+
+    /**
+     * @param platform un quai du graphe
+     * @return la fin de l'intervalle des sections à pied partant de {@code platform}
+     */
+    public int footEnd(int platform) {
+        return offsets[platform + 1];
+    }
+
+    /**
+     * @param from un quai du graphe
+     * @param to un quai du graphe
+     * @return la section à pied de {@code from} à {@code to} ou {@code -1} s'il n'y en a pas
+     */
+    public int find(int from, int to) {
+        int i = Arrays.binarySearch(targets, offsets[from], offsets[from + 1], to);
+        return i < 0 ? -1 : i;
+    }
+
+    public int getTarget(int footpath) {
+        return targets[footpath];
+    }
+
+    public int getDistance(int footpath) {
+        return distances[footpath];
+    }
+
+    public int getDuration(int footpath) {
+        return durations[footpath];
+    }
+}
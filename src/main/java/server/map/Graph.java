@@ -0,0 +1,583 @@
+package server.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Représentation compacte et immuable du réseau d'un {@link Plan}, construite une seule fois.
+ *
+ * <p>
+ * Chaque nom de station est associé à un identifiant dense (un sommet) et chaque {@link Station}
+ * (un quai, c'est-à-dire un nom et une coordonnée) à un identifiant de quai. Les quais d'un même
+ * sommet ont des identifiants contigus. Les sections sont rangées au format CSR (compressed sparse
+ * row) : les arêtes sortantes du sommet {@code u} sont les indices {@code [edgeStart(u),
+ * edgeEnd(u))} des tableaux parallèles. Les arêtes arrivant à chaque quai sont rangées de la même
+ * façon pour les recherches en sens inverse.
+ */
+public final class Graph {
+    /**
+     * Identifiant des arêtes n'appartenant à aucune ligne (sections à pied)
+     */
+    public static final int NO_LINE = -1;
+    /**
+     * La distance maximale à parcourir à pied entre 2 sections
+     */
+    public static final int MAX_FOOT_DISTANCE = 1000;
+    /**
+     * Le poids pour les trajets à pied, partagé par les recherches de plus court chemin
+     */
+    public static final double WEIGHT_FOOT = 1.5;
+
+    /**
+     * Le nom de chaque sommet
+     */
+    private final String[] names;
+    /**
+     * Associe chaque nom de station à son sommet
+     */
+    private final Map<String, Integer> ids;
+    /**
+     * Le premier quai de chaque sommet, {@code platformOffsets[u + 1]} est la fin de l'intervalle
+     */
+    private final int[] platformOffsets;
+    /**
+     * La station de chaque quai
+     */
+    private final Station[] platforms;
+    /**
+     * Le sommet de chaque quai
+     */
+    private final int[] platformNode;
+    /**
+     * La première arête de chaque sommet, {@code edgeOffsets[u + 1]} est la fin de l'intervalle
+     */
+    private final int[] edgeOffsets;
+    /**
+     * Le sommet d'arrivée de chaque arête
+     */
+    private final int[] targets;
+    /**
+     * Le quai de départ de chaque arête
+     */
+    private final int[] fromPlatforms;
+    /**
+     * Le quai d'arrivée de chaque arête
+     */
+    private final int[] toPlatforms;
+    /**
+     * La longueur en mètres de chaque arête
+     */
+    private final int[] distances;
+    /**
+     * La durée en secondes de chaque arête
+     */
+    private final int[] durations;
+    /**
+     * L'identifiant de la ligne de chaque arête ou {@link #NO_LINE}
+     */
+    private final int[] lineIds;
+    /**
+     * La section d'origine de chaque arête
+     */
+    private final Section[] sections;
+    /**
+     * La première arête arrivant à chaque quai dans {@code inEdges}, {@code inOffsets[p + 1]} est
+     * la fin de l'intervalle
+     */
+    private final int[] inOffsets;
+    /**
+     * Les arêtes rangées par quai d'arrivée
+     */
+    private final int[] inEdges;
+    /**
+     * Les lignes (avec variant) indexées par leur identifiant
+     */
+    private final Line[] lines;
+    /**
+     * Début de la matrice des correspondances de chaque sommet dans {@code transferDistances} et
+     * {@code transferDurations}
+     */
+    private final int[] transferOffsets;
+    /**
+     * Distances en mètres entre les quais d'un même sommet
+     */
+    private final int[] transferDistances;
+    /**
+     * Durées en secondes à pied entre les quais d'un même sommet
+     */
+    private final int[] transferDurations;
+    /**
+     * Le plus grand facteur {@code f <= 1} tel que la longueur de chaque section soit au moins
+     * {@code f} fois la distance à vol d'oiseau entre ses deux stations
+     */
+    private final double distanceFactor;
+    /**
+     * L'index spatial des quais, les indices de l'index sont les identifiants des quais
+     */
+    private final SpatialIndex spatialIndex;
+    /**
+     * Les connexions élémentaires du réseau, construites à la demande
+     */
+    private volatile ConnectionTable connections;
+    /**
+     * Les motifs de trajet des lignes, construits à la demande
+     */
+    private volatile PatternTable patterns;
+    /**
+     * Les tableaux des départs des sommets, construits à la demande
+     */
+    private volatile DepartureBoard departureBoard;
+    /**
+     * Les sections à pied entre les quais, construites à la demande
+     */
+    private volatile FootpathTable footpaths;
+    /**
+     * La hiérarchie de contraction sans sections à pied, construite à la demande
+     */
+    private volatile ContractionHierarchy hierarchy;
+    /**
+     * La hiérarchie de contraction avec sections à pied, construite à la demande
+     */
+    private volatile ContractionHierarchy footHierarchy;
+    /**
+     * Un verrou par structure construite à la demande, pour qu'une construction longue comme
+     * celle d'une hiérarchie ne bloque pas les autres
+     */
+    private final Object connectionsLock = new Object();
+    private final Object patternsLock = new Object();
+    private final Object departureBoardLock = new Object();
+    private final Object footpathsLock = new Object();
+    private final Object hierarchyLock = new Object();
+    private final Object footHierarchyLock = new Object();
+
+    /**
+     * Construit le graphe à partir des données d'un plan
+     *
+     * @param map les sections partant de chaque nom de station
+     * @param stations l'ensemble des stations
+     * @param linesByName les lignes associées à leur nom avec variant
+     */
+    Graph(Map<String, List<Section>> map, Set<Station> stations, Map<String, Line> linesByName) {
+        int nodeCount = map.size();
+        names = new String[nodeCount];
+        ids = new HashMap<>(nodeCount * 2);
+        for (String name : map.keySet()) {
+            ids.put(name, ids.size());
+            names[ids.size() - 1] = name;
+        }
+
+        Map<String, Integer> lineIdsByName = new HashMap<>(linesByName.size() * 2);
+        lines = new Line[linesByName.size()];
+        for (Map.Entry<String, Line> entry : linesByName.entrySet()) {
+            lines[lineIdsByName.size()] = entry.getValue();
+            lineIdsByName.put(entry.getKey(), lineIdsByName.size());
+        }
+
+        List<List<Station>> platformsByNode = new ArrayList<>(nodeCount);
+        for (int i = 0; i < nodeCount; i++)
+            platformsByNode.add(new ArrayList<>(2));
+        for (Station station : stations) {
+            Integer id = ids.get(station.getName());
+            if (id != null)
+                platformsByNode.get(id).add(station);
+        }
+        platformOffsets = new int[nodeCount + 1];
+        platforms = new Station[stations.size()];
+        platformNode = new int[stations.size()];
+        Map<Station, Integer> platformIds = new HashMap<>(stations.size() * 2);
+        int p = 0;
+        int transferSize = 0;
+        for (int u = 0; u < nodeCount; u++) {
+            platformOffsets[u] = p;
+            for (Station station : platformsByNode.get(u)) {
+                platforms[p] = station;
+                platformNode[p] = u;
+                platformIds.put(station, p);
+                p++;
+            }
+            int k = platformsByNode.get(u).size();
+            transferSize += k * k;
+        }
+        platformOffsets[nodeCount] = p;
+
+        transferOffsets = new int[nodeCount];
+        transferDistances = new int[transferSize];
+        transferDurations = new int[transferSize];
+        int t = 0;
+        for (int u = 0; u < nodeCount; u++) {
+            transferOffsets[u] = t;
+            for (int a = platformOffsets[u]; a < platformOffsets[u + 1]; a++) {
+                for (int b = platformOffsets[u]; b < platformOffsets[u + 1]; b++) {
+                    transferDistances[t] = platforms[a].distanceBetween(platforms[b]);
+                    transferDurations[t] = Station.walkingDuration(transferDistances[t]);
+                    t++;
+                }
+            }
+        }
+
+        int edgeCount = map.values().stream().mapToInt(List::size).sum();
+        edgeOffsets = new int[nodeCount + 1];
+        targets = new int[edgeCount];
+        fromPlatforms = new int[edgeCount];
+        toPlatforms = new int[edgeCount];
+        distances = new int[edgeCount];
+        durations = new int[edgeCount];
+        lineIds = new int[edgeCount];
+        sections = new Section[edgeCount];
+        int e = 0;
+        for (int u = 0; u < nodeCount; u++) {
+            edgeOffsets[u] = e;
+            for (Section section : map.get(names[u])) {
+                targets[e] = ids.get(section.getArrival().getName());
+                fromPlatforms[e] = platformIds.get(section.getStart());
+                toPlatforms[e] = platformIds.get(section.getArrival());
+                distances[e] = section.getDistance();
+                durations[e] = section.getDuration();
+                Integer line = section.getLine() == null ? null
+                        : lineIdsByName.get(section.getLine());
+                lineIds[e] = line == null ? NO_LINE : line;
+                sections[e] = section;
+                e++;
+            }
+        }
+        edgeOffsets[nodeCount] = e;
+
+        inOffsets = new int[platforms.length + 1];
+        for (int i = 0; i < edgeCount; i++)
+            inOffsets[toPlatforms[i] + 1]++;
+        for (int i = 0; i < platforms.length; i++)
+            inOffsets[i + 1] += inOffsets[i];
+        inEdges = new int[edgeCount];
+        int[] next = Arrays.copyOf(inOffsets, platforms.length);
+        for (int i = 0; i < edgeCount; i++)
+            inEdges[next[toPlatforms[i]]++] = i;
+
+        double factor = 1;
+        for (int i = 0; i < edgeCount; i++) {
+            int straight = platforms[fromPlatforms[i]].distanceBetween(platforms[toPlatforms[i]]);
+            if (straight > 0)
+                factor = Math.min(factor, (double) distances[i] / straight);
+        }
+        distanceFactor = factor;
+        spatialIndex = new SpatialIndex(platforms, MAX_FOOT_DISTANCE);
+    }
+
+    /**
+     * Copie un graphe en partageant tout ce qui ne dépend pas des horaires
+     *
+     * @param other le graphe à copier
+     */
+    private Graph(Graph other) {
+        names = other.names;
+        ids = other.ids;
+        platformOffsets = other.platformOffsets;
+        platforms = other.platforms;
+        platformNode = other.platformNode;
+        edgeOffsets = other.edgeOffsets;
+        targets = other.targets;
+        fromPlatforms = other.fromPlatforms;
+        toPlatforms = other.toPlatforms;
+        distances = other.distances;
+        durations = other.durations;
+        lineIds = other.lineIds;
+        sections = other.sections;
+        inOffsets = other.inOffsets;
+        inEdges = other.inEdges;
+        lines = other.lines;
+        transferOffsets = other.transferOffsets;
+        transferDistances = other.transferDistances;
+        transferDurations = other.transferDurations;
+        distanceFactor = other.distanceFactor;
+        spatialIndex = other.spatialIndex;
+        footpaths = other.footpaths;
+        hierarchy = other.hierarchy;
+        footHierarchy = other.footHierarchy;
+    }
+
+    /**
+     * Les horaires des lignes ont changé mais pas le réseau : les connexions, les motifs de
+     * trajet et les tableaux des départs seront reconstruits, les sections à pied et les
+     * hiérarchies de contraction sont conservées
+     *
+     * @return une copie du graphe sans les données dépendant des horaires
+     */
+    Graph withoutTimetable() {
+        return new Graph(this);
+    }
+
+    /**
+     * @return le nombre de sommets
+     */
+    public int nodeCount() {
+        return names.length;
+    }
+
+    /**
+     * @return le nombre d'arêtes
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @return le nombre de quais
+     */
+    public int platformCount() {
+        return platforms.length;
+    }
+
+    /**
+     * @param name un nom de station
+     * @return le sommet associé à {@code name} ou {@code -1} s'il n'existe pas
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String getName(int node) {
+        return names[node];
+    }
+
+    public int platformStart(int node) {
+        return platformOffsets[node];
+    }
+
+    public int platformEnd(int node) {
+        return platformOffsets[node + 1];
+    }
+
+    public Station getPlatform(int platform) {
+        return platforms[platform];
+    }
+
+    public int getPlatformNode(int platform) {
+        return platformNode[platform];
+    }
+
+    public int edgeStart(int node) {
+        return edgeOffsets[node];
+    }
+
+    public int edgeEnd(int node) {
+        return edgeOffsets[node + 1];
+    }
+
+    /**
+     * @param platform un quai
+     * @return le début de l'intervalle des arêtes arrivant à {@code platform}
+     */
+    public int inEdgeStart(int platform) {
+        return inOffsets[platform];
+    }
+
+    /**
+     * @param platform un quai
+     * @return la fin de l'intervalle des arêtes arrivant à {@code platform}
+     */
+    public int inEdgeEnd(int platform) {
+        return inOffsets[platform + 1];
+    }
+
+    /**
+     * @param i un indice entre {@link #inEdgeStart(int)} et {@link #inEdgeEnd(int)}
+     * @return l'arête correspondante
+     */
+    public int getInEdge(int i) {
+        return inEdges[i];
+    }
+
+    public int getTarget(int edge) {
+        return targets[edge];
+    }
+
+    public int getFromPlatform(int edge) {
+        return fromPlatforms[edge];
+    }
+
+    public int getToPlatform(int edge) {
+        return toPlatforms[edge];
+    }
+
+    public int getDistance(int edge) {
+        return distances[edge];
+    }
+
+    public int getDuration(int edge) {
+        return durations[edge];
+    }
+
+    public int getLineId(int edge) {
+        return lineIds[edge];
+    }
+
+    public Section getSection(int edge) {
+        return sections[edge];
+    }
+
+    /**
+     * Permet de minorer la longueur d'un trajet par la distance à vol d'oiseau entre ses deux
+     * extrémités
+     *
+     * @return le plus grand facteur {@code f <= 1} tel que la longueur de chaque section soit au
+     *         moins {@code f} fois la distance à vol d'oiseau entre ses deux stations
+     */
+    public double getDistanceFactor() {
+        return distanceFactor;
+    }
+
+    /**
+     * @return l'index spatial des quais
+     */
+    public SpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * @return le nombre de lignes (avec variant)
+     */
+    public int lineCount() {
+        return lines.length;
+    }
+
+    /**
+     * Construit si nécessaire les connexions élémentaires du réseau
+     *
+     * @return les connexions triées par horaire de départ
+     */
+    public ConnectionTable getConnections() {
+        ConnectionTable table = connections;
+        if (table == null) {
+            synchronized (connectionsLock) {
+                table = connections;
+                if (table == null) {
+                    table = new ConnectionTable(this);
+                    connections = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Construit si nécessaire les motifs de trajet des lignes
+     *
+     * @return les motifs de trajet
+     */
+    public PatternTable getPatterns() {
+        PatternTable table = patterns;
+        if (table == null) {
+            synchronized (patternsLock) {
+                table = patterns;
+                if (table == null) {
+                    table = new PatternTable(this);
+                    patterns = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Construit si nécessaire les tableaux des départs des sommets
+     *
+     * @return les départs de chaque sommet triés par horaire
+     */
+    public DepartureBoard getDepartureBoard() {
+        DepartureBoard board = departureBoard;
+        if (board == null) {
+            synchronized (departureBoardLock) {
+                board = departureBoard;
+                if (board == null) {
+                    board = new DepartureBoard(this);
+                    departureBoard = board;
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Construit si nécessaire les sections à pied entre les quais
+     *
+     * @return les sections à pied
+     */
+    public FootpathTable getFootpaths() {
+        FootpathTable table = footpaths;
+        if (table == null) {
+            synchronized (footpathsLock) {
+                table = footpaths;
+                if (table == null) {
+                    table = new FootpathTable(this);
+                    footpaths = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Construit si nécessaire la hiérarchie de contraction du réseau
+     *
+     * @param foot si les sections à pied font partie de la hiérarchie
+     * @return la hiérarchie de contraction
+     */
+    public ContractionHierarchy getHierarchy(boolean foot) {
+        ContractionHierarchy ch = foot ? footHierarchy : hierarchy;
+        if (ch == null) {
+            synchronized (foot ? footHierarchyLock : hierarchyLock) {
+                ch = foot ? footHierarchy : hierarchy;
+                if (ch == null) {
+                    ch = new ContractionHierarchy(this, foot);
+                    if (foot)
+                        footHierarchy = ch;
+                    else
+                        hierarchy = ch;
+                }
+            }
+        }
+        return ch;
+    }
+
+    /**
+     * @param lineId un identifiant de ligne
+     * @return la ligne associée ou {@code null} si {@code lineId} vaut {@link #NO_LINE}
+     */
+    public Line getLine(int lineId) {
+        return lineId == NO_LINE ? null : lines[lineId];
+    }
+
+    /**
+     * @param from un quai
+     * @param to un quai du même sommet que {@code from}
+     * @return la distance en mètres entre les deux quais
+     */
+    public int transferDistance(int from, int to) {
+        return transferDistances[transferIndex(from, to)];
+    }
+
+    /**
+     * @param from un quai
+     * @param to un quai du même sommet que {@code from}
+     * @return la durée en secondes à pied entre les deux quais
+     */
+    public int transferDuration(int from, int to) {
+        return transferDurations[transferIndex(from, to)];
+    }
+
+    /**
+     * @param from un quai
+     * @param to un quai du même sommet que {@code from}
+     * @return l'indice de la correspondance dans les matrices de correspondances
+     */
+    private int transferIndex(int from, int to) {
+        int node = platformNode[from];
+        int start = platformOffsets[node];
+        int k = platformOffsets[node + 1] - start;
+        return transferOffsets[node] + (from - start) * k + (to - start);
+    }
+}
@@ -0,0 +1,428 @@
+package server.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import util.Logger;
+import util.Parser;
+
+/**
+ * Surcouche propre à une requête au-dessus d'un {@link Graph} partagé.
+ *
+ * <p>
+ * Elle contient les sommets virtuels de départ et d'arrivée lorsque la requête donne des
+ * coordonnées, ainsi que les sections à pied qui les relient au réseau. Le graphe sous-jacent
+ * n'est jamais modifié : les sommets, quais et arêtes virtuels ont des identifiants qui suivent
+ * ceux du graphe.
+ */
+public final class GraphOverlay {
+    /**
+     * Le nom du sommet virtuel de départ
+     */
+    public static final String DEPART = "Départ";
+    /**
+     * Le nom du sommet virtuel d'arrivée
+     */
+    public static final String ARRIVEE = "Arrivée";
+    /**
+     * Format d'une coordonnée dans une requête
+     */
+    private static final Pattern COORDINATE = Pattern.compile("^\\((.*)\\)$");
+
+    /**
+     * Le graphe partagé
+     */
+    private final Graph graph;
+    /**
+     * La station virtuelle de départ ou {@code null}
+     */
+    private final Station departure;
+    /**
+     * La station virtuelle d'arrivée ou {@code null}
+     */
+    private final Station arrival;
+    /**
+     * Le sommet de départ ou {@code -1} s'il n'existe pas
+     */
+    private final int startId;
+    /**
+     * Le sommet d'arrivée ou {@code -1} s'il n'existe pas
+     */
+    private final int arrivalId;
+    /**
+     * Le sommet de départ de chaque arête virtuelle, trié
+     */
+    private final int[] sources;
+    /**
+     * Le quai de départ de chaque arête virtuelle
+     */
+    private final int[] fromPlatforms;
+    /**
+     * Le quai d'arrivée de chaque arête virtuelle
+     */
+    private final int[] toPlatforms;
+    /**
+     * La longueur en mètres de chaque arête virtuelle
+     */
+    private final int[] distances;
+    /**
+     * La durée en secondes de chaque arête virtuelle
+     */
+    private final int[] durations;
+
+    /**
+     * @param graph le graphe partagé
+     * @param start un nom de station ou une coordonnée
+     * @param arrival un nom de station, une coordonnée ou {@code null} pour une recherche vers
+     *        tous les sommets
+     * @param maxDistance la distance maximale des sections à pied vers les sommets virtuels
+     */
+    public GraphOverlay(Graph graph, String start, String arrival, int maxDistance) {
+        if (graph == null || start == null)
+            throw new IllegalArgumentException();
+        this.graph = graph;
+        this.departure = parseCoordinate(DEPART, start);
+        this.arrival = arrival == null ? null : parseCoordinate(ARRIVEE, arrival);
+        this.startId = departure != null ? departureNode() : graph.getId(start);
+        if (this.arrival != null)
+            this.arrivalId = arrivalNode();
+        else
+            this.arrivalId = arrival == null ? -1 : graph.getId(arrival);
+
+        List<int[]> edges = new ArrayList<>();
+        if (departure != null) {
+            for (int p : closePlatforms(departure, maxDistance, false))
+                edges.add(new int[] {departureNode(), departurePlatform(), p});
+        }
+        if (this.arrival != null) {
+            for (int p : closePlatforms(this.arrival, maxDistance, departure != null))
+                edges.add(new int[] {getPlatformNode(p), p, arrivalPlatform()});
+        }
+        edges.sort((a, b) -> Integer.compare(a[0], b[0]));
+        int size = edges.size();
+        sources = new int[size];
+        fromPlatforms = new int[size];
+        toPlatforms = new int[size];
+        distances = new int[size];
+        durations = new int[size];
+        for (int i = 0; i < size; i++) {
+            int[] edge = edges.get(i);
+            Station from = getPlatform(edge[1]);
+            Station to = getPlatform(edge[2]);
+            sources[i] = edge[0];
+            fromPlatforms[i] = edge[1];
+            toPlatforms[i] = edge[2];
+            distances[i] = from.distanceBetween(to);
+            durations[i] = Station.walkingDuration(distances[i]);
+        }
+    }
+
+    /**
+     * @param name le nom de la station virtuelle
+     * @param input un nom de station ou une coordonnée
+     * @return une station virtuelle si {@code input} est une coordonnée, {@code null} sinon
+     */
+    private static Station parseCoordinate(String name, String input) {
+        Matcher m = COORDINATE.matcher(input);
+        if (m.matches()) {
+            try {
+                double[] coord = Parser.parse2DoubleSep(m.group(1), ",");
+                return new Station(name, coord[0], coord[1]);
+            } catch (Exception ignored) {
+                Logger.info(ignored.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Trouve les quais à moins de {@code maxDistance} mètres d'une station virtuelle. S'il n'y en
+     * a pas, renvoie le quai le plus proche.
+     *
+     * @param station une station virtuelle
+     * @param maxDistance le rayon de recherche
+     * @param withDeparture si le quai virtuel de départ fait partie des candidats
+     * @return les quais proches de {@code station}
+     */
+    private int[] closePlatforms(Station station, int maxDistance, boolean withDeparture) {
+        SpatialIndex index = graph.getSpatialIndex();
+        boolean departureCandidate = withDeparture && !departure.equals(station);
+        int departureDistance =
+                departureCandidate ? station.distanceBetween(departure) : Integer.MAX_VALUE;
+        int[] found = index.withinRadius(station, maxDistance);
+        int[] close = new int[found.length + 1];
+        int size = 0;
+        for (int p : found) {
+            if (!index.get(p).equals(station))
+                close[size++] = p;
+        }
+        if (departureDistance < maxDistance)
+            close[size++] = departurePlatform();
+        if (size == 0) {
+            int[] nearest = index.nearest(station, 1);
+            if (nearest.length > 0
+                    && station.distanceBetween(index.get(nearest[0])) <= departureDistance)
+                return nearest;
+            if (departureCandidate)
+                close[size++] = departurePlatform();
+        }
+        return Arrays.copyOf(close, size);
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return le sommet de départ ou {@code -1} s'il n'existe pas
+     */
+    public int getStartId() {
+        return startId;
+    }
+
+    /**
+     * @return le sommet d'arrivée ou {@code -1} s'il n'existe pas
+     */
+    public int getArrivalId() {
+        return arrivalId;
+    }
+
+    /**
+     * @return {@code true} si le départ est une coordonnée
+     */
+    public boolean hasVirtualStart() {
+        return departure != null;
+    }
+
+    /**
+     * @return le nombre de sommets, sommets virtuels compris
+     */
+    public int nodeCount() {
+        return graph.nodeCount() + 2;
+    }
+
+    /**
+     * @return le nombre de quais, quais virtuels compris
+     */
+    public int platformCount() {
+        return graph.platformCount() + (departure != null ? 1 : 0) + (arrival != null ? 1 : 0);
+    }
+
+    /**
+     * @param node un sommet
+     * @return le premier quai de {@code node}
+     */
+    public int platformStart(int node) {
+        if (node < graph.nodeCount())
+            return graph.platformStart(node);
+        if (node == departureNode())
+            return departure != null ? departurePlatform() : 0;
+        return arrival != null ? arrivalPlatform() : 0;
+    }
+
+    /**
+     * @param node un sommet
+     * @return la fin de l'intervalle des quais de {@code node}
+     */
+    public int platformEnd(int node) {
+        if (node < graph.nodeCount())
+            return graph.platformEnd(node);
+        if (node == departureNode())
+            return departure != null ? departurePlatform() + 1 : 0;
+        return arrival != null ? arrivalPlatform() + 1 : 0;
+    }
+
+    private int departureNode() {
+        return graph.nodeCount();
+    }
+
+    private int arrivalNode() {
+        return graph.nodeCount() + 1;
+    }
+
+    private int departurePlatform() {
+        return graph.platformCount();
+    }
+
+    private int arrivalPlatform() {
+        return graph.platformCount() + (departure != null ? 1 : 0);
+    }
+
+    /**
+     * @param platform un quai
+     * @return la station du quai
+     */
+    public Station getPlatform(int platform) {
+        if (platform < graph.platformCount())
+            return graph.getPlatform(platform);
+        return departure != null && platform == departurePlatform() ? departure : arrival;
+    }
+
+    /**
+     * @param platform un quai
+     * @return le sommet du quai
+     */
+    public int getPlatformNode(int platform) {
+        if (platform < graph.platformCount())
+            return graph.getPlatformNode(platform);
+        return departure != null && platform == departurePlatform() ? departureNode()
+                : arrivalNode();
+    }
+
+    /**
+     * @return le nombre d'arêtes, arêtes virtuelles comprises
+     */
+    public int edgeCount() {
+        return graph.edgeCount() + sources.length;
+    }
+
+    /**
+     * @param node un sommet
+     * @return la première arête virtuelle partant de {@code node}
+     */
+    public int extraEdgeStart(int node) {
+        return graph.edgeCount() + lowerBound(node);
+    }
+
+    /**
+     * @param node un sommet
+     * @return la fin de l'intervalle des arêtes virtuelles partant de {@code node}
+     */
+    public int extraEdgeEnd(int node) {
+        return graph.edgeCount() + lowerBound(node + 1);
+    }
+
+    /**
+     * @param node un sommet
+     * @return l'indice de la première arête virtuelle partant d'un sommet supérieur ou égal à
+     *         {@code node}
+     */
+    private int lowerBound(int node) {
+        int low = 0;
+        int high = sources.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sources[mid] < node)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @param node un sommet
+     * @return la première arête réelle partant de {@code node}
+     */
+    public int edgeStart(int node) {
+        return node < graph.nodeCount() ? graph.edgeStart(node) : 0;
+    }
+
+    /**
+     * @param node un sommet
+     * @return la fin de l'intervalle des arêtes réelles partant de {@code node}
+     */
+    public int edgeEnd(int node) {
+        return node < graph.nodeCount() ? graph.edgeEnd(node) : 0;
+    }
+
+    public int getTarget(int edge) {
+        if (edge < graph.edgeCount())
+            return graph.getTarget(edge);
+        return getPlatformNode(toPlatforms[edge - graph.edgeCount()]);
+    }
+
+    public int getFromPlatform(int edge) {
+        if (edge < graph.edgeCount())
+            return graph.getFromPlatform(edge);
+        return fromPlatforms[edge - graph.edgeCount()];
+    }
+
+    public int getToPlatform(int edge) {
+        if (edge < graph.edgeCount())
+            return graph.getToPlatform(edge);
+        return toPlatforms[edge - graph.edgeCount()];
+    }
+
+    public int getDistance(int edge) {
+        if (edge < graph.edgeCount())
+            return graph.getDistance(edge);
+        return distances[edge - graph.edgeCount()];
+    }
+
+    public int getDuration(int edge) {
+        if (edge < graph.edgeCount())
+            return graph.getDuration(edge);
+        return durations[edge - graph.edgeCount()];
+    }
+
+    /**
+     * @param edge une arête
+     * @return la ligne de l'arête ou {@code null} pour une section à pied
+     */
+    public Line getLine(int edge) {
+        if (edge < graph.edgeCount())
+            return graph.getLine(graph.getLineId(edge));
+        return null;
+    }
+
+    /**
+     * @param edge une arête
+     * @return une nouvelle section correspondant à l'arête, sans horaire
+     */
+    public Section newSection(int edge) {
+        if (edge < graph.edgeCount())
+            return new Section(graph.getSection(edge));
+        return new Section(getPlatform(getFromPlatform(edge)), getPlatform(getToPlatform(edge)),
+                null, getDistance(edge), getDuration(edge));
+    }
+
+    /**
+     * Crée une section à pied entre deux quais, en reprenant la distance et la durée des
+     * sections à pied du graphe quand elles ont été calculées
+     *
+     * @param from le quai de départ
+     * @param to le quai d'arrivée
+     * @return une nouvelle section à pied, sans horaire
+     */
+    public Section newFootSection(int from, int to) {
+        Station start = getPlatform(from);
+        Station arrival = getPlatform(to);
+        int footpath = -1;
+        FootpathTable footpaths = null;
+        if (from < graph.platformCount() && to < graph.platformCount()) {
+            footpaths = graph.getFootpaths();
+            footpath = footpaths.find(from, to);
+        }
+        if (footpath == -1) {
+            int distance = start.distanceBetween(arrival);
+            return new Section(start, arrival, null, distance, Station.walkingDuration(distance));
+        }
+        return new Section(start, arrival, null, footpaths.getDistance(footpath),
+                footpaths.getDuration(footpath));
+    }
+
+    /**
+     * @param from un quai
+     * @param to un quai du même sommet que {@code from}
+     * @return la distance en mètres entre les deux quais
+     */
+    public int transferDistance(int from, int to) {
+        if (from == to || from >= graph.platformCount() || to >= graph.platformCount())
+            return 0;
+        return graph.transferDistance(from, to);
+    }
+
+    /**
+     * @param from un quai
+     * @param to un quai du même sommet que {@code from}
+     * @return la durée en secondes à pied entre les deux quais
+     */
+    public int transferDuration(int from, int to) {
+        if (from == to || from >= graph.platformCount() || to >= graph.platformCount())
+            return 0;
+        return graph.transferDuration(from, to);
+    }
+}
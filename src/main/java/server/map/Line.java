@@ -1,12 +1,10 @@
 package server.map;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
  * Classe représentant une ligne
@@ -51,18 +49,42 @@ public final class Line {
      */
     private Section last;
     /**
-     * La liste des horaires de départ de la section de départ
+     * Les horaires de départ de la section de départ en secondes depuis minuit, triés et sans
+     * doublon dans les {@code departureCount} premières cases
      */
-    private final SortedSet<Time> departures;
+    private int[] departures;
+    /**
+     * Le nombre d'horaires de départ
+     */
+    private int departureCount;
     /**
      * Chaque section est associée à la durée nécessaire pour arriver à la fin de la section depuis
      * le début de la section de départ
      */
     private final Map<Section, Integer> sections;
+    /**
+     * Les sections parcourues depuis la section de départ dans l'ordre, calculées par
+     * {@link #updateSectionsTime()}
+     */
+    private Section[] orderedSections;
+    /**
+     * Associe chaque station à la première section de la ligne qui en part, construit à la
+     * demande
+     */
+    private Map<Station, Section> sectionsByStart;
+    /**
+     * Associe chaque nom de station à la première section de la ligne qui en part, construit à la
+     * demande
+     */
+    private Map<String, Section> sectionsByStartName;
     /**
      * Le temps d'attente entre chaque section à chaque arrêt (en secondes)
      */
     private static final int WAITING_TIME = 20;
+    /**
+     * Nombre de secondes dans une journée
+     */
+    private static final int SECONDS_IN_A_DAY = 3600 * 24;
 
     /**
      * Créer une nouvelle ligne vide.
@@ -90,7 +112,9 @@ public final class Line {
         this.start = null;
         this.last = null;
         this.sections = new HashMap<>(sections);
-        this.departures = new TreeSet<>();
+        this.orderedSections = new Section[0];
+        this.departures = new int[0];
+        this.departureCount = 0;
     }
 
     /**
@@ -127,11 +151,11 @@ public final class Line {
         if (stationName == null)
             throw new IllegalArgumentException();
         if (start == null) {
-            Optional<Section> station = sections.keySet().stream()
-                    .filter(s -> s.getStart().getName().equals(stationName)).findAny();
-            if (station.isEmpty())
+            indexSections();
+            Section station = sectionsByStartName.get(stationName);
+            if (station == null)
                 throw new StationNotFoundException(stationName, name, variant);
-            start = station.get();
+            start = station;
         } else {
             String actual = start.getStart().getName();
             if (!actual.equals(stationName))
@@ -158,6 +182,14 @@ public final class Line {
         return new ArrayList<>(sections.keySet());
     }
 
+    /**
+     * @return les sections parcourues depuis la section de départ dans l'ordre, vide si les
+     *         durées n'ont pas été calculées
+     */
+    public List<Section> getOrderedSections() {
+        return List.of(orderedSections);
+    }
+
     /**
      * @return la map des sections associées à leur durée depuis la station de départ
      */
@@ -176,6 +208,8 @@ public final class Line {
         if (section == null)
             throw new IllegalArgumentException();
         sections.put(section, null);
+        sectionsByStart = null;
+        sectionsByStartName = null;
     }
 
     /**
@@ -187,11 +221,22 @@ public final class Line {
      *         entre 0 et 59 (inclus)
      */
     public void addDepartureTime(int hour, int minute) throws IllegalArgumentException {
-        this.departures.add(new Time(hour, minute));
+        int seconds = new Time(hour, minute).toSeconds();
+        int i = lowerBound(seconds);
+        if (i < departureCount && departures[i] == seconds)
+            return;
+        if (departureCount == departures.length)
+            departures = Arrays.copyOf(departures, Math.max(8, departureCount * 2));
+        System.arraycopy(departures, i, departures, i + 1, departureCount - i);
+        departures[i] = seconds;
+        departureCount++;
     }
 
     public List<Time> getDepartures() {
-        return new ArrayList<>(departures);
+        List<Time> times = new ArrayList<>(departureCount);
+        for (int i = 0; i < departureCount; i++)
+            times.add(new Time(departures[i]));
+        return times;
     }
 
     /**
@@ -201,16 +246,51 @@ public final class Line {
      *         {@code time} est {@code null} ou {@code departures} est vide
      */
     public Time getNextTime(Section section, Time time) {
-        Integer duration = sections.get(section);
-        if (duration == null || time == null || departures.isEmpty())
+        if (time == null)
             return null;
-        duration -= section.getDuration();
-        for (Time t : departures) {
-            Time departTime = t.addDuration(duration);
-            if (time.compareTo(departTime) <= 0)
-                return departTime;
+        int next = getNextTime(section, time.toSeconds());
+        return next == Time.NO_TIME ? null : new Time(next);
+    }
+
+    /**
+     * Cherche par dichotomie le prochain départ à une section. Les horaires qui dépassent minuit
+     * sont ramenés au lendemain, comme avec {@link Time#addDuration(int)}.
+     *
+     * @param section la section dont l'horaire est à déterminée
+     * @param time l'horaire minimal en secondes depuis minuit
+     * @return l'horaire du prochain départ à {@code section} après {@code time} en secondes depuis
+     *         minuit, {@link Time#NO_TIME} si {@code time} vaut {@link Time#NO_TIME}, si la durée
+     *         de {@code section} est inconnue ou si {@code departures} est vide
+     */
+    public int getNextTime(Section section, int time) {
+        Integer duration = sections.get(section);
+        if (duration == null || time == Time.NO_TIME || departureCount == 0)
+            return Time.NO_TIME;
+        int offset = duration - section.getDuration();
+        int i = lowerBound(time - offset);
+        if (i < departureCount && departures[i] + offset < SECONDS_IN_A_DAY)
+            return departures[i] + offset;
+        i = lowerBound(time - offset + SECONDS_IN_A_DAY);
+        if (i < departureCount)
+            return Time.addDuration(departures[i], offset);
+        return Time.addDuration(departures[0], offset);
+    }
+
+    /**
+     * @param seconds un horaire en secondes depuis minuit
+     * @return l'indice du premier départ supérieur ou égal à {@code seconds}
+     */
+    private int lowerBound(int seconds) {
+        int low = 0;
+        int high = departureCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departures[mid] < seconds)
+                low = mid + 1;
+            else
+                high = mid;
         }
-        return departures.first().addDuration(duration);
+        return low;
     }
 
     /**
@@ -218,9 +298,22 @@ public final class Line {
      * @return la section suivante ou {@code null} s'il n'y en a pas
      */
     private Section getNextSection(Section section) {
-        Optional<Section> next = sections.keySet().stream()
-                .filter(s -> s.getStart().equals(section.getArrival())).findAny();
-        return next.orElse(null);
+        indexSections();
+        return sectionsByStart.get(section.getArrival());
+    }
+
+    /**
+     * Construit si nécessaire les associations entre les stations et les sections qui en partent
+     */
+    private void indexSections() {
+        if (sectionsByStart != null)
+            return;
+        sectionsByStart = new HashMap<>(sections.size() * 2);
+        sectionsByStartName = new HashMap<>(sections.size() * 2);
+        for (Section s : sections.keySet()) {
+            sectionsByStart.putIfAbsent(s.getStart(), s);
+            sectionsByStartName.putIfAbsent(s.getStart().getName(), s);
+        }
     }
 
     /**
@@ -231,15 +324,36 @@ public final class Line {
     public void updateSectionsTime() {
         if (start == null)
             return;
+        sections.replaceAll((s, d) -> null);
+        List<Section> ordered = new ArrayList<>();
         int duration = start.getDuration();
         sections.put(start, duration);
+        ordered.add(start);
         Section section = getNextSection(start);
         while (section != null && sections.get(section) == null) {
             duration += WAITING_TIME + section.getDuration();
             sections.put(section, duration);
+            ordered.add(section);
             last = section;
             section = getNextSection(section);
         }
+        orderedSections = ordered.toArray(new Section[0]);
+    }
+
+    /**
+     * @param section une section
+     * @return les horaires de départ de {@code section} en secondes depuis minuit, dans l'ordre des
+     *         départs de la ligne, aucun si la durée de {@code section} est inconnue
+     */
+    int[] getDepartureSeconds(Section section) {
+        Integer durationToArrival = sections.get(section);
+        if (durationToArrival == null)
+            return new int[0];
+        int duration = durationToArrival - section.getDuration();
+        int[] times = new int[departureCount];
+        for (int i = 0; i < departureCount; i++)
+            times[i] = Time.addDuration(departures[i], duration);
+        return times;
     }
 
     /**
@@ -248,13 +362,8 @@ public final class Line {
      */
     public List<Time> getDepartureTime(Section section) {
         List<Time> times = new ArrayList<>();
-        Integer durationToArrival = sections.get(section);
-        if (durationToArrival != null) {
-            int duration = durationToArrival - section.getDuration();
-            for (Time t : departures) {
-                times.add(t.addDuration(duration));
-            }
-        }
+        for (int t : getDepartureSeconds(section))
+            times.add(new Time(t));
         return times;
     }
 }
@@ -0,0 +1,276 @@
+package server.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Les lignes du réseau vues comme des motifs de trajet, utilisées par l'algorithme RAPTOR.
+ *
+ * <p>
+ * Chaque ligne (avec variant) donne un motif : la suite ordonnée des sommets desservis et les
+ * horaires de départ de ses trains depuis la station de départ. Le train {@code t} part de l'arrêt
+ * {@code i} à {@code tripDeparture(t) + getDepartureOffset(i)} et arrive à l'arrêt {@code i} à
+ * {@code tripDeparture(t) + getArrivalOffset(i)}. Les trains d'un même motif ne se doublent pas,
+ * le premier train utilisable à un arrêt se trouve donc par recherche dichotomique.
+ */
+public final class PatternTable {
+    /**
+     * Valeur de {@link #getEdge(int)} pour le dernier arrêt d'un motif
+     */
+    public static final int NO_EDGE = -1;
+
+    /**
+     * Le premier arrêt de chaque motif, {@code stopOffsets[p + 1]} est la fin de l'intervalle
+     */
+    private final int[] stopOffsets;
+    /**
+     * Le sommet de chaque arrêt
+     */
+    private final int[] stopNodes;
+    /**
+     * L'arête partant de chaque arrêt ou {@link #NO_EDGE}
+     */
+    private final int[] stopEdges;
+    /**
+     * Le décalage en secondes du départ de chaque arrêt par rapport au départ du train
+     */
+    private final int[] departureOffsets;
+    /**
+     * Le décalage en secondes de l'arrivée à chaque arrêt par rapport au départ du train
+     */
+    private final int[] arrivalOffsets;
+    /**
+     * Le premier train de chaque motif, {@code tripOffsets[p + 1]} est la fin de l'intervalle
+     */
+    private final int[] tripOffsets;
+    /**
+     * L'horaire de départ en secondes de chaque train, trié pour un même motif
+     */
+    private final int[] tripDepartures;
+    /**
+     * Le premier arrêt desservant chaque sommet dans {@code nodeStops}
+     */
+    private final int[] nodeStopOffsets;
+    /**
+     * Les arrêts desservant chaque sommet
+     */
+    private final int[] nodeStops;
+    /**
+     * Le motif de chaque arrêt
+     */
+    private final int[] stopPatterns;
+
+    /**
+     * Construit les motifs à partir des durées cumulées et des horaires de départ des lignes
+     *
+     * @param graph le graphe du réseau
+     */
+    PatternTable(Graph graph) {
+        int lineCount = graph.lineCount();
+        List<Map<Section, Integer>> edgesByLine = new ArrayList<>(lineCount);
+        for (int l = 0; l < lineCount; l++)
+            edgesByLine.add(new HashMap<>());
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            if (graph.getLineId(e) != Graph.NO_LINE)
+                edgesByLine.get(graph.getLineId(e)).put(graph.getSection(e), e);
+        }
+
+        List<int[]> patternEdges = new ArrayList<>();
+        List<int[]> patternCumulated = new ArrayList<>();
+        List<int[]> patternTrips = new ArrayList<>();
+        for (int l = 0; l < lineCount; l++) {
+            Line line = graph.getLine(l);
+            List<Time> times = line.getDepartures();
+            List<Map.Entry<Section, Integer>> ordered = new ArrayList<>();
+            for (Map.Entry<Section, Integer> entry : line.getSectionsMap().entrySet()) {
+                if (entry.getValue() != null && edgesByLine.get(l).containsKey(entry.getKey()))
+                    ordered.add(entry);
+            }
+            if (ordered.isEmpty() || times.isEmpty())
+                continue;
+            ordered.sort(Map.Entry.comparingByValue());
+            int[] edges = new int[ordered.size()];
+            int[] cumulated = new int[ordered.size()];
+            for (int i = 0; i < edges.length; i++) {
+                edges[i] = edgesByLine.get(l).get(ordered.get(i).getKey());
+                cumulated[i] = ordered.get(i).getValue();
+            }
+            int[] trips = new int[times.size()];
+            for (int i = 0; i < trips.length; i++)
+                trips[i] = times.get(i).toSeconds();
+            Arrays.sort(trips);
+            patternEdges.add(edges);
+            patternCumulated.add(cumulated);
+            patternTrips.add(trips);
+        }
+
+        int patternCount = patternEdges.size();
+        stopOffsets = new int[patternCount + 1];
+        tripOffsets = new int[patternCount + 1];
+        int stopCount = 0;
+        int tripCount = 0;
+        for (int p = 0; p < patternCount; p++) {
+            stopOffsets[p] = stopCount;
+            tripOffsets[p] = tripCount;
+            stopCount += patternEdges.get(p).length + 1;
+            tripCount += patternTrips.get(p).length;
+        }
+        stopOffsets[patternCount] = stopCount;
+        tripOffsets[patternCount] = tripCount;
+
+        stopNodes = new int[stopCount];
+        stopEdges = new int[stopCount];
+        stopPatterns = new int[stopCount];
+        departureOffsets = new int[stopCount];
+        arrivalOffsets = new int[stopCount];
+        tripDepartures = new int[tripCount];
+        int[] servedCount = new int[graph.nodeCount()];
+        for (int p = 0; p < patternCount; p++) {
+            int[] edges = patternEdges.get(p);
+            int[] cumulated = patternCumulated.get(p);
+            int s = stopOffsets[p];
+            for (int i = 0; i <= edges.length; i++, s++) {
+                stopPatterns[s] = p;
+                if (i < edges.length) {
+                    stopNodes[s] = graph.getPlatformNode(graph.getFromPlatform(edges[i]));
+                    stopEdges[s] = edges[i];
+                    departureOffsets[s] = cumulated[i] - graph.getDuration(edges[i]);
+                } else {
+                    stopNodes[s] = graph.getTarget(edges[i - 1]);
+                    stopEdges[s] = NO_EDGE;
+                    departureOffsets[s] = Integer.MAX_VALUE;
+                }
+                arrivalOffsets[s] = i == 0 ? departureOffsets[s] : cumulated[i - 1];
+                servedCount[stopNodes[s]]++;
+            }
+            System.arraycopy(patternTrips.get(p), 0, tripDepartures, tripOffsets[p],
+                    patternTrips.get(p).length);
+        }
+
+        nodeStopOffsets = new int[graph.nodeCount() + 1];
+        for (int u = 0; u < graph.nodeCount(); u++)
+            nodeStopOffsets[u + 1] = nodeStopOffsets[u] + servedCount[u];
+        nodeStops = new int[stopCount];
+        int[] next = Arrays.copyOf(nodeStopOffsets, graph.nodeCount());
+        for (int s = 0; s < stopCount; s++)
+            nodeStops[next[stopNodes[s]]++] = s;
+    }
+
+    /**
+     * @return le nombre de motifs
+     */
+    public int patternCount() {
+        return stopOffsets.length - 1;
+    }
+
+    /**
+     * @return le nombre d'arrêts de tous les motifs
+     */
+    public int stopCount() {
+        return stopNodes.length;
+    }
+
+    public int stopStart(int pattern) {
+        return stopOffsets[pattern];
+    }
+
+    public int stopEnd(int pattern) {
+        return stopOffsets[pattern + 1];
+    }
+
+    public int getPattern(int stop) {
+        return stopPatterns[stop];
+    }
+
+    public int getNode(int stop) {
+        return stopNodes[stop];
+    }
+
+    /**
+     * @param stop un arrêt
+     * @return l'arête vers l'arrêt suivant ou {@link #NO_EDGE} pour le dernier arrêt
+     */
+    public int getEdge(int stop) {
+        return stopEdges[stop];
+    }
+
+    public int getDepartureOffset(int stop) {
+        return departureOffsets[stop];
+    }
+
+    public int getArrivalOffset(int stop) {
+        return arrivalOffsets[stop];
+    }
+
+    /**
+     * @param node un sommet du graphe
+     * @return le premier indice des arrêts desservant {@code node}
+     */
+    public int nodeStopStart(int node) {
+        return nodeStopOffsets[node];
+    }
+
+    /**
+     * @param node un sommet du graphe
+     * @return la fin de l'intervalle des arrêts desservant {@code node}
+     */
+    public int nodeStopEnd(int node) {
+        return nodeStopOffsets[node + 1];
+    }
+
+    /**
+     * @param i un indice entre {@link #nodeStopStart(int)} et {@link #nodeStopEnd(int)}
+     * @return l'arrêt correspondant
+     */
+    public int getNodeStop(int i) {
+        return nodeStops[i];
+    }
+
+    /**
+     * @param pattern un motif
+     * @return le nombre de trains par jour du motif
+     */
+    public int tripCount(int pattern) {
+        return tripOffsets[pattern + 1] - tripOffsets[pattern];
+    }
+
+    /**
+     * Les trains d'un motif sont numérotés sur trois jours : les indices négatifs désignent les
+     * trains de la veille et ceux à partir de {@link #tripCount(int)} les trains du lendemain.
+     *
+     * @param pattern un motif
+     * @param trip un train entre {@code -tripCount(pattern)} et {@code 2 * tripCount(pattern)}
+     *        (exclus)
+     * @return l'horaire de départ en secondes du train depuis la station de départ de la ligne
+     */
+    public int tripDeparture(int pattern, int trip) {
+        int count = tripCount(pattern);
+        return tripDepartures[tripOffsets[pattern] + Math.floorMod(trip, count)]
+                + Math.floorDiv(trip, count) * ConnectionTable.DAY;
+    }
+
+    /**
+     * @param stop un arrêt qui n'est pas le dernier de son motif
+     * @param time un horaire en secondes
+     * @return le premier train partant de {@code stop} à {@code time} ou après, au sens de
+     *         {@link #tripDeparture(int, int)}, ou {@code Integer.MAX_VALUE} s'il n'y en a pas
+     */
+    public int earliestTrip(int stop, int time) {
+        int pattern = stopPatterns[stop];
+        int count = tripCount(pattern);
+        int low = -count;
+        int high = 2 * count;
+        int target = time - departureOffsets[stop];
+        while (low < high) {
+            int mid = Math.floorDiv(low + high, 2);
+            if (tripDeparture(pattern, mid) < target)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low == 2 * count ? Integer.MAX_VALUE : low;
+    }
+}
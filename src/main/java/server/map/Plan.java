@@ -1,13 +1,11 @@
 package server.map;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 import server.map.Line.DifferentStartException;
 import server.map.Line.StationNotFoundException;
 
@@ -31,6 +29,17 @@ public final class Plan {
      * Map où le nom de la station est associé à ses informations
      */
     private final Map<String, StationInfo> stationsInfo;
+    /**
+     * Représentation compacte du réseau, construite à la demande et invalidée à chaque
+     * modification du plan. Une fois construite, elle est partagée en lecture seule par toutes
+     * les requêtes.
+     */
+    private volatile Graph graph;
+    /**
+     * Index spatial des stations, construit à la demande et invalidé à chaque ajout de station.
+     * Comme {@code graph}, il est partagé en lecture seule par toutes les requêtes.
+     */
+    private volatile SpatialIndex spatialIndex;
 
     public Plan() {
         map = new HashMap<>();
@@ -39,25 +48,6 @@ public final class Plan {
         stationsInfo = new HashMap<>();
     }
 
-    /**
-     * Crée une copie du plan
-     *
-     * @param p un plan à copier
-     */
-    public Plan(Plan p) {
-        this.map = p.map.entrySet().stream().reduce(new HashMap<>(), (acc, e) -> {
-            acc.put(e.getKey(), e.getValue().stream().map(Section::new)
-                    .collect(Collectors.toCollection(ArrayList::new)));
-            return acc;
-        }, (acc, m) -> {
-            acc.putAll(m);
-            return acc;
-        });
-        this.lines = new HashMap<>(p.lines);
-        this.stations = new HashSet<>(p.stations);
-        this.stationsInfo = new HashMap<>(p.stationsInfo);
-    }
-
     private Plan(Map<String, List<Section>> map, Set<Station> stations, Map<String, Line> lines,
             Map<String, StationInfo> stationsInfo) {
         this.map = new HashMap<>(map);
@@ -119,6 +109,8 @@ public final class Plan {
      */
     private Station addStation(String name, double latitude, double longitude) {
         Station station = new Station(name, latitude, longitude);
+        graph = null;
+        spatialIndex = null;
         stations.add(station);
         map.putIfAbsent(name, new ArrayList<>());
         return station;
@@ -138,6 +130,7 @@ public final class Plan {
     private Line addSection(Station start, Station arrival, String lineName, int distance,
             int duration) throws IndexOutOfBoundsException {
         Section section = new Section(start, arrival, lineName, distance, duration);
+        graph = null;
         map.get(start.getName()).add(section);
         Line line = lines.computeIfAbsent(lineName, n -> {
             String argsSpltter = " ";
@@ -184,6 +177,7 @@ public final class Plan {
         Line l = lines.get(line);
         if (l == null)
             throw new UndefinedLineException(line);
+        invalidateTimetable();
         l.setStart(stationName);
         l.addDepartureTime(time[0], time[1]);
     }
@@ -194,23 +188,37 @@ public final class Plan {
      * n'est pas définie, ne fait rien.
      */
     public void updateSectionsTime() {
+        invalidateTimetable();
         lines.values().stream().forEach(Line::updateSectionsTime);
     }
 
     /**
-     * Met à jour l'horaire de départ d'une section à partir d'un horaire
+     * Construit si nécessaire la représentation compacte du réseau
      *
-     * @param section une section à mettre à jour
-     * @param time l'horaire minimal
+     * @return le graphe du plan
      */
-    public void updateSectionTime(Section section, Time time) {
-        if (section != null) {
-            Line l = lines.get(section.getLine());
-            if (l != null)
-                section.setTime(l.getNextTime(section, time));
-            else
-                section.setTime(time);
+    public Graph getGraph() {
+        Graph g = graph;
+        if (g == null) {
+            synchronized (this) {
+                g = graph;
+                if (g == null) {
+                    g = new Graph(map, stations, lines);
+                    graph = g;
+                }
+            }
         }
+        return g;
+    }
+
+    /**
+     * Oublie les données du graphe qui dépendent des horaires, en conservant celles qui ne
+     * dépendent que du réseau (dont les sections à pied et les hiérarchies de contraction)
+     */
+    private synchronized void invalidateTimetable() {
+        Graph g = graph;
+        if (g != null)
+            graph = g.withoutTimetable();
     }
 
     public Map<String, List<Section>> getMap() {
@@ -316,6 +324,7 @@ public final class Plan {
      */
     private void addFootSection(Station start, Station arrival) {
         List<Section> startSections = map.get(start.getName());
+        graph = null;
         if (startSections != null)
             startSections.add(new Section(start, arrival, null, start.distanceBetween(arrival),
                     start.durationBetween(arrival)));
@@ -331,15 +340,36 @@ public final class Plan {
      * @return la liste des stations proches de {@code station}
      */
     public List<Station> getCloseStations(Station station, int maxDistance, boolean closest) {
-        List<Station> closeStations = stations.stream()
-                .filter(s -> !s.equals(station) && station.distanceBetween(s) < maxDistance)
-                .collect(Collectors.toCollection(ArrayList::new));
+        SpatialIndex index = getSpatialIndex();
+        List<Station> closeStations = new ArrayList<>();
+        for (int i : index.withinRadius(station, maxDistance)) {
+            if (!index.get(i).equals(station))
+                closeStations.add(index.get(i));
+        }
         if (closeStations.isEmpty() && closest) {
-            Station closestStation = stations.stream().filter(s -> !s.equals(station))
-                    .min(Comparator.comparingInt(station::distanceBetween)).orElse(null);
-            if (closestStation != null)
-                closeStations.add(closestStation);
+            for (int i : index.nearest(station, 1))
+                closeStations.add(index.get(i));
         }
         return closeStations;
     }
+
+    /**
+     * Construit si nécessaire l'index spatial des stations
+     *
+     * @return l'index spatial des stations
+     */
+    private SpatialIndex getSpatialIndex() {
+        SpatialIndex index = spatialIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = spatialIndex;
+                if (index == null) {
+                    index = new SpatialIndex(stations.toArray(new Station[0]),
+                            Graph.MAX_FOOT_DISTANCE);
+                    spatialIndex = index;
+                }
+            }
+        }
+        return index;
+    }
 }
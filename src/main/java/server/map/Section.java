@@ -1,5 +1,10 @@
 package server.map;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -14,6 +19,19 @@ public class Section implements Serializable {
     @Serial
     private static final long serialVersionUID = 12L;
 
+    /**
+     * Les champs sérialisés : l'horaire de départ reste un {@link Time} pour que le format ne
+     * dépende pas de sa représentation en secondes
+     */
+    @Serial
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("start", Station.class),
+            new ObjectStreamField("arrival", Station.class),
+            new ObjectStreamField("line", String.class),
+            new ObjectStreamField("time", Time.class),
+            new ObjectStreamField("distance", int.class),
+            new ObjectStreamField("duration", int.class)};
+
     /**
      * La station de départ
      */
@@ -27,9 +45,9 @@ public class Section implements Serializable {
      */
     private String line;
     /**
-     * L'horaire de départ
+     * L'horaire de départ en secondes depuis minuit ou {@link Time#NO_TIME}
      */
-    private Time time;
+    private int time;
     /**
      * La longueur de la section en mètres
      */
@@ -38,6 +56,10 @@ public class Section implements Serializable {
      * La durée de la section en seconde
      */
     private final int duration;
+    /**
+     * La section lue par {@link #readObject(ObjectInputStream)}
+     */
+    private transient Section resolved;
 
     /**
      * Crée une section
@@ -58,7 +80,7 @@ public class Section implements Serializable {
         this.start = start;
         this.arrival = arrival;
         this.line = line;
-        this.time = null;
+        this.time = Time.NO_TIME;
         this.distance = distance;
         this.duration = duration;
     }
@@ -84,7 +106,7 @@ public class Section implements Serializable {
      * @param s une section à copier
      */
     public Section(Section s) {
-        this(s.start, s.arrival, s.line, s.time, s.distance, s.duration);
+        this(s.start, s.arrival, s.line, s.distance, s.duration);
     }
 
     public void setLine(String line) {
@@ -104,6 +126,13 @@ public class Section implements Serializable {
     }
 
     public Time getTime() {
+        return time == Time.NO_TIME ? null : new Time(time);
+    }
+
+    /**
+     * @return l'horaire de départ en secondes depuis minuit ou {@link Time#NO_TIME}
+     */
+    public int getTimeInSeconds() {
         return time;
     }
 
@@ -111,14 +140,26 @@ public class Section implements Serializable {
      * @return l'heure d'arrivé ou {@code null} si {@code time} est {@code null}
      */
     public Time getArrivalTime() {
-        return time == null ? null : time.addDuration(duration);
+        return time == Time.NO_TIME ? null : new Time(getArrivalTimeInSeconds());
+    }
+
+    /**
+     * @return l'heure d'arrivée en secondes depuis minuit ou {@link Time#NO_TIME}
+     */
+    public int getArrivalTimeInSeconds() {
+        return time == Time.NO_TIME ? Time.NO_TIME : Time.addDuration(time, duration);
     }
 
     public void setTime(Time time) {
-        if (time == null)
-            this.time = null;
-        else
-            this.time = new Time(time);
+        this.time = time == null ? Time.NO_TIME : time.toSeconds();
+    }
+
+    /**
+     * @param time l'horaire de départ en secondes, ramené entre minuit et 24h, ou
+     *        {@link Time#NO_TIME}
+     */
+    public void setTime(int time) {
+        this.time = time == Time.NO_TIME ? Time.NO_TIME : Time.addDuration(time, 0);
     }
 
     /**
@@ -139,16 +180,20 @@ public class Section implements Serializable {
      *         sections est {@code null}
      */
     public int durationTo(Section nextSection) throws IllegalArgumentException {
-        if (nextSection == null)
+        if (nextSection == null || time == Time.NO_TIME || nextSection.time == Time.NO_TIME)
             throw new IllegalArgumentException();
-        return arrival.durationBetween(nextSection.start)
-                + getArrivalTime().durationTo(nextSection.getArrivalTime());
+        return arrival.durationBetween(nextSection.start) + Time.durationBetween(
+                getArrivalTimeInSeconds(), nextSection.getArrivalTimeInSeconds());
     }
 
     public int getDuration() {
         return duration;
     }
 
+    public int getDistance() {
+        return distance;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof Section s)
@@ -166,11 +211,46 @@ public class Section implements Serializable {
     @Override
     public String toString() {
         return String.format("%s à %s : %s --> %s (%d m, %s)",
-                line == null ? "à pied" : "ligne " + line, time != null ? time : "no:tm",
+                line == null ? "à pied" : "ligne " + line,
+                time != Time.NO_TIME ? new Time(time) : "no:tm",
                 start.getName(), arrival.getName(), distance, new Time(duration));
 
     }
 
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("start", start);
+        fields.put("arrival", arrival);
+        fields.put("line", line);
+        fields.put("time", getTime());
+        fields.put("distance", distance);
+        fields.put("duration", duration);
+        out.writeFields();
+    }
+
+    /**
+     * Les champs de la section étant finaux, la section lue est reconstruite puis renvoyée par
+     * {@link #readResolve()}
+     */
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        try {
+            resolved = new Section((Station) fields.get("start", null),
+                    (Station) fields.get("arrival", null), (String) fields.get("line", null),
+                    fields.get("distance", 0), fields.get("duration", 0));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidObjectException("Section sans station");
+        }
+        resolved.setTime((Time) fields.get("time", null));
+    }
+
+    @Serial
+    private Object readResolve() {
+        return resolved;
+    }
+
     public static List<Section> sectionsToTrajet(List<Section> sections) {
         if (sections == null || sections.isEmpty())
             return sections;
@@ -180,7 +260,7 @@ public class Section implements Serializable {
         Station start = first.start;
         Station arrival = first.arrival;
         String line = first.line;
-        Time time = first.time;
+        int time = first.time;
         int distance = 0;
         int duration = 0;
 
@@ -0,0 +1,294 @@
+package server.map;
+
+import java.util.Arrays;
+
+/**
+ * Index spatial d'un ensemble de stations sous forme de grille uniforme, utilisé pour trouver les
+ * stations proches d'une coordonnée sans parcourir toutes les stations.
+ *
+ * <p>
+ * Les stations sont rangées par cellule de la grille au format CSR : celles de la cellule
+ * {@code c} sont les indices {@code [cellOffsets[c], cellOffsets[c + 1])} de {@code items}. Une
+ * recherche ne parcourt que les cellules pouvant contenir une station assez proche, puis calcule
+ * la distance exacte avec {@link Station#distanceBetween(Station)} : les résultats sont les mêmes
+ * qu'avec un parcours de toutes les stations.
+ */
+public final class SpatialIndex {
+    /**
+     * Le rayon de la terre en mètres, comme dans {@link Coordinate}
+     */
+    private static final double EARTH_RADIUS = 6_371_000;
+    /**
+     * Marge en mètres absorbant l'arrondi des distances
+     */
+    private static final int MARGIN = 1;
+    /**
+     * Le nombre maximal de cellules par station
+     */
+    private static final int CELLS_PER_STATION = 4;
+
+    /**
+     * Les stations indexées
+     */
+    private final Station[] stations;
+    /**
+     * La latitude minimale des stations en degrés
+     */
+    private final double minLatitude;
+    /**
+     * La longitude minimale des stations en degrés
+     */
+    private final double minLongitude;
+    /**
+     * La hauteur d'une cellule en degrés de latitude
+     */
+    private final double cellLatitude;
+    /**
+     * La largeur d'une cellule en degrés de longitude
+     */
+    private final double cellLongitude;
+    /**
+     * Le plus petit cosinus de la latitude des stations
+     */
+    private final double minCos;
+    /**
+     * Le nombre de lignes de la grille
+     */
+    private final int rows;
+    /**
+     * Le nombre de colonnes de la grille
+     */
+    private final int columns;
+    /**
+     * La première station de chaque cellule, {@code cellOffsets[c + 1]} est la fin de
+     * l'intervalle
+     */
+    private final int[] cellOffsets;
+    /**
+     * Les indices des stations rangés par cellule
+     */
+    private final int[] items;
+
+    /**
+     * Construit l'index
+     *
+     * @param stations les stations à indexer, désignées ensuite par leur indice dans ce tableau
+     * @param cellSize la taille souhaitée d'une cellule en mètres
+     */
+    public SpatialIndex(Station[] stations, int cellSize) {
+        this.stations = stations;
+        int n = stations.length;
+        double minLat = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE;
+        double minLon = Double.MAX_VALUE;
+        double maxLon = -Double.MAX_VALUE;
+        double cos = 1;
+        for (Station s : stations) {
+            Coordinate c = s.getCoordinate();
+            minLat = Math.min(minLat, c.getLatitude());
+            maxLat = Math.max(maxLat, c.getLatitude());
+            minLon = Math.min(minLon, c.getLongitude());
+            maxLon = Math.max(maxLon, c.getLongitude());
+            cos = Math.min(cos, Math.cos(Math.toRadians(c.getLatitude())));
+        }
+        if (n == 0) {
+            minLat = maxLat = minLon = maxLon = 0;
+        }
+        minLatitude = minLat;
+        minLongitude = minLon;
+        minCos = Math.max(cos, 0);
+
+        double height = Math.toDegrees(Math.max(cellSize, 1) / EARTH_RADIUS);
+        double width = height / Math.max(Math.cos(Math.toRadians((minLat + maxLat) / 2)), 0.01);
+        int r = (int) ((maxLat - minLat) / height) + 1;
+        int c = (int) ((maxLon - minLon) / width) + 1;
+        while ((long) r * c > Math.max(1, (long) n * CELLS_PER_STATION)) {
+            height *= 2;
+            width *= 2;
+            r = (int) ((maxLat - minLat) / height) + 1;
+            c = (int) ((maxLon - minLon) / width) + 1;
+        }
+        cellLatitude = height;
+        cellLongitude = width;
+        rows = r;
+        columns = c;
+
+        cellOffsets = new int[rows * columns + 1];
+        int[] cells = new int[n];
+        for (int i = 0; i < n; i++) {
+            Coordinate coord = stations[i].getCoordinate();
+            cells[i] = row(coord.getLatitude()) * columns + column(coord.getLongitude());
+            cellOffsets[cells[i] + 1]++;
+        }
+        for (int i = 0; i < rows * columns; i++)
+            cellOffsets[i + 1] += cellOffsets[i];
+        items = new int[n];
+        int[] next = Arrays.copyOf(cellOffsets, rows * columns);
+        for (int i = 0; i < n; i++)
+            items[next[cells[i]]++] = i;
+    }
+
+    /**
+     * @return le nombre de stations indexées
+     */
+    public int size() {
+        return stations.length;
+    }
+
+    /**
+     * @param index l'indice d'une station
+     * @return la station correspondante
+     */
+    public Station get(int index) {
+        return stations[index];
+    }
+
+    /**
+     * Trouve les stations à moins de {@code maxDistance} mètres d'une station
+     *
+     * @param station une station, indexée ou non
+     * @param maxDistance le rayon de recherche en mètres
+     * @return les indices des stations trouvées, dans l'ordre croissant, {@code station} comprise
+     *         si elle est indexée
+     */
+    public int[] withinRadius(Station station, int maxDistance) {
+        Coordinate center = station.getCoordinate();
+        double latitude = center.getLatitude();
+        double longitude = center.getLongitude();
+        double angle = (maxDistance + MARGIN) / EARTH_RADIUS;
+        double dLat = Math.toDegrees(angle);
+        double cos = Math.min(minCos, Math.cos(Math.toRadians(latitude)));
+        double sin = Math.sin(angle / 2);
+        int firstColumn = 0;
+        int lastColumn = columns - 1;
+        if (sin < cos) {
+            double dLon = Math.toDegrees(2 * Math.asin(sin / cos));
+            firstColumn = column(longitude - dLon);
+            lastColumn = column(longitude + dLon);
+        }
+        int firstRow = row(latitude - dLat);
+        int lastRow = row(latitude + dLat);
+
+        int[] found = new int[16];
+        int size = 0;
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                int cell = r * columns + c;
+                for (int i = cellOffsets[cell]; i < cellOffsets[cell + 1]; i++) {
+                    int item = items[i];
+                    if (station.distanceBetween(stations[item]) < maxDistance) {
+                        if (size == found.length)
+                            found = Arrays.copyOf(found, size * 2);
+                        found[size++] = item;
+                    }
+                }
+            }
+        }
+        found = Arrays.copyOf(found, size);
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+     * Trouve les {@code k} stations les plus proches d'une station, en ignorant les stations
+     * égales à {@code station}. À distance égale, la station de plus petit indice est choisie.
+     *
+     * @param station une station, indexée ou non
+     * @param k le nombre de stations cherchées
+     * @return les indices des stations trouvées, de la plus proche à la plus lointaine
+     */
+    public int[] nearest(Station station, int k) {
+        Coordinate center = station.getCoordinate();
+        double latitude = center.getLatitude();
+        double longitude = center.getLongitude();
+        double cos = Math.min(minCos, Math.cos(Math.toRadians(latitude)));
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+        int[] best = new int[Math.max(k, 0)];
+        int[] bestDistances = new int[best.length];
+        int size = 0;
+        int maxRing = Math.max(rows, columns);
+        for (int ring = 0; ring <= maxRing && best.length > 0; ring++) {
+            for (int r = centerRow - ring; r <= centerRow + ring; r++) {
+                if (r < 0 || r >= rows)
+                    continue;
+                boolean edge = r == centerRow - ring || r == centerRow + ring;
+                int step = edge ? 1 : 2 * ring;
+                for (int c = centerColumn - ring; c <= centerColumn + ring; c += step) {
+                    if (c < 0 || c >= columns)
+                        continue;
+                    int cell = r * columns + c;
+                    for (int i = cellOffsets[cell]; i < cellOffsets[cell + 1]; i++) {
+                        int item = items[i];
+                        if (stations[item].equals(station))
+                            continue;
+                        size = insert(best, bestDistances, size, item,
+                                station.distanceBetween(stations[item]));
+                    }
+                }
+            }
+            if (size == best.length && bestDistances[size - 1] < lowerBound(latitude, longitude,
+                    centerRow, centerColumn, ring, cos))
+                break;
+        }
+        return Arrays.copyOf(best, size);
+    }
+
+    /**
+     * Insère une station parmi les plus proches trouvées, triées par distance puis par indice
+     *
+     * @return le nouveau nombre de stations trouvées
+     */
+    private static int insert(int[] best, int[] distances, int size, int item, int distance) {
+        int i = size;
+        while (i > 0 && (distances[i - 1] > distance
+                || (distances[i - 1] == distance && best[i - 1] > item)))
+            i--;
+        if (i == best.length)
+            return size;
+        int moved = Math.min(size, best.length - 1) - i;
+        System.arraycopy(best, i, best, i + 1, moved);
+        System.arraycopy(distances, i, distances, i + 1, moved);
+        best[i] = item;
+        distances[i] = distance;
+        return Math.min(size + 1, best.length);
+    }
+
+    /**
+     * @return un minorant en mètres de la distance entre le centre et toute station située hors
+     *         des cellules à moins de {@code ring} cellules de la cellule du centre
+     */
+    private double lowerBound(double latitude, double longitude, int centerRow,
+            int centerColumn, int ring, double cos) {
+        double south = latitude - (minLatitude + (centerRow - ring) * cellLatitude);
+        double north = minLatitude + (centerRow + ring + 1) * cellLatitude - latitude;
+        double west = longitude - (minLongitude + (centerColumn - ring) * cellLongitude);
+        double east = minLongitude + (centerColumn + ring + 1) * cellLongitude - longitude;
+        double dLat = Math.min(south, north);
+        double dLon = Math.min(west, east);
+        if (dLat <= 0 || dLon <= 0)
+            return 0;
+        double latBound = Math.toRadians(dLat) * EARTH_RADIUS;
+        double lonBound = 2 * EARTH_RADIUS
+                * Math.asin(Math.min(1, cos * Math.sin(Math.toRadians(Math.min(dLon, 180)) / 2)));
+        return Math.min(latBound, lonBound) - MARGIN;
+    }
+
+    /**
+     * @param latitude une latitude en degrés
+     * @return la ligne de la grille contenant {@code latitude}, bornée à la grille
+     */
+    private int row(double latitude) {
+        int r = (int) Math.floor((latitude - minLatitude) / cellLatitude);
+        return Math.max(0, Math.min(rows - 1, r));
+    }
+
+    /**
+     * @param longitude une longitude en degrés
+     * @return la colonne de la grille contenant {@code longitude}, bornée à la grille
+     */
+    private int column(double longitude) {
+        int c = (int) Math.floor((longitude - minLongitude) / cellLongitude);
+        return Math.max(0, Math.min(columns - 1, c));
+    }
+}
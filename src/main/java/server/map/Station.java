@@ -61,7 +61,15 @@ public class Station implements Serializable {
      * @return le temps en seconde pour arriver à {@code station} en marchant
      */
     public int durationBetween(Station station) {
-        return (int) Math.round(distanceBetween(station) / WALKING_SPEED);
+        return walkingDuration(distanceBetween(station));
+    }
+
+    /**
+     * @param distance une distance en mètres
+     * @return le temps en seconde pour parcourir {@code distance} en marchant
+     */
+    public static int walkingDuration(int distance) {
+        return (int) Math.round(distance / WALKING_SPEED);
     }
 
     @Override
@@ -16,6 +16,11 @@ public record Time(int hour, int minute, int second) implements Comparable<Time>
      */
     private static final int HOUR_IN_A_DAY = 3600 * 24;
 
+    /**
+     * Valeur d'un horaire en secondes absent
+     */
+    public static final int NO_TIME = -1;
+
     /**
      * Créer un nouveau temps
      *
@@ -64,10 +69,7 @@ public record Time(int hour, int minute, int second) implements Comparable<Time>
      * @return un nouveau temps avec les secondes en plus
      */
     public Time addDuration(int second) {
-        int s = this.second + second;
-        int m = minute + (s / 60);
-        int h = hour + (m / 60);
-        return new Time(h % 24, m % 60, s % 60);
+        return new Time(addDuration(toSeconds(), second));
     }
 
     @Override
@@ -79,7 +81,7 @@ public record Time(int hour, int minute, int second) implements Comparable<Time>
     /**
      * @return le nombre de secondes depuis minuit
      */
-    private int toSeconds() {
+    public int toSeconds() {
         return second + minute * 60 + hour * 3600;
     }
 
@@ -93,12 +95,27 @@ public record Time(int hour, int minute, int second) implements Comparable<Time>
      * @return le nombre de secondes nécessaire pour atteindre {@code time}
      */
     public int durationTo(Time time) {
-        int t1 = toSeconds();
-        int t2 = time.toSeconds();
-        int diff = t2 - t1;
-        while (diff < 0) {
-            diff += HOUR_IN_A_DAY;
-        }
-        return diff;
+        return durationBetween(toSeconds(), time.toSeconds());
+    }
+
+    /**
+     * Ajoute des secondes à un horaire sans créer de temps, en revenant à minuit après 24h
+     *
+     * @param time un horaire en secondes depuis minuit
+     * @param second le nombre de secondes à ajouter
+     * @return le nouvel horaire en secondes depuis minuit
+     */
+    public static int addDuration(int time, int second) {
+        return Math.floorMod(time + second, HOUR_IN_A_DAY);
+    }
+
+    /**
+     * @param from un horaire en secondes depuis minuit
+     * @param to l'horaire à atteindre en secondes depuis minuit
+     * @return le nombre de secondes nécessaire pour atteindre {@code to}, le lendemain si
+     *         {@code to} est avant {@code from}
+     */
+    public static int durationBetween(int from, int to) {
+        return Math.floorMod(to - from, HOUR_IN_A_DAY);
     }
 }
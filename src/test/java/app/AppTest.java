@@ -3,10 +3,15 @@
  */
 package app;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import javax.json.Json;
+import javax.json.JsonObject;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import server.Server;
 
 
 class AppTest {
@@ -48,5 +53,22 @@ class AppTest {
         assertTrue(App.hasCsvTimeFile(args));
     }
 
+    @Test
+    @Timeout(value = TIMEOUT)
+    void testModeValue() {
+        JsonObject virtual = Json.createObjectBuilder().add("mode", "VIRTUAL_THREADS").build();
+        App.affectModeValue(virtual);
+        assertEquals(Server.Mode.VIRTUAL_THREADS, App.getMode());
+        App.affectModeValue(Json.createObjectBuilder().build());
+        assertEquals(Server.DEFAULT_MODE, App.getMode());
+    }
 
+    @Test
+    @Timeout(value = TIMEOUT)
+    void testWrongModeValue() {
+        JsonObject unknown = Json.createObjectBuilder().add("mode", "THREADS").build();
+        assertThrows(IllegalArgumentException.class, () -> App.affectModeValue(unknown));
+        JsonObject number = Json.createObjectBuilder().add("mode", 2).build();
+        assertThrows(IllegalArgumentException.class, () -> App.affectModeValue(number));
+    }
 }
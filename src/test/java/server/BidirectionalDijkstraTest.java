@@ -0,0 +1,116 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import server.Dijkstra.PathNotFoundException;
+import server.map.Plan;
+import server.map.PlanParser;
+import server.map.Section;
+
+class BidirectionalDijkstraTest {
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final String MAP_DATA_ALL = "map_data_all";
+
+    private static final String BASTILLE = "(48.853425461693300, 2.3695064282002)";
+
+    private static final String NATION = "(48.848, 2.396)";
+
+    private final Plan plan;
+
+    private final List<String> stations;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    BidirectionalDijkstraTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        stations = new ArrayList<>(plan.getStationsName());
+        stations.sort(null);
+    }
+
+    /**
+     * Vérifie que le chemin est continu et a le même poids qu'avec la hiérarchie de contraction,
+     * qui utilise les mêmes arcs
+     */
+    private void sameWeightHelper(String start, String arrival, boolean foot) throws Exception {
+        BidirectionalDijkstra search = new BidirectionalDijkstra(plan, start, arrival, null, foot);
+        ContractionSearch hierarchy = new ContractionSearch(plan, start, arrival, null, foot);
+        List<Section> path = search.getPath();
+        hierarchy.getPath();
+        String message = String.format("%s to %s with bidirectional search", start, arrival);
+        assertEquals(hierarchy.getWeight(), search.getWeight(), message);
+        for (int i = 1; i < path.size(); i++)
+            assertEquals(path.get(i - 1).getArrival().getName(),
+                    path.get(i).getStart().getName(), message);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameWeightAsHierarchy() throws Exception {
+        for (int i = 0; i < stations.size(); i += 13) {
+            for (int j = 5; j < stations.size(); j += 17)
+                sameWeightHelper(stations.get(i), stations.get(j), false);
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameWeightAsHierarchyWithFoot() throws Exception {
+        sameWeightHelper("Lourmel", "Bastille", true);
+        sameWeightHelper("Porte Dauphine", "Nation", true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameWeightAsHierarchyWithCoordinates() throws Exception {
+        sameWeightHelper(BASTILLE, NATION, true);
+        sameWeightHelper("Lourmel", NATION, false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void settlesFewerPlatformsThanOneWay() throws Exception {
+        long bidirectional = 0;
+        long oneWay = 0;
+        for (int i = 0; i < stations.size(); i += 13) {
+            for (int j = 5; j < stations.size(); j += 17) {
+                BidirectionalDijkstra both = new BidirectionalDijkstra(plan, stations.get(i),
+                        stations.get(j), null, false, true);
+                BidirectionalDijkstra forward = new BidirectionalDijkstra(plan, stations.get(i),
+                        stations.get(j), null, false, false);
+                both.getPath();
+                forward.getPath();
+                assertEquals(forward.getWeight(), both.getWeight(), "Same weight one way");
+                bidirectional += both.getSettledCount();
+                oneWay += forward.getSettledCount();
+            }
+        }
+        assertTrue(bidirectional < oneWay, "Bidirectional search settles fewer platforms");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameStation() throws Exception {
+        assertTrue(new BidirectionalDijkstra(plan, "Bastille", "Bastille", null, false).getPath()
+                .isEmpty(), "Empty path");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void unknownStation() {
+        assertThrows(PathNotFoundException.class,
+                () -> new BidirectionalDijkstra(plan, "Bastille", "Nulle part", null, false)
+                        .getPath(),
+                "Unknown station");
+    }
+}
@@ -0,0 +1,204 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import server.data.BatchResponses;
+import server.data.BinaryCodec;
+import server.data.DepartureTimes;
+import server.data.ErrorServer;
+import server.data.ProtocolAccepted;
+import server.data.ReachableStations;
+import server.data.Route;
+import server.data.Routes;
+import server.data.ServerResponse;
+import server.data.StationTime;
+import server.data.SuggestionStations;
+import server.data.SuggestionStations.SuggestionKind;
+import server.data.TravelMatrix;
+import server.map.Plan;
+import server.map.PlanParser;
+import server.map.Section;
+import server.map.Station;
+import server.map.StationInfo;
+import server.map.Time;
+
+class BinaryCodecTest {
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final String MAP_DATA_ALL = "map_data_fix_dist_time";
+
+    private static final String TIME_DATA_ALL = "time_data_all";
+
+    private final Plan plan;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    BinaryCodecTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        PlanParser.addTimeFromCSV(plan, getPath(TIME_DATA_ALL));
+    }
+
+    private static ServerResponse roundTrip(ServerResponse response) throws IOException {
+        byte[] frame = BinaryCodec.encode(response);
+        ByteArrayInputStream in = new ByteArrayInputStream(frame);
+        ServerResponse decoded = BinaryCodec.decode(in);
+        assertEquals(0, in.available(), "Whole frame read");
+        return decoded;
+    }
+
+    private static void assertSameSections(List<Section> expected, List<Section> actual) {
+        if (expected == null) {
+            assertNull(actual, "Null route");
+            return;
+        }
+        assertEquals(expected, actual, "Same sections");
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals(expected.get(i).getTimeInSeconds(), actual.get(i).getTimeInSeconds(),
+                    "Same section time");
+    }
+
+    private static void assertSameResponse(ServerResponse expected, ServerResponse actual) {
+        assertEquals(expected.getClass(), actual.getClass(), "Same response type");
+        if (expected instanceof ErrorServer error) {
+            assertEquals(error.getError(), ((ErrorServer) actual).getError(), "Same error");
+        } else if (expected instanceof Route route) {
+            assertSameSections(route.getPathDistOpt(), ((Route) actual).getPathDistOpt());
+        } else if (expected instanceof Routes routes) {
+            List<Route> decoded = ((Routes) actual).getRoutes();
+            assertEquals(routes.getRoutes().size(), decoded.size(), "Same number of routes");
+            for (int i = 0; i < decoded.size(); i++)
+                assertSameResponse(routes.getRoutes().get(i), decoded.get(i));
+        } else if (expected instanceof DepartureTimes times) {
+            assertEquals(times.getTimes(), ((DepartureTimes) actual).getTimes(), "Same times");
+        } else if (expected instanceof SuggestionStations suggestions) {
+            SuggestionStations decoded = (SuggestionStations) actual;
+            assertEquals(suggestions.getKind(), decoded.getKind(), "Same kind");
+            assertEquals(suggestions.getStations(), decoded.getStations(), "Same stations");
+        } else if (expected instanceof ReachableStations reachable) {
+            ReachableStations decoded = (ReachableStations) actual;
+            assertTrue(Arrays.equals(reachable.getStations(), decoded.getStations()),
+                    "Same stations");
+            assertTrue(Arrays.equals(reachable.getArrivals(), decoded.getArrivals()),
+                    "Same arrivals");
+        } else if (expected instanceof BatchResponses batch) {
+            List<ServerResponse> decoded = ((BatchResponses) actual).getResponses();
+            assertEquals(batch.getResponses().size(), decoded.size(), "Same number of responses");
+            for (int i = 0; i < decoded.size(); i++)
+                assertSameResponse(batch.getResponses().get(i), decoded.get(i));
+        } else if (expected instanceof TravelMatrix matrix) {
+            TravelMatrix decoded = (TravelMatrix) actual;
+            assertTrue(Arrays.equals(matrix.getOrigins(), decoded.getOrigins()), "Same origins");
+            assertTrue(Arrays.equals(matrix.getDestinations(), decoded.getDestinations()),
+                    "Same destinations");
+            assertTrue(Arrays.equals(matrix.getValues(), decoded.getValues()), "Same values");
+        } else if (expected instanceof ProtocolAccepted accepted) {
+            ProtocolAccepted decoded = (ProtocolAccepted) actual;
+            assertEquals(accepted.getProtocol(), decoded.getProtocol(), "Same protocol");
+            assertEquals(accepted.getVersion(), decoded.getVersion(), "Same version");
+        }
+    }
+
+    @ParameterizedTest
+    @Timeout(DEFAULT_TIMEOUT)
+    @ValueSource(strings = {"ROUTE;Gare de Lyon; Madeleine;13:30;TIME",
+            "ROUTE;Gare de Lyon; Madeleine;13:30;DISTANCE;FOOT",
+            "ROUTE;Bastille;Balard;8:00;TIME;FOOT;RAPTOR",
+            "ROUTE;Gare de Lyon; Madeleine;13:30;PARETO;FOOT", "ROUTE;GARE1;GARE2;13:30;TIME",
+            "TIME;Bastille;13:30", "SEARCH;Ba;DEPART", "SEARCH;Pla;ARRIVAL",
+            "ISOCHRONE;Bastille;13:30;20;FOOT",
+            "BATCH;Gare de Lyon; Madeleine;13:30;TIME|Bastille;Nation;8:00;PARETO|A;B;8:00;TIME",
+            "MATRIX;Bastille|Porte des Lilas;Nation|Balard;8:00;TIME",
+            "MATRIX;Bastille|Balard;Nation|Madeleine;8:00;DISTANCE"})
+    void roundTripRequests(String request) throws Exception {
+        ServerResponse response = RequestParser.getServerActionCallback(plan, request).execute();
+        assertSameResponse(response, roundTrip(response));
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void roundTripNulls() throws Exception {
+        assertSameResponse(new Route(null), roundTrip(new Route(null)));
+        assertSameResponse(new ErrorServer(null), roundTrip(new ErrorServer(null)));
+        Station a = new Station("A", 48.85, 2.35);
+        Station b = new Station("B", -48.5, -2.25);
+        Section walk = new Section(a, b, null, 120, 90);
+        Section ride = new Section(b, a, "14", 4000, 300);
+        ride.setTime(0);
+        Route route = new Route(List.of(walk, ride, walk));
+        assertSameResponse(route, roundTrip(route));
+        DepartureTimes times = new DepartureTimes(List.of(new StationTime(null, "A", new Time(0)),
+                new StationTime("14", "B", new Time(23, 59, 59))));
+        assertSameResponse(times, roundTrip(times));
+        SuggestionStations suggestions = new SuggestionStations(
+                Set.of(new StationInfo("A", List.of("14", "1")), new StationInfo("B")), null);
+        assertSameResponse(suggestions, roundTrip(suggestions));
+        TravelMatrix matrix = new TravelMatrix(new String[] {"A"}, new String[] {"A", "B"},
+                new int[] {0, TravelMatrix.UNREACHABLE});
+        assertSameResponse(matrix, roundTrip(matrix));
+        ProtocolAccepted accepted = new ProtocolAccepted("BINARY", BinaryCodec.VERSION);
+        assertSameResponse(accepted, roundTrip(accepted));
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void namesWrittenOnce() {
+        Station a = new Station("Une station au nom particulièrement long", 48.85, 2.35);
+        Station b = new Station("Une autre station au nom tout aussi long", 48.86, 2.36);
+        Section section = new Section(a, b, "ligne au nom long", 500, 60);
+        byte[] one = BinaryCodec.encode(new Route(List.of(section)));
+        byte[] ten = BinaryCodec.encode(new Route(
+                List.of(section, section, section, section, section, section, section, section,
+                        section, section)));
+        assertTrue(ten.length - one.length < 9 * 10,
+                "Repeated sections only refer to the dictionary");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void consecutiveFrames() throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(BinaryCodec.encode(new ErrorServer("premier")));
+        stream.write(BinaryCodec.encode(new ErrorServer("second")));
+        ByteArrayInputStream in = new ByteArrayInputStream(stream.toByteArray());
+        assertEquals("premier", ((ErrorServer) BinaryCodec.decode(in)).getError(),
+                "First frame");
+        assertEquals("second", ((ErrorServer) BinaryCodec.decode(in)).getError(),
+                "Second frame");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void malformedFrames() {
+        byte[] frame = BinaryCodec.encode(new ErrorServer("erreur"));
+        assertThrows(EOFException.class,
+                () -> BinaryCodec.decode(new ByteArrayInputStream(frame, 0, frame.length - 1)),
+                "Truncated frame");
+        byte[] version = frame.clone();
+        version[4] = 42;
+        assertThrows(IOException.class,
+                () -> BinaryCodec.decode(new ByteArrayInputStream(version)), "Unknown version");
+        byte[] length = frame.clone();
+        length[0] = (byte) 0x80;
+        assertThrows(IOException.class,
+                () -> BinaryCodec.decode(new ByteArrayInputStream(length)), "Negative length");
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryCodec.encode(new ServerResponse() {}), "Unknown response type");
+    }
+}
@@ -0,0 +1,133 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ObjectInputStream;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import server.data.ErrorServer;
+import server.data.Route;
+import server.data.SuggestionStations;
+import server.map.Plan;
+import server.map.PlanParser;
+
+class BlockingClientHandlerTest {
+
+    private static final long TIMEOUT = 3;
+
+    private static final String HOST = "localhost";
+
+    private static final String ROUTE_REQUEST_RIGHT = "ROUTE;Pyramides;Bercy;14:45;DISTANCE;";
+
+    private static final String ROUTE_REQUEST_WRONG = "ROUTE;GARE1;GARE2";
+
+    private static final String SUGGESTION_REQUEST = "SEARCH;GARE1;DEPART";
+
+    private static final String MAP_DATA_ALL = "map_data_all";
+
+    private final Plan plan;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    BlockingClientHandlerTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+    }
+
+    /**
+     * Ouvre une connexion servie par un {@code BlockingClientHandler} sur son propre thread,
+     * envoie les requêtes et lit une réponse par requête
+     *
+     * @param plans donne le plan au {@code BlockingClientHandler}
+     * @param executor les threads de calcul du {@code BlockingClientHandler}
+     * @param requests les requêtes
+     * @return les réponses, dans l'ordre des requêtes
+     */
+    private Object[] exchange(Supplier<Plan> plans, ExecutorService executor, String... requests)
+            throws Exception {
+        try (ServerSocketChannel listener = ServerSocketChannel.open()) {
+            listener.bind(new InetSocketAddress(HOST, 0));
+            try (Socket socket = new Socket(HOST, listener.socket().getLocalPort())) {
+                Thread client = new Thread(
+                        new BlockingClientHandler(plans, executor, listener.accept()));
+                client.start();
+                PrintWriter writer = new PrintWriter(socket.getOutputStream());
+                for (String request : requests)
+                    writer.println(request);
+                writer.flush();
+                Object[] responses = new Object[requests.length];
+                for (int i = 0; i < requests.length; i++)
+                    responses[i] = new ObjectInputStream(socket.getInputStream()).readObject();
+                socket.shutdownOutput();
+                client.join();
+                return responses;
+            }
+        }
+    }
+
+    @Test
+    @Timeout(value = TIMEOUT)
+    void computesOnInjectedExecutor() throws Exception {
+        AtomicInteger computed = new AtomicInteger();
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>()) {
+            @Override
+            protected void beforeExecute(Thread thread, Runnable task) {
+                computed.incrementAndGet();
+            }
+        };
+        try {
+            Object[] responses = exchange(() -> plan, executor, ROUTE_REQUEST_RIGHT,
+                    ROUTE_REQUEST_WRONG, SUGGESTION_REQUEST);
+            assertTrue(responses[0] instanceof Route, "Route");
+            assertTrue(responses[1] instanceof ErrorServer, "Unknown stations");
+            assertTrue(responses[2] instanceof SuggestionStations, "Suggestions");
+            assertEquals(3, computed.get(), "Computed by the injected executor");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(value = TIMEOUT)
+    void failingRequestAnsweredWithError() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<Plan> plans = () -> {
+            if (calls.getAndIncrement() == 0)
+                throw new IllegalStateException("plan indisponible");
+            return plan;
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Object[] responses =
+                    exchange(plans, executor, ROUTE_REQUEST_RIGHT, ROUTE_REQUEST_RIGHT);
+            assertTrue(responses[0] instanceof ErrorServer, "Error in place of the response");
+            assertTrue(responses[1] instanceof Route, "Connection still answers");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(value = TIMEOUT)
+    void stoppedExecutorAnsweredWithError() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        Object[] responses = exchange(() -> plan, executor, ROUTE_REQUEST_RIGHT);
+        assertTrue(responses[0] instanceof ErrorServer, "Error when the computation is rejected");
+    }
+}
@@ -0,0 +1,203 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import server.Dijkstra.PathNotFoundException;
+import server.map.ConnectionTable;
+import server.map.Plan;
+import server.map.PlanParser;
+import server.map.Section;
+import server.map.Time;
+
+class ConnectionScanTest {
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final int RANDOM_TIMEOUT = 10000;
+
+    private static final int RANDOM_PAIRS = 300;
+
+    private static final String MAP_DATA_ALL = "map_data_fix_dist_time";
+
+    private static final String TIME_DATA_ALL = "time_data_all";
+
+    private final Plan plan;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    ConnectionScanTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        PlanParser.addTimeFromCSV(plan, getPath(TIME_DATA_ALL));
+    }
+
+    /**
+     * @return le nombre de secondes entre {@code depart} et l'arrivée du trajet
+     */
+    private int travelTime(Time depart, List<Section> path) {
+        Section last = path.get(path.size() - 1);
+        return depart.durationTo(last.getTime()) + last.getDuration();
+    }
+
+    private void checkPath(Time depart, List<Section> path, String start, String arrival) {
+        assertFalse(path.isEmpty(), "Path not empty");
+        assertEquals(start, path.get(0).getStart().getName(), "First station");
+        assertEquals(arrival, path.get(path.size() - 1).getArrival().getName(), "Last station");
+        int elapsed = 0;
+        for (int i = 0; i < path.size(); i++) {
+            Section section = path.get(i);
+            if (i > 0)
+                assertEquals(path.get(i - 1).getArrival().getName(),
+                        section.getStart().getName(), "Consecutive sections");
+            int leave = depart.durationTo(section.getTime());
+            assertTrue(elapsed <= leave, "Section leaves after the previous one arrives");
+            elapsed = leave + section.getDuration();
+        }
+    }
+
+    private void sameArrivalAsDijkstraHelper(String start, String arrival, Time depart)
+            throws Exception {
+        List<Section> csa = new ConnectionScan(plan, start, arrival, depart, false).getPath();
+        List<Section> dijkstra =
+                new Dijkstra(plan, start, arrival, depart, false, false).getPath();
+        checkPath(depart, csa, start, arrival);
+        assertTrue(travelTime(depart, csa) <= travelTime(depart, dijkstra),
+                String.format("%s to %s from %s arrives no later than Dijkstra", start, arrival,
+                        depart));
+    }
+
+    /**
+     * Compare Connection Scan et Dijkstra sur des couples de stations et des horaires tirés au
+     * hasard : Connection Scan trouve un trajet dès que Dijkstra en trouve un et n'arrive jamais
+     * plus tard
+     */
+    private void randomPairsHelper(boolean foot) throws Exception {
+        List<String> stations = new ArrayList<>(plan.getStationsName());
+        stations.sort(null);
+        Random random = new Random(42);
+        for (int i = 0; i < RANDOM_PAIRS; i++) {
+            String start = stations.get(random.nextInt(stations.size()));
+            String arrival = stations.get(random.nextInt(stations.size()));
+            int seconds = random.nextInt(ConnectionTable.DAY);
+            Time depart = new Time(seconds / 3600, seconds / 60 % 60, seconds % 60);
+            if (start.equals(arrival))
+                continue;
+            List<Section> dijkstra;
+            try {
+                dijkstra = new Dijkstra(plan, start, arrival, depart, false, foot).getPath();
+            } catch (PathNotFoundException e) {
+                continue;
+            }
+            String pair = String.format("%s to %s from %s", start, arrival, depart);
+            List<Section> csa = new ConnectionScan(plan, start, arrival, depart, foot).getPath();
+            checkPath(depart, csa, start, arrival);
+            assertTrue(travelTime(depart, csa) <= travelTime(depart, dijkstra),
+                    pair + " arrives no later than Dijkstra");
+        }
+    }
+
+    @Test
+    @Timeout(RANDOM_TIMEOUT)
+    void randomPairsNoLaterThanDijkstra() throws Exception {
+        randomPairsHelper(false);
+    }
+
+    @Test
+    @Timeout(RANDOM_TIMEOUT)
+    void randomPairsNoLaterThanDijkstraWithFoot() throws Exception {
+        randomPairsHelper(true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void chainedFootpaths() throws Exception {
+        Time depart = new Time(23, 20);
+        List<Section> path =
+                new ConnectionScan(plan, "Château Rouge", "Oberkampf", depart, true).getPath();
+        checkPath(depart, path, "Château Rouge", "Oberkampf");
+        assertTrue(path.stream().allMatch(section -> section.getLine() == null),
+                "Walking all the way");
+        List<Section> dijkstra =
+                new Dijkstra(plan, "Château Rouge", "Oberkampf", depart, false, true).getPath();
+        assertTrue(travelTime(depart, path) <= travelTime(depart, dijkstra),
+                "No later than Dijkstra");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void connectionsSortedByDeparture() {
+        ConnectionTable connections = plan.getGraph().getConnections();
+        assertTrue(connections.size() > 0, "Connections built");
+        for (int c = 1; c < connections.size(); c++)
+            assertTrue(connections.getDeparture(c - 1) <= connections.getDeparture(c),
+                    "Sorted connections");
+        for (int c = 0; c < connections.size(); c++) {
+            int previous = connections.getPreviousInTrip(c);
+            if (previous != ConnectionTable.NO_CONNECTION)
+                assertTrue(connections.getArrival(previous) <= connections.getDeparture(c),
+                        "Trip connections are chained");
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameArrivalAsDijkstraNordToLyon() throws Exception {
+        sameArrivalAsDijkstraHelper("Gare du Nord", "Gare de Lyon", new Time(13, 50, 32));
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameArrivalAsDijkstraPyramidesToBercy() throws Exception {
+        sameArrivalAsDijkstraHelper("Pyramides", "Bercy", new Time(8, 3));
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameArrivalAsDijkstraBalardToNation() throws Exception {
+        sameArrivalAsDijkstraHelper("Balard", "Nation", new Time(17, 25));
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void departureLateAtNight() throws Exception {
+        Time depart = new Time(23, 59, 30);
+        List<Section> path =
+                new ConnectionScan(plan, "Jussieu", "Odéon", depart, false).getPath();
+        checkPath(depart, path, "Jussieu", "Odéon");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameStation() throws Exception {
+        assertTrue(new ConnectionScan(plan, "Bastille", "Bastille", new Time(8, 0), false)
+                .getPath().isEmpty(), "Empty path");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void withoutDepartureTime() {
+        assertThrows(PathNotFoundException.class,
+                () -> new ConnectionScan(plan, "Bastille", "République", null, false).getPath(),
+                "No departure time");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void withoutTimeData() throws Exception {
+        Plan map = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        assertThrows(PathNotFoundException.class,
+                () -> new ConnectionScan(map, "Bastille", "République", new Time(8, 0), false)
+                        .getPath(),
+                "No time data");
+    }
+}
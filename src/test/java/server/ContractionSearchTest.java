@@ -0,0 +1,140 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import server.Dijkstra.PathNotFoundException;
+import server.map.ContractionHierarchy;
+import server.map.Plan;
+import server.map.PlanParser;
+import server.map.Section;
+import server.map.Time;
+
+class ContractionSearchTest {
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final String MAP_DATA_ALL = "map_data_all";
+
+    private static final String BASTILLE = "(48.853425461693300, 2.3695064282002)";
+
+    private static final String NATION = "(48.848, 2.396)";
+
+    private final Plan plan;
+
+    private final List<String> stations;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    ContractionSearchTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        stations = new ArrayList<>(plan.getStationsName());
+        stations.sort(null);
+    }
+
+    /**
+     * Vérifie que le chemin est continu et que son poids n'est pas plus grand que celui trouvé par
+     * Dijkstra, qui ne garde qu'un quai par station
+     */
+    private void notLongerThanDijkstraHelper(String start, String arrival, boolean foot)
+            throws Exception {
+        ContractionSearch search = new ContractionSearch(plan, start, arrival, null, foot);
+        Dijkstra dijkstra = new Dijkstra(plan, start, arrival, null, true, foot);
+        List<Section> path = search.getPath();
+        dijkstra.getPath();
+        String message = String.format("%s to %s with contraction hierarchy", start, arrival);
+        assertFalse(path.isEmpty(), message);
+        assertTrue(search.getWeight() <= dijkstra.getWeight(), message);
+        long sectionsWeight = 0;
+        for (int i = 0; i < path.size(); i++) {
+            Section section = path.get(i);
+            if (i > 0)
+                assertEquals(path.get(i - 1).getArrival().getName(),
+                        section.getStart().getName(), message);
+            sectionsWeight += section.getLine() == null
+                    ? Math.round(section.getDistance() * 1.5)
+                    : section.getDistance();
+        }
+        assertTrue(sectionsWeight <= search.getWeight(), message);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void hierarchyHasShortcuts() {
+        ContractionHierarchy hierarchy = plan.getGraph().getHierarchy(false);
+        assertTrue(hierarchy.shortcutCount() > 0, "Shortcuts added");
+        for (int p = 0; p < hierarchy.platformCount(); p++) {
+            for (int i = hierarchy.upStart(p); i < hierarchy.upEnd(p); i++) {
+                int arc = hierarchy.getUpArc(i);
+                assertTrue(hierarchy.getRank(hierarchy.getTo(arc)) > hierarchy.getRank(p),
+                        "Up arcs go to higher ranks");
+            }
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void notLongerThanDijkstra() throws Exception {
+        for (int i = 0; i < stations.size(); i += 13) {
+            for (int j = 5; j < stations.size(); j += 17) {
+                if (!stations.get(i).equals(stations.get(j)))
+                    notLongerThanDijkstraHelper(stations.get(i), stations.get(j), false);
+            }
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void notLongerThanDijkstraWithFoot() throws Exception {
+        notLongerThanDijkstraHelper("Lourmel", "Bastille", true);
+        notLongerThanDijkstraHelper("Porte Dauphine", "Nation", true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void notLongerThanDijkstraWithCoordinates() throws Exception {
+        notLongerThanDijkstraHelper(BASTILLE, NATION, true);
+        notLongerThanDijkstraHelper("Lourmel", NATION, false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void timesFollowThePath() throws Exception {
+        Plan timed = PlanParser.planFromSectionCSV(getPath("map_data_fix_dist_time"));
+        PlanParser.addTimeFromCSV(timed, getPath("time_data_all"));
+        Time depart = new Time(8, 3);
+        List<Section> path =
+                new ContractionSearch(timed, "Maison Blanche", "Pigalle", depart, true).getPath();
+        int elapsed = 0;
+        for (Section section : path) {
+            int leave = depart.durationTo(section.getTime());
+            assertTrue(elapsed <= leave, "Section leaves after the previous one arrives");
+            elapsed = leave + section.getDuration();
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameStation() throws Exception {
+        assertTrue(new ContractionSearch(plan, "Bastille", "Bastille", null, false).getPath()
+                .isEmpty(), "Empty path");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void unknownStation() {
+        assertThrows(PathNotFoundException.class,
+                () -> new ContractionSearch(plan, "Bastille", "Nulle part", null, false)
+                        .getPath(),
+                "Unknown station");
+    }
+}
@@ -0,0 +1,120 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import server.map.Plan;
+import server.map.PlanParser;
+
+class DijkstraTest {
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final int RANDOM_TIMEOUT = 10000;
+
+    private static final int RANDOM_PAIRS = 300;
+
+    private static final String MAP_DATA_ALL = "map_data_all";
+
+    private static final String BASTILLE = "(48.853425461693300, 2.3695064282002)";
+
+    private static final String NATION = "(48.848, 2.396)";
+
+    private final Plan plan;
+
+    private final List<String> stations;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    DijkstraTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        stations = new ArrayList<>(plan.getStationsName());
+        stations.sort(null);
+    }
+
+    private void sameWeightHelper(String start, String arrival, boolean foot) throws Exception {
+        Dijkstra dijkstra = new Dijkstra(plan, start, arrival, null, true, foot, false);
+        Dijkstra astar = new Dijkstra(plan, start, arrival, null, true, foot, true);
+        dijkstra.getPath();
+        astar.getPath();
+        assertEquals(dijkstra.getWeight(), astar.getWeight(),
+                String.format("%s to %s with A*", start, arrival));
+        assertTrue(astar.getSettledCount() <= dijkstra.getSettledCount(),
+                String.format("%s to %s settles fewer nodes", start, arrival));
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameWeightAsDijkstra() throws Exception {
+        for (int i = 0; i < stations.size(); i += 13) {
+            for (int j = 5; j < stations.size(); j += 17)
+                sameWeightHelper(stations.get(i), stations.get(j), false);
+        }
+    }
+
+    /**
+     * Compare A*, Dijkstra et la hiérarchie de contraction sur des couples de stations tirés au
+     * hasard : les trois trouvent le même poids
+     */
+    private void randomPairsHelper(boolean foot) throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < RANDOM_PAIRS; i++) {
+            String start = stations.get(random.nextInt(stations.size()));
+            String arrival = stations.get(random.nextInt(stations.size()));
+            if (start.equals(arrival))
+                continue;
+            Dijkstra dijkstra = new Dijkstra(plan, start, arrival, null, true, foot, false);
+            Dijkstra astar = new Dijkstra(plan, start, arrival, null, true, foot, true);
+            ContractionSearch search = new ContractionSearch(plan, start, arrival, null, foot);
+            dijkstra.getPath();
+            astar.getPath();
+            search.getPath();
+            assertEquals(dijkstra.getWeight(), astar.getWeight(),
+                    String.format("%s to %s with A*", start, arrival));
+            assertEquals(dijkstra.getWeight(), search.getWeight(),
+                    String.format("%s to %s with the contraction hierarchy", start, arrival));
+        }
+    }
+
+    @Test
+    @Timeout(RANDOM_TIMEOUT)
+    void randomPairsSameWeight() throws Exception {
+        randomPairsHelper(false);
+    }
+
+    @Test
+    @Timeout(RANDOM_TIMEOUT)
+    void randomPairsSameWeightWithFoot() throws Exception {
+        randomPairsHelper(true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameWeightAsDijkstraWithFoot() throws Exception {
+        sameWeightHelper("Lourmel", "Bastille", true);
+        sameWeightHelper("Porte Dauphine", "Nation", true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameWeightAsDijkstraWithCoordinates() throws Exception {
+        sameWeightHelper(BASTILLE, NATION, true);
+        sameWeightHelper("Lourmel", NATION, false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void shortTripSettlesFewNodes() throws Exception {
+        Dijkstra astar = new Dijkstra(plan, "Bastille", "Chemin Vert", null, true, false);
+        astar.getPath();
+        assertTrue(astar.getSettledCount() * 10 < stations.size(), "Few settled nodes");
+    }
+}
@@ -0,0 +1,125 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import server.map.ContractionHierarchy;
+import server.map.Plan;
+import server.map.PlanParser;
+
+/**
+ * Mesure la construction de la hiérarchie de contraction (temps, arcs et raccourcis ajoutés) puis
+ * compare le temps des requêtes en distance avec {@link ContractionSearch} et avec
+ * {@link Dijkstra} guidé.
+ *
+ * <p>
+ * Ce n'est pas un test : à lancer à la main avec
+ * {@code java -cp <classpath de test> server.HierarchyBenchmark [fichier du plan]}.
+ */
+final class HierarchyBenchmark {
+
+    private static final String MAP_DATA_ALL = "src/test/resources/map_data_all.csv";
+
+    private static final int WARMUP = 3;
+
+    private static final int ROUNDS = 10;
+
+    /**
+     * Taille en octets d'un arc : origine, destination, poids, section et les deux arcs dépliés,
+     * plus sa place dans les tableaux montant ou descendant
+     */
+    private static final int ARC_BYTES = 7 * Integer.BYTES;
+
+    private HierarchyBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        String file = args.length > 0 ? args[0] : MAP_DATA_ALL;
+        for (boolean foot : new boolean[] {false, true}) {
+            Plan plan = PlanParser.planFromSectionCSV(file);
+            long start = System.nanoTime();
+            ContractionHierarchy hierarchy = plan.getGraph().getHierarchy(foot);
+            long build = System.nanoTime() - start;
+            System.out.printf("%s sections à pied%n", foot ? "Avec" : "Sans");
+            System.out.printf("  Construction : %8.1f ms%n", build / 1e6);
+            System.out.printf("  %d quais, %d arcs dont %d raccourcis, ~%d Ko%n",
+                    hierarchy.platformCount(), hierarchy.arcCount(), hierarchy.shortcutCount(),
+                    (long) hierarchy.arcCount() * ARC_BYTES / 1024);
+
+            List<String> stations = new ArrayList<>(plan.getStationsName());
+            stations.sort(null);
+            check(plan, stations, foot);
+            for (int i = 0; i < WARMUP; i++) {
+                allPairs(plan, stations, foot, false);
+                allPairs(plan, stations, foot, true);
+            }
+            long dijkstraTime = 0;
+            long hierarchyTime = 0;
+            for (int i = 0; i < ROUNDS; i++) {
+                start = System.nanoTime();
+                allPairs(plan, stations, foot, false);
+                dijkstraTime += System.nanoTime() - start;
+                start = System.nanoTime();
+                allPairs(plan, stations, foot, true);
+                hierarchyTime += System.nanoTime() - start;
+            }
+            long queries = (long) ROUNDS * pairCount(stations);
+            System.out.printf("  Dijkstra     : %8.1f µs/requête%n", dijkstraTime / 1e3 / queries);
+            System.out.printf("  Hiérarchie   : %8.1f µs/requête%n",
+                    hierarchyTime / 1e3 / queries);
+            System.out.printf("  Accélération : x%.1f%n", (double) dijkstraTime / hierarchyTime);
+        }
+    }
+
+    private static long pairCount(List<String> stations) {
+        return (long) ((stations.size() + 6) / 7) * ((stations.size() + 10) / 11);
+    }
+
+    /**
+     * Vérifie que la hiérarchie ne trouve jamais de chemin plus long que Dijkstra
+     */
+    private static void check(Plan plan, List<String> stations, boolean foot)
+            throws Exception {
+        for (int i = 0; i < stations.size(); i += 7) {
+            for (int j = 0; j < stations.size(); j += 11) {
+                Dijkstra dijkstra =
+                        new Dijkstra(plan, stations.get(i), stations.get(j), null, true, foot);
+                ContractionSearch search =
+                        new ContractionSearch(plan, stations.get(i), stations.get(j), null, foot);
+                try {
+                    dijkstra.getPath();
+                } catch (Dijkstra.PathNotFoundException e) {
+                    continue;
+                }
+                search.getPath();
+                if (search.getWeight() > dijkstra.getWeight())
+                    throw new IllegalStateException("La hiérarchie trouve un chemin plus long");
+            }
+        }
+    }
+
+    /**
+     * Lance une requête pour un échantillon de couples de stations
+     *
+     * @param hierarchy si la hiérarchie est utilisée plutôt que Dijkstra
+     * @return le nombre de chemins trouvés
+     */
+    private static int allPairs(Plan plan, List<String> stations, boolean foot,
+            boolean hierarchy) {
+        int found = 0;
+        for (int i = 0; i < stations.size(); i += 7) {
+            for (int j = 0; j < stations.size(); j += 11) {
+                String start = stations.get(i);
+                String arrival = stations.get(j);
+                PathFinder finder = hierarchy
+                        ? new ContractionSearch(plan, start, arrival, null, foot)
+                        : new Dijkstra(plan, start, arrival, null, true, foot);
+                try {
+                    finder.getPath();
+                    found++;
+                } catch (Dijkstra.PathNotFoundException e) {
+                    // pas de chemin entre ces deux stations
+                }
+            }
+        }
+        return found;
+    }
+}
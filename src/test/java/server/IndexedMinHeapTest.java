@@ -0,0 +1,87 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class IndexedMinHeapTest {
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private final IndexedMinHeap heap = new IndexedMinHeap(10);
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void negativeCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new IndexedMinHeap(-1),
+                "Negative capacity");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void pollEmpty() {
+        assertThrows(NoSuchElementException.class, heap::poll, "Poll empty heap");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void pollInKeyOrder() {
+        heap.insertOrDecrease(3, 30);
+        heap.insertOrDecrease(1, 10);
+        heap.insertOrDecrease(2, 20);
+        assertEquals(1, heap.poll(), "First minimum");
+        assertEquals(2, heap.poll(), "Second minimum");
+        assertEquals(3, heap.poll(), "Third minimum");
+        assertTrue(heap.isEmpty(), "Empty after polling everything");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void decreaseKey() {
+        heap.insertOrDecrease(1, 10);
+        heap.insertOrDecrease(2, 20);
+        assertTrue(heap.insertOrDecrease(2, 5), "Decrease key");
+        assertEquals(2, heap.size(), "Decreased id not inserted twice");
+        assertEquals(2, heap.peek(), "Decreased id is the new minimum");
+        assertEquals(5, heap.peekKey(), "New key");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void increaseKeyIgnored() {
+        heap.insertOrDecrease(1, 10);
+        assertFalse(heap.insertOrDecrease(1, 15), "Increase key");
+        assertEquals(10, heap.getKey(1), "Key unchanged");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void clear() {
+        heap.insertOrDecrease(1, 10);
+        heap.insertOrDecrease(2, 20);
+        heap.clear();
+        assertTrue(heap.isEmpty(), "Empty after clear");
+        assertFalse(heap.contains(1), "Id removed by clear");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void randomKeys() {
+        IndexedMinHeap big = new IndexedMinHeap(1000);
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++)
+            big.insertOrDecrease(random.nextInt(1000), random.nextInt(100_000));
+        int last = Integer.MIN_VALUE;
+        while (!big.isEmpty()) {
+            int key = big.peekKey();
+            big.poll();
+            assertTrue(last <= key, "Keys polled in order");
+            last = key;
+        }
+    }
+}
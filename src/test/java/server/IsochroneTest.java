@@ -0,0 +1,173 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import server.Dijkstra.PathNotFoundException;
+import server.data.ReachableStations;
+import server.map.Graph;
+import server.map.Plan;
+import server.map.PlanParser;
+import server.map.Section;
+import server.map.Time;
+
+class IsochroneTest {
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final String MAP_DATA_ALL = "map_data_fix_dist_time";
+
+    private static final String TIME_DATA_ALL = "time_data_all";
+
+    private final Plan plan;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    IsochroneTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        PlanParser.addTimeFromCSV(plan, getPath(TIME_DATA_ALL));
+    }
+
+    private Map<String, Integer> reachable(String start, Time depart, int budget, boolean foot) {
+        Isochrone isochrone = new Isochrone(plan, start, depart, budget, foot);
+        int[] nodes = isochrone.getNodes();
+        int[] arrivals = isochrone.getArrivals();
+        Map<String, Integer> reached = new HashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            reached.put(plan.getGraph().getName(nodes[i]), arrivals[i]);
+            if (i > 0)
+                assertTrue(arrivals[i - 1] <= arrivals[i], "Sorted by arrival");
+        }
+        return reached;
+    }
+
+    private void sameAsConnectionScanHelper(String start, Time depart, int budget, boolean foot)
+            throws Exception {
+        Map<String, Integer> reached = reachable(start, depart, budget, foot);
+        assertEquals(depart.toSeconds(), reached.get(start), "Start reached at departure");
+        List<String> stations = new ArrayList<>(plan.getStationsName());
+        stations.sort(null);
+        for (int i = 0; i < stations.size(); i += 7) {
+            String arrival = stations.get(i);
+            if (arrival.equals(start))
+                continue;
+            int expected = Integer.MAX_VALUE;
+            try {
+                List<Section> path =
+                        new ConnectionScan(plan, start, arrival, depart, foot).getPath();
+                Section last = path.get(path.size() - 1);
+                expected = depart.toSeconds() + depart.durationTo(last.getTime())
+                        + last.getDuration();
+            } catch (PathNotFoundException e) {
+                // station inatteignable
+            }
+            if (expected <= depart.toSeconds() + budget)
+                assertEquals(expected, reached.get(arrival),
+                        String.format("%s reached from %s with CSA", arrival, start));
+            else
+                assertEquals(null, reached.get(arrival),
+                        String.format("%s not reachable from %s in time", arrival, start));
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameAsConnectionScanFromBastille() throws Exception {
+        sameAsConnectionScanHelper("Bastille", new Time(8, 3), 20 * 60, false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameAsConnectionScanWithFoot() throws Exception {
+        sameAsConnectionScanHelper("Balard", new Time(17, 25), 30 * 60, true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameAsConnectionScanLateAtNight() throws Exception {
+        sameAsConnectionScanHelper("Jussieu", new Time(23, 20), 60 * 60, false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void chainedFootpaths() throws Exception {
+        Time depart = new Time(23, 20);
+        sameAsConnectionScanHelper("Château Rouge", depart, 60 * 60, true);
+        Map<String, Integer> reached = reachable("Château Rouge", depart, 60 * 60, true);
+        assertTrue(reached.containsKey("Oberkampf"), "Oberkampf reached after four walks");
+        assertTrue(reached.get("Oberkampf") < new Time(23, 59, 59).toSeconds(),
+                "Oberkampf reached before midnight");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void stopAtTargets() {
+        Graph graph = plan.getGraph();
+        int[] targets = {graph.getId("Nation"), graph.getId("Balard"), -1};
+        Map<Integer, Integer> full = new HashMap<>();
+        Isochrone all = new Isochrone(plan, "Jussieu", new Time(8, 0), 86400, true);
+        for (int i = 0; i < all.getNodes().length; i++)
+            full.put(all.getNodes()[i], all.getArrivals()[i]);
+        Isochrone some = new Isochrone(plan, "Jussieu", new Time(8, 0), 86400, true, targets);
+        int[] nodes = some.getNodes();
+        int[] arrivals = some.getArrivals();
+        Map<Integer, Integer> partial = new HashMap<>();
+        for (int i = 0; i < nodes.length; i++)
+            partial.put(nodes[i], arrivals[i]);
+        assertEquals(full.get(targets[0]), partial.get(targets[0]), "Same arrival at Nation");
+        assertEquals(full.get(targets[1]), partial.get(targets[1]), "Same arrival at Balard");
+        for (Map.Entry<Integer, Integer> entry : partial.entrySet())
+            assertTrue(entry.getValue() >= full.get(entry.getKey()), "Upper bound");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void noBudget() {
+        Map<String, Integer> reached = reachable("Bastille", new Time(8, 0), 0, false);
+        assertEquals(Map.of("Bastille", new Time(8, 0).toSeconds()), reached, "Start only");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void virtualStart() {
+        Map<String, Integer> reached =
+                reachable("(48.855402921055045, 2.3443066430543738)", new Time(8, 0), 900, true);
+        assertTrue(!reached.isEmpty(), "Stations reached from a coordinate");
+        assertTrue(reached.values().stream().allMatch(t -> t > new Time(8, 0).toSeconds()),
+                "Walk to the first station");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void searchIsochrone() {
+        ReachableStations response = (ReachableStations) new SearchIsochrone(plan, "Bastille",
+                new Time(22, 30), 5400, false).execute();
+        assertEquals(response.getStations().length, response.getArrivals().length,
+                "One arrival per station");
+        assertTrue(response.getStations().length > 1, "Stations reached");
+        for (int arrival : response.getArrivals())
+            assertTrue(arrival >= 0 && arrival < 24 * 3600, "Arrival since midnight");
+        ReachableStations unknown = (ReachableStations) new SearchIsochrone(plan, "Inconnue",
+                new Time(8, 0), 3600, false).execute();
+        assertEquals(0, unknown.getStations().length, "Unknown station");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void withoutTimeData() throws Exception {
+        Plan map = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        Isochrone isochrone = new Isochrone(map, "Bastille", new Time(8, 0), 3600, false);
+        int[] nodes = isochrone.getNodes();
+        assertEquals(1, nodes.length, "Start only without time data");
+        assertEquals(map.getGraph().getId("Bastille"), nodes[0], "Start only without time data");
+    }
+}
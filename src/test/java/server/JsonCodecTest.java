@@ -0,0 +1,197 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import server.data.DepartureTimes;
+import server.data.ErrorServer;
+import server.data.JsonCodec;
+import server.data.Route;
+import server.data.ServerResponse;
+import server.data.StationTime;
+import server.data.SuggestionStations;
+import server.data.SuggestionStations.SuggestionKind;
+import server.data.TravelMatrix;
+import server.map.Plan;
+import server.map.PlanParser;
+import server.map.Section;
+import server.map.Station;
+import server.map.StationInfo;
+import server.map.Time;
+
+class JsonCodecTest {
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final String MAP_DATA_ALL = "map_data_fix_dist_time";
+
+    private static final String TIME_DATA_ALL = "time_data_all";
+
+    private final Plan plan;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    JsonCodecTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        PlanParser.addTimeFromCSV(plan, getPath(TIME_DATA_ALL));
+    }
+
+    private static String write(ServerResponse response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonCodec.write(response, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static JsonObject parse(String line) {
+        try (JsonReader reader = Json.createReader(new StringReader(line))) {
+            return reader.readObject();
+        }
+    }
+
+    private static JsonObject roundTrip(ServerResponse response) throws IOException {
+        String line = write(response);
+        assertTrue(line.endsWith("\n"), "Terminated by a newline");
+        assertEquals(line.indexOf('\n'), line.length() - 1, "One line per response");
+        return parse(line);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void route() throws Exception {
+        Route route = (Route) new SearchPath(plan, "Gare de Lyon", "Madeleine", new Time(13, 30),
+                false, true).execute();
+        JsonObject json = roundTrip(route);
+        assertEquals("ROUTE", json.getString("type"), "Route type");
+        JsonArray sections = json.getJsonArray("sections");
+        List<Section> expected = route.getPathDistOpt();
+        assertEquals(expected.size(), sections.size(), "Same number of sections");
+        for (int i = 0; i < expected.size(); i++) {
+            Section section = expected.get(i);
+            JsonObject s = sections.getJsonObject(i);
+            assertEquals(section.getStart().getName(),
+                    s.getJsonObject("start").getString("name"), "Same start");
+            assertEquals(section.getArrival().getName(),
+                    s.getJsonObject("arrival").getString("name"), "Same arrival");
+            assertEquals(section.getStart().getCoordinate().getLatitude(),
+                    s.getJsonObject("start").getJsonNumber("latitude").doubleValue(),
+                    "Same latitude");
+            if (section.getLine() == null)
+                assertTrue(s.isNull("line"), "Walking section");
+            else
+                assertEquals(section.getLine(), s.getString("line"), "Same line");
+            assertEquals(section.getTimeInSeconds(), s.getInt("time"), "Same time");
+            assertEquals(section.getDistance(), s.getInt("distance"), "Same distance");
+            assertEquals(section.getDuration(), s.getInt("duration"), "Same duration");
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void nullRouteAndError() throws Exception {
+        JsonObject route = roundTrip(new Route(null));
+        assertTrue(route.isNull("sections"), "No route");
+        Section walk = new Section(new Station("A \"guillemets\"", 48.85, 2.35),
+                new Station("B\nretour", 48.86, 2.36), null, 100, 80);
+        JsonObject untimed = roundTrip(new Route(List.of(walk)));
+        JsonObject section = untimed.getJsonArray("sections").getJsonObject(0);
+        assertTrue(section.isNull("time"), "Section without time");
+        assertEquals("B\nretour", section.getJsonObject("arrival").getString("name"),
+                "Escaped name");
+        JsonObject error = roundTrip(new ErrorServer("[Erreur-serveur] Requête échouée"));
+        assertEquals("ERROR", error.getString("type"), "Error type");
+        assertEquals("[Erreur-serveur] Requête échouée", error.getString("error"),
+                "Same message");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void departureTimes() throws Exception {
+        DepartureTimes times = (DepartureTimes) new SearchTime(plan, "Bastille", new Time(13, 30))
+                .execute();
+        JsonObject json = roundTrip(times);
+        assertEquals("DEPARTURE_TIMES", json.getString("type"), "Departure times type");
+        JsonArray array = json.getJsonArray("times");
+        assertEquals(times.getTimes().size(), array.size(), "Same number of times");
+        for (int i = 0; i < array.size(); i++) {
+            StationTime time = times.getTimes().get(i);
+            JsonObject t = array.getJsonObject(i);
+            assertEquals(time.getLine(), t.getString("line"), "Same line");
+            assertEquals(time.getStation(), t.getString("station"), "Same station");
+            assertEquals(time.getTime().toSeconds(), t.getInt("time"), "Same time");
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void suggestions() throws Exception {
+        SuggestionStations suggestions = new SuggestionStations(
+                Set.of(new StationInfo("Bastille", List.of("1", "5", "8")),
+                        new StationInfo("Balard", List.of("8"))),
+                SuggestionKind.ARRIVAL);
+        JsonObject json = roundTrip(suggestions);
+        assertEquals("SUGGESTIONS", json.getString("type"), "Suggestions type");
+        assertEquals("ARRIVAL", json.getString("kind"), "Same kind");
+        JsonArray stations = json.getJsonArray("stations");
+        assertEquals(2, stations.size(), "Same number of stations");
+        for (JsonValue value : stations) {
+            JsonObject station = value.asJsonObject();
+            int lines = station.getString("name").equals("Bastille") ? 3 : 1;
+            assertEquals(lines, station.getJsonArray("lines").size(), "Same lines");
+        }
+    }
+
+    @ParameterizedTest
+    @Timeout(DEFAULT_TIMEOUT)
+    @ValueSource(strings = {"ROUTE;Gare de Lyon; Madeleine;13:30;PARETO;FOOT",
+            "ISOCHRONE;Bastille;13:30;20;FOOT", "SEARCH;Ba;DEPART",
+            "BATCH;Gare de Lyon; Madeleine;13:30;TIME|A;B;8:00;TIME",
+            "MATRIX;Bastille|Porte des Lilas;Nation|Balard;8:00;TIME", "ROUTE;GARE1;GARE2"})
+    void everyResponseType(String request) throws Exception {
+        ServerResponse response = ClientHandler.handleLine(plan, request);
+        JsonObject json = roundTrip(response);
+        assertTrue(json.containsKey("type"), "Typed response");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void matrixRows() throws Exception {
+        TravelMatrix matrix = new TravelMatrix(new String[] {"A", "B"}, new String[] {"C"},
+                new int[] {60, TravelMatrix.UNREACHABLE});
+        JsonArray values = roundTrip(matrix).getJsonArray("values");
+        assertEquals(2, values.size(), "One row per origin");
+        assertEquals(60, values.getJsonArray(0).getInt(0), "First row");
+        assertEquals(TravelMatrix.UNREACHABLE, values.getJsonArray(1).getInt(0), "Second row");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void streamLeftOpen() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonCodec.write(new ErrorServer("premier"), out);
+        JsonCodec.write(new ErrorServer("second"), out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length, "Two responses");
+        assertEquals("second", parse(lines[1]).getString("error"), "Second response");
+        assertThrows(IllegalArgumentException.class,
+                () -> JsonCodec.write(new ServerResponse() {}, new ByteArrayOutputStream()),
+                "Unknown response type");
+    }
+}
@@ -0,0 +1,249 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import server.Dijkstra.PathNotFoundException;
+import server.data.ErrorServer;
+import server.data.Routes;
+import server.map.ConnectionTable;
+import server.map.Plan;
+import server.map.PlanParser;
+import server.map.Section;
+import server.map.Time;
+
+class McRaptorTest {
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final int RANDOM_TIMEOUT = 10000;
+
+    private static final int RANDOM_PAIRS = 150;
+
+    private static final int MAX_FRONT = 20;
+
+    private static final String MAP_DATA_ALL = "map_data_fix_dist_time";
+
+    private static final String TIME_DATA_ALL = "time_data_all";
+
+    private final Plan plan;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    McRaptorTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        PlanParser.addTimeFromCSV(plan, getPath(TIME_DATA_ALL));
+    }
+
+    /**
+     * @return le nombre de secondes entre {@code depart} et l'arrivée du trajet
+     */
+    private int travelTime(Time depart, List<Section> path) {
+        Section last = path.get(path.size() - 1);
+        return depart.durationTo(last.getTime()) + last.getDuration();
+    }
+
+    /**
+     * @return le nombre de mètres parcourus à pied dans le trajet
+     */
+    private int walk(List<Section> path) {
+        return path.stream().filter(s -> s.getLine() == null).mapToInt(Section::getDistance)
+                .sum();
+    }
+
+    private void sameArrivalAsRaptorHelper(String start, String arrival, Time depart,
+            boolean foot) throws Exception {
+        McRaptor mcRaptor = new McRaptor(plan, start, arrival, depart, foot);
+        List<Section> fastest = mcRaptor.getPath();
+        List<Section> raptor = new Raptor(plan, start, arrival, depart, foot).getPath();
+        assertEquals(start, fastest.get(0).getStart().getName(), "First station");
+        assertEquals(arrival, fastest.get(fastest.size() - 1).getArrival().getName(),
+                "Last station");
+        assertEquals(travelTime(depart, raptor), travelTime(depart, fastest),
+                String.format("%s to %s from %s arrives with RAPTOR", start, arrival, depart));
+    }
+
+    /**
+     * Vérifie que le front de Pareto contient le trajet arrivant au plus tôt, calculé par
+     * {@link Raptor}, sur des couples de stations et des horaires tirés au hasard
+     */
+    private void randomPairsHelper(boolean foot) throws Exception {
+        List<String> stations = new ArrayList<>(plan.getStationsName());
+        stations.sort(null);
+        Random random = new Random(42);
+        for (int i = 0; i < RANDOM_PAIRS; i++) {
+            String start = stations.get(random.nextInt(stations.size()));
+            String arrival = stations.get(random.nextInt(stations.size()));
+            int seconds = random.nextInt(ConnectionTable.DAY);
+            Time depart = new Time(seconds / 3600, seconds / 60 % 60, seconds % 60);
+            if (start.equals(arrival))
+                continue;
+            String pair = String.format("%s to %s from %s", start, arrival, depart);
+            List<Section> raptor;
+            try {
+                raptor = new Raptor(plan, start, arrival, depart, foot).getPath();
+            } catch (PathNotFoundException e) {
+                assertThrows(PathNotFoundException.class,
+                        () -> new McRaptor(plan, start, arrival, depart, foot).getParetoPaths(),
+                        pair + " unreachable with RAPTOR");
+                continue;
+            }
+            int earliest = Integer.MAX_VALUE;
+            for (List<Section> path : new McRaptor(plan, start, arrival, depart, foot)
+                    .getParetoPaths())
+                earliest = Math.min(earliest, travelTime(depart, path));
+            assertEquals(travelTime(depart, raptor), earliest,
+                    pair + " earliest arrival of the Pareto set");
+        }
+    }
+
+    private void nonDominatedHelper(String start, String arrival, Time depart, boolean foot)
+            throws Exception {
+        McRaptor mcRaptor = new McRaptor(plan, start, arrival, depart, foot);
+        List<List<Section>> paths = mcRaptor.getParetoPaths();
+        int[] transfers = mcRaptor.getTransfers();
+        int[] walks = mcRaptor.getWalks();
+        assertFalse(paths.isEmpty(), "At least one path");
+        assertEquals(paths.size(), transfers.length, "One transfer count per path");
+        for (int i = 0; i < paths.size(); i++) {
+            assertEquals(walks[i], walk(paths.get(i)), "Walked distance");
+            for (int j = 0; j < i; j++) {
+                boolean dominated = travelTime(depart, paths.get(j)) <= travelTime(depart,
+                        paths.get(i)) && transfers[j] <= transfers[i] && walks[j] <= walks[i];
+                assertFalse(dominated, String.format("Path %d dominated by path %d", i, j));
+            }
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameArrivalAsRaptorNordToLyon() throws Exception {
+        sameArrivalAsRaptorHelper("Gare du Nord", "Gare de Lyon", new Time(13, 50, 32), false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameArrivalAsRaptorWithFoot() throws Exception {
+        sameArrivalAsRaptorHelper("Balard", "Nation", new Time(17, 25), true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameArrivalAsRaptorLateAtNight() throws Exception {
+        sameArrivalAsRaptorHelper("Jussieu", "Odéon", new Time(23, 59, 30), false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void earliestArrivalKept() throws Exception {
+        sameArrivalAsRaptorHelper("Wagram", "Pernety", new Time(12, 3), true);
+        sameArrivalAsRaptorHelper("Couronnes", "Vavin", new Time(6, 0), true);
+        sameArrivalAsRaptorHelper("Château Rouge", "Oberkampf", new Time(23, 20), true);
+        sameArrivalAsRaptorHelper("Place de Clichy", "Pernety", new Time(8, 17), true);
+    }
+
+    @Test
+    @Timeout(RANDOM_TIMEOUT)
+    void randomPairsEarliestArrival() throws Exception {
+        randomPairsHelper(false);
+    }
+
+    @Test
+    @Timeout(RANDOM_TIMEOUT)
+    void randomPairsEarliestArrivalWithFoot() throws Exception {
+        randomPairsHelper(true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void paretoPathsNonDominated() throws Exception {
+        nonDominatedHelper("Pyramides", "Bercy", new Time(8, 3), false);
+        nonDominatedHelper("Balard", "Nation", new Time(17, 25), true);
+    }
+
+    private void boundedFrontHelper(String start, String arrival, Time depart) throws Exception {
+        List<List<Section>> paths =
+                new McRaptor(plan, start, arrival, depart, true).getParetoPaths();
+        String pair = String.format("%s to %s from %s", start, arrival, depart);
+        assertTrue(paths.size() <= MAX_FRONT, pair + " has a small Pareto set");
+        int earliest = travelTime(depart, paths.get(0));
+        for (List<Section> path : paths)
+            assertTrue(travelTime(depart, path) <= earliest + McRaptor.ARRIVAL_SLACK,
+                    pair + " arrives close to the earliest arrival");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void boundedFrontWithFoot() throws Exception {
+        boundedFrontHelper("Porte de Saint-Cloud", "Jules Joffrin", new Time(4, 51, 2));
+        boundedFrontHelper("Saint-Ouen", "Bagneux - Lucie Aubrac", new Time(1, 3, 36));
+        boundedFrontHelper("Balard", "Nation", new Time(17, 25));
+    }
+
+    @Test
+    @Timeout(RANDOM_TIMEOUT)
+    void randomPairsBoundedFrontWithFoot() throws Exception {
+        List<String> stations = new ArrayList<>(plan.getStationsName());
+        stations.sort(null);
+        Random random = new Random(7);
+        for (int i = 0; i < RANDOM_PAIRS; i++) {
+            String start = stations.get(random.nextInt(stations.size()));
+            String arrival = stations.get(random.nextInt(stations.size()));
+            int seconds = random.nextInt(ConnectionTable.DAY);
+            Time depart = new Time(seconds / 3600, seconds / 60 % 60, seconds % 60);
+            if (start.equals(arrival))
+                continue;
+            try {
+                boundedFrontHelper(start, arrival, depart);
+            } catch (PathNotFoundException e) {
+                // Pas de trajet dans la journée
+            }
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void pathWithoutWalkingKeptWithFoot() throws Exception {
+        McRaptor mcRaptor = new McRaptor(plan, "Balard", "Nation", new Time(17, 25), true);
+        assertEquals(0, Arrays.stream(mcRaptor.getWalks()).min().getAsInt(),
+                "Path without walking in the Pareto set");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameStation() throws Exception {
+        assertTrue(new McRaptor(plan, "Bastille", "Bastille", new Time(8, 0), false).getPath()
+                .isEmpty(), "Empty path");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void withoutTimeData() throws Exception {
+        Plan map = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        assertThrows(PathNotFoundException.class,
+                () -> new McRaptor(map, "Bastille", "République", new Time(8, 0), false)
+                        .getPath(),
+                "No time data");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void searchParetoPaths() {
+        Routes routes = (Routes) new SearchParetoPaths(plan, "Pyramides", "Bercy",
+                new Time(8, 3), true).execute();
+        assertFalse(routes.getRoutes().isEmpty(), "At least one route");
+        assertTrue(new SearchParetoPaths(plan, "Bastille", "Inconnue", new Time(8, 0), false)
+                .execute() instanceof ErrorServer, "Unknown station");
+    }
+}
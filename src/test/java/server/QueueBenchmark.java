@@ -0,0 +1,121 @@
+package server;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import server.map.Graph;
+import server.map.PlanParser;
+
+/**
+ * Compare la file de priorité utilisée auparavant par {@link Dijkstra} ({@code PriorityQueue} avec
+ * {@code remove} puis {@code add} et tous les sommets insérés au départ) à {@link IndexedMinHeap}
+ * sur le réseau complet.
+ *
+ * <p>
+ * Ce n'est pas un test : à lancer à la main avec
+ * {@code java -cp <classpath de test> server.QueueBenchmark [fichier du plan]}.
+ */
+final class QueueBenchmark {
+
+    private static final String MAP_DATA_ALL = "src/test/resources/map_data_all.csv";
+
+    private static final int WARMUP = 5;
+
+    private static final int ROUNDS = 20;
+
+    private QueueBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        Graph graph = PlanParser.planFromSectionCSV(args.length > 0 ? args[0] : MAP_DATA_ALL)
+                .getGraph();
+        int n = graph.nodeCount();
+        int[] distance = new int[n];
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+
+        long checkQueue = 0;
+        long checkHeap = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            checkQueue = allSources(graph, distance, null);
+            checkHeap = allSources(graph, distance, heap);
+        }
+        if (checkQueue != checkHeap)
+            throw new IllegalStateException("Les deux files donnent des distances différentes");
+
+        long queueTime = 0;
+        long heapTime = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            allSources(graph, distance, null);
+            queueTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            allSources(graph, distance, heap);
+            heapTime += System.nanoTime() - start;
+        }
+        long queries = (long) ROUNDS * n;
+        System.out.printf("%d sommets, %d arêtes, %d recherches%n", n, graph.edgeCount(), queries);
+        System.out.printf("PriorityQueue  : %8.1f µs/recherche%n", queueTime / 1e3 / queries);
+        System.out.printf("IndexedMinHeap : %8.1f µs/recherche%n", heapTime / 1e3 / queries);
+        System.out.printf("Accélération   : x%.1f%n", (double) queueTime / heapTime);
+    }
+
+    /**
+     * Lance une recherche en distance depuis chaque sommet
+     *
+     * @param heap le tas à utiliser ou {@code null} pour la {@code PriorityQueue}
+     * @return la somme des distances, pour vérifier que les deux files sont équivalentes
+     */
+    private static long allSources(Graph graph, int[] distance, IndexedMinHeap heap) {
+        long sum = 0;
+        for (int source = 0; source < graph.nodeCount(); source++) {
+            if (heap == null)
+                withPriorityQueue(graph, distance, source);
+            else
+                withIndexedHeap(graph, distance, heap, source);
+            for (int d : distance)
+                sum += d == Integer.MAX_VALUE ? 0 : d;
+        }
+        return sum;
+    }
+
+    private static void withPriorityQueue(Graph graph, int[] distance, int source) {
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        distance[source] = 0;
+        PriorityQueue<Integer> queue =
+                new PriorityQueue<>(graph.nodeCount(), Comparator.comparingInt(i -> distance[i]));
+        for (int i = 0; i < graph.nodeCount(); i++)
+            queue.add(i);
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            if (distance[u] == Integer.MAX_VALUE)
+                break;
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.getTarget(e);
+                int w = distance[u] + graph.getDistance(e);
+                if (distance[v] > w) {
+                    distance[v] = w;
+                    queue.remove(v);
+                    queue.add(v);
+                }
+            }
+        }
+    }
+
+    private static void withIndexedHeap(Graph graph, int[] distance, IndexedMinHeap heap,
+            int source) {
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        distance[source] = 0;
+        heap.clear();
+        heap.insertOrDecrease(source, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++) {
+                int v = graph.getTarget(e);
+                int w = distance[u] + graph.getDistance(e);
+                if (distance[v] > w) {
+                    distance[v] = w;
+                    heap.insertOrDecrease(v, w);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import server.Dijkstra.PathNotFoundException;
+import server.data.ErrorServer;
+import server.data.Routes;
+import server.map.Plan;
+import server.map.PlanParser;
+import server.map.Section;
+import server.map.Time;
+
+class RangeRaptorTest {
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final String MAP_DATA_ALL = "map_data_fix_dist_time";
+
+    private static final String TIME_DATA_ALL = "time_data_all";
+
+    private final Plan plan;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    RangeRaptorTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        PlanParser.addTimeFromCSV(plan, getPath(TIME_DATA_ALL));
+    }
+
+    /**
+     * @return l'horaire de départ du trajet en secondes
+     */
+    private int departure(List<Section> path) {
+        return path.get(0).getTimeInSeconds();
+    }
+
+    /**
+     * @return l'horaire d'arrivée du trajet en secondes
+     */
+    private int arrival(List<Section> path) {
+        Section last = path.get(path.size() - 1);
+        return last.getTimeInSeconds() + last.getDuration();
+    }
+
+    /**
+     * @return {@code true} si le trajet ne prend aucun train
+     */
+    private boolean walkOnly(List<Section> path) {
+        return path.stream().allMatch(section -> section.getLine() == null);
+    }
+
+    private void sameAsRaptorHelper(String start, String arrival, boolean foot)
+            throws Exception {
+        Time from = new Time(8, 0);
+        Time to = new Time(8, 30);
+        List<List<Section>> profile =
+                new RangeRaptor(plan, start, arrival, from, to, foot).getProfile();
+        assertFalse(profile.isEmpty(), "At least one path");
+        for (int i = 0; i < profile.size(); i++) {
+            List<Section> path = profile.get(i);
+            assertEquals(start, path.get(0).getStart().getName(), "First station");
+            assertEquals(arrival, path.get(path.size() - 1).getArrival().getName(),
+                    "Last station");
+            if (walkOnly(path))
+                assertEquals(0, i, "Path without train first");
+            assertTrue(departure(path) >= from.toSeconds(), "Departure after the time range start");
+            if (i < profile.size() - 1)
+                assertTrue(departure(path) <= to.toSeconds(), "Departure in the time range");
+            if (i > 0 && !walkOnly(profile.get(i - 1))) {
+                assertTrue(departure(profile.get(i - 1)) < departure(path), "Later departure");
+                assertTrue(arrival(profile.get(i - 1)) < arrival(path), "Later arrival");
+            }
+        }
+        for (int minute = 0; minute <= 30; minute += 3) {
+            Time depart = new Time(8, minute);
+            List<Section> raptor = new Raptor(plan, start, arrival, depart, foot).getPath();
+            int expected = arrival(raptor);
+            int best = Integer.MAX_VALUE;
+            for (List<Section> path : profile) {
+                if (walkOnly(path))
+                    best = Math.min(best, depart.toSeconds() + arrival(path) - departure(path));
+                else if (departure(path) >= depart.toSeconds())
+                    best = Math.min(best, arrival(path));
+            }
+            assertEquals(expected, best,
+                    String.format("%s to %s from %s arrives with RAPTOR", start, arrival, depart));
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameAsRaptorNordToLyon() throws Exception {
+        sameAsRaptorHelper("Gare du Nord", "Gare de Lyon", false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameAsRaptorPyramidesToBercy() throws Exception {
+        sameAsRaptorHelper("Pyramides", "Bercy", false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameAsRaptorWithFoot() throws Exception {
+        sameAsRaptorHelper("Balard", "Nation", true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameAsRaptorWithFootFromTheStart() throws Exception {
+        sameAsRaptorHelper("Place de Clichy", "Pernety", true);
+        sameAsRaptorHelper("Raspail", "Pyrénées", true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameAsRaptorWithWalkOnly() throws Exception {
+        sameAsRaptorHelper("Bastille", "Bréguet-Sabin", true);
+        sameAsRaptorHelper("Gare de Lyon", "Bercy", true);
+        sameAsRaptorHelper("Grands Boulevards", "Les Halles", true);
+    }
+
+    private void boundedByDeparturesHelper(String start, String arrival) throws Exception {
+        Time from = new Time(8, 0);
+        List<List<Section>> profile =
+                new RangeRaptor(plan, start, arrival, from, new Time(8, 30), true).getProfile();
+        Set<Integer> departures = new HashSet<>();
+        int walks = 0;
+        for (List<Section> path : profile) {
+            Section train = path.stream().filter(section -> section.getLine() != null)
+                    .findFirst().orElse(null);
+            if (train == null) {
+                walks++;
+            } else {
+                assertTrue(train.getTimeInSeconds() >= from.toSeconds(),
+                        "Train after the time range start");
+                departures.add(train.getTimeInSeconds());
+            }
+        }
+        assertTrue(walks <= 1, start + " to " + arrival + ": at most one path without train");
+        assertTrue(profile.size() <= departures.size() + walks,
+                start + " to " + arrival + ": at most one path per train departure");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void profileWithFootBoundedByDepartures() throws Exception {
+        boundedByDeparturesHelper("Bastille", "Bréguet-Sabin");
+        boundedByDeparturesHelper("Balard", "Nation");
+        boundedByDeparturesHelper("Gare du Nord", "Gare de l'Est");
+        List<List<Section>> profile = new RangeRaptor(plan, "Gare de Lyon", "Bercy",
+                new Time(8, 0), new Time(8, 30), true).getProfile();
+        assertEquals(1, profile.size(), "Walking once is faster than every train");
+        assertTrue(walkOnly(profile.get(0)), "Path without train");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void rangeOverMidnight() throws Exception {
+        List<List<Section>> profile = new RangeRaptor(plan, "Jussieu", "Odéon",
+                new Time(23, 50), new Time(0, 10), false).getProfile();
+        assertFalse(profile.isEmpty(), "At least one path");
+        for (List<Section> path : profile.subList(0, profile.size() - 1)) {
+            int departure = departure(path);
+            assertTrue(departure >= new Time(23, 50).toSeconds()
+                    || departure <= new Time(0, 10).toSeconds(), "Departure in the time range");
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameStation() throws Exception {
+        List<List<Section>> profile = new RangeRaptor(plan, "Bastille", "Bastille",
+                new Time(8, 0), new Time(9, 0), false).getProfile();
+        assertEquals(1, profile.size(), "One path");
+        assertTrue(profile.get(0).isEmpty(), "Empty path");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void withoutTimeData() throws Exception {
+        Plan map = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        assertThrows(PathNotFoundException.class,
+                () -> new RangeRaptor(map, "Bastille", "République", new Time(8, 0),
+                        new Time(9, 0), false).getProfile(),
+                "No time data");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void searchProfile() {
+        Routes routes = (Routes) new SearchProfile(plan, "Pyramides", "Bercy", new Time(8, 0),
+                new Time(9, 0), true).execute();
+        assertTrue(routes.getRoutes().size() > 1, "Several routes");
+        assertTrue(new SearchProfile(plan, "Bastille", "Inconnue", new Time(8, 0),
+                new Time(9, 0), false).execute() instanceof ErrorServer, "Unknown station");
+    }
+}
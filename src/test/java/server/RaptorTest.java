@@ -0,0 +1,198 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import server.Dijkstra.PathNotFoundException;
+import server.map.ConnectionTable;
+import server.map.Plan;
+import server.map.PlanParser;
+import server.map.Section;
+import server.map.Time;
+
+class RaptorTest {
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final int RANDOM_TIMEOUT = 10000;
+
+    private static final int RANDOM_PAIRS = 300;
+
+    private static final String MAP_DATA_FIX_DIST_TIME = "map_data_fix_dist_time";
+
+    private static final String TIME_DATA_ALL = "time_data_all";
+
+    private final Plan plan;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    RaptorTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_FIX_DIST_TIME));
+        PlanParser.addTimeFromCSV(plan, getPath(TIME_DATA_ALL));
+    }
+
+    /**
+     * @return le nombre de secondes entre {@code depart} et l'arrivée du trajet
+     */
+    private int travelTime(Time depart, List<Section> path) {
+        Section last = path.get(path.size() - 1);
+        return depart.durationTo(last.getTime()) + last.getDuration();
+    }
+
+    /**
+     * @return le nombre de lignes différentes prises successivement dans le trajet
+     */
+    private int trips(List<Section> path) {
+        int trips = 0;
+        String line = null;
+        for (Section section : path) {
+            if (section.getLine() != null && !section.getLine().equals(line))
+                trips++;
+            line = section.getLine();
+        }
+        return trips;
+    }
+
+    private void sameArrivalAsConnectionScanHelper(String start, String arrival, Time depart,
+            boolean foot) throws Exception {
+        List<Section> raptor = new Raptor(plan, start, arrival, depart, foot).getPath();
+        List<Section> csa = new ConnectionScan(plan, start, arrival, depart, foot).getPath();
+        assertEquals(start, raptor.get(0).getStart().getName(), "First station");
+        assertEquals(arrival, raptor.get(raptor.size() - 1).getArrival().getName(),
+                "Last station");
+        assertEquals(travelTime(depart, csa), travelTime(depart, raptor),
+                String.format("%s to %s from %s arrives with CSA", start, arrival, depart));
+    }
+
+    /**
+     * Compare RAPTOR, Connection Scan et Dijkstra sur des couples de stations et des horaires
+     * tirés au hasard : RAPTOR arrive en même temps que Connection Scan et jamais plus tard que
+     * Dijkstra
+     */
+    private void randomPairsHelper(boolean foot) throws Exception {
+        List<String> stations = new ArrayList<>(plan.getStationsName());
+        stations.sort(null);
+        Random random = new Random(42);
+        for (int i = 0; i < RANDOM_PAIRS; i++) {
+            String start = stations.get(random.nextInt(stations.size()));
+            String arrival = stations.get(random.nextInt(stations.size()));
+            int seconds = random.nextInt(ConnectionTable.DAY);
+            Time depart = new Time(seconds / 3600, seconds / 60 % 60, seconds % 60);
+            if (start.equals(arrival))
+                continue;
+            String pair = String.format("%s to %s from %s", start, arrival, depart);
+            List<Section> csa;
+            try {
+                csa = new ConnectionScan(plan, start, arrival, depart, foot).getPath();
+            } catch (PathNotFoundException e) {
+                assertThrows(PathNotFoundException.class,
+                        () -> new Raptor(plan, start, arrival, depart, foot).getPath(),
+                        pair + " unreachable with CSA");
+                continue;
+            }
+            List<Section> raptor = new Raptor(plan, start, arrival, depart, foot).getPath();
+            assertEquals(travelTime(depart, csa), travelTime(depart, raptor),
+                    pair + " arrives with CSA");
+            List<Section> dijkstra =
+                    new Dijkstra(plan, start, arrival, depart, false, foot).getPath();
+            assertTrue(travelTime(depart, raptor) <= travelTime(depart, dijkstra),
+                    pair + " arrives no later than Dijkstra");
+        }
+    }
+
+    @Test
+    @Timeout(RANDOM_TIMEOUT)
+    void randomPairsSameArrivalAsConnectionScan() throws Exception {
+        randomPairsHelper(false);
+    }
+
+    @Test
+    @Timeout(RANDOM_TIMEOUT)
+    void randomPairsSameArrivalAsConnectionScanWithFoot() throws Exception {
+        randomPairsHelper(true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void footpathsFromTheStart() throws Exception {
+        sameArrivalAsConnectionScanHelper("Place de Clichy", "Pernety", new Time(8, 17), true);
+        sameArrivalAsConnectionScanHelper("Raspail", "Pyrénées", new Time(12, 3), true);
+        sameArrivalAsConnectionScanHelper("Château Rouge", "Oberkampf", new Time(23, 20), true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameArrivalAsConnectionScanNordToLyon() throws Exception {
+        sameArrivalAsConnectionScanHelper("Gare du Nord", "Gare de Lyon", new Time(13, 50, 32),
+                false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameArrivalAsConnectionScanPyramidesToBercy() throws Exception {
+        sameArrivalAsConnectionScanHelper("Pyramides", "Bercy", new Time(8, 3), false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameArrivalAsConnectionScanWithFoot() throws Exception {
+        sameArrivalAsConnectionScanHelper("Balard", "Nation", new Time(17, 25), true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameArrivalAsConnectionScanLateAtNight() throws Exception {
+        sameArrivalAsConnectionScanHelper("Jussieu", "Odéon", new Time(23, 59, 30), false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void directPathOnSameLine() throws Exception {
+        Raptor raptor = new Raptor(plan, "Lourmel", "Bastille", new Time(10, 0), false);
+        List<List<Section>> paths = raptor.getParetoPaths();
+        assertEquals(1, trips(paths.get(0)), "Line 8 without transfer");
+        assertEquals(trips(raptor.getPath()) - 1, raptor.getTransfers(), "Transfers");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void paretoPaths() throws Exception {
+        Time depart = new Time(8, 3);
+        Raptor raptor = new Raptor(plan, "Pyramides", "Bercy", depart, false);
+        List<List<Section>> paths = raptor.getParetoPaths();
+        assertFalse(paths.isEmpty(), "At least one path");
+        for (int i = 1; i < paths.size(); i++) {
+            assertTrue(trips(paths.get(i - 1)) < trips(paths.get(i)), "More trips");
+            assertTrue(travelTime(depart, paths.get(i - 1)) > travelTime(depart, paths.get(i)),
+                    "Earlier arrival");
+        }
+        assertEquals(trips(paths.get(paths.size() - 1)) - 1, raptor.getTransfers(),
+                "Transfers of the fastest path");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameStation() throws Exception {
+        assertTrue(new Raptor(plan, "Bastille", "Bastille", new Time(8, 0), false).getPath()
+                .isEmpty(), "Empty path");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void withoutTimeData() throws Exception {
+        Plan map = PlanParser.planFromSectionCSV(getPath(MAP_DATA_FIX_DIST_TIME));
+        assertThrows(PathNotFoundException.class,
+                () -> new Raptor(map, "Bastille", "République", new Time(8, 0), false).getPath(),
+                "No time data");
+    }
+}
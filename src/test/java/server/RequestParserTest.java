@@ -31,11 +31,27 @@ class RequestParserTest {
     @ParameterizedTest
     @ValueSource(strings = {"TEST", "TEST;3", "ROUTE;Gare de Lyon; Madeleine",
             "ROUTE;Gare de Lyon; Madeleine;13:30;DISTANCE;FOOT;42",
+            "ROUTE;Gare de Lyon; Madeleine;13:30;TIME;FOOT;RAPTOR;42",
+            "ROUTE;Gare de Lyon; Madeleine;13:30;TIME;FOOT;BIDIRECTIONAL",
+            "ROUTE;Gare de Lyon; Madeleine;13:30; TIME;;BIDIRECTIONAL",
             "ROUTE;Gare de Lyon; Madeleine;130;DISTANCE;FOOT",
             "ROUTE; ; Madeleine;13:30;DISTANCE;FOOT", "ROUTE;Gare de Lyon; ;13:30;DISTANCE;FOOT",
             "ROUTE;Gare de Lyon; Madeleine; ;DISTANCE;FOOT", "SEARCH", "SEARCH;", "SEARCH;test;",
             "SEARCH;test;34", "SEARCH; ;DEPART", "TIME;", "TIME;;", "TIME;test;34", "TIME; ;13:23",
-            "TIME;test; "})
+            "TIME;test; ",
+            "PROFILE;Gare de Lyon; Madeleine;13:30", "PROFILE;Gare de Lyon; Madeleine;13:30; ",
+            "PROFILE;Gare de Lyon; Madeleine;13:30;1430",
+            "PROFILE;Gare de Lyon; Madeleine;13:30;14:30;FOOT;42", "ISOCHRONE;Bastille;13:30",
+            "ISOCHRONE; ;13:30;20", "ISOCHRONE;Bastille;13:30;vingt",
+            "ISOCHRONE;Bastille;13:30;-5", "ISOCHRONE;Bastille;13:30;71582789",
+            "ISOCHRONE;Bastille;13:30;2147483647", "ISOCHRONE;Bastille;13:30;20;FOOT;42", "BATCH",
+            "BATCH; ", "BATCH;Gare de Lyon; Madeleine;13:30;TIME|Bastille;Nation",
+            "BATCH;Gare de Lyon; Madeleine;13:30;TIME||Bastille;Nation;13:30;TIME",
+            "BATCH;Gare de Lyon; Madeleine;1330;TIME",
+            "BATCH;Gare de Lyon; Madeleine;13:30;TIME;FOOT;TEST", "MATRIX;Bastille;Nation;8:00",
+            "MATRIX;Bastille; ;8:00;TIME", "MATRIX;Bastille|;Nation;8:00;TIME",
+            "MATRIX;Bastille|Balard;Nation;8:00;PARETO", "MATRIX;Bastille;Nation;800;TIME",
+            "MATRIX;Bastille;Nation;8:00;TIME;FOOT;42"})
     @Timeout(DEFAULT_TIMEOUT)
     void parsingException(String args) {
         parsingExceptionHelper(args);
@@ -46,13 +62,73 @@ class RequestParserTest {
             "ROUTE; Gare de Lyon; Madeleine;13:30;DISTANCE; FOOT",
             "ROUTE;Gare de Lyon; Madeleine ;13:30; TIME;",
             "ROUTE; Gare de Lyon; Madeleine; 13:30;TIME;FOOT",
-            "ROUTE;Gare de Lyon; Madeleine;13:30;TIME;TEST"})
+            "ROUTE;Gare de Lyon; Madeleine;13:30;TIME;TEST",
+            "ROUTE;Gare de Lyon; Madeleine;13:30;TIME;FOOT;RAPTOR",
+            "ROUTE;Gare de Lyon; Madeleine;13:30;TIME;; DIJKSTRA",
+            "ROUTE;Gare de Lyon; Madeleine;13:30;DISTANCE;FOOT;BIDIRECTIONAL"})
     @Timeout(DEFAULT_TIMEOUT)
     void handleRoute(String request) throws Exception {
         ServerActionCallback callback = getServerActionCallbackHelper(request);
         assertTrue(callback instanceof SearchPath, request);
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {"ROUTE;Gare de Lyon; Madeleine;13:30;PARETO",
+            "ROUTE;Gare de Lyon; Madeleine;13:30; PARETO;FOOT",
+            "ROUTE;Gare de Lyon; Madeleine;13:30;PARETO;FOOT;RAPTOR"})
+    @Timeout(DEFAULT_TIMEOUT)
+    void handleParetoRoute(String request) throws Exception {
+        ServerActionCallback callback = getServerActionCallbackHelper(request);
+        assertTrue(callback instanceof SearchParetoPaths, request);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"PROFILE;Gare de Lyon; Madeleine;13:30;14:30",
+            "PROFILE; Gare de Lyon; Madeleine; 13:30; 14:30; FOOT",
+            "PROFILE;Gare de Lyon; Madeleine;23:30;00:30;TEST"})
+    @Timeout(DEFAULT_TIMEOUT)
+    void handleProfile(String request) throws Exception {
+        ServerActionCallback callback = getServerActionCallbackHelper(request);
+        assertTrue(callback instanceof SearchProfile, request);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"ISOCHRONE;Bastille;13:30;20", "ISOCHRONE; Bastille; 13:30; 20; FOOT",
+            "ISOCHRONE;(48.85, 2.35);23:30;1440"})
+    @Timeout(DEFAULT_TIMEOUT)
+    void handleIsochrone(String request) throws Exception {
+        ServerActionCallback callback = getServerActionCallbackHelper(request);
+        assertTrue(callback instanceof SearchIsochrone, request);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"BATCH;Gare de Lyon; Madeleine;13:30;TIME",
+            "BATCH;Gare de Lyon; Madeleine;13:30;TIME|Gare de Lyon; Madeleine;13:30;DISTANCE",
+            "BATCH; Bastille; Nation; 8:00; TIME; FOOT; RAPTOR|Bastille;Nation;8:00;PARETO|"})
+    @Timeout(DEFAULT_TIMEOUT)
+    void handleBatch(String request) throws Exception {
+        ServerActionCallback callback = getServerActionCallbackHelper(request);
+        assertTrue(callback instanceof SearchBatch, request);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"MATRIX;Bastille;Nation;8:00;TIME",
+            "MATRIX; Bastille | Balard ; Nation|Jussieu; 8:00; DISTANCE; FOOT",
+            "MATRIX;(48.85, 2.35)|Bastille;Nation;23:30;TIME;TEST"})
+    @Timeout(DEFAULT_TIMEOUT)
+    void handleMatrix(String request) throws Exception {
+        ServerActionCallback callback = getServerActionCallbackHelper(request);
+        assertTrue(callback instanceof SearchMatrix, request);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void batchTooLarge() {
+        String request = "BATCH" + ";Bastille;Nation;8:00;TIME|".repeat(65);
+        assertThrows(ParsingException.class, () -> getServerActionCallbackHelper(request),
+                "More than 64 routes");
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {"SEARCH; test; DEPART", "SEARCH; test; ARRIVAL"})
     @Timeout(DEFAULT_TIMEOUT)
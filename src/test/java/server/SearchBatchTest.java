@@ -0,0 +1,88 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import server.data.BatchResponses;
+import server.data.ErrorServer;
+import server.data.Route;
+import server.data.ServerResponse;
+import server.map.Plan;
+import server.map.PlanParser;
+import server.map.Time;
+
+class SearchBatchTest {
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final String MAP_DATA_ALL = "map_data_fix_dist_time";
+
+    private static final String TIME_DATA_ALL = "time_data_all";
+
+    private final Plan plan;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    SearchBatchTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        PlanParser.addTimeFromCSV(plan, getPath(TIME_DATA_ALL));
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void nullRequests() {
+        assertThrows(IllegalArgumentException.class, () -> new SearchBatch(null), "null list");
+        assertThrows(IllegalArgumentException.class,
+                () -> new SearchBatch(Arrays.asList((ServerActionCallback) null)), "null request");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void emptyBatch() {
+        BatchResponses responses = (BatchResponses) new SearchBatch(List.of()).execute();
+        assertTrue(responses.getResponses().isEmpty(), "No response");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameAsSequential() {
+        String[] stations = {"Bastille", "Nation", "Balard", "Jussieu", "Porte des Lilas",
+                "Place d'Italie", "Gare de Lyon", "Madeleine"};
+        List<ServerActionCallback> requests = new ArrayList<>();
+        List<ServerActionCallback> sequential = new ArrayList<>();
+        for (String start : stations) {
+            for (String arrival : stations) {
+                for (boolean distOpt : new boolean[] {false, true}) {
+                    requests.add(new SearchPath(plan, start, arrival, new Time(8, 3), distOpt,
+                            true));
+                    sequential.add(new SearchPath(plan, start, arrival, new Time(8, 3), distOpt,
+                            true));
+                }
+            }
+        }
+        requests.add(new SearchPath(plan, "Inconnue", "Nation", new Time(8, 3), false, false));
+        sequential.add(new SearchPath(plan, "Inconnue", "Nation", new Time(8, 3), false, false));
+
+        List<ServerResponse> responses =
+                ((BatchResponses) new SearchBatch(requests).execute()).getResponses();
+        assertEquals(requests.size(), responses.size(), "One response per request");
+        for (int i = 0; i < sequential.size(); i++) {
+            ServerResponse expected = sequential.get(i).execute();
+            ServerResponse response = responses.get(i);
+            if (expected instanceof Route route)
+                assertEquals(route.getPathDistOpt(), ((Route) response).getPathDistOpt(),
+                        "Same route in order");
+            else
+                assertEquals(((ErrorServer) expected).getError(),
+                        ((ErrorServer) response).getError(), "Same error in order");
+        }
+    }
+}
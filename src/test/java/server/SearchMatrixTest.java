@@ -0,0 +1,192 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import server.Dijkstra.PathNotFoundException;
+import server.data.Route;
+import server.data.ServerResponse;
+import server.data.TravelMatrix;
+import server.map.Plan;
+import server.map.PlanParser;
+import server.map.Section;
+import server.map.Time;
+
+class SearchMatrixTest {
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final String MAP_DATA_ALL = "map_data_fix_dist_time";
+
+    private static final String TIME_DATA_ALL = "time_data_all";
+
+    private static final String[] STATIONS = {"Bastille", "Nation", "Balard", "Jussieu",
+            "Porte des Lilas", "Place d'Italie", "Gare de Lyon", "Madeleine"};
+
+    private static final String[] WALKING_ORIGINS =
+            {"Château Rouge", "Raspail", "Wagram", "Place de Clichy", "Couronnes"};
+
+    private static final String[] WALKING_DESTINATIONS =
+            {"Oberkampf", "Pyrénées", "Pernety", "Vavin", "Porte des Lilas"};
+
+    private final Plan plan;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    SearchMatrixTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        PlanParser.addTimeFromCSV(plan, getPath(TIME_DATA_ALL));
+    }
+
+    private TravelMatrix matrix(String[] origins, String[] destinations, Time depart,
+            boolean distOpt, boolean foot) {
+        return (TravelMatrix) new SearchMatrix(plan, origins, destinations, depart, distOpt, foot)
+                .execute();
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void nullArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SearchMatrix(plan, null, STATIONS, new Time(8, 0), false, false),
+                "null origins");
+        assertThrows(IllegalArgumentException.class,
+                () -> new SearchMatrix(plan, STATIONS, new String[] {null}, new Time(8, 0), false,
+                        false),
+                "null destination");
+    }
+
+    private void sameAsConnectionScanHelper(String[] origins, Time depart, boolean foot)
+            throws Exception {
+        TravelMatrix matrix = matrix(origins, STATIONS, depart, false, foot);
+        assertEquals(origins.length * STATIONS.length, matrix.getValues().length, "Dense matrix");
+        for (int i = 0; i < origins.length; i++) {
+            for (int j = 0; j < STATIONS.length; j++) {
+                int expected = 0;
+                if (!origins[i].equals(STATIONS[j])) {
+                    try {
+                        List<Section> path =
+                                new ConnectionScan(plan, origins[i], STATIONS[j], depart, foot)
+                                        .getPath();
+                        Section last = path.get(path.size() - 1);
+                        expected = depart.durationTo(last.getTime()) + last.getDuration();
+                    } catch (PathNotFoundException e) {
+                        expected = TravelMatrix.UNREACHABLE;
+                    }
+                }
+                assertEquals(expected, matrix.get(i, j),
+                        String.format("%s to %s", origins[i], STATIONS[j]));
+            }
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void durationsSameAsConnectionScan() throws Exception {
+        sameAsConnectionScanHelper(STATIONS, new Time(8, 3), false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void durationsSameAsConnectionScanWithFoot() throws Exception {
+        sameAsConnectionScanHelper(STATIONS, new Time(17, 41), true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void durationsFromCoordinate() throws Exception {
+        sameAsConnectionScanHelper(new String[] {"(48.855402921055045, 2.3443066430543738)"},
+                new Time(8, 0), true);
+    }
+
+    /**
+     * Compare chaque case d'une requête MATRIX en temps avec le temps de trajet de la requête
+     * ROUTE correspondante
+     */
+    private void sameAsRouteRequestHelper(String depart, boolean foot) throws Exception {
+        String options = ";" + depart + ";TIME" + (foot ? ";FOOT" : "");
+        TravelMatrix matrix = (TravelMatrix) RequestParser.getServerActionCallback(plan,
+                "MATRIX;" + String.join("|", WALKING_ORIGINS) + ";"
+                        + String.join("|", WALKING_DESTINATIONS) + options)
+                .execute();
+        Time time = new Time(Integer.parseInt(depart.split(":")[0]),
+                Integer.parseInt(depart.split(":")[1]));
+        for (int i = 0; i < WALKING_ORIGINS.length; i++) {
+            for (int j = 0; j < WALKING_DESTINATIONS.length; j++) {
+                ServerResponse response = RequestParser.getServerActionCallback(plan,
+                        "ROUTE;" + WALKING_ORIGINS[i] + ";" + WALKING_DESTINATIONS[j] + options)
+                        .execute();
+                int expected = TravelMatrix.UNREACHABLE;
+                if (response instanceof Route route) {
+                    List<Section> path = route.getPathDistOpt();
+                    Section last = path.get(path.size() - 1);
+                    expected = time.durationTo(last.getTime()) + last.getDuration();
+                }
+                assertEquals(expected, matrix.get(i, j), String.format("%s to %s from %s",
+                        WALKING_ORIGINS[i], WALKING_DESTINATIONS[j], depart));
+            }
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void durationsSameAsRouteRequests() throws Exception {
+        sameAsRouteRequestHelper("12:03", false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void durationsSameAsRouteRequestsWithFoot() throws Exception {
+        sameAsRouteRequestHelper("12:03", true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void durationsSameAsRouteRequestsLateAtNight() throws Exception {
+        sameAsRouteRequestHelper("23:20", true);
+    }
+
+    private void sameAsDijkstraHelper(boolean foot) throws Exception {
+        TravelMatrix matrix = matrix(STATIONS, STATIONS, new Time(8, 0), true, foot);
+        for (int i = 0; i < STATIONS.length; i++) {
+            for (int j = 0; j < STATIONS.length; j++) {
+                Dijkstra dijkstra =
+                        new Dijkstra(plan, STATIONS[i], STATIONS[j], null, true, foot, false);
+                dijkstra.getPath();
+                assertEquals(dijkstra.getWeight(), matrix.get(i, j),
+                        String.format("%s to %s", STATIONS[i], STATIONS[j]));
+            }
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void distancesSameAsDijkstra() throws Exception {
+        sameAsDijkstraHelper(false);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void distancesSameAsDijkstraWithFoot() throws Exception {
+        sameAsDijkstraHelper(true);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void unknownStations() {
+        String[] origins = {"Inconnue", "Bastille"};
+        String[] destinations = {"Nation", "Inconnue"};
+        for (boolean distOpt : new boolean[] {false, true}) {
+            TravelMatrix matrix = matrix(origins, destinations, new Time(8, 0), distOpt, false);
+            assertEquals(TravelMatrix.UNREACHABLE, matrix.get(0, 0), "Unknown origin");
+            assertEquals(TravelMatrix.UNREACHABLE, matrix.get(0, 1), "Unknown origin");
+            assertEquals(TravelMatrix.UNREACHABLE, matrix.get(1, 1), "Unknown destination");
+            assertEquals(true, matrix.get(1, 0) > 0, "Bastille to Nation");
+        }
+    }
+}
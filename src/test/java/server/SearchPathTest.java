@@ -40,6 +40,16 @@ class SearchPathTest {
         illegalArgumentHelper(map, "test", null);
     }
 
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void bidirectionalInTime() throws Exception {
+        Plan map = initMap(MAP_DATA);
+        assertThrows(IllegalArgumentException.class,
+                () -> new SearchPath(map, "test", "test", null, false, false,
+                        SearchPath.Algorithm.BIDIRECTIONAL),
+                "Bidirectional search in time");
+    }
+
     @Test
     @Timeout(DEFAULT_TIMEOUT)
     void findPathWithNullMap() throws Exception {
@@ -240,7 +250,7 @@ class SearchPathTest {
     @Test
     @Timeout(DEFAULT_TIMEOUT)
     void findPathWithTimeMaisonBlancheToPigalleTimeOptFoot() throws Exception {
-        findPathMapWithTimeHelper("Maison Blanche", "Pigalle", 14, new Time(12, 32), true, true);
+        findPathMapWithTimeHelper("Maison Blanche", "Pigalle", 15, new Time(12, 32), true, true);
     }
 
     @Test
@@ -268,7 +278,7 @@ class SearchPathTest {
     @Timeout(DEFAULT_TIMEOUT)
     void findPathWithTimeCoords() throws Exception {
         findPathMapWithTimeHelper("(48.855402921055045, 2.3443066430543738)",
-                "(48.84718353452897, 2.398076946926344)", 9, new Time(9, 0), true, true);
+                "(48.84718353452897, 2.398076946926344)", 8, new Time(9, 0), true, true);
 
     }
 
@@ -276,7 +286,7 @@ class SearchPathTest {
     @Timeout(DEFAULT_TIMEOUT)
     void findPathWithTimeCoordsMaisonBlancheToPigalleTimeOptFoot() throws Exception {
         findPathMapWithTimeHelper("(48.824868685169676, 2.358546268381532)",
-                "(48.88264085646782, 2.3401402839553964)", 15, new Time(12, 32), true, true);
+                "(48.88264085646782, 2.3401402839553964)", 16, new Time(12, 32), true, true);
     }
 
     @Test
@@ -292,4 +302,14 @@ class SearchPathTest {
         findPathMapWithTimeHelper("Châtelet", "(48.76844682672424,2.3622296824389313)", 14,
                 new Time(6, 32), true, false);
     }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void findPathDoesNotModifyPlan() throws Exception {
+        Plan map = initMap(MAP_DATA_ALL);
+        int nodes = map.getStationsName().size();
+        new SearchPath(map, "(48.83866086365990, 2.2822419598550800)",
+                "(48.84461151236850,2.293796842192860)", new Time(12, 32), true, true).execute();
+        assertEquals(nodes, map.getStationsName().size(), "Plan shared between requests");
+    }
 }
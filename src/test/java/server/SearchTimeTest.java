@@ -2,6 +2,7 @@ package server;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -88,4 +89,27 @@ class SearchTimeTest {
         StationTime expected = new StationTime("14", "Mairie de Saint-Ouen", new Time(6, 18, 00));
         assertEquals(expected, times.get(10), "Times at a Châtelet at 23:59");
     }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void timeAtUnknownStation() {
+        SearchTime search = createSearchTime("test", new Time(12, 0));
+        assertEquals(0, ((DepartureTimes) search.execute()).getTimes().size(),
+                "Times at an unknown station");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void timesAfterRequestedTime() {
+        Time time = new Time(12, 0);
+        List<StationTime> times =
+                ((DepartureTimes) createSearchTime("Châtelet", time).execute()).getTimes();
+        assertEquals(20, times.size(), "Number of times at Châtelet");
+        for (int i = 0; i < times.size(); i++) {
+            assertTrue(time.compareTo(times.get(i).getTime()) < 0, "Time after 12:00");
+            if (i > 0)
+                assertTrue(times.get(i - 1).getTime().compareTo(times.get(i).getTime()) <= 0,
+                        "Times sorted");
+        }
+    }
 }
@@ -1,19 +1,45 @@
 package server;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.io.ObjectInputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
 
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import server.data.BinaryCodec;
 import server.data.ErrorServer;
+import server.data.ProtocolAccepted;
 import server.data.Route;
+import server.data.ServerResponse;
 import server.data.SuggestionStations;
 import server.map.PlanParser.IncorrectFileFormatException;
+import util.Logger;
 
 class ServerTest {
 
@@ -27,9 +53,19 @@ class ServerTest {
     private static final String SUGGESTION_VALID_ARRIVAL = "SEARCH;GARE1;ARRIVAL";
     private static final String SUGGESTION_INVALID_2ARG = "SEARCH;GARE1;afhja";
     private static final String SUGGESTION_EMPTY = "SEARCH; ";
+    private static final String PROTOCOL_BINARY = "PROTOCOL;BINARY;" + BinaryCodec.VERSION;
+    private static final String PROTOCOL_JAVA = "PROTOCOL;JAVA";
+    private static final String PROTOCOL_JSON = "PROTOCOL;JSON";
+    private static final String PROTOCOL_UNSUPPORTED = "PROTOCOL;BINARY;42";
 
     private static final int PORT = 12334;
     private static final int incommingConnection = 3;
+    private static final int IDLE_CONNECTIONS = 32;
+    private static final int VIRTUAL_THREADS_PORT = 12335;
+    private static final int FALLBACK_PORT = 12336;
+    private static final int CONCURRENT_CLIENTS = 16;
+    private static final int REQUESTS_PER_CLIENT = 5;
+    private static final int PIPELINED_REQUESTS = 30;
     private static final long TIMEOUT = 3;
 
     private static Server server = null;
@@ -181,4 +217,281 @@ class ServerTest {
         assertTrue(suggestions instanceof ErrorServer);
     }
 
+    @Test
+    @Timeout(value = TIMEOUT)
+    void testManyIdleConnections() throws Exception {
+        List<Socket> idle = new ArrayList<>();
+        try {
+            for (int i = 0; i < IDLE_CONNECTIONS; i++) {
+                idle.add(new Socket(HOST, PORT));
+                Thread.sleep(10); // laisse le server vider sa file d'attente de 3 connexions
+            }
+            try (Socket socket = new Socket(HOST, PORT)) {
+                PrintWriter writer = new PrintWriter(socket.getOutputStream());
+                writer.println(SUGGESTION_VALID_DEPART);
+                writer.flush();
+                Object suggestions = new ObjectInputStream(socket.getInputStream()).readObject();
+                assertTrue(suggestions instanceof SuggestionStations,
+                        "Answered despite idle clients");
+            }
+        } finally {
+            for (Socket socket : idle)
+                socket.close();
+        }
+    }
+
+    @Test
+    @Timeout(value = TIMEOUT)
+    void testRequestSplitAcrossWrites() throws Exception {
+        try (Socket socket = new Socket(HOST, PORT)) {
+            OutputStream stream = socket.getOutputStream();
+            byte[] request =
+                    (SUGGESTION_VALID_ARRIVAL + "\r\n").getBytes(Charset.defaultCharset());
+            int half = request.length / 2;
+            stream.write(request, 0, half);
+            stream.flush();
+            Thread.sleep(100);
+            stream.write(request, half, request.length - half);
+            stream.flush();
+            Object suggestions = new ObjectInputStream(socket.getInputStream()).readObject();
+            assertTrue(suggestions instanceof SuggestionStations,
+                    "Request read from several packets");
+        }
+    }
+
+    @Test
+    @Timeout(value = TIMEOUT)
+    void testRequestWithoutNewlineBeforeClose() throws Exception {
+        try (Socket socket = new Socket(HOST, PORT)) {
+            socket.getOutputStream()
+                    .write(SUGGESTION_VALID_DEPART.getBytes(Charset.defaultCharset()));
+            socket.shutdownOutput();
+            Object suggestions = new ObjectInputStream(socket.getInputStream()).readObject();
+            assertTrue(suggestions instanceof SuggestionStations, "Last request read at close");
+        }
+    }
+
+    /**
+     * Négocie le format binaire, vérifie quelques réponses dans ce format puis revient à la
+     * sérialisation Java
+     *
+     * @param port le port du server
+     */
+    private static void binaryProtocolHelper(int port) throws Exception {
+        try (Socket socket = new Socket(HOST, port)) {
+            PrintWriter writer = new PrintWriter(socket.getOutputStream());
+            InputStream stream = socket.getInputStream();
+            writer.println(PROTOCOL_UNSUPPORTED);
+            writer.flush();
+            assertTrue(new ObjectInputStream(stream).readObject() instanceof ErrorServer,
+                    "Unsupported version refused in the current format");
+
+            writer.println(PROTOCOL_BINARY);
+            writer.println(ROUTE_REQUEST_RIGHT);
+            writer.println(ROUTE_REQUEST_WRONG);
+            writer.println(PROTOCOL_UNSUPPORTED);
+            writer.flush();
+            ServerResponse accepted = BinaryCodec.decode(stream);
+            assertTrue(accepted instanceof ProtocolAccepted, "Binary format accepted");
+            assertEquals("BINARY", ((ProtocolAccepted) accepted).getProtocol(),
+                    "Accepted format");
+            assertTrue(BinaryCodec.decode(stream) instanceof Route, "Binary route");
+            assertTrue(BinaryCodec.decode(stream) instanceof ErrorServer, "Binary error");
+            assertTrue(BinaryCodec.decode(stream) instanceof ErrorServer,
+                    "Unsupported version refused in binary");
+
+            writer.println(PROTOCOL_JAVA);
+            writer.println(SUGGESTION_VALID_DEPART);
+            writer.flush();
+            assertTrue(new ObjectInputStream(stream).readObject() instanceof ProtocolAccepted,
+                    "Switch back acknowledged in the new format");
+            assertTrue(new ObjectInputStream(stream).readObject() instanceof SuggestionStations,
+                    "Back to Java serialization");
+        }
+    }
+
+    /**
+     * Négocie le format JSON et vérifie le type de quelques réponses, une par ligne
+     *
+     * @param port le port du server
+     */
+    private static void jsonProtocolHelper(int port) throws Exception {
+        try (Socket socket = new Socket(HOST, port)) {
+            PrintWriter writer = new PrintWriter(socket.getOutputStream());
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            writer.println(PROTOCOL_JSON);
+            writer.println(ROUTE_REQUEST_RIGHT);
+            writer.println(SUGGESTION_VALID_DEPART);
+            writer.println(ROUTE_REQUEST_WRONG);
+            writer.flush();
+            for (String type : new String[] {"PROTOCOL", "ROUTE", "SUGGESTIONS", "ERROR"}) {
+                try (JsonReader json = Json.createReader(new StringReader(reader.readLine()))) {
+                    JsonObject response = json.readObject();
+                    assertEquals(type, response.getString("type"), "JSON response type");
+                }
+            }
+        }
+    }
+
+    @Test
+    @Timeout(value = TIMEOUT)
+    void testBinaryProtocol() throws Exception {
+        binaryProtocolHelper(PORT);
+    }
+
+    @Test
+    @Timeout(value = TIMEOUT)
+    void testJsonProtocol() throws Exception {
+        jsonProtocolHelper(PORT);
+    }
+
+    /**
+     * Envoie toutes les requêtes d'un coup, sans attendre les réponses, puis vérifie que les
+     * réponses arrivent dans l'ordre
+     *
+     * @param port le port du server
+     */
+    private static void pipelinedHelper(int port) throws Exception {
+        String[] requests = {SUGGESTION_VALID_DEPART, ROUTE_REQUEST_WRONG, ROUTE_REQUEST_RIGHT};
+        StringBuilder pipeline = new StringBuilder();
+        for (int i = 0; i < PIPELINED_REQUESTS; i++)
+            pipeline.append(requests[i % requests.length]).append('\n');
+        try (Socket socket = new Socket(HOST, port)) {
+            OutputStream stream = socket.getOutputStream();
+            stream.write(pipeline.toString().getBytes(Charset.defaultCharset()));
+            stream.flush();
+            InputStream responses = socket.getInputStream();
+            for (int i = 0; i < PIPELINED_REQUESTS; i++) {
+                Object response = new ObjectInputStream(responses).readObject();
+                Class<?> expected = switch (i % requests.length) {
+                    case 0 -> SuggestionStations.class;
+                    case 1 -> ErrorServer.class;
+                    default -> Route.class;
+                };
+                assertTrue(expected.isInstance(response), "Response " + i + " in order");
+            }
+        }
+    }
+
+    @Test
+    @Timeout(value = TIMEOUT)
+    void testPipelinedRequests() throws Exception {
+        pipelinedHelper(PORT);
+    }
+
+    @Test
+    @Timeout(value = TIMEOUT)
+    void testFailingRequestInPipeline() throws Exception {
+        List<String> batch = List.of(SUGGESTION_VALID_DEPART, ROUTE_REQUEST_RIGHT,
+                ROUTE_REQUEST_RIGHT);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int[] calls = {0};
+        ResponseFormat last = ClientHandler.respondAll(batch, ResponseFormat.JAVA, bytes,
+                (request, format, stream) -> {
+                    if (calls[0]++ == 1) {
+                        stream.write(new byte[] {1, 2, 3});
+                        throw new IllegalStateException("encodage impossible");
+                    }
+                    return ClientHandler.respond(server.getPlan(), request, format, stream);
+                });
+        assertEquals(ResponseFormat.JAVA, last, "Same format");
+        InputStream responses = new ByteArrayInputStream(bytes.toByteArray());
+        assertTrue(new ObjectInputStream(responses).readObject() instanceof SuggestionStations,
+                "First response");
+        assertTrue(new ObjectInputStream(responses).readObject() instanceof ErrorServer,
+                "Error in place of the failed response");
+        assertTrue(new ObjectInputStream(responses).readObject() instanceof Route,
+                "Third response answers the third request");
+        assertEquals(0, responses.available(), "One response per request");
+    }
+
+    /**
+     * Envoie plusieurs requêtes sur une nouvelle connexion et vérifie chaque réponse
+     *
+     * @param port le port du server
+     * @return si toutes les réponses sont du bon type
+     */
+    private static boolean clientSession(int port) throws Exception {
+        try (Socket socket = new Socket(HOST, port)) {
+            PrintWriter writer = new PrintWriter(socket.getOutputStream());
+            boolean ok = true;
+            for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                boolean route = i % 2 == 0;
+                writer.println(route ? ROUTE_REQUEST_RIGHT : ROUTE_REQUEST_WRONG);
+                writer.flush();
+                Object response = new ObjectInputStream(socket.getInputStream()).readObject();
+                ok &= route ? response instanceof Route : response instanceof ErrorServer;
+            }
+            return ok;
+        }
+    }
+
+    @Test
+    @Timeout(value = TIMEOUT)
+    void testVirtualThreadsConcurrentClients() throws Exception {
+        Server virtual = new Server(getPath(MAP_DATA_ALL), VIRTUAL_THREADS_PORT, false,
+                Server.DEFAULT_BACKLOG, Server.Mode.VIRTUAL_THREADS);
+        assertEquals(Runtime.version().feature() >= 21 ? Server.Mode.VIRTUAL_THREADS
+                : Server.Mode.SELECTOR, virtual.getMode(), "Selector mode before Java 21");
+        new Thread(virtual::start).start();
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENT_CLIENTS);
+        List<Socket> idle = new ArrayList<>();
+        try {
+            for (int i = 0; i < IDLE_CONNECTIONS; i++)
+                idle.add(new Socket(HOST, VIRTUAL_THREADS_PORT));
+            List<Callable<Boolean>> sessions = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_CLIENTS; i++)
+                sessions.add(() -> clientSession(VIRTUAL_THREADS_PORT));
+            for (Future<Boolean> session : clients.invokeAll(sessions))
+                assertTrue(session.get(), "Every client answered in order");
+            binaryProtocolHelper(VIRTUAL_THREADS_PORT);
+            jsonProtocolHelper(VIRTUAL_THREADS_PORT);
+            pipelinedHelper(VIRTUAL_THREADS_PORT);
+        } finally {
+            clients.shutdownNow();
+            for (Socket socket : idle)
+                socket.close();
+            virtual.stop();
+        }
+    }
+
+    @Test
+    @Timeout(value = TIMEOUT)
+    void testVirtualThreadsFallbackLogged() throws Exception {
+        List<String> warnings = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel() == Level.WARNING)
+                    warnings.add(String.valueOf(record.getParameters()[0]));
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        java.util.logging.Logger global = java.util.logging.Logger.getGlobal();
+        boolean enabled = Logger.isEnable();
+        Logger.enable();
+        global.addHandler(handler);
+        Server fallback = null;
+        try {
+            fallback = new Server(getPath(MAP_DATA_ALL), FALLBACK_PORT, false,
+                    Server.DEFAULT_BACKLOG, Server.Mode.VIRTUAL_THREADS);
+        } finally {
+            global.removeHandler(handler);
+            if (!enabled)
+                Logger.disable();
+            if (fallback != null)
+                fallback.stop();
+        }
+        boolean logged = warnings.stream().anyMatch(message -> message.contains("SELECTOR"));
+        assertEquals(fallback.getMode() == Server.Mode.SELECTOR, logged,
+                "Fallback to the selector mode logged");
+    }
 }
@@ -0,0 +1,147 @@
+package server;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.json.Json;
+import javax.json.JsonReader;
+import server.data.BinaryCodec;
+import server.data.ServerResponse;
+import server.map.Plan;
+import server.map.PlanParser;
+
+/**
+ * Compare la taille des réponses et le temps d'encodage puis de décodage de la sérialisation Java,
+ * du format binaire de {@link BinaryCodec} et du JSON de {@link server.data.JsonCodec}, sur des
+ * trajets, des horaires de passage et des suggestions de stations calculés sur le plan.
+ *
+ * <p>
+ * Ce n'est pas un test : à lancer à la main avec
+ * {@code java -cp <classpath de test> server.WireFormatBenchmark [fichier du plan] [fichier des horaires]}.
+ */
+final class WireFormatBenchmark {
+
+    private static final String MAP_DATA = "src/test/resources/map_data_fix_dist_time.csv";
+
+    private static final String TIME_DATA = "src/test/resources/time_data_all.csv";
+
+    private static final int WARMUP = 3;
+
+    private static final int ROUNDS = 10;
+
+    private WireFormatBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        Plan plan = PlanParser.planFromSectionCSV(args.length > 0 ? args[0] : MAP_DATA);
+        PlanParser.addTimeFromCSV(plan, args.length > 1 ? args[1] : TIME_DATA);
+        List<String> stations = new ArrayList<>(plan.getStationsName());
+        stations.sort(null);
+
+        List<String> routes = new ArrayList<>();
+        for (int i = 0; i < stations.size(); i += 7)
+            for (int j = 3; j < stations.size(); j += 29)
+                routes.add(String.format("ROUTE;%s;%s;8:30;TIME;FOOT", stations.get(i),
+                        stations.get(j)));
+        List<String> boards = new ArrayList<>();
+        for (String station : stations)
+            boards.add(String.format("TIME;%s;8:30", station));
+        List<String> suggestions = new ArrayList<>();
+        for (String station : stations)
+            suggestions.add(String.format("SEARCH;%s;DEPART", station.substring(0, 1)));
+
+        measure("Trajets", responses(plan, routes));
+        measure("Horaires", responses(plan, boards));
+        measure("Suggestions", responses(plan, suggestions));
+    }
+
+    private static List<ServerResponse> responses(Plan plan, List<String> requests)
+            throws Exception {
+        List<ServerResponse> responses = new ArrayList<>();
+        for (String request : requests)
+            responses.add(RequestParser.getServerActionCallback(plan, request).execute());
+        return responses;
+    }
+
+    private static void measure(String name, List<ServerResponse> responses) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            javaRound(responses);
+            binaryRound(responses);
+            jsonRound(responses);
+        }
+        long javaBytes = 0;
+        long binaryBytes = 0;
+        long jsonBytes = 0;
+        long javaTime = 0;
+        long binaryTime = 0;
+        long jsonTime = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            javaBytes = javaRound(responses);
+            javaTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            binaryBytes = binaryRound(responses);
+            binaryTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            jsonBytes = jsonRound(responses);
+            jsonTime += System.nanoTime() - start;
+        }
+        long count = responses.size();
+        System.out.printf("%s (%d réponses)%n", name, count);
+        System.out.printf("  Java    : %8d octets/réponse %8.1f µs/réponse%n", javaBytes / count,
+                javaTime / 1e3 / ROUNDS / count);
+        System.out.printf("  Binaire : %8d octets/réponse %8.1f µs/réponse%n",
+                binaryBytes / count, binaryTime / 1e3 / ROUNDS / count);
+        System.out.printf("  JSON    : %8d octets/réponse %8.1f µs/réponse%n", jsonBytes / count,
+                jsonTime / 1e3 / ROUNDS / count);
+        System.out.printf("  Gain du binaire : x%.1f en taille, x%.1f en temps%n",
+                (double) javaBytes / binaryBytes, (double) javaTime / binaryTime);
+    }
+
+    /**
+     * @return le nombre total d'octets envoyés
+     */
+    private static long javaRound(List<ServerResponse> responses) throws Exception {
+        long bytes = 0;
+        for (ServerResponse response : responses) {
+            byte[] encoded = ResponseFormat.JAVA.encode(response);
+            bytes += encoded.length;
+            try (ObjectInputStream in =
+                    new ObjectInputStream(new ByteArrayInputStream(encoded))) {
+                in.readObject();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return le nombre total d'octets envoyés
+     */
+    private static long binaryRound(List<ServerResponse> responses) throws Exception {
+        long bytes = 0;
+        for (ServerResponse response : responses) {
+            byte[] encoded = BinaryCodec.encode(response);
+            bytes += encoded.length;
+            BinaryCodec.decode(new ByteArrayInputStream(encoded));
+        }
+        return bytes;
+    }
+
+    /**
+     * @return le nombre total d'octets envoyés
+     */
+    private static long jsonRound(List<ServerResponse> responses) throws Exception {
+        long bytes = 0;
+        for (ServerResponse response : responses) {
+            byte[] encoded = ResponseFormat.JSON.encode(response);
+            bytes += encoded.length;
+            try (JsonReader in = Json.createReader(new InputStreamReader(
+                    new ByteArrayInputStream(encoded), StandardCharsets.UTF_8))) {
+                in.readObject();
+            }
+        }
+        return bytes;
+    }
+}
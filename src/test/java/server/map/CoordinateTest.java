@@ -2,6 +2,11 @@ package server.map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
@@ -84,4 +89,41 @@ class CoordinateTest {
         distanceHelper(48.8442498880687, 2.278362661809200, 48.8456832067358, 2.3731565937892047,
                 6939);
     }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void testDistanceParisLyon() {
+        distanceHelper(48.8566, 2.3522, 45.764, 4.8357, 391499);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void testDistanceAcrossAntimeridian() {
+        distanceHelper(0, 179.99, 0, -179.99, 2224);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void serializedForm() {
+        ObjectStreamClass form = ObjectStreamClass.lookup(Coordinate.class);
+        assertEquals(3L, form.getSerialVersionUID(), "Same serialVersionUID");
+        assertEquals(null, form.getField("cosLatitude"), "Cosine not serialized");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void distanceAfterSerialization() throws Exception {
+        Coordinate chatelet = new Coordinate(48.85955653272677, 2.346411849769497);
+        Coordinate lyon = new Coordinate(48.84432, 2.37396);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(chatelet);
+        }
+        Coordinate read;
+        try (ObjectInputStream in =
+                new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (Coordinate) in.readObject();
+        }
+        assertEquals(chatelet.getDistance(lyon), read.getDistance(lyon), "Same distance");
+    }
 }
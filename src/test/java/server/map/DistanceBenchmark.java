@@ -0,0 +1,135 @@
+package server.map;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compare {@link Coordinate#getDistance(Coordinate)} avec la loi des cosinus sphérique utilisée
+ * auparavant : temps de calcul sur tous les couples de stations du plan et erreur maximale par
+ * rapport à la formule de haversine, sur le plan puis sur des couples aléatoires à moins de 30 km
+ * à différentes latitudes.
+ *
+ * <p>
+ * Ce n'est pas un test : à lancer à la main avec
+ * {@code java -cp <classpath de test> server.map.DistanceBenchmark [fichier du plan]}.
+ */
+final class DistanceBenchmark {
+
+    private static final String MAP_DATA_ALL = "src/test/resources/map_data_all.csv";
+
+    private static final double EARTH_RADIUS = 6_371_000;
+
+    private static final int WARMUP = 5;
+
+    private static final int ROUNDS = 20;
+
+    private static final int RANDOM_PAIRS = 1_000_000;
+
+    private DistanceBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        String file = args.length > 0 ? args[0] : MAP_DATA_ALL;
+        Plan plan = PlanParser.planFromSectionCSV(file);
+        List<Coordinate> coordinates = new ArrayList<>();
+        for (Station station : plan.getStations())
+            coordinates.add(station.getCoordinate());
+        long pairs = (long) coordinates.size() * coordinates.size();
+
+        for (int i = 0; i < WARMUP; i++) {
+            allPairs(coordinates, false);
+            allPairs(coordinates, true);
+        }
+        long cosines = 0;
+        long kernel = 0;
+        long checksum = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            checksum += allPairs(coordinates, false);
+            cosines += System.nanoTime() - start;
+            start = System.nanoTime();
+            checksum += allPairs(coordinates, true);
+            kernel += System.nanoTime() - start;
+        }
+        System.out.printf("%d couples de stations (somme de contrôle %d)%n", pairs, checksum);
+        System.out.printf("  Loi des cosinus : %6.1f ns/distance%n",
+                (double) cosines / ROUNDS / pairs);
+        System.out.printf("  getDistance     : %6.1f ns/distance%n",
+                (double) kernel / ROUNDS / pairs);
+        System.out.printf("  Accélération    : x%.1f%n", (double) cosines / kernel);
+
+        double maxError = 0;
+        int rounded = 0;
+        for (Coordinate a : coordinates) {
+            for (Coordinate b : coordinates) {
+                maxError = Math.max(maxError, Math.abs(approximate(a, b) - haversine(a, b)));
+                if (a.getDistance(b) != (int) Math.round(haversine(a, b)))
+                    rounded++;
+            }
+        }
+        System.out.printf("  Erreur maximale sur le plan : %.4f m, %d arrondis différents%n",
+                maxError, rounded);
+
+        Random random = new Random(42);
+        for (double latitude : new double[] {0, 48.85, 60, 70}) {
+            double error = 0;
+            for (int i = 0; i < RANDOM_PAIRS; i++) {
+                Coordinate a = new Coordinate(latitude + random.nextDouble() - 0.5,
+                        random.nextDouble() * 360 - 180);
+                double dLat = Math.toDegrees(0.005) * (2 * random.nextDouble() - 1);
+                double dLon = Math.toDegrees(0.005) * (2 * random.nextDouble() - 1);
+                Coordinate b = new Coordinate(a.getLatitude() + dLat, a.getLongitude() + dLon);
+                error = Math.max(error, Math.abs(approximate(a, b) - haversine(a, b)));
+            }
+            System.out.printf("  Latitude %5.2f : erreur maximale %.4f m à moins de 30 km%n",
+                    latitude, error);
+        }
+    }
+
+    /**
+     * @param kernel si {@link Coordinate#getDistance(Coordinate)} est utilisée plutôt que la loi
+     *        des cosinus
+     * @return la somme des distances
+     */
+    private static long allPairs(List<Coordinate> coordinates, boolean kernel) {
+        long sum = 0;
+        for (Coordinate a : coordinates) {
+            for (Coordinate b : coordinates)
+                sum += kernel ? a.getDistance(b) : cosines(a, b);
+        }
+        return sum;
+    }
+
+    /**
+     * L'ancien calcul de {@link Coordinate#getDistance(Coordinate)}
+     */
+    private static int cosines(Coordinate a, Coordinate b) {
+        double latA = Math.toRadians(a.getLatitude());
+        double latB = Math.toRadians(b.getLatitude());
+        double x = Math.sin(latA) * Math.sin(latB);
+        double y = Math.cos(latA) * Math.cos(latB);
+        double z = Math.cos(Math.toRadians(a.getLongitude() - b.getLongitude()));
+        return (int) Math.round(Math.acos(Math.min(1, x + y * z)) * EARTH_RADIUS);
+    }
+
+    /**
+     * La projection équirectangulaire de {@link Coordinate#getDistance(Coordinate)} sans arrondi
+     */
+    private static double approximate(Coordinate a, Coordinate b) {
+        double latA = Math.toRadians(a.getLatitude());
+        double latB = Math.toRadians(b.getLatitude());
+        double x = Math.toRadians(b.getLongitude() - a.getLongitude())
+                * (Math.cos(latA) + Math.cos(latB)) / 2;
+        double y = latB - latA;
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS;
+    }
+
+    private static double haversine(Coordinate a, Coordinate b) {
+        double latA = Math.toRadians(a.getLatitude());
+        double latB = Math.toRadians(b.getLatitude());
+        double sinLat = Math.sin((latB - latA) / 2);
+        double sinLon = Math.sin(Math.toRadians(b.getLongitude() - a.getLongitude()) / 2);
+        double h = sinLat * sinLat + Math.cos(latA) * Math.cos(latB) * sinLon * sinLon;
+        return 2 * Math.asin(Math.min(1, Math.sqrt(h))) * EARTH_RADIUS;
+    }
+}
@@ -0,0 +1,101 @@
+package server.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class GraphOverlayTest {
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final String MAP_DATA = "map_data_ligne8";
+
+    private static final String LOURMEL = "(48.83866086365990, 2.2822419598550800)";
+
+    private final Graph graph;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    GraphOverlayTest() throws Exception {
+        graph = PlanParser.planFromSectionCSV(getPath(MAP_DATA)).getGraph();
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void stationNames() {
+        GraphOverlay overlay = new GraphOverlay(graph, "Lourmel", "Commerce", 1000);
+        assertEquals(graph.getId("Lourmel"), overlay.getStartId(), "Start id");
+        assertEquals(graph.getId("Commerce"), overlay.getArrivalId(), "Arrival id");
+        assertFalse(overlay.hasVirtualStart(), "Start is not a coordinate");
+        assertEquals(graph.platformCount(), overlay.platformCount(), "No virtual platform");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void virtualStart() {
+        GraphOverlay overlay = new GraphOverlay(graph, LOURMEL, "Commerce", 1000);
+        int start = overlay.getStartId();
+        assertTrue(overlay.hasVirtualStart(), "Start is a coordinate");
+        assertEquals(graph.nodeCount(), start, "Virtual start after the graph nodes");
+        assertTrue(overlay.extraEdgeEnd(start) > overlay.extraEdgeStart(start),
+                "Walking sections from the virtual start");
+        for (int e = overlay.extraEdgeStart(start); e < overlay.extraEdgeEnd(start); e++) {
+            assertTrue(overlay.getDistance(e) < 1000, "Walking section shorter than 1000 m");
+            assertEquals(null, overlay.getLine(e), "Walking section without line");
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void virtualArrivalFarFromStations() {
+        GraphOverlay overlay = new GraphOverlay(graph, "Lourmel", "(48.0, 2.0)", 1000);
+        int closest = 0;
+        for (int node = 0; node < graph.nodeCount(); node++)
+            closest += overlay.extraEdgeEnd(node) - overlay.extraEdgeStart(node);
+        assertEquals(1, closest, "Walking section from the closest station only");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void withoutArrival() {
+        GraphOverlay overlay = new GraphOverlay(graph, LOURMEL, null, 1000);
+        assertEquals(-1, overlay.getArrivalId(), "No arrival");
+        assertEquals(graph.platformCount() + 1, overlay.platformCount(),
+                "Only the virtual start platform");
+        for (int node = 0; node < graph.nodeCount(); node++)
+            assertEquals(overlay.extraEdgeStart(node), overlay.extraEdgeEnd(node),
+                    "No walking section to the arrival");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void graphNotModified() {
+        int nodes = graph.nodeCount();
+        int edges = graph.edgeCount();
+        new GraphOverlay(graph, LOURMEL, "(48.84461151236850,2.293796842192860)", 1000);
+        assertEquals(nodes, graph.nodeCount(), "Same number of nodes");
+        assertEquals(edges, graph.edgeCount(), "Same number of edges");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void extraEdgesGroupedBySource() {
+        GraphOverlay overlay =
+                new GraphOverlay(graph, LOURMEL, "(48.84461151236850,2.293796842192860)", 1000);
+        int next = graph.edgeCount();
+        for (int node = 0; node < overlay.nodeCount(); node++) {
+            assertEquals(next, overlay.extraEdgeStart(node), "Ranges follow each other");
+            for (int e = overlay.extraEdgeStart(node); e < overlay.extraEdgeEnd(node); e++)
+                assertEquals(node, overlay.getPlatformNode(overlay.getFromPlatform(e)),
+                        "Walking section leaves from its node");
+            next = overlay.extraEdgeEnd(node);
+        }
+        assertEquals(overlay.edgeCount(), next, "Every walking section in a range");
+    }
+}
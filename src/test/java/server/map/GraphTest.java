@@ -0,0 +1,138 @@
+package server.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class GraphTest {
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final String MAP_DATA = "map_data_ligne8";
+
+    private final Plan plan;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    GraphTest() throws Exception {
+        plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA));
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameSizeAsMap() {
+        Graph graph = plan.getGraph();
+        assertEquals(plan.getStationsName().size(), graph.nodeCount(), "Number of nodes");
+        assertEquals(plan.getMap().values().stream().mapToInt(List::size).sum(),
+                graph.edgeCount(), "Number of edges");
+        assertEquals(plan.getStations().size(), graph.platformCount(), "Number of platforms");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void unknownStation() {
+        assertEquals(-1, plan.getGraph().getId("test"), "Id of unknown station");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void edgesMatchSections() {
+        Graph graph = plan.getGraph();
+        int lourmel = graph.getId("Lourmel");
+        for (int e = graph.edgeStart(lourmel); e < graph.edgeEnd(lourmel); e++) {
+            Section section = graph.getSection(e);
+            assertEquals(section.getArrival().getName(), graph.getName(graph.getTarget(e)),
+                    "Edge target");
+            assertEquals(section.getStart(), graph.getPlatform(graph.getFromPlatform(e)),
+                    "Edge start platform");
+            assertEquals(section.getDistance(), graph.getDistance(e), "Edge distance");
+            assertEquals(section.getDuration(), graph.getDuration(e), "Edge duration");
+            assertEquals(plan.getLine(section), graph.getLine(graph.getLineId(e)), "Edge line");
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameTransferPlatform() {
+        Graph graph = plan.getGraph();
+        int platform = graph.platformStart(graph.getId("Lourmel"));
+        assertEquals(0, graph.transferDistance(platform, platform), "Transfer on same platform");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void graphIsCached() {
+        assertSame(plan.getGraph(), plan.getGraph(), "Graph built once");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void graphRebuiltAfterUpdate() {
+        Graph graph = plan.getGraph();
+        plan.addStationWithSectionToNearStation("test", 48.84, 2.28, 1000);
+        assertNotSame(graph, plan.getGraph(), "Graph rebuilt after an update of the plan");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void footpathsMatchDistances() {
+        Graph graph = plan.getGraph();
+        FootpathTable footpaths = graph.getFootpaths();
+        int count = 0;
+        for (int p = 0; p < graph.platformCount(); p++) {
+            Station station = graph.getPlatform(p);
+            for (int q = 0; q < graph.platformCount(); q++) {
+                int distance = station.distanceBetween(graph.getPlatform(q));
+                if (q != p && distance < Graph.MAX_FOOT_DISTANCE)
+                    count++;
+            }
+            for (int i = footpaths.footStart(p); i < footpaths.footEnd(p); i++) {
+                Station close = graph.getPlatform(footpaths.getTarget(i));
+                assertTrue(footpaths.getTarget(i) != p, "No footpath to the same platform");
+                assertEquals(station.distanceBetween(close), footpaths.getDistance(i),
+                        "Footpath distance");
+                assertEquals(station.durationBetween(close), footpaths.getDuration(i),
+                        "Footpath duration");
+            }
+        }
+        assertEquals(count, footpaths.size(), "Number of footpaths");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void findFootpath() {
+        Graph graph = plan.getGraph();
+        FootpathTable footpaths = graph.getFootpaths();
+        int platform = graph.platformStart(graph.getId("Lourmel"));
+        for (int i = footpaths.footStart(platform); i < footpaths.footEnd(platform); i++)
+            assertEquals(i, footpaths.find(platform, footpaths.getTarget(i)), "Footpath found");
+        assertEquals(-1, footpaths.find(platform, platform), "No footpath to the same platform");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void footpathsKeptAfterTimetableUpdate() {
+        FootpathTable footpaths = plan.getGraph().getFootpaths();
+        plan.updateSectionsTime();
+        assertSame(footpaths, plan.getGraph().getFootpaths(),
+                "Footpaths depend on the network only");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void departureBoardRebuiltAfterTimetableUpdate() {
+        DepartureBoard board = plan.getGraph().getDepartureBoard();
+        assertSame(board, plan.getGraph().getDepartureBoard(), "Departure board built once");
+        plan.updateSectionsTime();
+        assertNotSame(board, plan.getGraph().getDepartureBoard(),
+                "Departure board depends on the timetable");
+    }
+}
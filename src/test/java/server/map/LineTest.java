@@ -126,6 +126,39 @@ class LineTest {
                 "Time from start with loop in line");
     }
 
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void orderedSections() throws Exception {
+        initLine();
+        line.setStart("A");
+        line.updateSectionsTime();
+        assertEquals(Arrays.asList(s1, s2), line.getOrderedSections(), "Sections in order");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void orderedSectionsWithLoop() throws Exception {
+        initLine();
+        Section loopSection = new Section(t3, t1, "test variant 0", 0, 30);
+        line.addSection(loopSection);
+        line.setStart("B");
+        line.updateSectionsTime();
+        assertEquals(Arrays.asList(s2, loopSection, s1), line.getOrderedSections(),
+                "Sections in order with loop in line");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void updateSectionsTimeTwice() throws Exception {
+        initLine();
+        line.setStart("A");
+        line.updateSectionsTime();
+        line.updateSectionsTime();
+        assertEquals(45, line.getSectionsMap().get(s2), "Time from start after two updates");
+        assertEquals(Arrays.asList(s1, s2), line.getOrderedSections(),
+                "Sections in order after two updates");
+    }
+
     @Test
     @Timeout(DEFAULT_TIMEOUT)
     void getNextTimeWithoutDepartureTime() throws Exception {
@@ -209,4 +242,52 @@ class LineTest {
         List<Time> times = line.getDepartureTime(s2);
         assertEquals(expected, times, "Get section departure times");
     }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void addDepartureTimeUnordered() {
+        line.addDepartureTime(15, 30);
+        line.addDepartureTime(6, 30);
+        line.addDepartureTime(15, 20);
+        line.addDepartureTime(6, 30);
+        List<Time> expected = Arrays.asList(new Time(6, 30), new Time(15, 20), new Time(15, 30));
+        assertEquals(expected, line.getDepartures(), "Departure times sorted without duplicates");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void getNextTimeInSeconds() throws Exception {
+        initDepartureTime();
+        assertEquals(new Time(15, 30, 30).toSeconds(),
+                line.getNextTime(s2, new Time(15, 21).toSeconds()), "Next departure in seconds");
+        assertEquals(Time.NO_TIME, line.getNextTime(new Section(t3, t1, "", 0, 0), 0),
+                "Next departure in seconds for unknown section");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void getNextTimeLastOfTheDay() throws Exception {
+        initStart();
+        line.addDepartureTime(6, 30);
+        line.addDepartureTime(23, 59);
+        assertEquals(new Time(23, 59, 30), line.getNextTime(s2, new Time(23, 59, 20)),
+                "Last departure of the day");
+        assertEquals(new Time(6, 30, 30), line.getNextTime(s2, new Time(23, 59, 40)),
+                "First departure of the next day");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void getNextTimeAfterMidnight() throws Exception {
+        Section slow = new Section(t1, t2, "test variant 0", 0, 7200);
+        line.addSection(slow);
+        line.addSection(s2);
+        line.setStart("A");
+        line.updateSectionsTime();
+        line.addDepartureTime(23, 0);
+        assertEquals(new Time(1, 0, 20), line.getNextTime(s2, new Time(0, 30)),
+                "Departure reaching the section after midnight");
+        assertEquals(new Time(1, 0, 20), line.getNextTime(s2, new Time(2, 0)),
+                "Departure reaching the section after midnight the next day");
+    }
 }
@@ -2,6 +2,10 @@ package server.map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
@@ -30,38 +34,6 @@ class PlanTest {
         PlanParser.addTimeFromCSV(plan, getPath(TIME_DATA));
     }
 
-    @Test
-    @Timeout(DEFAULT_TIMEOUT)
-    void copieEqualsMap() {
-        assertEquals(plan.getMap(), new Plan(plan).getMap(), "Plan copie");
-    }
-
-    @Test
-    @Timeout(DEFAULT_TIMEOUT)
-    void copieEqualsLine() {
-        assertEquals(plan.getLines(), new Plan(plan).getLines(), "Plan copie");
-    }
-
-    @Test
-    @Timeout(DEFAULT_TIMEOUT)
-    void copieEqualsInfo() {
-        assertEquals(plan.getStationsInfo(), new Plan(plan).getStationsInfo(), "Plan copie");
-    }
-
-    @Test
-    @Timeout(DEFAULT_TIMEOUT)
-    void updateSectionTimeNullSection() {
-        plan.updateSectionTime(null, new Time(0, 0));
-        assertEquals(plan.getMap(), new Plan(plan).getMap(), "Update null section");
-    }
-
-    @Test
-    @Timeout(DEFAULT_TIMEOUT)
-    void updateSectionTimeUnknownSection() {
-        plan.updateSectionTime(unknownSection, new Time(0, 0));
-        assertEquals(plan.getMap(), new Plan(plan).getMap(), "Update null section");
-    }
-
     @Test
     @Timeout(DEFAULT_TIMEOUT)
     void getLineNameNullSection() {
@@ -85,4 +57,19 @@ class PlanTest {
     void getLineUnknownSection() {
         assertNull(plan.getLine(unknownSection), "Line of unknown section");
     }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void closeStationsFromSeveralThreads() throws Exception {
+        Plan shared = PlanParser.planFromSectionCSV(getPath(MAP_DATA));
+        List<Station> stations = new ArrayList<>();
+        for (String name : plan.getStationsName())
+            stations.add(plan.getSectionsFromStationName(name).get(0).getStart());
+        Map<Station, List<Station>> found = new ConcurrentHashMap<>();
+        stations.parallelStream()
+                .forEach(s -> found.put(s, shared.getCloseStations(s, 1000, true)));
+        for (Station s : stations)
+            assertEquals(plan.getCloseStations(s, 1000, true), found.get(s),
+                    "Same close stations for " + s.getName());
+    }
 }
@@ -5,6 +5,11 @@ import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -172,4 +177,56 @@ class SectionTest {
                 Arrays.asList(new Section(a, c, "", 3066, 570), new Section(a, c, "toto", 50, 50));
         assertEquals(expected, Section.sectionsToTrajet(sections), "sectionToRoute");
     }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void setTimeInSeconds() {
+        s1.setTime(new Time(23, 59).toSeconds() + 120);
+        assertEquals(new Time(0, 1), s1.getTime(), "Departure time after midnight");
+        assertEquals(new Time(0, 3), s1.getArrivalTime(), "Arrival time after midnight");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void setNoTimeInSeconds() {
+        s1.setTime(Time.NO_TIME);
+        assertNull(s1.getTime(), "No departure time");
+        assertEquals(Time.NO_TIME, s1.getArrivalTimeInSeconds(), "No arrival time");
+    }
+
+    private Section serializeAndRead(Section section) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(section);
+        }
+        try (ObjectInputStream in =
+                new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (Section) in.readObject();
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void serializedForm() {
+        ObjectStreamClass form = ObjectStreamClass.lookup(Section.class);
+        assertEquals(12L, form.getSerialVersionUID(), "Same serialVersionUID");
+        assertEquals(Time.class, form.getField("time").getType(), "Time still serialized");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void serializeWithTime() throws Exception {
+        s1.setTime(new Time(12, 30));
+        Section read = serializeAndRead(s1);
+        assertEquals(s1, read, "Same section");
+        assertEquals(new Time(12, 30), read.getTime(), "Same departure time");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void serializeWithoutTime() throws Exception {
+        Section read = serializeAndRead(new Section(a, b, null, 1716, 120));
+        assertNull(read.getLine(), "Walking section");
+        assertNull(read.getTime(), "No departure time");
+    }
 }
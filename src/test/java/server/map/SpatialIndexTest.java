@@ -0,0 +1,96 @@
+package server.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class SpatialIndexTest {
+
+    private static final int DEFAULT_TIMEOUT = 2000;
+
+    private static final String MAP_DATA_ALL = "map_data_all";
+
+    private final Station[] stations;
+
+    private final SpatialIndex index;
+
+    private String getPath(String filename) {
+        if (filename == null)
+            return null;
+        return "src/test/resources/" + filename + ".csv";
+    }
+
+    SpatialIndexTest() throws Exception {
+        Plan plan = PlanParser.planFromSectionCSV(getPath(MAP_DATA_ALL));
+        stations = plan.getStations().toArray(new Station[0]);
+        index = new SpatialIndex(stations, Graph.MAX_FOOT_DISTANCE);
+    }
+
+    private int[] withinRadiusScan(Station station, int maxDistance) {
+        List<Integer> close = new ArrayList<>();
+        for (int i = 0; i < stations.length; i++) {
+            if (station.distanceBetween(stations[i]) < maxDistance)
+                close.add(i);
+        }
+        return close.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int[] nearestScan(Station station, int k) {
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < stations.length; i++) {
+            if (!stations[i].equals(station))
+                all.add(i);
+        }
+        all.sort(Comparator.comparingInt((Integer i) -> station.distanceBetween(stations[i]))
+                .thenComparingInt(i -> i));
+        return all.stream().limit(k).mapToInt(Integer::intValue).toArray();
+    }
+
+    private void sameAsScanHelper(Station station) {
+        for (int radius : new int[] {0, 300, 1000, 5000}) {
+            assertEquals(Arrays.toString(withinRadiusScan(station, radius)),
+                    Arrays.toString(index.withinRadius(station, radius)),
+                    String.format("Stations within %d m of %s", radius, station));
+        }
+        for (int k : new int[] {1, 3, 20}) {
+            assertEquals(Arrays.toString(nearestScan(station, k)),
+                    Arrays.toString(index.nearest(station, k)),
+                    String.format("%d nearest stations of %s", k, station));
+        }
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameAsScanForStations() {
+        for (int i = 0; i < stations.length; i += 9)
+            sameAsScanHelper(stations[i]);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void sameAsScanForCoordinates() {
+        sameAsScanHelper(new Station("test", 48.855402921055045, 2.3443066430543738));
+        sameAsScanHelper(new Station("test", 48.76844682672424, 2.3622296824389313));
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void farFromAllStations() {
+        Station far = new Station("test", 45.75, 4.85);
+        assertEquals(0, index.withinRadius(far, 1000).length, "No station within 1 km");
+        sameAsScanHelper(far);
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void emptyIndex() {
+        SpatialIndex empty = new SpatialIndex(new Station[0], Graph.MAX_FOOT_DISTANCE);
+        Station station = new Station("test", 48.85, 2.35);
+        assertEquals(0, empty.withinRadius(station, 1000).length, "No station in empty index");
+        assertEquals(0, empty.nearest(station, 1).length, "No nearest station in empty index");
+    }
+}
@@ -122,4 +122,19 @@ class TimeTest {
     void durationToBefore() {
         durationToHelper(new Time(14, 23), new Time(14, 22), 86340);
     }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void addDurationInSecondsNextDay() {
+        assertEquals(new Time(0, 1).toSeconds(),
+                Time.addDuration(new Time(23, 59).toSeconds(), 120), "23:59 plus 2 minutes");
+    }
+
+    @Test
+    @Timeout(DEFAULT_TIMEOUT)
+    void durationBetweenInSeconds() {
+        assertEquals(86340,
+                Time.durationBetween(new Time(14, 23).toSeconds(), new Time(14, 22).toSeconds()),
+                "14:23 to 14:22 in seconds");
+    }
 }